@@ -1,5 +1,7 @@
 package com.jkantrell.mca;
 
+import com.jkantrell.nbt.tag.HeapSize;
+
 import java.util.Arrays;
 
 public class BinaryMap {
@@ -38,6 +40,22 @@ public class BinaryMap {
         this.data_ = data;
     }
 
+    public BinaryMap(int bitsPerEntry, int[] values) {
+        this(bitsPerEntry, values.length);
+        int i = 0;
+        for (int l = 0; l < this.data_.length; l++) {
+            long word = 0L;
+            for (int e = 0; e < this.entriesPerLong_ && i < values.length; e++, i++) {
+                int value = values[i];
+                if (value < 0 || value > this.maxEntryValue_) {
+                    throw new IllegalArgumentException("Value cannot be outside of accepted range.");
+                }
+                word |= ((long) value) << (e * this.bitsPerEntry_);
+            }
+            this.data_[l] = word;
+        }
+    }
+
 
     //GETTERS
     public long[] getData() {
@@ -58,6 +76,23 @@ public class BinaryMap {
         int entryIndex = index % this.entriesPerLong_;
         return this.getFromLong(entryIndex, longIndex);
     }
+    public int[] toArray() {
+        return this.toArray(new int[this.size_]);
+    }
+    public int[] toArray(int[] into) {
+        if (into.length < this.size_) {
+            throw new IllegalArgumentException("Target array cannot hold " + this.size_ + " entries.");
+        }
+        int i = 0;
+        for (int l = 0; l < this.data_.length && i < this.size_; l++) {
+            long word = this.data_[l];
+            for (int e = 0; e < this.entriesPerLong_ && i < this.size_; e++, i++) {
+                into[i] = (int) (word & this.maxEntryValue_);
+                word >>>= this.bitsPerEntry_;
+            }
+        }
+        return into;
+    }
     public int[] indexesOf(int val) {
         int[] r = new int[this.size_];
         int i = 0;
@@ -96,6 +131,28 @@ public class BinaryMap {
 
 
     //UTIL
+    /**
+     * @return An independent map holding the same entries.
+     */
+    public BinaryMap copy() {
+        return new BinaryMap(this.bitsPerEntry_, this.size_, this.data_.clone());
+    }
+
+    /**
+     * @return The estimated heap size of this map and its packed data, in bytes.
+     * @see HeapSize
+     */
+    public long estimateRetainedBytes() {
+        return this.estimateShallowBytes() + HeapSize.array(this.data_);
+    }
+
+    /**
+     * @return The estimated heap size of this map without its packed data, in bytes.
+     */
+    long estimateShallowBytes() {
+        return HeapSize.object(HeapSize.REFERENCE + Long.BYTES + 3 * Integer.BYTES);
+    }
+
     @Override
     public boolean equals(Object o) {
         return this == o || (o instanceof BinaryMap && Arrays.equals(this.data_, ((BinaryMap) o).data_) && this.bitsPerEntry_ == ((BinaryMap) o).bitsPerEntry_ && this.size_ == ((BinaryMap) o).size_ && this.maxEntryValue_ == ((BinaryMap) o).maxEntryValue_);
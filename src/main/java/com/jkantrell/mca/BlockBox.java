@@ -0,0 +1,52 @@
+package com.jkantrell.mca;
+
+/**
+ * An axis-aligned box of blocks. Both corners are inclusive.
+ * The corners are normalized on creation, so any two opposite corners can be passed in any order.
+ * */
+public record BlockBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+
+	public BlockBox {
+		int x = Math.min(minX, maxX), y = Math.min(minY, maxY), z = Math.min(minZ, maxZ);
+		maxX = Math.max(minX, maxX);
+		maxY = Math.max(minY, maxY);
+		maxZ = Math.max(minZ, maxZ);
+		minX = x;
+		minY = y;
+		minZ = z;
+	}
+
+	public int sizeX() {
+		return maxX - minX + 1;
+	}
+	public int sizeY() {
+		return maxY - minY + 1;
+	}
+	public int sizeZ() {
+		return maxZ - minZ + 1;
+	}
+	public long volume() {
+		return (long) sizeX() * sizeY() * sizeZ();
+	}
+
+	public boolean contains(int x, int y, int z) {
+		return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+	}
+
+	/**
+	 * @param other The box to intersect with.
+	 * @return The blocks contained in both boxes or {@code null} if they do not overlap.
+	 * */
+	public BlockBox intersection(BlockBox other) {
+		int x1 = Math.max(minX, other.minX), y1 = Math.max(minY, other.minY), z1 = Math.max(minZ, other.minZ);
+		int x2 = Math.min(maxX, other.maxX), y2 = Math.min(maxY, other.maxY), z2 = Math.min(maxZ, other.maxZ);
+		if (x1 > x2 || y1 > y2 || z1 > z2) {
+			return null;
+		}
+		return new BlockBox(x1, y1, z1, x2, y2, z2);
+	}
+
+	public BlockBox translate(int dx, int dy, int dz) {
+		return new BlockBox(minX + dx, minY + dy, minZ + dz, maxX + dx, maxY + dy, maxZ + dz);
+	}
+}
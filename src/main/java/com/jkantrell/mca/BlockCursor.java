@@ -0,0 +1,202 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A mutable position walking the blocks of one or more sections in storage order (x fastest, then z, then y).
+ * <p>Each section is decoded once into a reused buffer of {@link BlockStateRegistry} ids, reading its packed words
+ * sequentially, so stepping to the next block is a few integer operations and allocates nothing. The cursor is
+ * updated in place by {@link #next()}; read its coordinates and state id before advancing again.</p>
+ * <p>Missing chunks and sections are skipped. Sections modified during a traversal may or may not be seen in their
+ * updated state.</p>
+ * */
+public final class BlockCursor {
+
+	//STATIC
+	private static final BlockBox SECTION_BOUNDS = new BlockBox(0, 0, 0, 15, 15, 15);
+
+	/**
+	 * @param section The section to walk.
+	 * @return A cursor handing out coordinates local to the section.
+	 * */
+	public static BlockCursor of(Section section) {
+		BlockCursor cursor = new BlockCursor();
+		cursor.add(section, 0, 0, 0, SECTION_BOUNDS);
+		return cursor;
+	}
+
+	/**
+	 * @param chunk The chunk to walk.
+	 * @return A cursor handing out x- and z-coordinates relative to the chunk and absolute y-coordinates.
+	 * */
+	public static BlockCursor of(Chunk chunk) {
+		BlockCursor cursor = new BlockCursor();
+		cursor.addChunk(chunk, 0, 0, null);
+		return cursor;
+	}
+
+	/**
+	 * @param region The region to walk.
+	 * @return A cursor handing out absolute coordinates.
+	 * */
+	public static BlockCursor of(MCAFile region) {
+		BlockCursor cursor = new BlockCursor();
+		int originX = MCAUtil.regionToBlock(region.getRegionX()), originZ = MCAUtil.regionToBlock(region.getRegionZ());
+		for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
+			for (int chunkX = 0; chunkX < 32; chunkX++) {
+				Chunk chunk = region.getChunk(chunkX, chunkZ);
+				if (chunk != null) {
+					cursor.addChunk(chunk, originX + MCAUtil.chunkToBlock(chunkX), originZ + MCAUtil.chunkToBlock(chunkZ), null);
+				}
+			}
+		}
+		return cursor;
+	}
+
+	/**
+	 * @param regions The regions to walk.
+	 * @param box     The blocks to visit in absolute coordinates.
+	 * @return A cursor handing out absolute coordinates.
+	 * */
+	public static BlockCursor of(RegionSet regions, BlockBox box) {
+		BlockCursor cursor = new BlockCursor();
+		for (int chunkZ = MCAUtil.blockToChunk(box.minZ()); chunkZ <= MCAUtil.blockToChunk(box.maxZ()); chunkZ++) {
+			for (int chunkX = MCAUtil.blockToChunk(box.minX()); chunkX <= MCAUtil.blockToChunk(box.maxX()); chunkX++) {
+				int blockX = MCAUtil.chunkToBlock(chunkX), blockZ = MCAUtil.chunkToBlock(chunkZ);
+				Chunk chunk = regions.getChunkAt(blockX, blockZ);
+				if (chunk != null) {
+					cursor.addChunk(chunk, blockX, blockZ, box);
+				}
+			}
+		}
+		return cursor;
+	}
+
+
+	//FIELDS
+	private final List<Span> spans_ = new ArrayList<>();
+	private final int[] ids_ = new int[4096];
+	private int span_ = -1;
+	private int originX_, originY_, originZ_;
+	private int minX_, minZ_, maxX_, maxY_, maxZ_;
+	private int localX_ = 0, localY_ = 0, localZ_ = 0;
+	private int x_, y_, z_, stateId_;
+
+
+	//CONSTRUCTORS
+	private BlockCursor() {
+		this.maxX_ = this.maxY_ = this.maxZ_ = -1;
+	}
+
+
+	//GETTERS
+	public int getX() {
+		return this.x_;
+	}
+	public int getY() {
+		return this.y_;
+	}
+	public int getZ() {
+		return this.z_;
+	}
+
+	/**
+	 * @return The {@link BlockStateRegistry} id of the current block state.
+	 * */
+	public int getStateId() {
+		return this.stateId_;
+	}
+
+	/**
+	 * @return The canonical instance of the current block state, which must not be modified.
+	 * */
+	public CompoundTag getBlockState() {
+		return BlockStateRegistry.INSTANCE.get(this.stateId_);
+	}
+
+
+	//UTIL
+	/**
+	 * Moves to the next block.
+	 * @return {@code false} once every block was visited.
+	 * */
+	public boolean next() {
+		while (!this.advance()) {
+			if (this.span_ + 1 >= this.spans_.size()) {
+				return false;
+			}
+			this.load(this.spans_.get(++this.span_));
+		}
+		this.x_ = this.originX_ + this.localX_;
+		this.y_ = this.originY_ + this.localY_;
+		this.z_ = this.originZ_ + this.localZ_;
+		this.stateId_ = this.ids_[(this.localY_ << 8) | (this.localZ_ << 4) | this.localX_];
+		return true;
+	}
+
+	/**
+	 * Hands every remaining block to {@code visitor}.
+	 * @param visitor The visitor.
+	 * */
+	public void forEachRemaining(BlockVisitor visitor) {
+		while (this.next()) {
+			visitor.visit(this.x_, this.y_, this.z_, this.stateId_);
+		}
+	}
+
+
+	//PRIVATE UTIL
+	private void addChunk(Chunk chunk, int blockX, int blockZ, BlockBox box) {
+		for (Section section : chunk) {
+			int blockY = MCAUtil.chunkToBlock(section.getHeight());
+			BlockBox local = SECTION_BOUNDS;
+			if (box != null) {
+				local = box.translate(-blockX, -blockY, -blockZ).intersection(SECTION_BOUNDS);
+				if (local == null) {
+					continue;
+				}
+			}
+			this.add(section, blockX, blockY, blockZ, local);
+		}
+	}
+	private void add(Section section, int blockX, int blockY, int blockZ, BlockBox local) {
+		this.spans_.add(new Span(section, blockX, blockY, blockZ, local));
+	}
+	private void load(Span span) {
+		span.section().copyBlockStateIds(this.ids_);
+		this.originX_ = span.x();
+		this.originY_ = span.y();
+		this.originZ_ = span.z();
+		BlockBox local = span.local();
+		this.minX_ = local.minX();
+		this.minZ_ = local.minZ();
+		this.maxX_ = local.maxX();
+		this.maxY_ = local.maxY();
+		this.maxZ_ = local.maxZ();
+		this.localX_ = this.minX_ - 1;
+		this.localY_ = local.minY();
+		this.localZ_ = this.minZ_;
+	}
+	private boolean advance() {
+		if (this.localX_ < this.maxX_) {
+			this.localX_++;
+		} else if (this.localZ_ < this.maxZ_) {
+			this.localX_ = this.minX_;
+			this.localZ_++;
+		} else if (this.localY_ < this.maxY_) {
+			this.localX_ = this.minX_;
+			this.localZ_ = this.minZ_;
+			this.localY_++;
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+
+	//CLASSES
+	private record Span(Section section, int x, int y, int z, BlockBox local) {}
+}
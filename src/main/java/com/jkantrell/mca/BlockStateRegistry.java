@@ -0,0 +1,91 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry interning block states to dense int ids.
+ * <p>Every distinct block state is stored once as a canonical {@link CompoundTag}. Ids are assigned in
+ * registration order starting at 0 and never change for the lifetime of the process. Lookups are lock-free,
+ * registering a new state takes a lock.</p>
+ * <p>Canonical tags are shared by every palette referencing them and frozen, so they can be read from any thread
+ * and cloning them is free.</p>
+ * */
+public final class BlockStateRegistry {
+
+	//STATIC
+	public static final BlockStateRegistry INSTANCE = new BlockStateRegistry();
+
+
+	//FIELDS
+	private final Map<CompoundTag, Integer> ids_ = new ConcurrentHashMap<>();
+	private volatile CompoundTag[] states_ = new CompoundTag[256];
+	private volatile int size_ = 0;
+
+
+	//CONSTRUCTORS
+	private BlockStateRegistry() {
+		this.idOf(MCAUtil.airBlockTag());
+	}
+
+
+	//GETTERS
+	/**
+	 * Interns a block state, registering it if it was never seen before.
+	 * @param state The block state.
+	 * @return The id of the block state.
+	 * */
+	public int idOf(CompoundTag state) {
+		Integer id = this.ids_.get(state);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = this.ids_.get(state);
+			if (id != null) {
+				return id;
+			}
+			int next = this.size_;
+			CompoundTag[] states = this.states_;
+			if (next == states.length) {
+				states = Arrays.copyOf(states, next * 2);
+			}
+			CompoundTag canonical = state.clone().freeze();
+			states[next] = canonical;
+			this.states_ = states;
+			this.size_ = next + 1;
+			this.ids_.put(canonical, next);
+			return next;
+		}
+	}
+
+	/**
+	 * @param id An id returned by {@link #idOf(CompoundTag)}.
+	 * @return The canonical block state of that id.
+	 * @throws IndexOutOfBoundsException If no block state was registered with that id.
+	 * */
+	public CompoundTag get(int id) {
+		if (id < 0 || id >= this.size_) {
+			throw new IndexOutOfBoundsException("No block state registered with id " + id);
+		}
+		return this.states_[id];
+	}
+
+	/**
+	 * @param state The block state.
+	 * @return The shared canonical instance equal to {@code state}.
+	 * */
+	public CompoundTag canonical(CompoundTag state) {
+		return this.get(this.idOf(state));
+	}
+
+	/**
+	 * @return The amount of registered block states.
+	 * */
+	public int size() {
+		return this.size_;
+	}
+}
@@ -0,0 +1,17 @@
+package com.jkantrell.mca;
+
+/**
+ * Receives blocks one at a time from a sequential traversal.
+ * @see BlockCursor
+ * */
+@FunctionalInterface
+public interface BlockVisitor {
+
+	/**
+	 * @param x       The x-coordinate of the block.
+	 * @param y       The y-coordinate of the block.
+	 * @param z       The z-coordinate of the block.
+	 * @param stateId The {@link BlockStateRegistry} id of the block state.
+	 * */
+	void visit(int x, int y, int z, int stateId);
+}
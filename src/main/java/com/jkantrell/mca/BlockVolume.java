@@ -0,0 +1,245 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A box of blocks decoded into a flat array, for processing that wants plain primitive data instead of tags.
+ * <p>Every block holds an index into {@link #getPalette()} or {@link #MISSING} where the chunk or section did not
+ * exist. Blocks are laid out x fastest, then z, then y, matching the order of sections, so rows of 16 blocks are
+ * copied straight out of decoded sections.</p>
+ * <p>Volumes are extracted with {@link #extract(RegionSet, BlockBox, boolean)}, which decodes each section once with
+ * bulk {@link BinaryMap} unpacking, and written back with {@link #writeTo(RegionSet, int, int, int)}, which rewrites
+ * each touched section in a single pass.</p>
+ * */
+public class BlockVolume {
+
+	//STATIC
+	public static final int MISSING = -1;
+
+	/**
+	 * @see #extract(RegionSet, BlockBox, boolean)
+	 * */
+	public static BlockVolume extract(RegionSet regions, BlockBox box) {
+		return BlockVolume.extract(regions, box, false);
+	}
+
+	/**
+	 * Decodes a box of blocks.
+	 * @param regions  The regions to read from.
+	 * @param box      The blocks to decode in absolute coordinates.
+	 * @param parallel Whether chunks are decoded in parallel.
+	 * @return The volume.
+	 * @throws IllegalArgumentException If the box holds more blocks than an array can.
+	 * */
+	public static BlockVolume extract(RegionSet regions, BlockBox box, boolean parallel) {
+		if (box.volume() > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Box " + box + " is too large to be decoded into a single array.");
+		}
+		int[] ids = new int[(int) box.volume()];
+		Arrays.fill(ids, MISSING);
+
+		//Resolving chunks first, decoding them may run in parallel
+		List<Runnable> jobs = new ArrayList<>();
+		for (int chunkZ = MCAUtil.blockToChunk(box.minZ()); chunkZ <= MCAUtil.blockToChunk(box.maxZ()); chunkZ++) {
+			for (int chunkX = MCAUtil.blockToChunk(box.minX()); chunkX <= MCAUtil.blockToChunk(box.maxX()); chunkX++) {
+				int blockX = MCAUtil.chunkToBlock(chunkX), blockZ = MCAUtil.chunkToBlock(chunkZ);
+				Chunk chunk = regions.getChunkAt(blockX, blockZ);
+				if (chunk != null) {
+					jobs.add(() -> BlockVolume.decodeChunk(chunk, blockX, blockZ, box, ids));
+				}
+			}
+		}
+		(parallel ? jobs.parallelStream() : jobs.stream()).forEach(Runnable::run);
+
+		//Turning registry ids into a volume palette
+		int[] remap = new int[BlockStateRegistry.INSTANCE.size()];
+		List<CompoundTag> palette = new ArrayList<>();
+		for (int i = 0; i < ids.length; i++) {
+			int id = ids[i];
+			if (id == MISSING) {
+				continue;
+			}
+			if (remap[id] == 0) {
+				palette.add(BlockStateRegistry.INSTANCE.get(id));
+				remap[id] = palette.size();
+			}
+			ids[i] = remap[id] - 1;
+		}
+		return new BlockVolume(box, ids, palette);
+	}
+
+
+	//FIELDS
+	private final BlockBox box_;
+	private final int[] ids_;
+	private final List<CompoundTag> palette_;
+
+
+	//CONSTRUCTORS
+	/**
+	 * @param box     The blocks covered by the volume in absolute coordinates.
+	 * @param ids     For every block, its index in {@code palette} or {@link #MISSING}. Not copied.
+	 * @param palette The distinct block states of the volume.
+	 * @throws IllegalArgumentException If {@code ids} does not match the size of {@code box}.
+	 * */
+	public BlockVolume(BlockBox box, int[] ids, List<CompoundTag> palette) {
+		if (ids.length != box.volume()) {
+			throw new IllegalArgumentException("Expected " + box.volume() + " ids for " + box + " but got " + ids.length + ".");
+		}
+		this.box_ = box;
+		this.ids_ = ids;
+		this.palette_ = List.copyOf(palette);
+	}
+
+
+	//GETTERS
+	public BlockBox getBox() {
+		return this.box_;
+	}
+
+	/**
+	 * @return The palette index of every block, laid out x fastest, then z, then y. The array is not copied.
+	 * */
+	public int[] getIds() {
+		return this.ids_;
+	}
+
+	public List<CompoundTag> getPalette() {
+		return this.palette_;
+	}
+
+	/**
+	 * @return The {@link BlockStateRegistry} id of every palette entry.
+	 * */
+	public int[] getRegistryIds() {
+		int[] ids = new int[this.palette_.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = BlockStateRegistry.INSTANCE.idOf(this.palette_.get(i));
+		}
+		return ids;
+	}
+
+	/**
+	 * @return The palette indexes narrowed to shorts, for palettes of at most 32767 entries.
+	 * @throws IllegalStateException If the palette is too large.
+	 * */
+	public short[] toShortArray() {
+		if (this.palette_.size() > Short.MAX_VALUE) {
+			throw new IllegalStateException("Palette of " + this.palette_.size() + " entries does not fit in shorts.");
+		}
+		short[] ids = new short[this.ids_.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = (short) this.ids_[i];
+		}
+		return ids;
+	}
+
+	/**
+	 * @param blockX The absolute x-coordinate of the block.
+	 * @param blockY The absolute y-coordinate of the block.
+	 * @param blockZ The absolute z-coordinate of the block.
+	 * @return The palette index of the block or {@link #MISSING}.
+	 * @throws IndexOutOfBoundsException If the block is outside of the volume.
+	 * */
+	public int getId(int blockX, int blockY, int blockZ) {
+		if (!this.box_.contains(blockX, blockY, blockZ)) {
+			throw new IndexOutOfBoundsException("Block " + blockX + ", " + blockY + ", " + blockZ + " is not part of " + this.box_);
+		}
+		return this.ids_[this.indexOf(blockX, blockY, blockZ)];
+	}
+
+	/**
+	 * @return The block state or {@code null} if the block was missing.
+	 * @see #getId(int, int, int)
+	 * */
+	public CompoundTag getBlockStateAt(int blockX, int blockY, int blockZ) {
+		int id = this.getId(blockX, blockY, blockZ);
+		return (id == MISSING) ? null : this.palette_.get(id);
+	}
+
+
+	//UTIL
+	/**
+	 * @return The amount of blocks written.
+	 * @see #writeTo(RegionSet, int, int, int)
+	 * */
+	public int writeTo(RegionSet regions) {
+		return this.writeTo(regions, 0, 0, 0);
+	}
+
+	/**
+	 * Writes this volume back, creating missing regions, chunks and sections. {@link #MISSING} blocks are skipped.
+	 * Every touched section is rewritten once with {@link PaletteContainer#setAll(int[], int[], List, int)}, sections
+	 * being rewritten in parallel.
+	 * @param regions The regions to write to.
+	 * @param offsetX Added to the x-coordinate of every block.
+	 * @param offsetY Added to the y-coordinate of every block.
+	 * @param offsetZ Added to the z-coordinate of every block.
+	 * @return The amount of blocks written.
+	 * */
+	public int writeTo(RegionSet regions, int offsetX, int offsetY, int offsetZ) {
+		BlockBox target = this.box_.translate(offsetX, offsetY, offsetZ);
+		List<Runnable> jobs = new ArrayList<>();
+		int written = 0;
+		for (int chunkZ = MCAUtil.blockToChunk(target.minZ()); chunkZ <= MCAUtil.blockToChunk(target.maxZ()); chunkZ++) {
+			for (int chunkX = MCAUtil.blockToChunk(target.minX()); chunkX <= MCAUtil.blockToChunk(target.maxX()); chunkX++) {
+				for (int sectionY = MCAUtil.blockToChunk(target.minY()); sectionY <= MCAUtil.blockToChunk(target.maxY()); sectionY++) {
+					int blockX = MCAUtil.chunkToBlock(chunkX), blockY = MCAUtil.chunkToBlock(sectionY), blockZ = MCAUtil.chunkToBlock(chunkZ);
+					BlockBox local = target.translate(-blockX, -blockY, -blockZ).intersection(new BlockBox(0, 0, 0, 15, 15, 15));
+					int[] indexes = new int[(int) local.volume()], values = new int[indexes.length];
+					int count = 0;
+					for (int y = local.minY(); y <= local.maxY(); y++) {
+						for (int z = local.minZ(); z <= local.maxZ(); z++) {
+							int source = this.indexOf(blockX + local.minX() - offsetX, blockY + y - offsetY, blockZ + z - offsetZ);
+							for (int x = local.minX(); x <= local.maxX(); x++, source++) {
+								int id = this.ids_[source];
+								if (id != MISSING) {
+									indexes[count] = (y << 8) | (z << 4) | x;
+									values[count] = id;
+									count++;
+								}
+							}
+						}
+					}
+					if (count == 0) {
+						continue;
+					}
+					Section section = regions.getOrCreateChunkAt(blockX, blockZ).getOrCreateSection(sectionY);
+					int entries = count;
+					jobs.add(() -> section.mutableBlockStates().setAll(indexes, values, this.palette_, entries));
+					written += count;
+				}
+			}
+		}
+		jobs.parallelStream().forEach(Runnable::run);
+		return written;
+	}
+
+
+	//PRIVATE UTIL
+	private int indexOf(int blockX, int blockY, int blockZ) {
+		return ((blockY - this.box_.minY()) * this.box_.sizeZ() + (blockZ - this.box_.minZ())) * this.box_.sizeX() + (blockX - this.box_.minX());
+	}
+	private static void decodeChunk(Chunk chunk, int blockX, int blockZ, BlockBox box, int[] ids) {
+		int[] buffer = new int[4096];
+		int sizeX = box.sizeX(), sizeZ = box.sizeZ();
+		for (Section section : chunk) {
+			int blockY = MCAUtil.chunkToBlock(section.getHeight());
+			BlockBox local = box.translate(-blockX, -blockY, -blockZ).intersection(new BlockBox(0, 0, 0, 15, 15, 15));
+			if (local == null) {
+				continue;
+			}
+			section.copyBlockStateIds(buffer);
+			for (int y = local.minY(); y <= local.maxY(); y++) {
+				for (int z = local.minZ(); z <= local.maxZ(); z++) {
+					int target = ((blockY + y - box.minY()) * sizeZ + (blockZ + z - box.minZ())) * sizeX + (blockX + local.minX() - box.minX());
+					System.arraycopy(buffer, (y << 8) | (z << 4) | local.minX(), ids, target, local.sizeX());
+				}
+			}
+		}
+	}
+}
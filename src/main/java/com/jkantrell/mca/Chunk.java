@@ -6,23 +6,34 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
 import java.util.function.Predicate;
 import com.jkantrell.nbt.io.NBTDeserializer;
-import com.jkantrell.nbt.io.NBTSerializer;
+import com.jkantrell.nbt.io.NBTOutputStream;
 import com.jkantrell.nbt.io.NamedTag;
+import com.jkantrell.nbt.io.StringInterner;
 import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.HeapSize;
 import com.jkantrell.nbt.tag.ListTag;
 import com.jkantrell.nbt.tag.StringTag;
+import com.jkantrell.nbt.tag.Tag;
 
 public class Chunk implements Iterable<Section> {
 
 	public static final int DEFAULT_DATA_VERSION = 3839; // 2567
 
+	private static final long SHALLOW_BYTES = HeapSize.object(HeapSize.fields(Chunk.class));
+
 	private boolean partial;
 	private boolean raw;
 	private int xPos, zPos;
@@ -33,7 +44,7 @@ public class Chunk implements Iterable<Section> {
 	private long inhabitedTime;
 	private CompoundTag heightMaps;
 	private CompoundTag carvingMasks;
-	private Map<Integer, Section> sections = new TreeMap<>();
+	private final SectionArray sections = new SectionArray();
 	private ListTag<CompoundTag> entities;
 	private ListTag<CompoundTag> tileEntities;
 	private ListTag<CompoundTag> tileTicks;
@@ -43,8 +54,14 @@ public class Chunk implements Iterable<Section> {
 	private ListTag<ListTag<?>> toBeTicked;
 	private ListTag<ListTag<?>> postProcessing;
 	private String status;
+	private boolean lightOn;
 	private CompoundTag structures;
 	private ListTag<CompoundTag> blockEntities;
+	private Map<Long, Integer> blockEntityIndex;
+	private int blockEntityIndexedSize;
+	private Map<Integer, List<CompoundTag>> entityIndex;
+	private int entityIndexedSize;
+	private final Map<HeightmapType, Heightmap> heightmapCache = new EnumMap<>(HeightmapType.class);
 
 	Chunk(int lastMCAUpdate) { this.lastMCAUpdate = lastMCAUpdate; }
 
@@ -96,6 +113,7 @@ public class Chunk implements Iterable<Section> {
 			this.postProcessing = this.data.containsKey("PostProcessing") ? this.data.getListTag("PostProcessing").asListTagList() : null;
 		}
 		this.status = this.data.getString("Status");
+		this.lightOn = this.data.getBoolean("isLightOn");
 		if ((loadFlags & LoadFlags.STRUCTURES) != 0) {
 			this.structures = this.data.getCompoundTag("Structures");
 		}
@@ -134,8 +152,12 @@ public class Chunk implements Iterable<Section> {
 			throw new UnsupportedOperationException("Partially loaded chunks cannot be serialized");
 		}
 		ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
-		try (BufferedOutputStream nbtOut = new BufferedOutputStream(CompressionType.ZLIB.compress(baos))) {
-			new NBTSerializer(false).toStream(new NamedTag(null, updateHandle(xPos, zPos)), nbtOut);
+		try (NBTOutputStream nbtOut = new NBTOutputStream(new BufferedOutputStream(CompressionType.ZLIB.compress(baos)))) {
+			if (raw) {
+				nbtOut.writeTag(new NamedTag(null, data), Tag.DEFAULT_MAX_DEPTH);
+			} else {
+				SectionEncoder.writeChunk(updateFields(xPos, zPos), this.sections.asList(), nbtOut);
+			}
 		}
 		byte[] rawData = baos.toByteArray();
 		raf.writeInt(rawData.length + 1); // including the byte to store the compression type
@@ -166,10 +188,20 @@ public class Chunk implements Iterable<Section> {
 			throw new IOException("invalid compression type " + compressionTypeByte);
 		}
 		BufferedInputStream dis = new BufferedInputStream(compressionType.decompress(new FileInputStream(raf.getFD())));
-		NamedTag tag = new NBTDeserializer(false).fromStream(dis);
+		// Raw loads keep the data as it is, so the chunk is decoded lazily. Partial loads decode it fully, as the tags
+		// they keep would otherwise hold on to the whole decompressed chunk after the data is dropped
+		boolean raw = (loadFlags != LoadFlags.ALL_DATA) && (loadFlags & LoadFlags.RAW) != 0;
+		NBTDeserializer deserializer = new NBTDeserializer(false, false, raw);
+		// Full loads keep every key and block name, the repeated ones are shared between chunks
+		deserializer.setStringInterner(StringInterner.DEFAULT);
+		NamedTag tag = deserializer.fromStream(dis);
 		if (tag != null && tag.getTag() instanceof CompoundTag) {
 			data = (CompoundTag) tag.getTag();
 			initReferences(loadFlags);
+			// The section tags were read here and are held by the sections now, so only one copy is kept
+			if (data != null && !raw) {
+				data.remove("sections");
+			}
 		} else {
 			throw new IOException("invalid data tag: " + (tag == null ? "null" : tag.getClass().getName()));
 		}
@@ -192,22 +224,98 @@ public class Chunk implements Iterable<Section> {
 		return section.getBiomeAt(blockX, Math.floorMod(blockY, 16), blockZ);
 	}
 
+	/**
+	 * Sets a biome id for every biome cell of a block column in the existing sections of this chunk.
+	 * The coordinates can be absolute coordinates or relative to the region or chunk.
+	 * 
+	 * @param blockX  The x-coordinate of the block column.
+	 * @param blockZ  The z-coordinate of the block column.
+	 * @param biomeID The pre-1.18 numeric biome id to be set.
+	 * @deprecated Biomes are stored per 4x4x4 cell, use {@link #setBiomeAt(int, int, int, String)} instead.
+	 */
 	@Deprecated
 	public void setBiomeAt(int blockX, int blockZ, int biomeID) {
-
+		checkRaw();
+		StringTag biome = new StringTag(Chunk.biomeName(biomeID));
+		BlockBox column = new BlockBox(blockX & 0xF, 0, blockZ & 0xF, blockX & 0xF, 15, blockZ & 0xF);
+		for (Section section : this.sections) {
+			section.fillBiome(column, biome);
+		}
 	}
 
 	/**
-	 * Sets a biome id at a specific block column.
+	 * Sets a biome id at a specific block. Biomes are stored per 4x4x4 cell, so this sets the biome of the whole cell.
 	 * The coordinates can be absolute coordinates or relative to the region or chunk.
 	 * 
-	 * @param blockX  The x-coordinate of the block column.
-	 * @param blockZ  The z-coordinate of the block column.
-	 * @param biomeID The biome id to be set.
-	 *                When set to a negative number, Minecraft will replace it with the block column's default biome.
+	 * @param blockX  The x-coordinate of the block.
+	 * @param blockY  The y-coordinate of the block.
+	 * @param blockZ  The z-coordinate of the block.
+	 * @param biomeID The pre-1.18 numeric biome id to be set, see {@link MCAUtil#legacyBiomeName(int)}.
+	 *                When set to a negative number, {@link Section#DEFAULT_BIOME} is used.
 	 */
 	public void setBiomeAt(int blockX, int blockY, int blockZ, int biomeID) {
+		setBiomeAt(blockX, blockY, blockZ, Chunk.biomeName(biomeID));
+	}
+
+	/**
+	 * Sets a biome at a specific block. Biomes are stored per 4x4x4 cell, so this sets the biome of the whole cell.
+	 * The coordinates can be absolute coordinates or relative to the region or chunk.
+	 * 
+	 * @param blockX The x-coordinate of the block.
+	 * @param blockY The y-coordinate of the block.
+	 * @param blockZ The z-coordinate of the block.
+	 * @param biome  The biome name, the {@code minecraft} namespace is assumed when missing.
+	 */
+	public void setBiomeAt(int blockX, int blockY, int blockZ, String biome) {
+		checkRaw();
+		getOrCreateSection(MCAUtil.blockToChunk(blockY)).setBiomeAt(blockX, Math.floorMod(blockY, 16), blockZ, Chunk.biomeTag(biome));
+	}
+
+	/**
+	 * Sets every biome cell touched by a box to the same biome, creating missing sections.
+	 * Sections entirely covered by the box are collapsed to a single-value palette.
+	 * 
+	 * @param box   The box to fill. The x- and z-coordinates are relative to this chunk, the box is clipped to it
+	 *              and to the y-coordinates sections can have, from {@link Section#MIN_BLOCK_Y} to {@link Section#MAX_BLOCK_Y}.
+	 * @param biome The biome name, the {@code minecraft} namespace is assumed when missing.
+	 */
+	public void fillBiome(BlockBox box, String biome) {
+		checkRaw();
+		BlockBox clipped = box.intersection(new BlockBox(0, Section.MIN_BLOCK_Y, 0, 15, Section.MAX_BLOCK_Y, 15));
+		if (clipped == null) {
+			return;
+		}
+		StringTag tag = Chunk.biomeTag(biome);
+		for (int sectionY = MCAUtil.blockToChunk(clipped.minY()); sectionY <= MCAUtil.blockToChunk(clipped.maxY()); sectionY++) {
+			getOrCreateSection(sectionY).fillBiome(clipped.translate(0, -MCAUtil.chunkToBlock(sectionY), 0), tag);
+		}
+	}
 
+	/**
+	 * Replaces every biome matching {@code checker} in all sections of this chunk.
+	 * This remaps palette entries and leaves the biome data untouched.
+	 * 
+	 * @param checker Selects the biomes to replace.
+	 * @param biome   The replacement biome name, the {@code minecraft} namespace is assumed when missing.
+	 */
+	public void replaceBiome(Predicate<StringTag> checker, String biome) {
+		checkRaw();
+		StringTag tag = Chunk.biomeTag(biome);
+		for (Section section : this.sections) {
+			section.replaceBiome(checker, tag);
+		}
+	}
+
+	/**
+	 * Replaces one biome with another in all sections of this chunk.
+	 * 
+	 * @param from The biome to replace.
+	 * @param to   The replacement biome.
+	 * @see #replaceBiome(Predicate, String)
+	 */
+	public void replaceBiome(String from, String to) {
+		StringTag tag = Chunk.biomeTag(from);
+		replaceBiome(tag::equals, to);
 	}
 
 	int getBiomeIndex(int biomeX, int biomeY, int biomeZ) { return biomeY * 16 + biomeZ * 4 + biomeX; }
@@ -223,15 +331,118 @@ public class Chunk implements Iterable<Section> {
 		return section.getBlockStateAt(blockX, Math.floorMod(blockY, 16), blockZ);
 	}
 
+	/**
+	 * Fetches the block entity at a specific location. Block entities are indexed by position on the first lookup.
+	 * The x- and z-coordinates can be absolute or relative to this chunk.
+	 * The index is rebuilt once the list of block entities changes size or a found block entity no longer holds the
+	 * requested location, so changes should go through {@link #setBlockEntity(CompoundTag)} to be seen right away.
+	 * 
+	 * @param blockX The x-coordinate of the block.
+	 * @param blockY The y-coordinate of the block.
+	 * @param blockZ The z-coordinate of the block.
+	 * @return The block entity or {@code null} if there is none.
+	 */
 	public CompoundTag getBlockEntity(int blockX, int blockY, int blockZ) {
-		if (blockEntities != null) {
+		Integer i = blockEntityIndexOf(blockEntityKey(blockX, blockY, blockZ));
+		return (i == null) ? null : blockEntities.get(i);
+	}
+
+	/**
+	 * Fetches every block entity inside a box.
+	 * 
+	 * @param box The box, in the coordinates stored in the block entities, which are absolute.
+	 * @return The block entities inside the box.
+	 */
+	public List<CompoundTag> getBlockEntities(BlockBox box) {
+		Map<Long, Integer> index = blockEntityIndex();
+		if (index == null) {
+			return List.of();
+		}
+		List<CompoundTag> found = new ArrayList<>();
+		if (box.volume() > index.size()) {
 			for (CompoundTag e : blockEntities) {
-				if (e.getInt("x") == blockX && e.getInt("y") == blockY && e.getInt("z") == blockZ) {
-					return e;
+				if (box.contains(e.getInt("x"), e.getInt("y"), e.getInt("z"))) {
+					found.add(e);
+				}
+			}
+			return found;
+		}
+		for (int y = box.minY(); y <= box.maxY(); y++) {
+			for (int z = box.minZ(); z <= box.maxZ(); z++) {
+				for (int x = box.minX(); x <= box.maxX(); x++) {
+					Integer i = blockEntityIndexOf(blockEntityKey(x, y, z));
+					if (i != null) {
+						CompoundTag e = blockEntities.get(i);
+						if (box.contains(e.getInt("x"), e.getInt("y"), e.getInt("z"))) {
+							found.add(e);
+						}
+					}
 				}
 			}
 		}
-		return null;
+		return found;
+	}
+
+	/**
+	 * @return The block entities of this chunk or {@code null} if it has none.
+	 */
+	public ListTag<CompoundTag> getBlockEntities() { return blockEntities; }
+
+	/**
+	 * Sets the block entities of this chunk.
+	 * 
+	 * @param blockEntities The block entities of this chunk.
+	 */
+	public void setBlockEntities(ListTag<CompoundTag> blockEntities) {
+		checkRaw();
+		this.blockEntities = blockEntities;
+		this.blockEntityIndex = null;
+	}
+
+	/**
+	 * Adds a block entity, replacing the one already stored at the same location.
+	 * 
+	 * @param blockEntity The block entity, holding its absolute location in its {@code x}, {@code y} and {@code z} tags.
+	 */
+	public void setBlockEntity(CompoundTag blockEntity) {
+		checkRaw();
+		if (blockEntities == null) {
+			blockEntities = new ListTag<>(CompoundTag.class);
+		}
+		long key = blockEntityKey(blockEntity);
+		Integer i = blockEntityIndexOf(key);
+		if (i != null) {
+			blockEntities.set(i, blockEntity);
+			return;
+		}
+		blockEntityIndex().put(key, blockEntities.size());
+		blockEntities.add(blockEntity);
+		blockEntityIndexedSize++;
+	}
+
+	/**
+	 * Removes the block entities inside a box.
+	 * 
+	 * @param box The box, in absolute coordinates.
+	 * @return The amount of block entities removed.
+	 */
+	public int removeBlockEntities(BlockBox box) {
+		checkRaw();
+		if (blockEntities == null) {
+			return 0;
+		}
+		int removed = 0;
+		for (int i = blockEntities.size() - 1; i >= 0; i--) {
+			CompoundTag e = blockEntities.get(i);
+			if (box.contains(e.getInt("x"), e.getInt("y"), e.getInt("z"))) {
+				blockEntities.remove(i);
+				removed++;
+			}
+		}
+		if (removed > 0) {
+			blockEntityIndex = null;
+		}
+		return removed;
 	}
 
 	/**
@@ -245,9 +456,98 @@ public class Chunk implements Iterable<Section> {
 	 */
 	public void setBlockStateAt(int blockX, int blockY, int blockZ, CompoundTag state) {
 		checkRaw();
-		int sectionIndex = MCAUtil.blockToChunk(blockY);
-		Section section = sections.get(sectionIndex);
-		section.setBlockStateAt(blockX, blockY, blockZ, state);
+		getOrCreateSection(MCAUtil.blockToChunk(blockY)).setBlockStateAt(blockX, blockY, blockZ, state);
+		updateHeightmaps(blockX, blockY, blockZ, state);
+	}
+
+	/**
+	 * Sets every block of a box to the same state, creating missing sections.
+	 * Sections entirely covered by the box are collapsed to a single-value palette.
+	 * 
+	 * @param box   The box to fill. The x- and z-coordinates are relative to this chunk, the box is clipped to it
+	 *              and to the y-coordinates sections can have, from {@link Section#MIN_BLOCK_Y} to {@link Section#MAX_BLOCK_Y}.
+	 * @param state The block state to be set.
+	 */
+	public void fill(BlockBox box, CompoundTag state) {
+		checkRaw();
+		BlockBox clipped = box.intersection(new BlockBox(0, Section.MIN_BLOCK_Y, 0, 15, Section.MAX_BLOCK_Y, 15));
+		if (clipped == null) {
+			return;
+		}
+		for (int sectionY = MCAUtil.blockToChunk(clipped.minY()); sectionY <= MCAUtil.blockToChunk(clipped.maxY()); sectionY++) {
+			getOrCreateSection(sectionY).fill(clipped.translate(0, -MCAUtil.chunkToBlock(sectionY), 0), state);
+		}
+	}
+
+	/**
+	 * Replaces every block whose state matches {@code checker} in all sections of this chunk.
+	 * This remaps palette entries and leaves the block data untouched.
+	 * 
+	 * @param checker Selects the block states to replace.
+	 * @param state   The replacement block state.
+	 */
+	public void replace(Predicate<CompoundTag> checker, CompoundTag state) {
+		checkRaw();
+		for (Section section : this.sections) {
+			section.replace(checker, state);
+		}
+	}
+
+	/**
+	 * Switches every section of this chunk to block state storage backed by the {@link BlockStateRegistry}.
+	 * 
+	 * @see Section#internBlockStates()
+	 */
+	public void internBlockStates() {
+		checkRaw();
+		for (Section section : this.sections) {
+			section.internBlockStates();
+		}
+	}
+
+	/**
+	 * Fetches the section at the given y-coordinate, creating an empty one filled with air if it does not exist yet.
+	 * 
+	 * @param sectionY The y-coordinate of the section in this chunk.
+	 * @return The Section.
+	 * @throws IllegalArgumentException If {@code sectionY} is out of the range from {@link Section#MIN_Y} to {@link Section#MAX_Y}.
+	 */
+	public Section getOrCreateSection(int sectionY) {
+		checkRaw();
+		Section section = sections.get(sectionY);
+		if (section == null) {
+			section = Section.newSection(sectionY);
+			sections.put(sectionY, section);
+		}
+		return section;
+	}
+
+	/**
+	 * Hands every block of this chunk to {@code visitor}, section by section from the bottom up.
+	 * The x- and z-coordinates are relative to this chunk, the y-coordinates are absolute.
+	 * 
+	 * @param visitor The visitor.
+	 * @see BlockCursor
+	 */
+	public void forEachBlock(BlockVisitor visitor) {
+		BlockCursor.of(this).forEachRemaining(visitor);
+	}
+
+	/**
+	 * Fetches the {@link BlockStateRegistry} id of the block state at a specific location.
+	 * The block coordinates can be absolute or relative to the region or chunk.
+	 * 
+	 * @param blockX The x-coordinate of the block.
+	 * @param blockY The y-coordinate of the block.
+	 * @param blockZ The z-coordinate of the block.
+	 * @return The registry id or -1 if the section does not exist.
+	 */
+	public int getBlockStateIdAt(int blockX, int blockY, int blockZ) {
+		Section section = sections.get(MCAUtil.blockToChunk(blockY));
+		if (section == null) {
+			return -1;
+		}
+		return section.getBlockStateIdAt(blockX, blockY, blockZ);
 	}
 
 	/**
@@ -296,6 +596,21 @@ public class Chunk implements Iterable<Section> {
 		this.status = status;
 	}
 
+	/**
+	 * @return Whether the light of this chunk is up to date, the game recomputing it when loading the chunk otherwise.
+	 */
+	public boolean isLightOn() { return lightOn; }
+
+	/**
+	 * Sets whether the light of this chunk is up to date. {@link LightEngine} sets it on the chunks it relights.
+	 * 
+	 * @param lightOn Whether the light of this chunk is up to date.
+	 */
+	public void setLightOn(boolean lightOn) {
+		checkRaw();
+		this.lightOn = lightOn;
+	}
+
 	/**
 	 * Fetches the section at the given y-coordinate.
 	 * 
@@ -359,6 +674,103 @@ public class Chunk implements Iterable<Section> {
 	public void setHeightMaps(CompoundTag heightMaps) {
 		checkRaw();
 		this.heightMaps = heightMaps;
+		this.heightmapCache.clear();
+	}
+
+	/**
+	 * Fetches a typed view of one of the height maps of this chunk. Writes through the view change the packed
+	 * data stored in {@link #getHeightMaps()}. Height maps present in this chunk are kept up to date by
+	 * {@link #setBlockStateAt(int, int, int, CompoundTag)}, bulk edits require {@link #recomputeHeightmaps(HeightmapType...)}.
+	 * 
+	 * @param type The type of the height map.
+	 * @return The height map or {@code null} if this chunk does not store it.
+	 */
+	public Heightmap getHeightmap(HeightmapType type) {
+		if (heightMaps == null || !heightMaps.containsKey(type.name())) {
+			return null;
+		}
+		Heightmap heightmap = heightmapCache.get(type);
+		long[] data = heightMaps.getLongArray(type.name());
+		if (heightmap == null || heightmap.getData() != data) {
+			heightmap = new Heightmap(type, minBlockY(), data);
+			heightmapCache.put(type, heightmap);
+		}
+		return heightmap;
+	}
+
+	/**
+	 * Recomputes height maps from the blocks of this chunk, scanning sections from the top down and stopping once
+	 * every column is known. Each section is decoded once for all height maps.
+	 * 
+	 * @param types The height maps to compute. When none are given, the height maps already stored in this chunk are
+	 *              recomputed, or the {@link HeightmapType#FINAL final} ones if it has none.
+	 */
+	public void recomputeHeightmaps(HeightmapType... types) {
+		checkRaw();
+		List<HeightmapType> targets = new ArrayList<>(List.of(types));
+		if (targets.isEmpty() && heightMaps != null) {
+			for (HeightmapType type : HeightmapType.values()) {
+				if (heightMaps.containsKey(type.name())) {
+					targets.add(type);
+				}
+			}
+		}
+		if (targets.isEmpty()) {
+			targets.addAll(HeightmapType.FINAL);
+		}
+
+		int minY = minBlockY();
+		List<Section> sections = getSections();
+		int maxY = sections.isEmpty() ? 0 : MCAUtil.chunkToBlock(sections.get(sections.size() - 1).getHeight() + 1);
+		int bits = Heightmap.bitsFor(Math.max(384, maxY - minY));
+
+		int[][] heights = new int[targets.size()][Heightmap.COLUMNS];
+		byte[][] opaque = new byte[targets.size()][BlockStateRegistry.INSTANCE.size()];
+		for (int[] h : heights) {
+			Arrays.fill(h, Integer.MIN_VALUE);
+		}
+		int remaining = targets.size() * Heightmap.COLUMNS;
+		int[] ids = new int[4096];
+		for (int s = sections.size() - 1; s >= 0 && remaining > 0; s--) {
+			Section section = sections.get(s);
+			section.copyBlockStateIds(ids);
+			int blockY = MCAUtil.chunkToBlock(section.getHeight());
+			for (int t = 0; t < targets.size(); t++) {
+				HeightmapType type = targets.get(t);
+				int[] h = heights[t];
+				for (int y = 15; y >= 0; y--) {
+					for (int column = 0; column < Heightmap.COLUMNS; column++) {
+						if (h[column] != Integer.MIN_VALUE) {
+							continue;
+						}
+						int id = ids[(y << 8) | column];
+						if (id >= opaque[t].length) {
+							opaque[t] = Arrays.copyOf(opaque[t], BlockStateRegistry.INSTANCE.size());
+						}
+						if (opaque[t][id] == 0) {
+							opaque[t][id] = type.isOpaque(BlockStateRegistry.INSTANCE.get(id)) ? (byte) 1 : (byte) -1;
+						}
+						if (opaque[t][id] > 0) {
+							h[column] = blockY + y;
+							remaining--;
+						}
+					}
+				}
+			}
+		}
+
+		if (heightMaps == null) {
+			heightMaps = new CompoundTag();
+		}
+		for (int t = 0; t < targets.size(); t++) {
+			Heightmap heightmap = new Heightmap(targets.get(t), minY, bits);
+			for (int column = 0; column < Heightmap.COLUMNS; column++) {
+				int y = heights[t][column];
+				heightmap.setHighestBlockY(column & 0xF, column >> 4, (y == Integer.MIN_VALUE) ? minY - 1 : y);
+			}
+			heightMaps.putLongArray(targets.get(t).name(), heightmap.getData());
+			heightmapCache.put(targets.get(t), heightmap);
+		}
 	}
 
 	/**
@@ -389,6 +801,54 @@ public class Chunk implements Iterable<Section> {
 	public void setEntities(ListTag<CompoundTag> entities) {
 		checkRaw();
 		this.entities = entities;
+		this.entityIndex = null;
+	}
+
+	/**
+	 * Adds an entity to this chunk.
+	 * 
+	 * @param entity The entity, holding its absolute position in its {@code Pos} tag.
+	 */
+	public void addEntity(CompoundTag entity) {
+		checkRaw();
+		if (entities == null) {
+			entities = new ListTag<>(CompoundTag.class);
+		}
+		Map<Integer, List<CompoundTag>> index = entityIndex();
+		entities.add(entity);
+		index.computeIfAbsent(entitySection(entity), k -> new ArrayList<>()).add(entity);
+		entityIndexedSize++;
+	}
+
+	/**
+	 * Fetches the entities whose position is inside a section. Entities are indexed by section on the first lookup.
+	 * The index is rebuilt once the list of entities changes size or an entity of the section moved out of it, so
+	 * changes should go through {@link #addEntity(CompoundTag)} to be seen right away.
+	 * 
+	 * @param sectionY The y-coordinate of the section.
+	 * @return The entities inside the section.
+	 */
+	public List<CompoundTag> getEntitiesInSection(int sectionY) {
+		return Collections.unmodifiableList(entitiesInSection(sectionY));
+	}
+
+	/**
+	 * Fetches the entities whose position is inside a box.
+	 * 
+	 * @param box The box in absolute coordinates.
+	 * @return The entities inside the box.
+	 */
+	public List<CompoundTag> getEntities(BlockBox box) {
+		List<CompoundTag> found = new ArrayList<>();
+		for (int sectionY = MCAUtil.blockToChunk(box.minY()); sectionY <= MCAUtil.blockToChunk(box.maxY()); sectionY++) {
+			for (CompoundTag entity : entitiesInSection(sectionY)) {
+				ListTag<?> pos = entity.getListTag("Pos");
+				if (box.contains((int) Math.floor(pos.getDouble(0)), (int) Math.floor(pos.getDouble(1)), (int) Math.floor(pos.getDouble(2)))) {
+					found.add(entity);
+				}
+			}
+		}
+		return found;
 	}
 
 	/**
@@ -398,6 +858,7 @@ public class Chunk implements Iterable<Section> {
 
 	/**
 	 * Sets the tile entities of this chunk.
+	 * The pre-1.18 {@code TileEntities} key is not written by {@link #updateHandle(int, int)}.
 	 * 
 	 * @param tileEntities The tile entities of this chunk.
 	 */
@@ -443,6 +904,7 @@ public class Chunk implements Iterable<Section> {
 
 	/**
 	 * Sets the light sources in this chunk.
+	 * The pre-1.18 {@code Lights} key is not written by {@link #updateHandle(int, int)}.
 	 * 
 	 * @param lights The light sources.
 	 */
@@ -458,6 +920,7 @@ public class Chunk implements Iterable<Section> {
 
 	/**
 	 * Sets the liquids to be ticked in this chunk.
+	 * The pre-1.18 {@code LiquidsToBeTicked} key is not written by {@link #updateHandle(int, int)}.
 	 * 
 	 * @param liquidsToBeTicked The liquids to be ticked.
 	 */
@@ -473,6 +936,7 @@ public class Chunk implements Iterable<Section> {
 
 	/**
 	 * Sets stuff to be ticked in this chunk.
+	 * The pre-1.18 {@code ToBeTicked} key is not written by {@link #updateHandle(int, int)}.
 	 * 
 	 * @param toBeTicked The stuff to be ticked.
 	 */
@@ -482,8 +946,15 @@ public class Chunk implements Iterable<Section> {
 	}
 
 
-	public List<Section> getSections() { return this.sections.values().stream().sorted().toList(); }
-	public Map<Integer, Section> getSectionMap() { return new HashMap<>(this.sections); }
+	/**
+	 * @return The sections of this chunk in ascending y order. The list is unmodifiable and shared until the sections change.
+	 */
+	public List<Section> getSections() { return this.sections.asList(); }
+
+	/**
+	 * @return A copy of the sections of this chunk keyed by their y-coordinate.
+	 */
+	public Map<Integer, Section> getSectionMap() { return this.sections.toMap(); }
 
 	/**
 	 * @return Things that are in post processing in this chunk.
@@ -517,7 +988,191 @@ public class Chunk implements Iterable<Section> {
 
 	int getBlockIndex(int blockX, int blockZ) { return (blockZ & 0xF) * 16 + (blockX & 0xF); }
 
-	public void cleanupPalettesAndBlockStates() { checkRaw(); }
+	/**
+	 * Compacts the block state and biome palettes of every section of this chunk.
+	 * Unused palette entries are dropped and the data is repacked with the smallest possible bit width.
+	 */
+	public void cleanupPalettesAndBlockStates() {
+		checkRaw();
+		for (Section section : this.sections) {
+			section.cleanupPalettesAndBlockStates();
+		}
+	}
+
+	private Map<Long, Integer> blockEntityIndex() {
+		if (blockEntities == null) {
+			blockEntityIndex = null;
+			return null;
+		}
+		// Rebuilt when entries were added to or removed from the list directly
+		if (blockEntityIndex == null || blockEntityIndexedSize != blockEntities.size()) {
+			Map<Long, Integer> index = new HashMap<>();
+			for (int i = 0; i < blockEntities.size(); i++) {
+				index.putIfAbsent(blockEntityKey(blockEntities.get(i)), i);
+			}
+			blockEntityIndex = index;
+			blockEntityIndexedSize = blockEntities.size();
+		}
+		return blockEntityIndex;
+	}
+
+	/**
+	 * @return The position of the block entity at {@code key} in the list or {@code null} if there is none.
+	 * A hit is checked against the coordinates of the block entity, the index being rebuilt if the list was changed
+	 * in place.
+	 */
+	private Integer blockEntityIndexOf(long key) {
+		Map<Long, Integer> index = blockEntityIndex();
+		if (index == null) {
+			return null;
+		}
+		Integer i = index.get(key);
+		if (i == null || blockEntityKey(blockEntities.get(i)) == key) {
+			return i;
+		}
+		blockEntityIndex = null;
+		return blockEntityIndex().get(key);
+	}
+
+	private Map<Integer, List<CompoundTag>> entityIndex() {
+		if (entities == null) {
+			entityIndex = null;
+			return null;
+		}
+		// Rebuilt when entries were added to or removed from the list directly
+		if (entityIndex == null || entityIndexedSize != entities.size()) {
+			Map<Integer, List<CompoundTag>> index = new HashMap<>();
+			for (CompoundTag entity : entities) {
+				index.computeIfAbsent(entitySection(entity), k -> new ArrayList<>()).add(entity);
+			}
+			entityIndex = index;
+			entityIndexedSize = entities.size();
+		}
+		return entityIndex;
+	}
+
+	/**
+	 * @return The indexed entities of a section, the index being rebuilt if one of them moved out of the section.
+	 */
+	private List<CompoundTag> entitiesInSection(int sectionY) {
+		Map<Integer, List<CompoundTag>> index = entityIndex();
+		if (index == null) {
+			return List.of();
+		}
+		List<CompoundTag> inSection = index.getOrDefault(sectionY, List.of());
+		for (CompoundTag entity : inSection) {
+			if (entitySection(entity) != sectionY) {
+				entityIndex = null;
+				return entityIndex().getOrDefault(sectionY, List.of());
+			}
+		}
+		return inSection;
+	}
+
+	private int minBlockY() {
+		return MCAUtil.chunkToBlock((data != null && data.containsKey("yPos")) ? data.getInt("yPos") : SectionArray.DEFAULT_MIN_SECTION_Y);
+	}
+
+	private void updateHeightmaps(int blockX, int blockY, int blockZ, CompoundTag state) {
+		if (heightMaps == null) {
+			return;
+		}
+		for (HeightmapType type : HeightmapType.values()) {
+			Heightmap heightmap = getHeightmap(type);
+			if (heightmap == null) {
+				continue;
+			}
+			int top = heightmap.getHighestBlockY(blockX, blockZ);
+			if (type.isOpaque(state)) {
+				if (blockY > top) {
+					heightmap.setHighestBlockY(blockX, blockZ, blockY);
+				}
+				continue;
+			}
+			if (blockY != top) {
+				continue;
+			}
+			int y = blockY - 1, minY = heightmap.getMinY();
+			for (; y >= minY; y--) {
+				Section section = sections.get(MCAUtil.blockToChunk(y));
+				if (section == null) {
+					y = MCAUtil.chunkToBlock(MCAUtil.blockToChunk(y));
+					continue;
+				}
+				if (type.isOpaque(section.getBlockStateAt(blockX, y, blockZ))) {
+					break;
+				}
+			}
+			heightmap.setHighestBlockY(blockX, blockZ, Math.max(y, minY - 1));
+		}
+	}
+
+	static StringTag biomeTag(String biome) {
+		return new StringTag((biome.indexOf(':') < 0) ? "minecraft:" + biome : biome);
+	}
+
+	private static String biomeName(int biomeID) {
+		return (biomeID < 0) ? Section.DEFAULT_BIOME : MCAUtil.legacyBiomeName(biomeID);
+	}
+
+	private static long blockEntityKey(CompoundTag blockEntity) {
+		return blockEntityKey(blockEntity.getInt("x"), blockEntity.getInt("y"), blockEntity.getInt("z"));
+	}
+
+	private static long blockEntityKey(int blockX, int blockY, int blockZ) {
+		return ((long) blockY << 8) | ((blockZ & 0xF) << 4) | (blockX & 0xF);
+	}
+
+	private static int entitySection(CompoundTag entity) {
+		if (!entity.containsKey("Pos")) {
+			return Integer.MIN_VALUE;
+		}
+		return MCAUtil.blockToChunk((int) Math.floor(entity.getListTag("Pos").getDouble(1)));
+	}
+
+	private CompoundTag updateFields(int xPos, int zPos) {
+		data.putInt("DataVersion", dataVersion);
+		data.putInt("xPos", xPos);
+		data.putInt("zPos", zPos);
+		if (!data.containsKey("yPos")) {
+			data.putInt("yPos", SectionArray.DEFAULT_MIN_SECTION_Y);
+		}
+		data.putLong("LastUpdate", lastUpdate);
+		data.putLong("InhabitedTime", inhabitedTime);
+		if (heightMaps != null) {
+			data.put("Heightmaps", heightMaps);
+		}
+		if (carvingMasks != null) {
+			data.put("CarvingMasks", carvingMasks);
+		}
+		if (entities != null) {
+			data.put("Entities", entities);
+		}
+		if (blockEntities != null) {
+			data.put("block_entities", blockEntities);
+		}
+		if (tileTicks != null) {
+			data.put("block_ticks", tileTicks);
+		}
+		if (liquidTicks != null) {
+			data.put("fluid_ticks", liquidTicks);
+		}
+		if (postProcessing != null) {
+			data.put("PostProcessing", postProcessing);
+		}
+		data.putString("Status", status);
+		data.putBoolean("isLightOn", lightOn);
+		if (structures != null) {
+			data.put("Structures", structures);
+		}
+		return data;
+	}
+
+	private static void putPart(Map<String, Tag<?>> parts, String key, Tag<?> tag) {
+		if (tag != null) {
+			parts.put(key, tag);
+		}
+	}
 
 	private void checkRaw() {
 		if (raw) {
@@ -531,85 +1186,139 @@ public class Chunk implements Iterable<Section> {
 		Chunk c = new Chunk(0);
 		c.dataVersion = dataVersion;
 		c.data = new CompoundTag();
-		c.data.put("Level", new CompoundTag());
 		c.status = "mobs_spawned";
 		return c;
 	}
 
 	/**
-	 * Provides a reference to the full chunk data.
+	 * Provides a reference to the full chunk data. Sections are held by the {@link Section}s once loaded and only
+	 * written back by {@link #updateHandle(int, int)}: chunks read from a region file have no {@code sections} in
+	 * their data until then, chunks created from a tag keep the section tags as they were passed.
 	 * 
 	 * @return The full chunk data or null if there is none, e.g. when this chunk has only been loaded partially.
 	 */
 	public CompoundTag getHandle() { return data; }
 
+	/**
+	 * Writes the fields and sections of this chunk back into its data, using the post-1.18 layout without
+	 * a {@code Level} wrapper. {@link #serialize(RandomAccessFile, int, int)} streams the sections instead
+	 * of building their tags.
+	 * 
+	 * @param xPos The x-coordinate of the chunk.
+	 * @param zPos The z-coordinate of the chunk.
+	 * @return The up-to-date chunk data.
+	 */
 	public CompoundTag updateHandle(int xPos, int zPos) {
 		if (raw) {
 			return data;
 		}
-
-		data.putInt("DataVersion", dataVersion);
-		CompoundTag level = data.getCompoundTag("Level");
-		level.putInt("xPos", xPos);
-		level.putInt("zPos", zPos);
-		level.putLong("LastUpdate", lastUpdate);
-		level.putLong("InhabitedTime", inhabitedTime);
-		if (heightMaps != null) {
-			level.put("Heightmaps", heightMaps);
-		}
-		if (carvingMasks != null) {
-			level.put("CarvingMasks", carvingMasks);
-		}
-		if (entities != null) {
-			level.put("Entities", entities);
-		}
-		if (tileEntities != null) {
-			level.put("TileEntities", tileEntities);
+		updateFields(xPos, zPos);
+		ListTag<CompoundTag> sections = new ListTag<>(CompoundTag.class, this.sections.size());
+		for (Section section : this.sections) {
+			sections.add(section.updateHandle());
 		}
-		if (tileTicks != null) {
-			level.put("TileTicks", tileTicks);
-		}
-		if (liquidTicks != null) {
-			level.put("LiquidTicks", liquidTicks);
+		data.put("sections", sections);
+		return data;
+	}
+
+	/**
+	 * Estimates the heap taken by this chunk, the sum of its {@link #getMemoryReport() memory report} and of the
+	 * chunk object itself.
+	 * 
+	 * @return The estimated retained size of this chunk, in bytes.
+	 */
+	public long estimateRetainedBytes() { return estimateRetainedBytes(Collections.newSetFromMap(new IdentityHashMap<>())); }
+
+	long estimateRetainedBytes(Set<Object> counted) {
+		long bytes = SHALLOW_BYTES;
+		for (long part : getMemoryReport(counted).values()) {
+			bytes += part;
 		}
-		if (lights != null) {
-			level.put("Lights", lights);
+		return bytes;
+	}
+
+	/**
+	 * Estimates the heap taken by each part of this chunk, keyed by the top-level key the part is stored under, like
+	 * {@code sections}, {@code Entities} or {@code Heightmaps}. Tags set since this chunk was read are counted instead
+	 * of the ones they replace, sections are counted from their {@link Section} objects and lookup indexes and typed
+	 * height maps are counted with the tag they index. Containers shared between sections are counted once. The entries
+	 * of a raw chunk are decoded to be counted.
+	 * 
+	 * @return The estimated retained size of each part in bytes, in the order of the chunk data.
+	 * @see Tag#estimateRetainedBytes()
+	 */
+	public Map<String, Long> getMemoryReport() { return getMemoryReport(Collections.newSetFromMap(new IdentityHashMap<>())); }
+
+	/**
+	 * @param counted The section containers counted so far, compared by identity, to count containers shared with
+	 *                other chunks once.
+	 */
+	Map<String, Long> getMemoryReport(Set<Object> counted) {
+		Map<String, Tag<?>> parts = new LinkedHashMap<>();
+		if (data != null) {
+			for (Map.Entry<String, Tag<?>> entry : data) {
+				parts.put(entry.getKey(), entry.getValue());
+			}
 		}
-		if (liquidsToBeTicked != null) {
-			level.put("LiquidsToBeTicked", liquidsToBeTicked);
+		putPart(parts, "Heightmaps", heightMaps);
+		putPart(parts, "CarvingMasks", carvingMasks);
+		putPart(parts, "Entities", entities);
+		putPart(parts, "block_entities", blockEntities);
+		putPart(parts, "TileEntities", tileEntities);
+		putPart(parts, "block_ticks", tileTicks);
+		putPart(parts, "fluid_ticks", liquidTicks);
+		putPart(parts, "Lights", lights);
+		putPart(parts, "LiquidsToBeTicked", liquidsToBeTicked);
+		putPart(parts, "ToBeTicked", toBeTicked);
+		putPart(parts, "PostProcessing", postProcessing);
+		putPart(parts, "Structures", structures);
+
+		Map<String, Long> report = new LinkedHashMap<>();
+		for (Map.Entry<String, Tag<?>> part : parts.entrySet()) {
+			report.put(part.getKey(), part.getValue().estimateRetainedBytes());
 		}
-		if (toBeTicked != null) {
-			level.put("ToBeTicked", toBeTicked);
+		if (this.sections.size() > 0) {
+			long bytes = 0;
+			for (Section section : this.sections) {
+				bytes += section.estimateRetainedBytes(counted);
+			}
+			report.put("sections", bytes);
 		}
-		if (postProcessing != null) {
-			level.put("PostProcessing", postProcessing);
+		if (!heightmapCache.isEmpty()) {
+			// an EnumMap holds its key class, its keys, its values and its size
+			long bytes = HeapSize.object(3 * HeapSize.REFERENCE + Integer.BYTES) + HeapSize.array(HeightmapType.values().length, HeapSize.REFERENCE);
+			for (Heightmap heightmap : heightmapCache.values()) {
+				bytes += heightmap.estimateShallowBytes();
+			}
+			report.merge("Heightmaps", bytes, Long::sum);
 		}
-		level.putString("Status", status);
-		if (structures != null) {
-			level.put("Structures", structures);
+		if (blockEntityIndex != null) {
+			long boxes = HeapSize.object(Long.BYTES) + HeapSize.object(Integer.BYTES);
+			report.merge("block_entities", HeapSize.hashMap(blockEntityIndex.size()) + blockEntityIndex.size() * boxes, Long::sum);
 		}
-		ListTag<CompoundTag> sections = new ListTag<>(CompoundTag.class);
-		for (Section section : this.sections.values()) {
-			if (section != null) {
-				sections.add(section.getSource());
+		if (entityIndex != null) {
+			long bytes = HeapSize.hashMap(entityIndex.size());
+			for (List<CompoundTag> inSection : entityIndex.values()) {
+				bytes += HeapSize.object(Integer.BYTES) + HeapSize.object(HeapSize.REFERENCE + 2 * Integer.BYTES)
+						+ HeapSize.array(inSection.size(), HeapSize.REFERENCE);
 			}
+			report.merge("Entities", bytes, Long::sum);
 		}
-		level.put("Sections", sections);
-		return data;
+		return report;
 	}
 
 	public List<LocatedTag<CompoundTag>> locationsOf(Predicate<CompoundTag> checker) {
-		return this.sections.values().stream().flatMap(
+		return this.sections.stream().flatMap(
 				s -> s.getBlockLocations(checker).stream().map(l -> new LocatedTag<>(l.x(), l.y() + (s.getHeight() * 16), l.z(), l.tag())))
 				.toList();
 	}
 	public List<LocatedTag<CompoundTag>> locationsOf(String blockName) {
-		return this.sections.values().stream().flatMap(s -> s.getBlockLocations(blockName).stream()
+		return this.sections.stream().flatMap(s -> s.getBlockLocations(blockName).stream()
 				.map(l -> new LocatedTag<>(l.x(), l.y() + (s.getHeight() * 16), l.z(), l.tag()))).toList();
 	}
 
 	@Override
-	public Iterator<Section> iterator() { return sections.values().iterator(); }
+	public Iterator<Section> iterator() { return sections.iterator(); }
 
 	@Override
 	public String toString() {
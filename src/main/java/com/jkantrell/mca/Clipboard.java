@@ -0,0 +1,403 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.StringTag;
+import com.jkantrell.nbt.tag.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A copied box of blocks, stored as a palette and a packed array of palette indexes plus the block entities
+ * of the box.
+ * <p>Blocks are laid out x fastest, then z, then y, like {@link BlockVolume} and Sponge schematics. Block entities
+ * keep their tags with {@code x}, {@code y} and {@code z} relative to the clipboard origin.</p>
+ * <p>Clipboards are copied with {@link #copy(RegionSet, BlockBox)} and pasted with
+ * {@link #paste(RegionSet, int, int, int, Rotation, Mirror)}, both working on whole sections at a time.
+ * {@link SpongeSchematic} reads and writes them as {@code .schem} files.</p>
+ * */
+public class Clipboard {
+
+	//STATIC
+	/**
+	 * A rotation around the y-axis, looking down.
+	 * */
+	public enum Rotation {
+		NONE, CLOCKWISE_90, CLOCKWISE_180, COUNTERCLOCKWISE_90;
+
+		/**
+		 * @return The amount of clockwise quarter turns.
+		 * */
+		public int getSteps() {
+			return this.ordinal();
+		}
+	}
+
+	/**
+	 * A mirror applied before the rotation. {@link #X} flips the x-axis, swapping east and west,
+	 * {@link #Z} flips the z-axis, swapping north and south.
+	 * */
+	public enum Mirror {
+		NONE, X, Z
+	}
+
+	private static final String[] DIRECTIONS = {"north", "east", "south", "west"};
+
+	/**
+	 * Copies a box of blocks. Blocks of missing chunks and sections are copied as air.
+	 * @param regions The regions to copy from.
+	 * @param box     The blocks to copy in absolute coordinates.
+	 * @return The clipboard.
+	 * */
+	public static Clipboard copy(RegionSet regions, BlockBox box) {
+		BlockVolume volume = BlockVolume.extract(regions, box, true);
+		List<CompoundTag> palette = new ArrayList<>(volume.getPalette());
+		int[] indexes = volume.getIds();
+		int air = -1;
+		for (int i = 0; i < indexes.length; i++) {
+			if (indexes[i] == BlockVolume.MISSING) {
+				if (air < 0) {
+					air = palette.indexOf(MCAUtil.airBlockTag());
+					if (air < 0) {
+						palette.add(MCAUtil.airBlockTag());
+						air = palette.size() - 1;
+					}
+				}
+				indexes[i] = air;
+			}
+		}
+
+		List<CompoundTag> blockEntities = new ArrayList<>();
+		for (int chunkZ = MCAUtil.blockToChunk(box.minZ()); chunkZ <= MCAUtil.blockToChunk(box.maxZ()); chunkZ++) {
+			for (int chunkX = MCAUtil.blockToChunk(box.minX()); chunkX <= MCAUtil.blockToChunk(box.maxX()); chunkX++) {
+				Chunk chunk = regions.getChunkAt(MCAUtil.chunkToBlock(chunkX), MCAUtil.chunkToBlock(chunkZ));
+				if (chunk == null || chunk.getBlockEntities() == null) {
+					continue;
+				}
+				for (CompoundTag blockEntity : chunk.getBlockEntities()) {
+					int x = blockEntity.getInt("x"), y = blockEntity.getInt("y"), z = blockEntity.getInt("z");
+					if (box.contains(x, y, z)) {
+						blockEntities.add(Clipboard.moveBlockEntity(MCAUtil.mutableCopy(blockEntity), x - box.minX(), y - box.minY(), z - box.minZ()));
+					}
+				}
+			}
+		}
+		return new Clipboard(box.sizeX(), box.sizeY(), box.sizeZ(), palette, indexes, blockEntities);
+	}
+
+	/**
+	 * @see #copy(RegionSet, BlockBox)
+	 * */
+	public static Clipboard copy(MCAFile region, BlockBox box) {
+		return Clipboard.copy(new RegionSet(region), box);
+	}
+
+
+	//FIELDS
+	private final int width_, height_, length_;
+	private final List<CompoundTag> palette_;
+	private final BinaryMap data_;
+	private final List<CompoundTag> blockEntities_;
+
+
+	//CONSTRUCTORS
+	/**
+	 * @param width         The size along the x-axis.
+	 * @param height        The size along the y-axis.
+	 * @param length        The size along the z-axis.
+	 * @param palette       The distinct block states of the clipboard.
+	 * @param indexes       For every block, laid out x fastest, then z, then y, its index in {@code palette}.
+	 * @param blockEntities The block entities, located relative to the clipboard origin.
+	 * @throws IllegalArgumentException If the sizes do not match {@code indexes} or an index is outside of the palette.
+	 * */
+	public Clipboard(int width, int height, int length, List<CompoundTag> palette, int[] indexes, List<CompoundTag> blockEntities) {
+		if (width < 1 || height < 1 || length < 1 || (long) width * height * length != indexes.length) {
+			throw new IllegalArgumentException("Expected " + width + "x" + height + "x" + length + " blocks but got " + indexes.length + ".");
+		}
+		if (palette.isEmpty()) {
+			throw new IllegalArgumentException("Palette cannot be empty");
+		}
+		for (int index : indexes) {
+			if (index < 0 || index >= palette.size()) {
+				throw new IllegalArgumentException("Palette index " + index + " is outside of a palette of " + palette.size() + " entries.");
+			}
+		}
+		this.width_ = width;
+		this.height_ = height;
+		this.length_ = length;
+		this.palette_ = List.copyOf(palette);
+		int bits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(palette.size() - 1));
+		this.data_ = new BinaryMap(bits, indexes);
+		this.blockEntities_ = List.copyOf(blockEntities);
+	}
+
+
+	//GETTERS
+	public int getWidth() {
+		return this.width_;
+	}
+	public int getHeight() {
+		return this.height_;
+	}
+	public int getLength() {
+		return this.length_;
+	}
+	public List<CompoundTag> getPalette() {
+		return this.palette_;
+	}
+
+	/**
+	 * @return The block entities, located relative to the clipboard origin. Their tags must not be modified.
+	 * */
+	public List<CompoundTag> getBlockEntities() {
+		return this.blockEntities_;
+	}
+
+	/**
+	 * @return The palette index of every block, laid out x fastest, then z, then y.
+	 * */
+	public int[] getIndexes() {
+		return this.data_.toArray();
+	}
+
+	/**
+	 * @param x The x-coordinate relative to the clipboard origin.
+	 * @param y The y-coordinate relative to the clipboard origin.
+	 * @param z The z-coordinate relative to the clipboard origin.
+	 * @return The block state.
+	 * */
+	public CompoundTag getBlockStateAt(int x, int y, int z) {
+		if (x < 0 || y < 0 || z < 0 || x >= this.width_ || y >= this.height_ || z >= this.length_) {
+			throw new IndexOutOfBoundsException("Block " + x + ", " + y + ", " + z + " is outside of the clipboard.");
+		}
+		return this.palette_.get(this.data_.get((y * this.length_ + z) * this.width_ + x));
+	}
+
+
+	//UTIL
+	/**
+	 * @see #paste(RegionSet, int, int, int, Rotation, Mirror)
+	 * */
+	public int paste(RegionSet regions, int x, int y, int z) {
+		return this.paste(regions, x, y, z, Rotation.NONE, Mirror.NONE);
+	}
+
+	/**
+	 * Pastes this clipboard, creating missing regions, chunks and sections. Every touched section is rewritten once.
+	 * Block entities already inside the pasted box are removed.
+	 * @param regions  The regions to paste into.
+	 * @param x        The absolute x-coordinate of the lowest corner of the pasted box.
+	 * @param y        The absolute y-coordinate of the lowest corner of the pasted box.
+	 * @param z        The absolute z-coordinate of the lowest corner of the pasted box.
+	 * @param rotation The rotation applied to the clipboard.
+	 * @param mirror   The mirror applied to the clipboard before rotating it.
+	 * @return The amount of blocks written.
+	 * @see #transform(Rotation, Mirror)
+	 * */
+	public int paste(RegionSet regions, int x, int y, int z, Rotation rotation, Mirror mirror) {
+		return this.paste(regions, x, y, z, rotation, mirror, null);
+	}
+
+	/**
+	 * Pastes this clipboard into a single region. Blocks and block entities falling outside of that region are
+	 * skipped, no other region is created.
+	 * @see #paste(RegionSet, int, int, int, Rotation, Mirror)
+	 * */
+	public int paste(MCAFile region, int x, int y, int z, Rotation rotation, Mirror mirror) {
+		int minX = MCAUtil.regionToBlock(region.getRegionX()), minZ = MCAUtil.regionToBlock(region.getRegionZ());
+		BlockBox bounds = new BlockBox(minX, Integer.MIN_VALUE, minZ, minX + 511, Integer.MAX_VALUE, minZ + 511);
+		return this.paste(new RegionSet(region), x, y, z, rotation, mirror, bounds);
+	}
+
+	/**
+	 * Creates a mirrored and rotated copy of this clipboard. Block positions are moved, and the {@code facing},
+	 * {@code axis} and {@code rotation} properties as well as the {@code north}, {@code east}, {@code south}
+	 * and {@code west} connection properties of every palette entry are turned to match. Mirroring also swaps
+	 * the left and right {@code shape} of stairs and the {@code hinge} of doors, and the directions of rail
+	 * {@code shape}s are turned like {@code facing}.
+	 * @param rotation The rotation around the y-axis.
+	 * @param mirror   The mirror applied before rotating.
+	 * @return The transformed clipboard, or this one if nothing changes.
+	 * */
+	public Clipboard transform(Rotation rotation, Mirror mirror) {
+		if (rotation == Rotation.NONE && mirror == Mirror.NONE) {
+			return this;
+		}
+		boolean swap = (rotation.getSteps() & 1) == 1;
+		int width = swap ? this.length_ : this.width_, length = swap ? this.width_ : this.length_;
+
+		List<CompoundTag> palette = new ArrayList<>(this.palette_.size());
+		for (CompoundTag state : this.palette_) {
+			palette.add(Clipboard.transformState(state, rotation, mirror));
+		}
+
+		int[] source = this.data_.toArray(), indexes = new int[source.length];
+		int[] position = new int[2];
+		int i = 0;
+		for (int y = 0; y < this.height_; y++) {
+			for (int z = 0; z < this.length_; z++) {
+				for (int x = 0; x < this.width_; x++, i++) {
+					this.transformPosition(x, z, rotation, mirror, position);
+					indexes[(y * length + position[1]) * width + position[0]] = source[i];
+				}
+			}
+		}
+
+		List<CompoundTag> blockEntities = new ArrayList<>(this.blockEntities_.size());
+		for (CompoundTag blockEntity : this.blockEntities_) {
+			this.transformPosition(blockEntity.getInt("x"), blockEntity.getInt("z"), rotation, mirror, position);
+			blockEntities.add(Clipboard.moveBlockEntity(MCAUtil.mutableCopy(blockEntity), position[0], blockEntity.getInt("y"), position[1]));
+		}
+		return new Clipboard(width, this.height_, length, palette, indexes, blockEntities);
+	}
+
+
+	//PRIVATE UTIL
+	private int paste(RegionSet regions, int x, int y, int z, Rotation rotation, Mirror mirror, BlockBox bounds) {
+		Clipboard clipboard = this.transform(rotation, mirror);
+		BlockBox box = new BlockBox(x, y, z, x + clipboard.width_ - 1, y + clipboard.height_ - 1, z + clipboard.length_ - 1);
+		BlockBox target = (bounds == null) ? box : box.intersection(bounds);
+		if (target == null) {
+			return 0;
+		}
+		//Block entities of the replaced blocks would otherwise be left behind
+		for (int chunkZ = target.minZ() >> 4; chunkZ <= target.maxZ() >> 4; chunkZ++) {
+			for (int chunkX = target.minX() >> 4; chunkX <= target.maxX() >> 4; chunkX++) {
+				Chunk chunk = regions.getChunkAt(chunkX << 4, chunkZ << 4);
+				if (chunk != null) {
+					chunk.removeBlockEntities(target);
+				}
+			}
+		}
+		int[] indexes = clipboard.getIndexes();
+		if (!target.equals(box)) {
+			int i = 0;
+			for (int blockY = box.minY(); blockY <= box.maxY(); blockY++) {
+				for (int blockZ = box.minZ(); blockZ <= box.maxZ(); blockZ++) {
+					for (int blockX = box.minX(); blockX <= box.maxX(); blockX++, i++) {
+						if (!target.contains(blockX, blockY, blockZ)) {
+							indexes[i] = BlockVolume.MISSING;
+						}
+					}
+				}
+			}
+		}
+		int written = new BlockVolume(box, indexes, clipboard.palette_).writeTo(regions);
+		for (CompoundTag blockEntity : clipboard.blockEntities_) {
+			int blockX = x + blockEntity.getInt("x"), blockY = y + blockEntity.getInt("y"), blockZ = z + blockEntity.getInt("z");
+			if (target.contains(blockX, blockY, blockZ)) {
+				regions.getOrCreateChunkAt(blockX, blockZ).setBlockEntity(Clipboard.moveBlockEntity(MCAUtil.mutableCopy(blockEntity), blockX, blockY, blockZ));
+			}
+		}
+		return written;
+	}
+	private void transformPosition(int x, int z, Rotation rotation, Mirror mirror, int[] into) {
+		if (mirror == Mirror.X) {
+			x = this.width_ - 1 - x;
+		} else if (mirror == Mirror.Z) {
+			z = this.length_ - 1 - z;
+		}
+		switch (rotation) {
+			case CLOCKWISE_90 -> { into[0] = this.length_ - 1 - z; into[1] = x; }
+			case CLOCKWISE_180 -> { into[0] = this.width_ - 1 - x; into[1] = this.length_ - 1 - z; }
+			case COUNTERCLOCKWISE_90 -> { into[0] = z; into[1] = this.width_ - 1 - x; }
+			default -> { into[0] = x; into[1] = z; }
+		}
+	}
+	private static CompoundTag moveBlockEntity(CompoundTag blockEntity, int x, int y, int z) {
+		blockEntity.putInt("x", x);
+		blockEntity.putInt("y", y);
+		blockEntity.putInt("z", z);
+		return blockEntity;
+	}
+	private static CompoundTag transformState(CompoundTag state, Rotation rotation, Mirror mirror) {
+		if (!state.containsKey("Properties")) {
+			return state;
+		}
+		CompoundTag properties = state.getCompoundTag("Properties"), turned = new CompoundTag();
+		for (String key : properties.keySet()) {
+			Tag<?> value = properties.get(key);
+			int direction = Clipboard.directionIndex(key);
+			if (direction >= 0) {
+				turned.put(DIRECTIONS[Clipboard.transformDirection(direction, rotation, mirror)], value);
+				continue;
+			}
+			if (!(value instanceof StringTag string)) {
+				turned.put(key, value);
+				continue;
+			}
+			String text = string.getValue();
+			switch (key) {
+				case "facing" -> {
+					int facing = Clipboard.directionIndex(text);
+					turned.putString(key, facing < 0 ? text : DIRECTIONS[Clipboard.transformDirection(facing, rotation, mirror)]);
+				}
+				case "axis" -> {
+					boolean swap = (rotation.getSteps() & 1) == 1;
+					turned.putString(key, !swap ? text : text.equals("x") ? "z" : text.equals("z") ? "x" : text);
+				}
+				case "shape" -> turned.putString(key, Clipboard.transformShape(text, rotation, mirror));
+				case "hinge" -> turned.putString(key, mirror == Mirror.NONE ? text : Clipboard.swapHand(text));
+				case "rotation" -> {
+					int angle = Integer.parseInt(text);
+					if (mirror == Mirror.X) {
+						angle = 16 - angle;
+					} else if (mirror == Mirror.Z) {
+						angle = 8 - angle;
+					}
+					turned.putString(key, Integer.toString((angle + rotation.getSteps() * 4) & 0xF));
+				}
+				default -> turned.put(key, value);
+			}
+		}
+		return state.with("Properties", turned);
+	}
+	private static String transformShape(String shape, Rotation rotation, Mirror mirror) {
+		//Stairs only depend on the mirror, as their shape is relative to their facing
+		if (shape.contains("left") || shape.contains("right")) {
+			return mirror == Mirror.NONE ? shape : Clipboard.swapHand(shape);
+		}
+		//Rails name the directions they connect, or the one they ascend to
+		String[] parts = shape.split("_");
+		if (parts.length != 2) {
+			return shape;
+		}
+		if (parts[0].equals("ascending")) {
+			int direction = Clipboard.directionIndex(parts[1]);
+			return direction < 0 ? shape : "ascending_" + DIRECTIONS[Clipboard.transformDirection(direction, rotation, mirror)];
+		}
+		int a = Clipboard.directionIndex(parts[0]), b = Clipboard.directionIndex(parts[1]);
+		if (a < 0 || b < 0) {
+			return shape;
+		}
+		a = Clipboard.transformDirection(a, rotation, mirror);
+		b = Clipboard.transformDirection(b, rotation, mirror);
+		if ((a & 1) == (b & 1)) {
+			return (a & 1) == 0 ? "north_south" : "east_west";
+		}
+		//Curves name their north or south end first
+		return (a & 1) == 0 ? DIRECTIONS[a] + "_" + DIRECTIONS[b] : DIRECTIONS[b] + "_" + DIRECTIONS[a];
+	}
+	private static String swapHand(String text) {
+		if (text.contains("left")) {
+			return text.replace("left", "right");
+		}
+		return text.replace("right", "left");
+	}
+	private static int directionIndex(String name) {
+		for (int i = 0; i < DIRECTIONS.length; i++) {
+			if (DIRECTIONS[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	private static int transformDirection(int direction, Rotation rotation, Mirror mirror) {
+		if (mirror == Mirror.X && (direction & 1) == 1) {
+			direction = (direction + 2) & 3;
+		} else if (mirror == Mirror.Z && (direction & 1) == 0) {
+			direction = (direction + 2) & 3;
+		}
+		return (direction + rotation.getSteps()) & 3;
+	}
+}
@@ -0,0 +1,148 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers block state writes and applies them in bulk.
+ * <p>Writes are grouped by region, chunk and section. On {@link #flush()} every touched section is decoded once,
+ * its palette is rebuilt once and its data is repacked once, no matter how many blocks were written to it.
+ * Missing regions, chunks and sections are created as needed.</p>
+ * <p>Coordinates are absolute world coordinates. An EditSession is not thread safe.</p>
+ * */
+public class EditSession implements AutoCloseable {
+
+	//FIELDS
+	private final RegionSet regions_;
+	private final Map<Long, SectionBuffer> buffers_ = new HashMap<>();
+	private final Map<CompoundTag, Integer> stateIndexes_ = new HashMap<>();
+	private final List<CompoundTag> states_ = new ArrayList<>();
+	private SectionBuffer lastBuffer_ = null;
+	private CompoundTag lastState_ = null;
+	private int lastStateIndex_ = -1;
+	private int pending_ = 0;
+
+
+	//CONSTRUCTORS
+	public EditSession(RegionSet regions) {
+		this.regions_ = regions;
+	}
+
+	public EditSession(MCAFile region) {
+		this(new RegionSet(region));
+	}
+
+
+	//GETTERS
+	public RegionSet getRegions() {
+		return this.regions_;
+	}
+
+	/**
+	 * @return The amount of writes buffered since the last flush.
+	 * */
+	public int getPendingCount() {
+		return this.pending_;
+	}
+
+
+	//SETTERS
+	/**
+	 * Buffers a block state write. Nothing is written to the regions until {@link #flush()} is called.
+	 * @param blockX The absolute x-coordinate of the block.
+	 * @param blockY The absolute y-coordinate of the block.
+	 * @param blockZ The absolute z-coordinate of the block.
+	 * @param state  The block state to be set.
+	 * */
+	public void setBlockStateAt(int blockX, int blockY, int blockZ, CompoundTag state) {
+		int chunkX = MCAUtil.blockToChunk(blockX), sectionY = MCAUtil.blockToChunk(blockY), chunkZ = MCAUtil.blockToChunk(blockZ);
+		SectionBuffer buffer = this.lastBuffer_;
+		if (buffer == null || buffer.chunkX != chunkX || buffer.sectionY != sectionY || buffer.chunkZ != chunkZ) {
+			buffer = this.buffers_.computeIfAbsent(EditSession.key(chunkX, sectionY, chunkZ), k -> new SectionBuffer(chunkX, sectionY, chunkZ));
+			this.lastBuffer_ = buffer;
+		}
+		buffer.add((blockY & 0xF) << 8 | (blockZ & 0xF) << 4 | (blockX & 0xF), this.stateIndexOf(state));
+		this.pending_++;
+	}
+
+
+	//UTIL
+	/**
+	 * Applies every buffered write. Sections are resolved (and created if missing) first and then
+	 * rewritten in parallel, each one in a single pass.
+	 * @return The amount of writes applied.
+	 * */
+	public int flush() {
+		List<Runnable> jobs = new ArrayList<>(this.buffers_.size());
+		for (SectionBuffer buffer : this.buffers_.values()) {
+			Chunk chunk = this.regions_.getOrCreateChunkAt(MCAUtil.chunkToBlock(buffer.chunkX), MCAUtil.chunkToBlock(buffer.chunkZ));
+			Section section = chunk.getOrCreateSection(buffer.sectionY);
+			jobs.add(() -> section.mutableBlockStates().setAll(buffer.indexes, buffer.states, this.states_, buffer.count));
+		}
+		jobs.parallelStream().forEach(Runnable::run);
+
+		int applied = this.pending_;
+		this.buffers_.clear();
+		this.stateIndexes_.clear();
+		this.states_.clear();
+		this.lastBuffer_ = null;
+		this.lastState_ = null;
+		this.lastStateIndex_ = -1;
+		this.pending_ = 0;
+		return applied;
+	}
+
+	@Override
+	public void close() {
+		this.flush();
+	}
+
+
+	//PRIVATE UTIL
+	private int stateIndexOf(CompoundTag state) {
+		if (state == this.lastState_) {
+			return this.lastStateIndex_;
+		}
+		int index = this.stateIndexes_.computeIfAbsent(state, s -> {
+			this.states_.add(s);
+			return this.states_.size() - 1;
+		});
+		this.lastState_ = state;
+		this.lastStateIndex_ = index;
+		return index;
+	}
+	private static long key(int chunkX, int sectionY, int chunkZ) {
+		return ((long) chunkX & 0x3FFFFF) << 42 | ((long) chunkZ & 0x3FFFFF) << 20 | (sectionY & 0xFFFFF);
+	}
+
+
+	//CLASSES
+	private static class SectionBuffer {
+
+		private final int chunkX, sectionY, chunkZ;
+		private int[] indexes = new int[64];
+		private int[] states = new int[64];
+		private int count = 0;
+
+		private SectionBuffer(int chunkX, int sectionY, int chunkZ) {
+			this.chunkX = chunkX;
+			this.sectionY = sectionY;
+			this.chunkZ = chunkZ;
+		}
+
+		private void add(int index, int state) {
+			if (this.count == this.indexes.length) {
+				this.indexes = Arrays.copyOf(this.indexes, this.count * 2);
+				this.states = Arrays.copyOf(this.states, this.count * 2);
+			}
+			this.indexes[this.count] = index;
+			this.states[this.count] = state;
+			this.count++;
+		}
+	}
+}
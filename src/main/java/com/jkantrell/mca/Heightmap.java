@@ -0,0 +1,128 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.HeapSize;
+
+/**
+ * Typed view over one packed heightmap of a chunk.
+ * <p>The packed longs are used in place, so writes go straight to the array stored in the chunk's
+ * {@code Heightmaps} tag. Each of the 256 columns, indexed {@code z * 16 + x}, holds the height above the bottom of
+ * the world of the first block above the highest opaque block, 0 meaning the column is empty.</p>
+ * */
+public class Heightmap {
+
+	//STATIC
+	public static final int COLUMNS = 256;
+	public static final int DEFAULT_BITS = 9;
+
+	/**
+	 * @param worldHeight The amount of blocks between the bottom and the top of the world.
+	 * @return The bits needed per column.
+	 * */
+	public static int bitsFor(int worldHeight) {
+		return Math.max(DEFAULT_BITS, Integer.SIZE - Integer.numberOfLeadingZeros(worldHeight));
+	}
+
+
+	//FIELDS
+	private final HeightmapType type_;
+	private final int minY_;
+	private final BinaryMap map_;
+
+
+	//CONSTRUCTORS
+	/**
+	 * Wraps packed heightmap data. The bit width is deduced from the length of the array.
+	 * @param type The type of the heightmap.
+	 * @param minY The y-coordinate of the bottom of the world.
+	 * @param data The packed data, used in place.
+	 * @throws IllegalArgumentException If no bit width matches the length of the array.
+	 * */
+	public Heightmap(HeightmapType type, int minY, long[] data) {
+		this.type_ = type;
+		this.minY_ = minY;
+		int bits = DEFAULT_BITS;
+		while (bits <= 32 && (COLUMNS + (64 / bits) - 1) / (64 / bits) != data.length) {
+			bits++;
+		}
+		if (bits > 32) {
+			throw new IllegalArgumentException("Heightmap data of " + data.length + " longs does not match any bit width.");
+		}
+		this.map_ = new BinaryMap(bits, COLUMNS, data);
+	}
+
+	/**
+	 * Creates an empty heightmap.
+	 * @param type The type of the heightmap.
+	 * @param minY The y-coordinate of the bottom of the world.
+	 * @param bits The bits per column.
+	 * */
+	public Heightmap(HeightmapType type, int minY, int bits) {
+		this.type_ = type;
+		this.minY_ = minY;
+		this.map_ = new BinaryMap(bits, COLUMNS);
+	}
+
+
+	//GETTERS
+	public HeightmapType getType() {
+		return this.type_;
+	}
+	public int getMinY() {
+		return this.minY_;
+	}
+
+	/**
+	 * @return The packed data, shared with this heightmap.
+	 * */
+	public long[] getData() {
+		return this.map_.getData();
+	}
+
+	/**
+	 * @param x The x-coordinate of the column, absolute or relative to the chunk.
+	 * @param z The z-coordinate of the column, absolute or relative to the chunk.
+	 * @return The y-coordinate of the highest opaque block, or {@code minY - 1} if the column is empty.
+	 * */
+	public int getHighestBlockY(int x, int z) {
+		return this.minY_ + this.map_.get(Heightmap.index(x, z)) - 1;
+	}
+
+	/**
+	 * Decodes every column at once, reading the packed longs sequentially.
+	 * @return The y-coordinate of the highest opaque block of every column, indexed {@code z * 16 + x}.
+	 * */
+	public int[] toHighestBlockArray() {
+		int[] heights = this.map_.toArray();
+		for (int i = 0; i < heights.length; i++) {
+			heights[i] += this.minY_ - 1;
+		}
+		return heights;
+	}
+
+
+	//SETTERS
+	/**
+	 * @param x      The x-coordinate of the column, absolute or relative to the chunk.
+	 * @param z      The z-coordinate of the column, absolute or relative to the chunk.
+	 * @param blockY The y-coordinate of the highest opaque block, {@code minY - 1} for an empty column.
+	 * */
+	public void setHighestBlockY(int x, int z, int blockY) {
+		this.map_.set(Heightmap.index(x, z), blockY + 1 - this.minY_);
+	}
+
+
+	//PACKAGE UTIL
+	/**
+	 * @return The estimated heap size of this heightmap without its packed data, which belongs to the chunk's
+	 * {@code Heightmaps} tag.
+	 * */
+	long estimateShallowBytes() {
+		return HeapSize.object(HeapSize.fields(Heightmap.class)) + this.map_.estimateShallowBytes();
+	}
+
+
+	//PRIVATE UTIL
+	private static int index(int x, int z) {
+		return (z & 0xF) * 16 + (x & 0xF);
+	}
+}
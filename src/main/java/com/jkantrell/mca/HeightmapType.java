@@ -0,0 +1,91 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The heightmaps Minecraft stores per chunk. Each one records, per column, the highest block matching its
+ * predicate.
+ * <p>Minecraft decides this from block properties this library does not have, so the predicates are a heuristic
+ * based on block names: air variants are empty, fluids and waterlogged blocks hold fluid and a list of plants,
+ * torches, rails, signs and similar blocks do not block motion. Every other block is treated as solid.</p>
+ * */
+public enum HeightmapType {
+
+	WORLD_SURFACE_WG(HeightmapType::isNotAir),
+	WORLD_SURFACE(HeightmapType::isNotAir),
+	OCEAN_FLOOR_WG(HeightmapType::blocksMotion),
+	OCEAN_FLOOR(HeightmapType::blocksMotion),
+	MOTION_BLOCKING(s -> HeightmapType.blocksMotion(s) || HeightmapType.hasFluid(s)),
+	MOTION_BLOCKING_NO_LEAVES(s -> (HeightmapType.blocksMotion(s) || HeightmapType.hasFluid(s)) && !s.getString("Name").endsWith("_leaves"));
+
+	/**
+	 * The heightmaps stored by fully generated chunks.
+	 * */
+	public static final Set<HeightmapType> FINAL = Set.of(WORLD_SURFACE, OCEAN_FLOOR, MOTION_BLOCKING, MOTION_BLOCKING_NO_LEAVES);
+
+	private static final Set<String> AIR = Set.of("minecraft:air", "minecraft:cave_air", "minecraft:void_air");
+	private static final Set<String> FLUIDS = Set.of("minecraft:water", "minecraft:lava", "minecraft:bubble_column");
+	private static final Set<String> PASSABLE = Set.of(
+			"minecraft:grass", "minecraft:short_grass", "minecraft:tall_grass", "minecraft:fern", "minecraft:large_fern",
+			"minecraft:dead_bush", "minecraft:seagrass", "minecraft:tall_seagrass", "minecraft:kelp", "minecraft:vine",
+			"minecraft:glow_lichen", "minecraft:sugar_cane", "minecraft:lever", "minecraft:redstone_wire", "minecraft:tripwire",
+			"minecraft:tripwire_hook", "minecraft:cobweb", "minecraft:nether_sprouts", "minecraft:warped_roots",
+			"minecraft:crimson_roots", "minecraft:hanging_roots", "minecraft:sculk_vein", "minecraft:light",
+			"minecraft:structure_void", "minecraft:fire", "minecraft:soul_fire", "minecraft:snow", "minecraft:dandelion",
+			"minecraft:poppy", "minecraft:allium", "minecraft:azure_bluet", "minecraft:oxeye_daisy", "minecraft:cornflower",
+			"minecraft:lily_of_the_valley", "minecraft:wither_rose", "minecraft:sunflower", "minecraft:lilac",
+			"minecraft:rose_bush", "minecraft:peony", "minecraft:torchflower", "minecraft:pitcher_plant", "minecraft:wheat",
+			"minecraft:carrots", "minecraft:potatoes", "minecraft:beetroots", "minecraft:melon_stem", "minecraft:pumpkin_stem",
+			"minecraft:attached_melon_stem", "minecraft:attached_pumpkin_stem", "minecraft:sweet_berry_bush",
+			"minecraft:nether_wart", "minecraft:nether_portal", "minecraft:end_portal", "minecraft:spore_blossom",
+			"minecraft:small_dripleaf", "minecraft:big_dripleaf_stem", "minecraft:pink_petals");
+	private static final String[] PASSABLE_SUFFIXES = {
+			"_sapling", "torch", "_button", "_pressure_plate", "rail", "_sign", "_banner", "_mushroom", "_tulip",
+			"_orchid", "_coral", "_coral_fan", "_vines", "_plant"};
+
+	private static boolean isNotAir(CompoundTag state) {
+		return !AIR.contains(state.getString("Name"));
+	}
+	private static boolean hasFluid(CompoundTag state) {
+		if (FLUIDS.contains(state.getString("Name"))) {
+			return true;
+		}
+		CompoundTag properties = state.getCompoundTag("Properties");
+		return properties != null && "true".equals(properties.getString("waterlogged"));
+	}
+	private static boolean blocksMotion(CompoundTag state) {
+		String name = state.getString("Name");
+		if (AIR.contains(name) || FLUIDS.contains(name) || PASSABLE.contains(name)) {
+			return false;
+		}
+		for (String suffix : PASSABLE_SUFFIXES) {
+			if (name.endsWith(suffix)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	//FIELDS
+	private final Predicate<CompoundTag> predicate_;
+
+
+	//CONSTRUCTORS
+	HeightmapType(Predicate<CompoundTag> predicate) {
+		this.predicate_ = predicate;
+	}
+
+
+	//UTIL
+	/**
+	 * @param state A block state.
+	 * @return Whether a column of this heightmap stops at a block of that state.
+	 * */
+	public boolean isOpaque(CompoundTag state) {
+		return this.predicate_.test(state);
+	}
+}
@@ -0,0 +1,369 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recomputes the {@code SkyLight} and {@code BlockLight} arrays of sections after edits.
+ * <p>Every chunk is first lit on its own, in parallel: sky light falls straight down through transparent blocks and
+ * then spreads, block light spreads from emitting blocks. Chunks then exchange light across their borders, each
+ * round reading the borders of the neighbouring chunks and spreading what enters, until no light crosses a border
+ * anymore. Only chunks being relit exchange light with each other. Relit chunks are marked with {@code isLightOn}
+ * so the game keeps their light.</p>
+ * <p>Missing sections between the lowest and the highest section of a chunk are created, as light cannot be stored
+ * without them. Everything above the highest section is open sky.</p>
+ * <p>Light opacity and emission are not stored in the world, {@link #getOpacity(CompoundTag)} and
+ * {@link #getEmission(CompoundTag)} guess them from block names and can be overridden.</p>
+ * */
+public class LightEngine {
+
+	//STATIC
+	public static final int MAX_LIGHT = 15;
+
+	private static final Map<String, Integer> EMISSION = new HashMap<>();
+	static {
+		for (String name : List.of("glowstone", "sea_lantern", "lantern", "jack_o_lantern", "shroomlight", "beacon", "lava",
+				"fire", "campfire", "end_portal", "end_gateway", "conduit", "redstone_lamp", "ochre_froglight",
+				"verdant_froglight", "pearlescent_froglight", "lava_cauldron")) {
+			EMISSION.put("minecraft:" + name, 15);
+		}
+		for (String name : List.of("torch", "wall_torch", "end_rod")) {
+			EMISSION.put("minecraft:" + name, 14);
+		}
+		for (String name : List.of("furnace", "blast_furnace", "smoker")) {
+			EMISSION.put("minecraft:" + name, 13);
+		}
+		for (String name : List.of("soul_torch", "soul_wall_torch", "soul_lantern", "soul_fire", "soul_campfire")) {
+			EMISSION.put("minecraft:" + name, 10);
+		}
+		for (String name : List.of("redstone_torch", "redstone_wall_torch", "glow_lichen", "enchanting_table", "ender_chest")) {
+			EMISSION.put("minecraft:" + name, 7);
+		}
+		EMISSION.put("minecraft:magma_block", 3);
+		EMISSION.put("minecraft:brewing_stand", 1);
+		EMISSION.put("minecraft:brown_mushroom", 1);
+	}
+	private static final Set<String> DIFFUSING = Set.of("minecraft:water", "minecraft:bubble_column", "minecraft:ice",
+			"minecraft:frosted_ice", "minecraft:cobweb", "minecraft:slime_block", "minecraft:honey_block");
+	private static final String[] TRANSPARENT = {"glass", "_pane", "_bars", "_fence", "_fence_gate", "_wall", "_door",
+			"_trapdoor", "_carpet", "_sign", "_banner", "chain", "ladder", "barrier", "scaffolding"};
+
+
+	//UTIL
+	/**
+	 * Relights a single chunk without neighbours.
+	 * @param chunk The chunk.
+	 * */
+	public void relight(Chunk chunk) {
+		this.relight(List.of(new ChunkLight(chunk, 0, 0)));
+	}
+
+	/**
+	 * Relights every chunk of a region, letting light cross between them.
+	 * @param region The region.
+	 * */
+	public void relight(MCAFile region) {
+		this.relight(new RegionSet(region));
+	}
+
+	/**
+	 * Relights every chunk of a set of regions, letting light cross between them, including across regions.
+	 * @param regions The regions.
+	 * */
+	public void relight(RegionSet regions) {
+		List<ChunkLight> chunks = new ArrayList<>();
+		for (MCAFile region : regions) {
+			for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
+				for (int chunkX = 0; chunkX < 32; chunkX++) {
+					Chunk chunk = region.getChunk(chunkX, chunkZ);
+					if (chunk != null) {
+						chunks.add(new ChunkLight(chunk, region.getRegionX() * 32 + chunkX, region.getRegionZ() * 32 + chunkZ));
+					}
+				}
+			}
+		}
+		this.relight(chunks);
+	}
+
+	/**
+	 * @param state A block state.
+	 * @return How much light is lost through a block of that state, from 0 to {@value #MAX_LIGHT}. Light always loses
+	 *         at least one level per block it travels.
+	 * */
+	public int getOpacity(CompoundTag state) {
+		String name = state.getString("Name");
+		if (DIFFUSING.contains(name) || name.endsWith("_leaves")) {
+			return 1;
+		}
+		if (!HeightmapType.OCEAN_FLOOR.isOpaque(state)) {
+			return HeightmapType.MOTION_BLOCKING.isOpaque(state) ? 1 : 0;
+		}
+		for (String pattern : TRANSPARENT) {
+			if (name.contains(pattern)) {
+				return 0;
+			}
+		}
+		return MAX_LIGHT;
+	}
+
+	/**
+	 * @param state A block state.
+	 * @return The light emitted by a block of that state, from 0 to {@value #MAX_LIGHT}.
+	 * */
+	public int getEmission(CompoundTag state) {
+		Integer emission = EMISSION.get(state.getString("Name"));
+		if (emission == null) {
+			return 0;
+		}
+		CompoundTag properties = state.getCompoundTag("Properties");
+		if (properties != null && "false".equals(properties.getString("lit"))) {
+			return 0;
+		}
+		return emission;
+	}
+
+
+	//PRIVATE UTIL
+	private void relight(List<ChunkLight> chunks) {
+		if (chunks.isEmpty()) {
+			return;
+		}
+		chunks.parallelStream().forEach(ChunkLight::decode);
+
+		//Building lookup tables once, every decoded id is registered by now
+		int size = BlockStateRegistry.INSTANCE.size();
+		byte[] opacity = new byte[size], emission = new byte[size];
+		for (int id = 0; id < size; id++) {
+			CompoundTag state = BlockStateRegistry.INSTANCE.get(id);
+			opacity[id] = (byte) Math.max(0, Math.min(MAX_LIGHT, this.getOpacity(state)));
+			emission[id] = (byte) Math.max(0, Math.min(MAX_LIGHT, this.getEmission(state)));
+		}
+
+		Map<Long, ChunkLight> positions = new HashMap<>();
+		for (ChunkLight chunk : chunks) {
+			positions.put(LightEngine.key(chunk.chunkX, chunk.chunkZ), chunk);
+		}
+		chunks.parallelStream().forEach(c -> c.lightLocally(opacity, emission));
+
+		boolean crossed = true;
+		while (crossed) {
+			chunks.parallelStream().forEach(c -> c.collectBorder(positions, opacity));
+			crossed = chunks.parallelStream().map(c -> c.spreadBorder(opacity)).reduce(false, Boolean::logicalOr);
+		}
+		chunks.forEach(ChunkLight::release);
+	}
+	private static long key(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+
+	//CLASSES
+	private static final class ChunkLight {
+
+		private static final int[][] SIDES = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+		private final Chunk chunk;
+		private final int chunkX, chunkZ;
+		private int minSection, cells;
+		private NibbleArray[] sky, block;
+		private int[][] ids;
+		private int[] queue = new int[4096];
+		private int head, tail;
+		private final int[][] seeds = new int[2][];
+		private final int[] seedCounts = new int[2];
+
+		private ChunkLight(Chunk chunk, int chunkX, int chunkZ) {
+			this.chunk = chunk;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+
+		private void decode() {
+			List<Section> present = this.chunk.getSections();
+			if (present.isEmpty()) {
+				this.cells = 0;
+				return;
+			}
+			this.minSection = present.get(0).getHeight();
+			int count = present.get(present.size() - 1).getHeight() - this.minSection + 1;
+			this.cells = count << 12;
+			this.sky = new NibbleArray[count];
+			this.block = new NibbleArray[count];
+			this.ids = new int[count][];
+			for (int i = 0; i < count; i++) {
+				Section section = this.chunk.getOrCreateSection(this.minSection + i);
+				this.sky[i] = section.getOrCreateSkyLight();
+				this.block[i] = section.getOrCreateBlockLight();
+				this.ids[i] = section.copyBlockStateIds(new int[4096]);
+			}
+		}
+
+		private void release() {
+			this.chunk.setLightOn(true);
+			this.ids = null;
+			this.queue = null;
+		}
+
+		private void lightLocally(byte[] opacity, byte[] emission) {
+			if (this.cells == 0) {
+				return;
+			}
+			for (int i = 0; i < this.sky.length; i++) {
+				this.sky[i].fill(0);
+				this.block[i].fill(0);
+			}
+
+			//Sky light falls straight down until it hits a block that is not fully transparent
+			this.head = this.tail = 0;
+			for (int column = 0; column < 256; column++) {
+				for (int cell = this.cells - 256 + column; cell >= 0; cell -= 256) {
+					if (opacity[this.id(cell)] > 0) {
+						break;
+					}
+					this.set(this.sky, cell, MAX_LIGHT);
+					this.enqueue(cell);
+				}
+			}
+			this.spread(this.sky, opacity);
+
+			this.head = this.tail = 0;
+			for (int cell = 0; cell < this.cells; cell++) {
+				int light = emission[this.id(cell)];
+				if (light > 0) {
+					this.set(this.block, cell, light);
+					this.enqueue(cell);
+				}
+			}
+			this.spread(this.block, opacity);
+		}
+
+		private void collectBorder(Map<Long, ChunkLight> positions, byte[] opacity) {
+			for (int kind = 0; kind < 2; kind++) {
+				this.seedCounts[kind] = 0;
+			}
+			if (this.cells == 0) {
+				return;
+			}
+			for (int[] side : SIDES) {
+				ChunkLight neighbour = positions.get(LightEngine.key(this.chunkX + side[0], this.chunkZ + side[1]));
+				if (neighbour == null) {
+					continue;
+				}
+				for (int i = 0; i < 16; i++) {
+					//Cell of this chunk on the shared border and the facing cell of the neighbour
+					int x = (side[0] < 0) ? 0 : (side[0] > 0) ? 15 : i, z = (side[1] < 0) ? 0 : (side[1] > 0) ? 15 : i;
+					int nx = (side[0] == 0) ? x : 15 - x, nz = (side[1] == 0) ? z : 15 - z;
+					for (int y = 0; y < (this.cells >> 8); y++) {
+						int cell = (y << 8) | (z << 4) | x;
+						int ny = y + ((this.minSection - neighbour.minSection) << 4);
+						int loss = Math.max(1, opacity[this.id(cell)]);
+						int sky = neighbour.light(neighbour.sky, ny, nx, nz, true) - loss;
+						if (sky > this.get(this.sky, cell)) {
+							this.seed(0, cell, sky);
+						}
+						int block = neighbour.light(neighbour.block, ny, nx, nz, false) - loss;
+						if (block > this.get(this.block, cell)) {
+							this.seed(1, cell, block);
+						}
+					}
+				}
+			}
+		}
+
+		private boolean spreadBorder(byte[] opacity) {
+			boolean spread = false;
+			for (int kind = 0; kind < 2; kind++) {
+				NibbleArray[] light = (kind == 0) ? this.sky : this.block;
+				this.head = this.tail = 0;
+				for (int i = 0; i < this.seedCounts[kind]; i++) {
+					int cell = this.seeds[kind][2 * i], level = this.seeds[kind][2 * i + 1];
+					if (level > this.get(light, cell)) {
+						this.set(light, cell, level);
+						this.enqueue(cell);
+						spread = true;
+					}
+				}
+				this.spread(light, opacity);
+			}
+			return spread;
+		}
+
+		private void spread(NibbleArray[] light, byte[] opacity) {
+			while (this.head < this.tail) {
+				int cell = this.queue[this.head++];
+				int level = this.get(light, cell);
+				if (level <= 1) {
+					continue;
+				}
+				int x = cell & 0xF, z = (cell >> 4) & 0xF;
+				if (x > 0) { this.offer(light, cell - 1, level, opacity); }
+				if (x < 15) { this.offer(light, cell + 1, level, opacity); }
+				if (z > 0) { this.offer(light, cell - 16, level, opacity); }
+				if (z < 15) { this.offer(light, cell + 16, level, opacity); }
+				if (cell >= 256) { this.offer(light, cell - 256, level, opacity); }
+				if (cell + 256 < this.cells) { this.offer(light, cell + 256, level, opacity); }
+			}
+		}
+
+		private void offer(NibbleArray[] light, int cell, int level, byte[] opacity) {
+			int next = level - Math.max(1, opacity[this.id(cell)]);
+			if (next > this.get(light, cell)) {
+				this.set(light, cell, next);
+				this.enqueue(cell);
+			}
+		}
+
+		private int light(NibbleArray[] light, int y, int x, int z, boolean sky) {
+			if (y < 0) {
+				return 0;
+			}
+			if (y >= (this.cells >> 8)) {
+				return sky ? MAX_LIGHT : 0;
+			}
+			return this.get(light, (y << 8) | (z << 4) | x);
+		}
+
+		private int id(int cell) {
+			return this.ids[cell >> 12][cell & 0xFFF];
+		}
+
+		private int get(NibbleArray[] light, int cell) {
+			return light[cell >> 12].get(cell & 0xFFF);
+		}
+
+		private void set(NibbleArray[] light, int cell, int value) {
+			light[cell >> 12].set(cell & 0xFFF, value);
+		}
+
+		private void enqueue(int cell) {
+			if (this.tail == this.queue.length) {
+				if (this.head > 0) {
+					System.arraycopy(this.queue, this.head, this.queue, 0, this.tail - this.head);
+					this.tail -= this.head;
+					this.head = 0;
+				} else {
+					this.queue = Arrays.copyOf(this.queue, this.queue.length * 2);
+				}
+			}
+			this.queue[this.tail++] = cell;
+		}
+
+		private void seed(int kind, int cell, int level) {
+			int[] seeds = this.seeds[kind];
+			int count = this.seedCounts[kind];
+			if (seeds == null || seeds.length < 2 * (count + 1)) {
+				seeds = Arrays.copyOf((seeds == null) ? new int[0] : seeds, Math.max(64, 4 * (count + 1)));
+				this.seeds[kind] = seeds;
+			}
+			seeds[2 * count] = cell;
+			seeds[2 * count + 1] = level;
+			this.seedCounts[kind] = count + 1;
+		}
+	}
+}
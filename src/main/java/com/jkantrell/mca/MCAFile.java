@@ -1,12 +1,21 @@
 package com.jkantrell.mca;
 
 import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.HeapSize;
 import com.jkantrell.nbt.tag.StringTag;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public class MCAFile implements Iterable<Chunk> {
 
@@ -31,6 +40,20 @@ public class MCAFile implements Iterable<Chunk> {
 		this.regionZ = regionZ;
 	}
 
+	/**
+	 * @return The x-coordinate of this region.
+	 * */
+	public int getRegionX() {
+		return regionX;
+	}
+
+	/**
+	 * @return The z-coordinate of this region.
+	 * */
+	public int getRegionZ() {
+		return regionZ;
+	}
+
 	/**
 	 * Reads an .mca file from a {@code RandomAccessFile} into this object.
 	 * This method does not perform any cleanups on the data.
@@ -207,7 +230,7 @@ public class MCAFile implements Iterable<Chunk> {
 		return index;
 	}
 
-	private Chunk createChunkIfMissing(int blockX, int blockZ) {
+	Chunk createChunkIfMissing(int blockX, int blockZ) {
 		int chunkX = MCAUtil.blockToChunk(blockX), chunkZ = MCAUtil.blockToChunk(blockZ);
 		Chunk chunk = getChunk(chunkX, chunkZ);
 		if (chunk == null) {
@@ -225,10 +248,76 @@ public class MCAFile implements Iterable<Chunk> {
 		createChunkIfMissing(blockX, blockZ).setBiomeAt(blockX, blockZ, biomeID);
 	}
 
+	/**
+	 * Sets a biome id at a specific block, creating missing chunks and sections.
+	 * @param blockX The x-coordinate of the block.
+	 * @param blockY The y-coordinate of the block.
+	 * @param blockZ The z-coordinate of the block.
+	 * @param biomeID The pre-1.18 numeric biome id to be set.
+	 * @see Chunk#setBiomeAt(int, int, int, int)
+	 */
 	public void setBiomeAt(int blockX, int blockY, int blockZ, int biomeID) {
 		createChunkIfMissing(blockX, blockZ).setBiomeAt(blockX, blockY, blockZ, biomeID);
 	}
 
+	/**
+	 * Sets a biome at a specific block, creating missing chunks and sections.
+	 * Biomes are stored per 4x4x4 cell, so this sets the biome of the whole cell.
+	 * @param blockX The x-coordinate of the block.
+	 * @param blockY The y-coordinate of the block.
+	 * @param blockZ The z-coordinate of the block.
+	 * @param biome The biome name, the {@code minecraft} namespace is assumed when missing.
+	 */
+	public void setBiomeAt(int blockX, int blockY, int blockZ, String biome) {
+		createChunkIfMissing(blockX, blockZ).setBiomeAt(blockX, blockY, blockZ, biome);
+	}
+
+	/**
+	 * Sets every biome cell touched by a box to the same biome, creating missing chunks and sections.
+	 * Sections entirely covered by the box are collapsed to a single-value palette.
+	 * @param box The box to fill. The x- and z-coordinates are relative to this region, the box is clipped to it
+	 *            and to the y-coordinates sections can have, see {@link Chunk#fill(BlockBox, CompoundTag)}.
+	 * @param biome The biome name, the {@code minecraft} namespace is assumed when missing.
+	 */
+	public void fillBiome(BlockBox box, String biome) {
+		BlockBox clipped = box.intersection(new BlockBox(0, Section.MIN_BLOCK_Y, 0, 511, Section.MAX_BLOCK_Y, 511));
+		if (clipped == null) {
+			return;
+		}
+		for (int chunkX = MCAUtil.blockToChunk(clipped.minX()); chunkX <= MCAUtil.blockToChunk(clipped.maxX()); chunkX++) {
+			for (int chunkZ = MCAUtil.blockToChunk(clipped.minZ()); chunkZ <= MCAUtil.blockToChunk(clipped.maxZ()); chunkZ++) {
+				int blockX = MCAUtil.chunkToBlock(chunkX), blockZ = MCAUtil.chunkToBlock(chunkZ);
+				createChunkIfMissing(blockX, blockZ).fillBiome(clipped.translate(-blockX, 0, -blockZ), biome);
+			}
+		}
+	}
+
+	/**
+	 * Replaces every biome matching {@code checker} in this region.
+	 * This remaps palette entries of every section in parallel and leaves the biome data untouched.
+	 * @param checker Selects the biomes to replace.
+	 * @param biome The replacement biome name, the {@code minecraft} namespace is assumed when missing.
+	 */
+	public void replaceBiome(Predicate<StringTag> checker, String biome) {
+		if (chunks == null) {
+			return;
+		}
+		StringTag tag = Chunk.biomeTag(biome);
+		sections().parallelStream()
+				.forEach(s -> s.replaceBiome(checker, tag));
+	}
+
+	/**
+	 * Replaces one biome with another in this region.
+	 * @param from The biome to replace.
+	 * @param to The replacement biome.
+	 * @see #replaceBiome(Predicate, String)
+	 */
+	public void replaceBiome(String from, String to) {
+		StringTag tag = Chunk.biomeTag(from);
+		replaceBiome(tag::equals, to);
+	}
+
 	/**
 	 * Fetches the biome id at a specific block.
 	 * @param blockX The x-coordinate of the block.
@@ -274,15 +363,133 @@ public class MCAFile implements Iterable<Chunk> {
 		return chunk.getBlockStateAt(blockX % 16, blockY, blockZ % 16);
 	}
 
+	/**
+	 * Sets every block of a box to the same state, creating missing chunks and sections.
+	 * Sections entirely covered by the box are collapsed to a single-value palette.
+	 * @param box The box to fill. The x- and z-coordinates are relative to this region, the box is clipped to it
+	 *            and to the y-coordinates sections can have, see {@link Chunk#fill(BlockBox, CompoundTag)}.
+	 * @param state The block state to be set.
+	 */
+	public void fill(BlockBox box, CompoundTag state) {
+		BlockBox clipped = box.intersection(new BlockBox(0, Section.MIN_BLOCK_Y, 0, 511, Section.MAX_BLOCK_Y, 511));
+		if (clipped == null) {
+			return;
+		}
+		for (int chunkX = MCAUtil.blockToChunk(clipped.minX()); chunkX <= MCAUtil.blockToChunk(clipped.maxX()); chunkX++) {
+			for (int chunkZ = MCAUtil.blockToChunk(clipped.minZ()); chunkZ <= MCAUtil.blockToChunk(clipped.maxZ()); chunkZ++) {
+				int blockX = MCAUtil.chunkToBlock(chunkX), blockZ = MCAUtil.chunkToBlock(chunkZ);
+				createChunkIfMissing(blockX, blockZ).fill(clipped.translate(-blockX, 0, -blockZ), state);
+			}
+		}
+	}
+
+	/**
+	 * Replaces every block whose state matches {@code checker} in this region.
+	 * This remaps palette entries of every section in parallel and leaves the block data untouched.
+	 * @param checker Selects the block states to replace.
+	 * @param state The replacement block state.
+	 */
+	public void replace(Predicate<CompoundTag> checker, CompoundTag state) {
+		if (chunks == null) {
+			return;
+		}
+		sections().parallelStream()
+				.forEach(s -> s.replace(checker, state));
+	}
+
+	/**
+	 * Switches every section of this region to block state storage backed by the {@link BlockStateRegistry}.
+	 * Sections are converted in parallel.
+	 * @see Section#internBlockStates()
+	 */
+	public void internBlockStates() {
+		if (chunks == null) {
+			return;
+		}
+		sections().parallelStream()
+				.forEach(Section::internBlockStates);
+	}
+
 	/**
 	 * Recalculates the Palette and the BlockStates of all chunks and sections of this region.
+	 * Sections are independent from each other, so they are compacted in parallel.
 	 */
 	public void cleanupPalettesAndBlockStates() {
+		if (chunks == null) {
+			return;
+		}
+		sections().parallelStream()
+				.forEach(Section::cleanupPalettesAndBlockStates);
+	}
+
+	/**
+	 * Hands every block of this region to {@code visitor}, chunk by chunk, using absolute coordinates.
+	 * @param visitor The visitor.
+	 * @see BlockCursor
+	 */
+	public void forEachBlock(BlockVisitor visitor) {
+		BlockCursor.of(this).forEachRemaining(visitor);
+	}
+
+	/**
+	 * Recomputes the height maps of every chunk of this region, chunks being processed in parallel.
+	 * Use after bulk edits which bypass {@link Chunk#setBlockStateAt(int, int, int, CompoundTag)}.
+	 * @param types The height maps to compute, see {@link Chunk#recomputeHeightmaps(HeightmapType...)}.
+	 */
+	public void recomputeHeightmaps(HeightmapType... types) {
+		if (chunks == null) {
+			return;
+		}
+		Arrays.stream(chunks)
+				.parallel()
+				.filter(Objects::nonNull)
+				.forEach(c -> c.recomputeHeightmaps(types));
+	}
+
+	/**
+	 * Estimates the heap taken by this region and its chunks. Section containers shared between chunks are counted once.
+	 * @return The estimated retained size of this region, in bytes.
+	 * @see Chunk#estimateRetainedBytes()
+	 */
+	public long estimateRetainedBytes() {
+		long bytes = HeapSize.object(2 * Integer.BYTES + HeapSize.REFERENCE);
+		if (chunks == null) {
+			return bytes;
+		}
+		bytes += HeapSize.array(chunks.length, HeapSize.REFERENCE);
+		Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
 		for (Chunk chunk : chunks) {
 			if (chunk != null) {
-				chunk.cleanupPalettesAndBlockStates();
+				bytes += chunk.estimateRetainedBytes(counted);
 			}
 		}
+		return bytes;
+	}
+
+	/**
+	 * Sums the {@link Chunk#getMemoryReport() memory reports} of every chunk of this region, counting section containers
+	 * shared between chunks once.
+	 * @return The estimated retained size of each top-level chunk key over all chunks in bytes, ordered by first occurrence.
+	 */
+	public Map<String, Long> getMemoryReport() {
+		Map<String, Long> report = new LinkedHashMap<>();
+		if (chunks == null) {
+			return report;
+		}
+		Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Chunk chunk : chunks) {
+			if (chunk != null) {
+				chunk.getMemoryReport(counted).forEach((key, bytes) -> report.merge(key, bytes, Long::sum));
+			}
+		}
+		return report;
+	}
+
+	private List<Section> sections() {
+		return Arrays.stream(chunks)
+				.filter(Objects::nonNull)
+				.flatMap(c -> c.getSections().stream())
+				.toList();
 	}
 
 	@Override
@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -16,6 +18,92 @@ import java.util.regex.Pattern;
  * */
 public final class MCAUtil {
 
+	private static final Map<Integer, String> legacyBiomes = new HashMap<>();
+
+	static {
+		legacyBiomes.put(0, "minecraft:ocean");
+		legacyBiomes.put(1, "minecraft:plains");
+		legacyBiomes.put(2, "minecraft:desert");
+		legacyBiomes.put(3, "minecraft:windswept_hills");
+		legacyBiomes.put(4, "minecraft:forest");
+		legacyBiomes.put(5, "minecraft:taiga");
+		legacyBiomes.put(6, "minecraft:swamp");
+		legacyBiomes.put(7, "minecraft:river");
+		legacyBiomes.put(8, "minecraft:nether_wastes");
+		legacyBiomes.put(9, "minecraft:the_end");
+		legacyBiomes.put(10, "minecraft:frozen_ocean");
+		legacyBiomes.put(11, "minecraft:frozen_river");
+		legacyBiomes.put(12, "minecraft:snowy_plains");
+		legacyBiomes.put(13, "minecraft:snowy_plains");
+		legacyBiomes.put(14, "minecraft:mushroom_fields");
+		legacyBiomes.put(15, "minecraft:mushroom_fields");
+		legacyBiomes.put(16, "minecraft:beach");
+		legacyBiomes.put(17, "minecraft:desert");
+		legacyBiomes.put(18, "minecraft:forest");
+		legacyBiomes.put(19, "minecraft:taiga");
+		legacyBiomes.put(20, "minecraft:windswept_hills");
+		legacyBiomes.put(21, "minecraft:jungle");
+		legacyBiomes.put(22, "minecraft:jungle");
+		legacyBiomes.put(23, "minecraft:sparse_jungle");
+		legacyBiomes.put(24, "minecraft:deep_ocean");
+		legacyBiomes.put(25, "minecraft:stony_shore");
+		legacyBiomes.put(26, "minecraft:snowy_beach");
+		legacyBiomes.put(27, "minecraft:birch_forest");
+		legacyBiomes.put(28, "minecraft:birch_forest");
+		legacyBiomes.put(29, "minecraft:dark_forest");
+		legacyBiomes.put(30, "minecraft:snowy_taiga");
+		legacyBiomes.put(31, "minecraft:snowy_taiga");
+		legacyBiomes.put(32, "minecraft:old_growth_pine_taiga");
+		legacyBiomes.put(33, "minecraft:old_growth_pine_taiga");
+		legacyBiomes.put(34, "minecraft:windswept_forest");
+		legacyBiomes.put(35, "minecraft:savanna");
+		legacyBiomes.put(36, "minecraft:savanna_plateau");
+		legacyBiomes.put(37, "minecraft:badlands");
+		legacyBiomes.put(38, "minecraft:wooded_badlands");
+		legacyBiomes.put(39, "minecraft:badlands");
+		legacyBiomes.put(40, "minecraft:small_end_islands");
+		legacyBiomes.put(41, "minecraft:end_midlands");
+		legacyBiomes.put(42, "minecraft:end_highlands");
+		legacyBiomes.put(43, "minecraft:end_barrens");
+		legacyBiomes.put(44, "minecraft:warm_ocean");
+		legacyBiomes.put(45, "minecraft:lukewarm_ocean");
+		legacyBiomes.put(46, "minecraft:cold_ocean");
+		legacyBiomes.put(47, "minecraft:deep_lukewarm_ocean");
+		legacyBiomes.put(48, "minecraft:deep_lukewarm_ocean");
+		legacyBiomes.put(49, "minecraft:deep_cold_ocean");
+		legacyBiomes.put(50, "minecraft:deep_frozen_ocean");
+		legacyBiomes.put(127, "minecraft:the_void");
+		legacyBiomes.put(129, "minecraft:sunflower_plains");
+		legacyBiomes.put(130, "minecraft:desert");
+		legacyBiomes.put(131, "minecraft:windswept_gravelly_hills");
+		legacyBiomes.put(132, "minecraft:flower_forest");
+		legacyBiomes.put(133, "minecraft:taiga");
+		legacyBiomes.put(134, "minecraft:swamp");
+		legacyBiomes.put(140, "minecraft:ice_spikes");
+		legacyBiomes.put(149, "minecraft:jungle");
+		legacyBiomes.put(151, "minecraft:sparse_jungle");
+		legacyBiomes.put(155, "minecraft:old_growth_birch_forest");
+		legacyBiomes.put(156, "minecraft:old_growth_birch_forest");
+		legacyBiomes.put(157, "minecraft:dark_forest");
+		legacyBiomes.put(158, "minecraft:snowy_taiga");
+		legacyBiomes.put(160, "minecraft:old_growth_spruce_taiga");
+		legacyBiomes.put(161, "minecraft:old_growth_spruce_taiga");
+		legacyBiomes.put(162, "minecraft:windswept_gravelly_hills");
+		legacyBiomes.put(163, "minecraft:windswept_savanna");
+		legacyBiomes.put(164, "minecraft:windswept_savanna");
+		legacyBiomes.put(165, "minecraft:eroded_badlands");
+		legacyBiomes.put(166, "minecraft:wooded_badlands");
+		legacyBiomes.put(167, "minecraft:badlands");
+		legacyBiomes.put(168, "minecraft:bamboo_jungle");
+		legacyBiomes.put(169, "minecraft:bamboo_jungle");
+		legacyBiomes.put(170, "minecraft:soul_sand_valley");
+		legacyBiomes.put(171, "minecraft:crimson_forest");
+		legacyBiomes.put(172, "minecraft:warped_forest");
+		legacyBiomes.put(173, "minecraft:basalt_deltas");
+		legacyBiomes.put(174, "minecraft:dripstone_caves");
+		legacyBiomes.put(175, "minecraft:lush_caves");
+	}
+
 	private MCAUtil() {}
 
 	/**
@@ -228,4 +316,29 @@ public final class MCAUtil {
 		tag.putString("Name", "minecraft:air");
 		return tag;
 	}
+
+	/**
+	 * Copies a tag to change its entries. {@link CompoundTag#clone()} returns a frozen tag itself, so a frozen tag is
+	 * {@link CompoundTag#thaw() thawed} instead, keeping its frozen children shared.
+	 * @param tag The tag to copy.
+	 * @return A mutable copy of the tag.
+	 */
+	static CompoundTag mutableCopy(CompoundTag tag) {
+		return tag.isFrozen() ? tag.thaw() : tag.clone();
+	}
+
+	/**
+	 * Turns a numeric biome id of the pre-1.18 format into a biome name. Biomes that were removed or merged
+	 * map to the biome Minecraft converts them to.
+	 * @param biomeID The numeric biome id.
+	 * @return The namespaced biome name.
+	 * @throws IllegalArgumentException If {@code biomeID} was never a valid biome id.
+	 * */
+	public static String legacyBiomeName(int biomeID) {
+		String name = legacyBiomes.get(biomeID);
+		if (name == null) {
+			throw new IllegalArgumentException("unknown legacy biome id: " + biomeID);
+		}
+		return name;
+	}
 }
@@ -0,0 +1,89 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.ByteArrayTag;
+
+import java.util.Arrays;
+
+/**
+ * 4096 values of 4 bits packed in a {@code byte[2048]}, as used by the {@code BlockLight} and {@code SkyLight}
+ * arrays of sections. Values are indexed {@code y * 256 + z * 16 + x}, even indexes using the low half of a byte.
+ * <p>The array is used in place, so reads and writes go straight to the backing {@code byte[]}.</p>
+ * */
+public class NibbleArray {
+
+	//STATIC
+	public static final int SIZE = 4096;
+	public static final int BYTES = SIZE / 2;
+
+
+	//FIELDS
+	private final byte[] data_;
+
+
+	//CONSTRUCTORS
+	public NibbleArray() {
+		this(new byte[BYTES]);
+	}
+
+	/**
+	 * @param data The packed values, used in place.
+	 * @throws IllegalArgumentException If the array is not {@value #BYTES} bytes long.
+	 * */
+	public NibbleArray(byte[] data) {
+		if (data.length != BYTES) {
+			throw new IllegalArgumentException("Nibble arrays hold " + BYTES + " bytes, got " + data.length + ".");
+		}
+		this.data_ = data;
+	}
+
+	/**
+	 * @param tag The tag holding the packed values, used in place.
+	 * @throws IllegalArgumentException If the tag is frozen, as its array can only be read as a copy, or if it is
+	 * not {@value #BYTES} bytes long.
+	 * */
+	public NibbleArray(ByteArrayTag tag) {
+		this(NibbleArray.mutableData(tag));
+	}
+
+
+	//GETTERS
+	/**
+	 * @return The packed values, shared with this array.
+	 * */
+	public byte[] getData() {
+		return this.data_;
+	}
+	public int get(int index) {
+		return (this.data_[index >> 1] >> ((index & 1) << 2)) & 0xF;
+	}
+	public int get(int x, int y, int z) {
+		return this.get(NibbleArray.index(x, y, z));
+	}
+
+
+	//SETTERS
+	public void set(int index, int value) {
+		int shift = (index & 1) << 2;
+		int i = index >> 1;
+		this.data_[i] = (byte) ((this.data_[i] & ~(0xF << shift)) | ((value & 0xF) << shift));
+	}
+	public void set(int x, int y, int z, int value) {
+		this.set(NibbleArray.index(x, y, z), value);
+	}
+	public void fill(int value) {
+		value &= 0xF;
+		Arrays.fill(this.data_, (byte) (value | (value << 4)));
+	}
+
+
+	//PRIVATE UTIL
+	private static byte[] mutableData(ByteArrayTag tag) {
+		if (tag.isFrozen()) {
+			throw new IllegalArgumentException("Nibble arrays cannot be backed by a frozen tag.");
+		}
+		return tag.getValue();
+	}
+	private static int index(int x, int y, int z) {
+		return (y & 0xF) << 8 | (z & 0xF) << 4 | (x & 0xF);
+	}
+}
@@ -1,5 +1,8 @@
 package com.jkantrell.mca;
 
+import com.jkantrell.nbt.tag.HeapSize;
+import com.jkantrell.nbt.tag.Tag;
+
 import java.lang.reflect.Array;
 import java.util.*;
 import java.util.function.Predicate;
@@ -23,6 +26,9 @@ public class PaletteContainer<T> implements List<T> {
     private final int minimumBitSize_;
     private BinaryMap binaryMap_;
     private int size_;
+    private int directThreshold_ = Integer.MAX_VALUE;
+    private boolean direct_ = false;
+    private boolean frozen_ = false;
 
 
     //CONSTRUCTORS
@@ -48,12 +54,35 @@ public class PaletteContainer<T> implements List<T> {
         this.binaryMap_ = new BinaryMap(bitsPerEntry, this.size_, data);
     }
 
+    protected PaletteContainer(List<T> palette, int size, int minimumBitSize, BinaryMap binaryMap) {
+        if (palette.isEmpty()) {
+            throw new IllegalArgumentException("Palette cannot be empty");
+        }
+        this.palette_ = new ArrayList<>(palette);
+        this.minimumBitSize_ = minimumBitSize;
+        this.size_ = size;
+        this.binaryMap_ = (palette.size() < 2) ? null : binaryMap;
+    }
+
+    /**
+     * Copies the palette, the packed data and the mode of {@code source}. Palette entries are shared.
+     * @param source The container to copy.
+     */
+    protected PaletteContainer(PaletteContainer<T> source) {
+        this.palette_ = new ArrayList<>(source.palette_);
+        this.minimumBitSize_ = source.minimumBitSize_;
+        this.size_ = source.size_;
+        this.binaryMap_ = (source.binaryMap_ == null) ? null : source.binaryMap_.copy();
+        this.directThreshold_ = source.directThreshold_;
+        this.direct_ = source.direct_;
+    }
+
     public PaletteContainer(List<T> palette, int size, long[] data) {
         this(palette, size, 1, data);
     }
 
     public PaletteContainer(List<T> palette, int size, int minimumBitSize) {
-        this(palette, size, minimumBitSize, null);
+        this(palette, size, minimumBitSize, (long[]) null);
     }
 
     public PaletteContainer(List<T> palette, int size) {
@@ -71,14 +100,41 @@ public class PaletteContainer<T> implements List<T> {
 
     //GETTER
     public List<T> getPalette() {
+        if (this.direct_) {
+            return List.copyOf(this.localize(this.binaryMap_.toArray()));
+        }
         return List.copyOf(this.palette_);
     }
 
+    public int getMinimumBitSize() {
+        return this.minimumBitSize_;
+    }
+
     public long[] getByteMap() {
-        if (this.binaryMap_ == null) {
+        BinaryMap map = this.getLocalBinaryMap();
+        if (map == null) {
             return null;
         }
-        return this.binaryMap_.getData();
+        return map.getData();
+    }
+
+    /**
+     * @return Whether this container currently stores {@link #directIdOf(Object) direct ids} instead of local palette indexes.
+     */
+    public boolean isDirect() {
+        return this.direct_;
+    }
+
+    public int getDirectThreshold() {
+        return this.directThreshold_;
+    }
+
+    /**
+     * @return Whether this container was frozen, after which every change throws an {@link UnsupportedOperationException}.
+     * @see PaletteContainerCache
+     */
+    public boolean isFrozen() {
+        return this.frozen_;
     }
 
 
@@ -90,11 +146,14 @@ public class PaletteContainer<T> implements List<T> {
 
     @Override
     public boolean isEmpty() {
-        return this.palette_.isEmpty();
+        return !this.direct_ && this.palette_.isEmpty();
     }
 
     @Override
     public boolean contains(Object o) {
+        if (this.direct_) {
+            return this.indexOf(o) >= 0;
+        }
         return this.palette_.contains(o);
     }
 
@@ -122,6 +181,7 @@ public class PaletteContainer<T> implements List<T> {
 
     @Override
     public boolean add(T t) {
+        this.checkNotFrozen();
         int index = this.intoPalette(t);
         this.size_++;
         this.calculateBinaryMap();
@@ -133,6 +193,7 @@ public class PaletteContainer<T> implements List<T> {
 
     @Override
     public boolean remove(Object o) {
+        this.checkNotFrozen();
         int index = this.indexOf(o);
         if (index < 0) {
             return false;
@@ -143,6 +204,7 @@ public class PaletteContainer<T> implements List<T> {
         }
         if (this.indexOf(o) < 0) {
             this.palette_.remove(o);
+            this.onPaletteChanged();
         }
         this.size_--;
         this.calculateBinaryMap();
@@ -151,6 +213,9 @@ public class PaletteContainer<T> implements List<T> {
 
     @Override
     public boolean containsAll(Collection<?> c) {
+        if (this.direct_) {
+            return c.stream().allMatch(this::contains);
+        }
         return this.palette_.containsAll(c);
     }
 
@@ -183,7 +248,8 @@ public class PaletteContainer<T> implements List<T> {
     @Override
     public T get(int index) {
         if (this.binaryMap_ != null) {
-            return this.palette_.get(this.binaryMap_.get(index));
+            int entry = this.binaryMap_.get(index);
+            return this.direct_ ? this.fromDirectId(entry) : this.palette_.get(entry);
         }
         if (index < 0 || index > this.size_ - 1) { throw new IndexOutOfBoundsException("Index " + index + " not contained. (Size " + this.size_ + ")");
         }
@@ -192,6 +258,7 @@ public class PaletteContainer<T> implements List<T> {
 
     @Override
     public T set(int index, T element) {
+        this.checkNotFrozen();
         if (index < 0 || index > this.size_ - 1) {
             throw new IndexOutOfBoundsException();
         }
@@ -216,6 +283,14 @@ public class PaletteContainer<T> implements List<T> {
 
     @Override
     public int indexOf(Object o) {
+        if (this.direct_) {
+            for (int i = 0; i < this.size_; i++) {
+                if (this.get(i).equals(o)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
         if (!this.palette_.contains(o)) {
             return -1;
         }
@@ -251,9 +326,27 @@ public class PaletteContainer<T> implements List<T> {
 
     //UTIL
     public Map<Integer, T> indexedEntriesOf(T o) {
+        if (this.direct_) {
+            return this.indexedEntriesOf((Predicate<T>) o::equals);
+        }
         return this.indexedEntriesOf(this.palette_.indexOf(o));
     }
     public Map<Integer, T> indexedEntriesOf(Predicate<T> checker) {
+        if (this.direct_) {
+            int[] entries = this.binaryMap_.toArray();
+            byte[] matches = new byte[this.directIdBound()];
+            Map<Integer, T> found = new HashMap<>();
+            for (int i = 0; i < entries.length; i++) {
+                int id = entries[i];
+                if (matches[id] == 0) {
+                    matches[id] = checker.test(this.fromDirectId(id)) ? (byte) 1 : (byte) -1;
+                }
+                if (matches[id] > 0) {
+                    found.put(i, this.fromDirectId(id));
+                }
+            }
+            return found;
+        }
         return this.palette_.stream()
                 .filter(checker)
                 .map(this.palette_::indexOf)
@@ -264,31 +357,422 @@ public class PaletteContainer<T> implements List<T> {
     }
 
 
+    /**
+     * @return An independent mutable container of the same type holding the same entries.
+     */
+    public PaletteContainer<T> copy() {
+        return new PaletteContainer<>(this);
+    }
+
+    /**
+     * Drops every palette entry no longer referenced by the data, merges duplicated entries and
+     * repacks the data with the smallest bit width the remaining palette allows. When a single
+     * entry remains the data array is dropped altogether.
+     * <p>A container in direct mode goes back to a local palette if the values it still holds fit under the
+     * {@link #getDirectThreshold() direct threshold}.</p>
+     */
+    public void compact() {
+        this.checkNotFrozen();
+        if (this.direct_) {
+            int[] entries = this.binaryMap_.toArray();
+            List<T> local = this.localize(entries);
+            if (this.minimumBitsFor(local.size() - 1) > this.directThreshold_) {
+                this.binaryMap_ = new BinaryMap(this.directBits(), this.binaryMap_.toArray());
+                return;
+            }
+            this.direct_ = false;
+            this.palette_.addAll(local);
+            this.onPaletteChanged();
+            this.binaryMap_ = (local.size() < 2) ? null : new BinaryMap(this.minimumBitsFor(local.size() - 1), entries);
+            return;
+        }
+        if (this.binaryMap_ == null) {
+            if (this.palette_.size() > 1) {
+                T single = this.palette_.get(0);
+                this.palette_.clear();
+                this.palette_.add(single);
+                this.onPaletteChanged();
+            }
+            return;
+        }
+        this.repack(this.binaryMap_.toArray());
+    }
+
+    /**
+     * Sets every entry of this container to the same value, collapsing the palette to that single value.
+     * @param element The value every entry will hold.
+     */
+    public void fill(T element) {
+        this.checkNotFrozen();
+        this.direct_ = false;
+        this.palette_.clear();
+        this.palette_.add(this.canonicalize(element));
+        this.onPaletteChanged();
+        this.binaryMap_ = null;
+    }
+
+    /**
+     * Sets the given entries to the same value. The value is looked up in the palette once and
+     * written straight into the packed data.
+     * @param indexes The positions to write to.
+     * @param count   The amount of positions to read from {@code indexes}.
+     * @param element The value to write.
+     */
+    public void fill(int[] indexes, int count, T element) {
+        this.checkNotFrozen();
+        int paletteIndex = this.intoPalette(element);
+        this.calculateBinaryMap();
+        if (this.binaryMap_ == null) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            this.binaryMap_.set(indexes[i], paletteIndex);
+        }
+    }
+
+    /**
+     * Replaces every entry whose value matches {@code checker} with {@code element}. Since every
+     * occurrence of a matching palette entry is replaced, this only remaps palette entries and never
+     * touches the packed data. Remapping can leave duplicated palette entries behind, {@link #compact()}
+     * merges them.
+     * @param checker Selects the values to replace.
+     * @param element The replacement value.
+     * @return The amount of palette entries that were remapped.
+     */
+    public int replace(Predicate<T> checker, T element) {
+        this.checkNotFrozen();
+        if (this.direct_) {
+            return this.replaceDirect(checker, element);
+        }
+        element = this.canonicalize(element);
+        int replaced = 0;
+        boolean uniform = true;
+        for (int i = 0; i < this.palette_.size(); i++) {
+            T value = this.palette_.get(i);
+            if (!value.equals(element) && checker.test(value)) {
+                this.palette_.set(i, element);
+                replaced++;
+            } else if (!value.equals(element)) {
+                uniform = false;
+            }
+        }
+        if (replaced > 0 && uniform) {
+            this.fill(element);
+        } else if (replaced > 0) {
+            this.onPaletteChanged();
+        }
+        return replaced;
+    }
+
+    /**
+     * Writes many entries at once. Position {@code indexes[i]} receives {@code values.get(valueIndexes[i])}
+     * for every {@code i < count}, later writes to the same position winning. The packed data is decoded once,
+     * every distinct value is looked up in the palette once and the result is repacked once, so this is
+     * far cheaper than calling {@link #set(int, Object)} for each entry.
+     * @param indexes      The positions to write to.
+     * @param valueIndexes For each position, the index of its value in {@code values}.
+     * @param values       The distinct values being written.
+     * @param count        The amount of entries to read from {@code indexes} and {@code valueIndexes}.
+     */
+    public void setAll(int[] indexes, int[] valueIndexes, List<T> values, int count) {
+        this.checkNotFrozen();
+        //Resolving every written value first, as growing the palette may switch this container to direct mode
+        boolean[] used = new boolean[values.size()];
+        for (int i = 0; i < count; i++) {
+            int index = indexes[i];
+            if (index < 0 || index > this.size_ - 1) {
+                throw new IndexOutOfBoundsException("Index " + index + " not contained. (Size " + this.size_ + ")");
+            }
+            used[valueIndexes[i]] = true;
+        }
+        int[] translated = new int[values.size()];
+        boolean direct;
+        do {
+            direct = this.direct_;
+            for (int value = 0; value < translated.length && direct == this.direct_; value++) {
+                translated[value] = used[value] ? this.intoPalette(values.get(value)) : -1;
+            }
+        } while (direct != this.direct_);
+
+        int[] entries = (this.binaryMap_ == null) ? new int[this.size_] : this.binaryMap_.toArray();
+        for (int i = 0; i < count; i++) {
+            entries[indexes[i]] = translated[valueIndexes[i]];
+        }
+        if (this.direct_) {
+            this.binaryMap_ = new BinaryMap(this.directBits(), entries);
+            return;
+        }
+        this.repack(entries);
+    }
+
+
+    /**
+     * Estimates the heap taken by this container, its palette and its packed data. Palette entries are counted
+     * with {@link #estimatePaletteEntryBytes(Object)}.
+     * @return The estimated retained size of this container, in bytes.
+     * @see HeapSize
+     */
+    public long estimateRetainedBytes() {
+        long bytes = HeapSize.object(2 * HeapSize.REFERENCE + 3 * Integer.BYTES + 1);
+        // the palette is an ArrayList
+        bytes += HeapSize.object(HeapSize.REFERENCE + 2 * Integer.BYTES) + HeapSize.array(this.palette_.size(), HeapSize.REFERENCE);
+        for (T value : this.palette_) {
+            bytes += this.estimatePaletteEntryBytes(value);
+        }
+        return (this.binaryMap_ == null) ? bytes : bytes + this.binaryMap_.estimateRetainedBytes();
+    }
+
+
+    //PACKAGE UTIL
+    /**
+     * Freezes every palette entry, then rejects every further change of this container. Entries which are not frozen
+     * yet are replaced by frozen copies, so tags handed in by callers stay mutable.
+     */
+    void freeze() {
+        if (this.frozen_) {
+            return;
+        }
+        for (int i = 0; i < this.palette_.size(); i++) {
+            if (this.palette_.get(i) instanceof Tag<?> tag && !tag.isFrozen()) {
+                @SuppressWarnings("unchecked")
+                T frozen = (T) tag.clone().freeze();
+                this.palette_.set(i, frozen);
+            }
+        }
+        this.frozen_ = true;
+    }
+
+
+    //PROTECTED UTIL
+    /**
+     * Maps a value to the instance that will be stored in the palette. Subclasses can use this to share equal values.
+     * @param value The value about to enter the palette.
+     * @return The value to store.
+     */
+    protected T canonicalize(T value) {
+        return value;
+    }
+
+    /**
+     * @param value A palette entry.
+     * @return The estimated retained size of the entry, {@code 0} for entries owned by someone else.
+     */
+    protected long estimatePaletteEntryBytes(T value) {
+        return (value instanceof Tag<?> tag) ? tag.estimateRetainedBytes() : 0;
+    }
+
+    /**
+     * @param value A value returned by {@link #canonicalize(Object)}.
+     * @return The index of the value in the palette or -1 if it is not contained.
+     */
+    protected int paletteIndexOf(T value) {
+        return this.palette_.indexOf(value);
+    }
+
+    /**
+     * Called after entries were added to, removed from or replaced in the palette.
+     */
+    protected void onPaletteChanged() {
+    }
+
+    /**
+     * Direct mode: once the local palette would need more than {@code bits} bits per entry, the container stops
+     * keeping a palette and stores the {@link #directIdOf(Object) direct id} of every entry instead. Only subclasses
+     * providing direct ids can enable it.
+     * @param bits The largest local palette bit width to keep.
+     */
+    protected void setDirectThreshold(int bits) {
+        this.checkNotFrozen();
+        this.directThreshold_ = bits;
+        if (!this.direct_ && this.palette_.size() > 1 && this.minimumBitsFor(this.palette_.size() - 1) > bits) {
+            this.toDirect();
+        }
+    }
+
+    /**
+     * @param value A value to store in direct mode.
+     * @return A process-wide id of the value, stable for the lifetime of the container.
+     */
+    protected int directIdOf(T value) {
+        throw new UnsupportedOperationException("This container does not support direct mode.");
+    }
+
+    /**
+     * @param id An id returned by {@link #directIdOf(Object)}.
+     * @return The value of that id.
+     */
+    protected T fromDirectId(int id) {
+        throw new UnsupportedOperationException("This container does not support direct mode.");
+    }
+
+    /**
+     * @return An exclusive upper bound of every id {@link #directIdOf(Object)} returned so far.
+     */
+    protected int directIdBound() {
+        throw new UnsupportedOperationException("This container does not support direct mode.");
+    }
+
+    /**
+     * @return The palette, which is empty in direct mode.
+     */
+    protected List<T> paletteView() {
+        return this.palette_;
+    }
+
+    /**
+     * @return The packed data, holding direct ids in direct mode.
+     */
+    protected BinaryMap getBinaryMap() {
+        return this.binaryMap_;
+    }
+
+    /**
+     * @return The packed data indexing {@link #getPalette()}, built on the fly in direct mode.
+     */
+    protected BinaryMap getLocalBinaryMap() {
+        if (!this.direct_) {
+            return this.binaryMap_;
+        }
+        int[] entries = this.binaryMap_.toArray();
+        List<T> local = this.localize(entries);
+        if (local.size() < 2) {
+            return null;
+        }
+        return new BinaryMap(this.minimumBitsFor(local.size() - 1), entries);
+    }
+
+
     //PRIVATE UTIL
+    private void checkNotFrozen() {
+        if (this.frozen_) {
+            throw new UnsupportedOperationException("PaletteContainer is frozen");
+        }
+    }
+
+    private void repack(int[] entries) {
+        int[] remap = new int[this.palette_.size()];
+        Arrays.fill(remap, -1);
+        Map<T, Integer> positions = new HashMap<>();
+        List<T> compacted = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            int entry = entries[i];
+            int mapped = remap[entry];
+            if (mapped < 0) {
+                T value = this.palette_.get(entry);
+                mapped = positions.computeIfAbsent(value, v -> {
+                    compacted.add(v);
+                    return compacted.size() - 1;
+                });
+                remap[entry] = mapped;
+            }
+            entries[i] = mapped;
+        }
+
+        this.palette_.clear();
+        this.palette_.addAll(compacted);
+        this.onPaletteChanged();
+        if (compacted.size() < 2) {
+            this.binaryMap_ = null;
+            return;
+        }
+        this.binaryMap_ = new BinaryMap(this.minimumBitsFor(compacted.size() - 1), entries);
+    }
     private int intoPalette(T value) {
-        int index = this.palette_.indexOf(value);
+        if (this.direct_) {
+            return this.directIdOf(value);
+        }
+        value = this.canonicalize(value);
+        int index = this.paletteIndexOf(value);
         if (index < 0) {
+            if (this.minimumBitsFor(this.palette_.size()) > this.directThreshold_) {
+                this.toDirect();
+                return this.directIdOf(value);
+            }
             index = this.palette_.size();
             this.palette_.add(value);
+            this.onPaletteChanged();
         }
         return index;
     }
     private void calculateBinaryMap() {
-        if (this.palette_.size() < 2) { this.binaryMap_ = null; }
+        if (!this.direct_ && this.palette_.size() < 2) {
+            this.binaryMap_ = null;
+            return;
+        }
 
-        int bitsPerEntry = this.minimumBitsFor(this.palette_.size());
-        if (bitsPerEntry == this.binaryMap_.getBitsPerEntry() && this.size_ == this.binaryMap_.getSize()) {
+        int bitsPerEntry = this.direct_ ? this.directBits() : this.minimumBitsFor(this.palette_.size() - 1);
+        if (this.binaryMap_ != null && bitsPerEntry <= this.binaryMap_.getBitsPerEntry() && this.size_ == this.binaryMap_.getSize()) {
             return;
         }
 
         BinaryMap newMap = new BinaryMap(bitsPerEntry, this.size_);
         if (this.binaryMap_ != null) {
-            for (int i = 0; i < this.size_; i++) { newMap.set(i, this.binaryMap_.get(i)); }
+            int copied = Math.min(this.size_, this.binaryMap_.getSize());
+            for (int i = 0; i < copied; i++) { newMap.set(i, this.binaryMap_.get(i)); }
         }
 
         this.binaryMap_ = newMap;
         this.size_ = newMap.getSize();
     }
+    private void toDirect() {
+        int[] entries = (this.binaryMap_ == null) ? new int[this.size_] : this.binaryMap_.toArray();
+        int[] ids = new int[this.palette_.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = this.directIdOf(this.palette_.get(i));
+        }
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = ids[entries[i]];
+        }
+        this.palette_.clear();
+        this.onPaletteChanged();
+        this.direct_ = true;
+        this.binaryMap_ = new BinaryMap(this.directBits(), entries);
+    }
+    private int directBits() {
+        return Math.max(this.minimumBitsFor(this.directIdBound() - 1), this.directThreshold_ + 1);
+    }
+    private List<T> localize(int[] entries) {
+        int[] remap = new int[this.directIdBound()];
+        List<T> local = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            int id = entries[i];
+            if (remap[id] == 0) {
+                local.add(this.fromDirectId(id));
+                remap[id] = local.size();
+            }
+            entries[i] = remap[id] - 1;
+        }
+        return local;
+    }
+    private int replaceDirect(Predicate<T> checker, T element) {
+        int target = this.directIdOf(element);
+        int[] entries = this.binaryMap_.toArray();
+        byte[] matches = new byte[this.directIdBound()];
+        int replaced = 0;
+        boolean uniform = true;
+        for (int i = 0; i < entries.length; i++) {
+            int id = entries[i];
+            if (id == target) {
+                continue;
+            }
+            if (matches[id] == 0) {
+                boolean match = checker.test(this.fromDirectId(id));
+                matches[id] = match ? (byte) 1 : (byte) -1;
+                replaced += match ? 1 : 0;
+            }
+            if (matches[id] > 0) {
+                entries[i] = target;
+            } else {
+                uniform = false;
+            }
+        }
+        if (replaced > 0 && uniform) {
+            this.fill(this.fromDirectId(target));
+        } else if (replaced > 0) {
+            this.binaryMap_ = new BinaryMap(this.directBits(), entries);
+        }
+        return replaced;
+    }
     private int minimumBitsFor(int integer) {
         return Math.max(Integer.SIZE - Integer.numberOfLeadingZeros(integer), this.minimumBitSize_);
     }
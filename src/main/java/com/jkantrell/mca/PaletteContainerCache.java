@@ -0,0 +1,126 @@
+package com.jkantrell.mca;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache sharing uniform {@link PaletteContainer}s, the ones holding a single value without packed data.
+ * <p>Containers are compared by type, size, settings and palette. The first container seen with a given content
+ * becomes the shared instance and every later equal container is replaced by it, so uniform sections like all air
+ * or all stone are stored once no matter how many chunks and regions hold them. Containers holding packed data
+ * are returned as they are, as hashing and keeping them would cost more than sharing them saves.</p>
+ * <p>Every container returned by the cache is frozen along with its palette entries, so a shared container and the
+ * block states it holds cannot be changed through one section behind the back of the others. {@link Section}
+ * copies a shared container on its first edit.
+ * The cache only holds weak references to the containers and their hashes, so a shared container and everything
+ * it references are dropped once no section uses it anymore.</p>
+ * */
+public final class PaletteContainerCache {
+
+	//STATIC
+	public static final PaletteContainerCache INSTANCE = new PaletteContainerCache();
+
+
+	//FIELDS
+	private final Map<Integer, List<Entry>> entries_ = new ConcurrentHashMap<>();
+	private final ReferenceQueue<PaletteContainer<?>> cleared_ = new ReferenceQueue<>();
+
+
+	//CONSTRUCTORS
+	private PaletteContainerCache() {}
+
+
+	//GETTERS
+	/**
+	 * Looks up the shared container equal to a uniform {@code container}, freezing {@code container} and registering
+	 * it as the shared instance if there is none. Containers holding packed data are returned unchanged.
+	 * @param container The container.
+	 * @return The frozen shared container with the same content, or {@code container} if it holds packed data.
+	 * */
+	@SuppressWarnings("unchecked")
+	public <T> PaletteContainer<T> canonical(PaletteContainer<T> container) {
+		if (container.getBinaryMap() != null) {
+			return container;
+		}
+		// the hash covers the palette entries, which must not change once registered
+		container.freeze();
+		this.expunge();
+		int hash = PaletteContainerCache.hash(container);
+		PaletteContainer<?>[] found = new PaletteContainer<?>[1];
+		this.entries_.compute(hash, (h, bucket) -> {
+			List<Entry> entries = (bucket == null) ? new ArrayList<>(1) : bucket;
+			for (Entry entry : entries) {
+				PaletteContainer<?> shared = entry.get();
+				if (shared != null && PaletteContainerCache.sameContent(shared, container)) {
+					found[0] = shared;
+					return entries;
+				}
+			}
+			entries.add(new Entry(container, h, this.cleared_));
+			found[0] = container;
+			return entries;
+		});
+		return (PaletteContainer<T>) found[0];
+	}
+
+	/**
+	 * @return The amount of distinct containers currently shared.
+	 * */
+	public int size() {
+		this.expunge();
+		int size = 0;
+		for (List<Entry> entries : this.entries_.values()) {
+			size += entries.size();
+		}
+		return size;
+	}
+
+
+	//UTIL
+	/**
+	 * Forgets every shared container. Sections keep the containers they already reference.
+	 * */
+	public void clear() {
+		this.entries_.clear();
+		this.expunge();
+	}
+
+
+	//PRIVATE UTIL
+	private void expunge() {
+		Object cleared;
+		while ((cleared = this.cleared_.poll()) != null) {
+			Entry entry = (Entry) cleared;
+			this.entries_.computeIfPresent(entry.hash_, (h, entries) -> {
+				entries.remove(entry);
+				return entries.isEmpty() ? null : entries;
+			});
+		}
+	}
+	private static int hash(PaletteContainer<?> container) {
+		return Objects.hash(container.getClass(), container.size(), container.getMinimumBitSize(), container.getDirectThreshold(),
+				container.paletteView());
+	}
+	private static boolean sameContent(PaletteContainer<?> a, PaletteContainer<?> b) {
+		return a.getClass() == b.getClass() && a.size() == b.size() && a.getMinimumBitSize() == b.getMinimumBitSize()
+				&& a.getDirectThreshold() == b.getDirectThreshold() && a.paletteView().equals(b.paletteView())
+				&& Objects.equals(a.getBinaryMap(), b.getBinaryMap());
+	}
+
+
+	//CLASSES
+	private static final class Entry extends WeakReference<PaletteContainer<?>> {
+
+		private final int hash_;
+
+		private Entry(PaletteContainer<?> container, int hash, ReferenceQueue<PaletteContainer<?>> queue) {
+			super(container, queue);
+			this.hash_ = hash;
+		}
+	}
+}
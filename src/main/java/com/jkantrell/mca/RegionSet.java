@@ -0,0 +1,115 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A group of {@link MCAFile}s addressed by their region coordinates, allowing operations that span more than
+ * one region to use absolute world coordinates.
+ * Regions which are not part of the set are created empty on demand by the {@code getOrCreate} methods.
+ * */
+public class RegionSet implements Iterable<MCAFile> {
+
+	//FIELDS
+	private final Map<Long, MCAFile> regions_ = new HashMap<>();
+
+
+	//CONSTRUCTORS
+	public RegionSet(MCAFile... regions) {
+		for (MCAFile region : regions) {
+			this.add(region);
+		}
+	}
+
+	public RegionSet(Collection<MCAFile> regions) {
+		regions.forEach(this::add);
+	}
+
+
+	//GETTERS
+	public MCAFile get(int regionX, int regionZ) {
+		return this.regions_.get(RegionSet.key(regionX, regionZ));
+	}
+	public MCAFile getOrCreate(int regionX, int regionZ) {
+		return this.regions_.computeIfAbsent(RegionSet.key(regionX, regionZ), k -> new MCAFile(regionX, regionZ));
+	}
+	public int size() {
+		return this.regions_.size();
+	}
+
+	/**
+	 * Fetches the chunk containing a block.
+	 * @param blockX The absolute x-coordinate of the block.
+	 * @param blockZ The absolute z-coordinate of the block.
+	 * @return The chunk or {@code null} if neither it nor its region exist.
+	 * */
+	public Chunk getChunkAt(int blockX, int blockZ) {
+		MCAFile region = this.get(MCAUtil.blockToRegion(blockX), MCAUtil.blockToRegion(blockZ));
+		if (region == null) {
+			return null;
+		}
+		return region.getChunk(RegionSet.chunkInRegion(blockX), RegionSet.chunkInRegion(blockZ));
+	}
+
+	/**
+	 * Fetches the chunk containing a block, creating it and its region if they do not exist yet.
+	 * @param blockX The absolute x-coordinate of the block.
+	 * @param blockZ The absolute z-coordinate of the block.
+	 * @return The chunk.
+	 * */
+	public Chunk getOrCreateChunkAt(int blockX, int blockZ) {
+		MCAFile region = this.getOrCreate(MCAUtil.blockToRegion(blockX), MCAUtil.blockToRegion(blockZ));
+		return region.createChunkIfMissing(Math.floorMod(blockX, 512), Math.floorMod(blockZ, 512));
+	}
+
+	/**
+	 * Fetches a block state using absolute world coordinates.
+	 * @param blockX The x-coordinate of the block.
+	 * @param blockY The y-coordinate of the block.
+	 * @param blockZ The z-coordinate of the block.
+	 * @return The block state or {@code null} if the region, chunk or section do not exist.
+	 * */
+	public CompoundTag getBlockStateAt(int blockX, int blockY, int blockZ) {
+		Chunk chunk = this.getChunkAt(blockX, blockZ);
+		if (chunk == null) {
+			return null;
+		}
+		return chunk.getBlockStateAt(blockX, blockY, blockZ);
+	}
+
+
+	//SETTERS
+	public MCAFile add(MCAFile region) {
+		return this.regions_.put(RegionSet.key(region.getRegionX(), region.getRegionZ()), region);
+	}
+
+
+	//UTIL
+	/**
+	 * Hands every existing block of a box to {@code visitor}, skipping missing regions, chunks and sections.
+	 * @param box     The blocks to visit in absolute coordinates.
+	 * @param visitor The visitor, receiving absolute coordinates.
+	 * @see BlockCursor
+	 * */
+	public void forEachBlock(BlockBox box, BlockVisitor visitor) {
+		BlockCursor.of(this, box).forEachRemaining(visitor);
+	}
+
+	@Override
+	public Iterator<MCAFile> iterator() {
+		return this.regions_.values().iterator();
+	}
+
+
+	//PRIVATE UTIL
+	private static long key(int regionX, int regionZ) {
+		return ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+	}
+	private static int chunkInRegion(int block) {
+		return MCAUtil.blockToChunk(block) & 0x1F;
+	}
+}
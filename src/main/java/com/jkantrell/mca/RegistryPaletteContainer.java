@@ -0,0 +1,170 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.HeapSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A block state {@link PaletteContainer} whose palette references the canonical instances of the
+ * {@link BlockStateRegistry} instead of holding its own copies, so equal block states are stored once per process.
+ * <p>Palette lookups compare registry ids instead of whole tag trees, and {@link #getId(int)} exposes the
+ * registry id of an entry for loops that do not need the tag itself.</p>
+ * <p>Like Minecraft's global palette, once the local palette would need more than {@link #getDirectThreshold()}
+ * bits per entry the container switches to direct mode and stores registry ids straight in the packed data,
+ * so lookups in highly diverse sections stay O(1). {@link #getPalette()} and {@link #getByteMap()} still
+ * return a local palette and matching data for serialization.</p>
+ * */
+public class RegistryPaletteContainer extends PaletteContainer<CompoundTag> {
+
+	//STATIC
+	public static final int DEFAULT_DIRECT_THRESHOLD = 8;
+
+
+	//FIELDS
+	private int[] ids_;
+
+
+	//CONSTRUCTORS
+	public RegistryPaletteContainer(List<CompoundTag> palette, int size, int minimumBitSize, long[] data) {
+		super(RegistryPaletteContainer.canonicalize(palette), size, minimumBitSize, data);
+		this.setDirectThreshold(DEFAULT_DIRECT_THRESHOLD);
+	}
+
+	public RegistryPaletteContainer(CompoundTag singleElement, int size, int minimumBitSize) {
+		this(List.of(singleElement), size, minimumBitSize, (long[]) null);
+	}
+
+	/**
+	 * Converts a container to registry-backed storage. The packed data is shared with {@code source},
+	 * which must not be used afterwards.
+	 * @param source The container to convert.
+	 */
+	public RegistryPaletteContainer(PaletteContainer<CompoundTag> source) {
+		super(RegistryPaletteContainer.canonicalize(source.getPalette()), source.size(), source.getMinimumBitSize(), source.getLocalBinaryMap());
+		this.setDirectThreshold(DEFAULT_DIRECT_THRESHOLD);
+	}
+
+	private RegistryPaletteContainer(RegistryPaletteContainer source) {
+		super(source);
+		this.ids_ = source.ids_;
+	}
+
+
+	//GETTERS
+	/**
+	 * @param index The index of the entry.
+	 * @return The registry id of the entry.
+	 */
+	public int getId(int index) {
+		BinaryMap map = this.getBinaryMap();
+		if (this.isDirect()) {
+			return map.get(index);
+		}
+		int[] ids = this.getPaletteIds();
+		if (map == null) {
+			if (index < 0 || index > this.size() - 1) {
+				throw new IndexOutOfBoundsException("Index " + index + " not contained. (Size " + this.size() + ")");
+			}
+			return ids[0];
+		}
+		return ids[map.get(index)];
+	}
+
+	/**
+	 * @return The registry id of every palette entry, indexed like the palette. The array must not be modified
+	 * and is empty in direct mode.
+	 */
+	public int[] getPaletteIds() {
+		int[] ids = this.ids_;
+		if (ids == null) {
+			List<CompoundTag> palette = this.paletteView();
+			ids = new int[palette.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = BlockStateRegistry.INSTANCE.idOf(palette.get(i));
+			}
+			this.ids_ = ids;
+		}
+		return ids;
+	}
+
+
+	//SETTERS
+	/**
+	 * @param bits The largest local palette bit width to keep before switching to direct mode.
+	 */
+	@Override
+	public void setDirectThreshold(int bits) {
+		super.setDirectThreshold(bits);
+	}
+
+
+	//UTIL
+	@Override
+	public RegistryPaletteContainer copy() {
+		return new RegistryPaletteContainer(this);
+	}
+
+	@Override
+	public long estimateRetainedBytes() {
+		long bytes = super.estimateRetainedBytes();
+		return (this.ids_ == null) ? bytes : bytes + HeapSize.array(this.ids_);
+	}
+
+
+	//PROTECTED UTIL
+	@Override
+	protected CompoundTag canonicalize(CompoundTag value) {
+		return BlockStateRegistry.INSTANCE.canonical(value);
+	}
+
+	/**
+	 * @return {@code 0}, as the canonical block states are kept alive by the registry.
+	 */
+	@Override
+	protected long estimatePaletteEntryBytes(CompoundTag value) {
+		return 0;
+	}
+
+	@Override
+	protected int paletteIndexOf(CompoundTag value) {
+		List<CompoundTag> palette = this.paletteView();
+		for (int i = 0; i < palette.size(); i++) {
+			if (palette.get(i) == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	protected void onPaletteChanged() {
+		this.ids_ = null;
+	}
+
+	@Override
+	protected int directIdOf(CompoundTag value) {
+		return BlockStateRegistry.INSTANCE.idOf(value);
+	}
+
+	@Override
+	protected CompoundTag fromDirectId(int id) {
+		return BlockStateRegistry.INSTANCE.get(id);
+	}
+
+	@Override
+	protected int directIdBound() {
+		return BlockStateRegistry.INSTANCE.size();
+	}
+
+
+	//PRIVATE UTIL
+	private static List<CompoundTag> canonicalize(List<CompoundTag> palette) {
+		List<CompoundTag> canonical = new ArrayList<>(palette.size());
+		for (CompoundTag state : palette) {
+			canonical.add(BlockStateRegistry.INSTANCE.canonical(state));
+		}
+		return canonical;
+	}
+}
@@ -1,6 +1,9 @@
 package com.jkantrell.mca;
 
+import com.jkantrell.nbt.tag.ByteArrayTag;
 import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.HeapSize;
+import com.jkantrell.nbt.tag.ListTag;
 import com.jkantrell.nbt.tag.StringTag;
 import com.jkantrell.nbt.tag.Tag;
 
@@ -9,14 +12,30 @@ import java.util.function.Predicate;
 
 public class Section implements Comparable<Section> {
 
+	//STATIC
+	public static final String DEFAULT_BIOME = "minecraft:plains";
+	/** The range of section y-coordinates, which sections store in a byte. */
+	public static final int MIN_Y = Byte.MIN_VALUE, MAX_Y = Byte.MAX_VALUE;
+	/** The range of block y-coordinates covered by {@link #MIN_Y} to {@link #MAX_Y}. */
+	public static final int MIN_BLOCK_Y = MIN_Y * 16, MAX_BLOCK_Y = MAX_Y * 16 + 15;
+	private static final BlockBox BOUNDS = new BlockBox(0, 0, 0, 15, 15, 15);
+	private static final int BIOME_CELLS = 64;
+
+
 	//FIELDS
 	private int height_;
 	private PaletteContainer<CompoundTag> blockPalette_;
 	private PaletteContainer<StringTag> biomePalette_;
 	private CompoundTag src_;
+	private boolean blockShared_ = false, biomeShared_ = false;
 
 
 	//CONSTRUCTORS
+	/**
+	 * Reads a section. The tag itself is left as is, the section keeps the other entries of the tag in a source tag
+	 * of its own while its block states and biomes are held by its containers. Light arrays are shared with the tag.
+	 * @param sectionRoot The section tag.
+	 */
 	public Section(CompoundTag sectionRoot) {
 		//Getting height
 		if (!sectionRoot.containsKey("Y")) {
@@ -28,23 +47,127 @@ public class Section implements Comparable<Section> {
 			this.blockPalette_ = new PaletteContainer<>(MCAUtil.airBlockTag(), 4096, 4);
 		}
 		this.biomePalette_ = this.craftPaletteContainer(sectionRoot, "biomes", 64, 1);
-		this.src_ = sectionRoot;
+
+		//The containers replace the parsed tags, uniform ones are shared
+		this.src_ = new CompoundTag(sectionRoot.size());
+		for (Map.Entry<String, Tag<?>> entry : sectionRoot) {
+			if (!entry.getKey().equals("block_states") && !entry.getKey().equals("biomes")) {
+				this.src_.put(entry.getKey(), entry.getValue());
+			}
+		}
+		this.shareBlockStates();
+		this.shareBiomes();
+	}
+
+
+	/**
+	 * Creates an empty section filled with air.
+	 * @param height The y-coordinate of the section.
+	 * @return The new section.
+	 * @throws IllegalArgumentException If {@code height} is out of the range from {@link #MIN_Y} to {@link #MAX_Y}.
+	 */
+	public static Section newSection(int height) {
+		if (height < MIN_Y || height > MAX_Y) {
+			throw new IllegalArgumentException("section y-coordinate " + height + " out of range [" + MIN_Y + ", " + MAX_Y + "]");
+		}
+		CompoundTag root = new CompoundTag();
+		root.putByte("Y", (byte) height);
+		CompoundTag blockStates = new CompoundTag();
+		ListTag<CompoundTag> blockPalette = new ListTag<>(CompoundTag.class);
+		blockPalette.add(MCAUtil.airBlockTag());
+		blockStates.put("palette", blockPalette);
+		root.put("block_states", blockStates);
+		CompoundTag biomes = new CompoundTag();
+		ListTag<StringTag> biomePalette = new ListTag<>(StringTag.class);
+		biomePalette.addString(DEFAULT_BIOME);
+		biomes.put("palette", biomePalette);
+		root.put("biomes", biomes);
+		return new Section(root);
 	}
 
 
 	//GETTERS
+	/**
+	 * @return The block state container of this section. It is frozen if it is shared with other sections,
+	 * use {@link #mutableBlockStates()} to modify it.
+	 * @see PaletteContainerCache
+	 */
 	public PaletteContainer<CompoundTag> getBlockStatePalette() {
-		return blockPalette_;
+		return this.blockPalette_;
 	}
+	/**
+	 * @return The biome container of this section or {@code null} if it has no biomes. It is frozen if it is shared
+	 * with other sections, use {@link #mutableBiomes()} to modify it.
+	 */
 	public PaletteContainer<StringTag> getBiomePalette() {
-		return biomePalette_;
+		return this.biomePalette_;
 	}
+	/**
+	 * @return The block state container of this section for modifying it. A container shared with other sections
+	 * is copied first.
+	 */
+	public PaletteContainer<CompoundTag> mutableBlockStates() {
+		if (this.blockShared_) {
+			this.blockPalette_ = this.blockPalette_.copy();
+			this.blockShared_ = false;
+		}
+		return this.blockPalette_;
+	}
+	/**
+	 * @return The biome container of this section for modifying it, adding a {@link #DEFAULT_BIOME} container if
+	 * it has none. A container shared with other sections is copied first.
+	 */
+	public PaletteContainer<StringTag> mutableBiomes() {
+		if (this.biomePalette_ == null) {
+			this.biomePalette_ = new PaletteContainer<>(new StringTag(DEFAULT_BIOME), BIOME_CELLS, 1);
+		} else if (this.biomeShared_) {
+			this.biomePalette_ = this.biomePalette_.copy();
+			this.biomeShared_ = false;
+		}
+		return this.biomePalette_;
+	}
+	/**
+	 * @return The source tag of this section, without its {@code block_states} and {@code biomes}, which are only
+	 * written back by {@link #updateHandle()}.
+	 */
 	public CompoundTag getSource() {
 		return src_;
 	}
 	public int getHeight() {
 		return height_;
 	}
+	/**
+	 * @return The block light of this section, reading the {@code BlockLight} array in place, or {@code null} if it has none.
+	 */
+	public NibbleArray getBlockLight() {
+		return this.lightArray("BlockLight", false);
+	}
+	/**
+	 * @return The sky light of this section, reading the {@code SkyLight} array in place, or {@code null} if it has none.
+	 */
+	public NibbleArray getSkyLight() {
+		return this.lightArray("SkyLight", false);
+	}
+	/**
+	 * @return The block light of this section, adding an unlit {@code BlockLight} array if it has none.
+	 */
+	public NibbleArray getOrCreateBlockLight() {
+		return this.lightArray("BlockLight", true);
+	}
+	/**
+	 * @return The sky light of this section, adding an unlit {@code SkyLight} array if it has none.
+	 */
+	public NibbleArray getOrCreateSkyLight() {
+		return this.lightArray("SkyLight", true);
+	}
+	public int getBlockLightAt(int blockX, int blockY, int blockZ) {
+		NibbleArray light = this.getBlockLight();
+		return (light == null) ? 0 : light.get(blockX, blockY, blockZ);
+	}
+	public int getSkyLightAt(int blockX, int blockY, int blockZ) {
+		NibbleArray light = this.getSkyLight();
+		return (light == null) ? 0 : light.get(blockX, blockY, blockZ);
+	}
 
 	//SETTERS
 	public void setHeight(int height) {
@@ -66,17 +189,166 @@ public class Section implements Comparable<Section> {
 	public boolean isBiomeEmpty() {
 		return this.biomePalette_.isEmpty();
 	}
+	/**
+	 * @return The block state. States read from a section tag or from a container shared with other sections are
+	 * frozen, use {@link CompoundTag#with(String, Tag)} to derive a changed state.
+	 */
 	public CompoundTag getBlockStateAt(int blockX, int blockY, int blockZ) {
 		int blockIndex = Section.getBlockIndexAt(blockX,blockY,blockZ);
 		return this.blockPalette_.get(blockIndex);
 	}
+	/**
+	 * @param blockX The x-coordinate of the block.
+	 * @param blockY The y-coordinate of the block.
+	 * @param blockZ The z-coordinate of the block.
+	 * @return The {@link BlockStateRegistry} id of the block state.
+	 */
+	public int getBlockStateIdAt(int blockX, int blockY, int blockZ) {
+		int blockIndex = Section.getBlockIndexAt(blockX, blockY, blockZ);
+		if (this.blockPalette_ instanceof RegistryPaletteContainer registryPalette) {
+			return registryPalette.getId(blockIndex);
+		}
+		return BlockStateRegistry.INSTANCE.idOf(this.blockPalette_.get(blockIndex));
+	}
 	public StringTag getBiomeAt(int blockX, int blockY, int blockZ) {
 		if (this.biomePalette_ == null) { return null; }
 		int biomeIndex = Section.getBiomeIndexAt(blockX, blockY, blockZ);
 		return this.biomePalette_.get(biomeIndex);
 	}
 	public void setBlockStateAt(int blockX, int blockY, int blockZ, CompoundTag state) {
-		this.blockPalette_.set(Section.getBlockIndexAt(blockX, blockY, blockZ), state);
+		this.mutableBlockStates().set(Section.getBlockIndexAt(blockX, blockY, blockZ), state);
+	}
+	/**
+	 * Sets every block of a box to the same state. Filling the whole section collapses it to a single-value palette.
+	 * @param box   The box to fill in section-local coordinates. It is clipped to the section.
+	 * @param state The block state to be set.
+	 */
+	public void fill(BlockBox box, CompoundTag state) {
+		BlockBox clipped = box.intersection(Section.BOUNDS);
+		if (clipped == null) {
+			return;
+		}
+		if (clipped.equals(Section.BOUNDS)) {
+			this.mutableBlockStates().fill(state);
+			this.shareBlockStates();
+			return;
+		}
+		int[] indexes = new int[(int) clipped.volume()];
+		int i = 0;
+		for (int y = clipped.minY(); y <= clipped.maxY(); y++) {
+			for (int z = clipped.minZ(); z <= clipped.maxZ(); z++) {
+				for (int x = clipped.minX(); x <= clipped.maxX(); x++) {
+					indexes[i++] = Section.getBlockIndexAt(x, y, z);
+				}
+			}
+		}
+		this.mutableBlockStates().fill(indexes, i, state);
+	}
+	/**
+	 * Replaces every block whose state matches {@code checker}. This remaps palette entries and leaves the block data untouched.
+	 * @param checker Selects the block states to replace.
+	 * @param state   The replacement block state.
+	 */
+	public void replace(Predicate<CompoundTag> checker, CompoundTag state) {
+		if (this.blockShared_ && this.blockPalette_.paletteView().stream().noneMatch(checker)) {
+			return;
+		}
+		this.mutableBlockStates().replace(checker, state);
+		if (this.blockPalette_.getBinaryMap() == null) {
+			this.shareBlockStates();
+		}
+	}
+	/**
+	 * Sets the biome of the 4x4x4 biome cell containing a block. Sections without biomes get a
+	 * {@link #DEFAULT_BIOME} palette first.
+	 * @param blockX The x-coordinate of the block.
+	 * @param blockY The y-coordinate of the block.
+	 * @param blockZ The z-coordinate of the block.
+	 * @param biome  The biome to be set.
+	 */
+	public void setBiomeAt(int blockX, int blockY, int blockZ, StringTag biome) {
+		this.mutableBiomes().set(Section.getBiomeIndexAt(blockX, blockY, blockZ), biome);
+	}
+	/**
+	 * Sets every biome cell touched by a box to the same biome. Biomes are stored per 4x4x4 cell, so cells only
+	 * partially covered by the box are set too. Covering the whole section collapses it to a single-value palette.
+	 * @param box   The box to fill in section-local coordinates. It is clipped to the section.
+	 * @param biome The biome to be set.
+	 */
+	public void fillBiome(BlockBox box, StringTag biome) {
+		BlockBox clipped = box.intersection(Section.BOUNDS);
+		if (clipped == null) {
+			return;
+		}
+		PaletteContainer<StringTag> biomes = this.mutableBiomes();
+		int[] indexes = new int[BIOME_CELLS];
+		int i = 0;
+		for (int y = clipped.minY() >> 2; y <= clipped.maxY() >> 2; y++) {
+			for (int z = clipped.minZ() >> 2; z <= clipped.maxZ() >> 2; z++) {
+				for (int x = clipped.minX() >> 2; x <= clipped.maxX() >> 2; x++) {
+					indexes[i++] = y*16 + z*4 + x;
+				}
+			}
+		}
+		if (i == BIOME_CELLS) {
+			biomes.fill(biome);
+			this.shareBiomes();
+			return;
+		}
+		biomes.fill(indexes, i, biome);
+	}
+	/**
+	 * Replaces every biome matching {@code checker}. This remaps palette entries and leaves the biome data untouched.
+	 * @param checker Selects the biomes to replace.
+	 * @param biome   The replacement biome.
+	 */
+	public void replaceBiome(Predicate<StringTag> checker, StringTag biome) {
+		if (this.biomePalette_ == null || (this.biomeShared_ && this.biomePalette_.paletteView().stream().noneMatch(checker))) {
+			return;
+		}
+		this.mutableBiomes().replace(checker, biome);
+		if (this.biomePalette_.getBinaryMap() == null) {
+			this.shareBiomes();
+		}
+	}
+	/**
+	 * Writes the current block states and biomes back into the source tag of this section. The written palette
+	 * entries are the ones of the containers, so they are frozen if the containers are shared.
+	 * @return The source tag.
+	 * @see SectionEncoder
+	 */
+	public CompoundTag updateHandle() {
+		this.src_.put("block_states", SectionEncoder.toTag(this.blockPalette_));
+		if (this.biomePalette_ != null) {
+			this.src_.put("biomes", SectionEncoder.toTag(this.biomePalette_));
+		}
+		return this.src_;
+	}
+	/**
+	 * Switches the block states of this section to {@link RegistryPaletteContainer} storage, so its palette
+	 * references the canonical block states of the {@link BlockStateRegistry}. The packed data is kept as is.
+	 */
+	public void internBlockStates() {
+		if (!(this.blockPalette_ instanceof RegistryPaletteContainer)) {
+			this.blockPalette_ = new RegistryPaletteContainer(this.mutableBlockStates());
+			this.shareBlockStates();
+		}
+	}
+	public void cleanupPalettesAndBlockStates() {
+		this.mutableBlockStates().compact();
+		this.shareBlockStates();
+		if (this.biomePalette_ != null) {
+			this.mutableBiomes().compact();
+			this.shareBiomes();
+		}
+	}
+	/**
+	 * Hands every block of this section to {@code visitor} in storage order, using section-local coordinates.
+	 * @param visitor The visitor.
+	 * @see BlockCursor
+	 */
+	public void forEachBlock(BlockVisitor visitor) {
+		BlockCursor.of(this).forEachRemaining(visitor);
 	}
 	public List<LocatedTag<CompoundTag>> getBlockLocations(Predicate<CompoundTag> checker) {
 		return this.blockPalette_.indexedEntriesOf(checker).entrySet().stream()
@@ -87,9 +359,107 @@ public class Section implements Comparable<Section> {
 		String name = (blockName.indexOf(':') < 0) ? "minecraft:" + blockName : blockName;
 		return this.getBlockLocations(t -> t.getString("Name").equals(name));
 	}
+	/**
+	 * Estimates the heap taken by this section, its source tag and its containers. Containers shared with other
+	 * sections are counted here as well, {@link Chunk} and {@link MCAFile} estimates count them once. Block states
+	 * kept by the {@link BlockStateRegistry} are counted in none.
+	 * @return The estimated retained size of this section, in bytes.
+	 * @see HeapSize
+	 */
+	public long estimateRetainedBytes() {
+		return this.estimateRetainedBytes(Collections.newSetFromMap(new IdentityHashMap<>()));
+	}
+
+
+	//PACKAGE UTIL
+	/**
+	 * @return The block state container, which may be shared and must not be modified.
+	 */
+	PaletteContainer<CompoundTag> blockStates() {
+		return this.blockPalette_;
+	}
+	/**
+	 * @return The biome container or {@code null}, which may be shared and must not be modified.
+	 */
+	PaletteContainer<StringTag> biomes() {
+		return this.biomePalette_;
+	}
+	/**
+	 * Estimates the heap taken by this section, skipping the containers already counted.
+	 * @param counted The containers counted so far, compared by identity. The containers of this section are added.
+	 * @return The estimated retained size of this section, in bytes.
+	 */
+	long estimateRetainedBytes(Set<Object> counted) {
+		long bytes = HeapSize.object(HeapSize.fields(Section.class)) + this.src_.estimateRetainedBytes();
+		if (counted.add(this.blockPalette_)) {
+			bytes += this.blockPalette_.estimateRetainedBytes();
+		}
+		if (this.biomePalette_ != null && counted.add(this.biomePalette_)) {
+			bytes += this.biomePalette_.estimateRetainedBytes();
+		}
+		return bytes;
+	}
+	/**
+	 * Decodes the {@link BlockStateRegistry} id of every block of this section, reading the packed data once.
+	 * @param into An array of at least 4096 entries, indexed like the packed data.
+	 * @return {@code into}.
+	 */
+	int[] copyBlockStateIds(int[] into) {
+		PaletteContainer<CompoundTag> palette = this.blockPalette_;
+		BinaryMap map = palette.getBinaryMap();
+		if (palette.isDirect()) {
+			return map.toArray(into);
+		}
+		int[] ids;
+		if (palette instanceof RegistryPaletteContainer registryPalette) {
+			ids = registryPalette.getPaletteIds();
+		} else {
+			List<CompoundTag> states = palette.paletteView();
+			ids = new int[states.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = BlockStateRegistry.INSTANCE.idOf(states.get(i));
+			}
+		}
+		if (map == null) {
+			Arrays.fill(into, 0, palette.size(), ids[0]);
+			return into;
+		}
+		map.toArray(into);
+		for (int i = 0; i < palette.size(); i++) {
+			into[i] = ids[into[i]];
+		}
+		return into;
+	}
 
 
 	//PRIVATE UTIL
+	private void shareBlockStates() {
+		this.blockPalette_ = PaletteContainerCache.INSTANCE.canonical(this.blockPalette_);
+		this.blockShared_ = this.blockPalette_.isFrozen();
+	}
+	private void shareBiomes() {
+		if (this.biomePalette_ != null) {
+			this.biomePalette_ = PaletteContainerCache.INSTANCE.canonical(this.biomePalette_);
+			this.biomeShared_ = this.biomePalette_.isFrozen();
+		}
+	}
+	private NibbleArray lightArray(String name, boolean create) {
+		ByteArrayTag tag = this.src_.getByteArrayTag(name);
+		if (tag != null && tag.length() == NibbleArray.BYTES) {
+			//A frozen array, e.g. shared with a thawed template, is only read as a copy
+			if (tag.isFrozen()) {
+				tag = new ByteArrayTag(tag.getValue());
+				this.src_.put(name, tag);
+			}
+			return new NibbleArray(tag);
+		}
+		if (!create) {
+			return null;
+		}
+		NibbleArray light = new NibbleArray();
+		this.src_.putByteArray(name, light.getData());
+		return light;
+	}
 	private <T extends Tag<?>> PaletteContainer<T> craftPaletteContainer(CompoundTag src, String name, int size, int minimumBitSize) {
 		if (!src.containsKey(name)) { return null; }
 
@@ -99,7 +469,8 @@ public class Section implements Comparable<Section> {
 		}
 
 		List<T> palette = new LinkedList<>();
-		root.getListTag("palette").forEach(t -> palette.add((T) t));
+		//The entries are copied, so the tag they were read from stays mutable
+		root.getListTag("palette").forEach(t -> palette.add((T) t.clone().freeze()));
 
 		if (root.containsKey("data")) {
 			long[] data = root.getLongArrayTag("data").getValue();
@@ -108,10 +479,10 @@ public class Section implements Comparable<Section> {
 		return new PaletteContainer<>(palette.get(0), size, minimumBitSize);
 	}
 	private static int getBlockIndexAt(int x, int y, int z) {
-		return y*256 + z*16 + x;
+		return (y & 0xF)*256 + (z & 0xF)*16 + (x & 0xF);
 	}
 	private static int getBiomeIndexAt(int x, int y, int z) {
-		x = x >> 2; y = y >> 2; z = z >> 2;
+		x = (x & 0xF) >> 2; y = (y & 0xF) >> 2; z = (z & 0xF) >> 2;
 		return y*16 + z*4 + x;
 	}
 	private static <T extends Tag<?>> LocatedTag<T> locationFromIndex(int index, T tag) {
@@ -0,0 +1,181 @@
+package com.jkantrell.mca;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Dense storage of the sections of a chunk, indexed by {@code sectionY - minSectionY}.
+ * Lookups are a bounds check and an array access. The array grows in both directions when a section is put
+ * outside of the current range, so negative and custom world heights are supported.
+ * Iteration visits the existing sections in ascending y order without copying.
+ * */
+class SectionArray implements Iterable<Section> {
+
+	//STATIC
+	static final int DEFAULT_MIN_SECTION_Y = -4;
+	static final int DEFAULT_SECTION_COUNT = 24;
+
+
+	//FIELDS
+	private Section[] sections_;
+	private int minY_;
+	private int count_ = 0;
+	private List<Section> view_ = null;
+
+
+	//CONSTRUCTORS
+	SectionArray() {
+		this(DEFAULT_MIN_SECTION_Y, DEFAULT_SECTION_COUNT);
+	}
+
+	SectionArray(int minSectionY, int sectionCount) {
+		this.minY_ = minSectionY;
+		this.sections_ = new Section[Math.max(sectionCount, 1)];
+	}
+
+
+	//GETTERS
+	Section get(int sectionY) {
+		int i = sectionY - this.minY_;
+		if (i < 0 || i >= this.sections_.length) {
+			return null;
+		}
+		return this.sections_[i];
+	}
+
+	int size() {
+		return this.count_;
+	}
+
+	int getMinSectionY() {
+		return this.minY_;
+	}
+
+	/**
+	 * @return An unmodifiable list of the existing sections in ascending y order. It is only rebuilt after the array changed.
+	 * */
+	List<Section> asList() {
+		List<Section> view = this.view_;
+		if (view == null) {
+			Section[] present = new Section[this.count_];
+			int j = 0;
+			for (Section section : this.sections_) {
+				if (section != null) {
+					present[j++] = section;
+				}
+			}
+			view = List.of(present);
+			this.view_ = view;
+		}
+		return view;
+	}
+
+
+	//SETTERS
+	/**
+	 * @param sectionY The y-coordinate of the section.
+	 * @param section  The section, {@code null} removes the section at that height.
+	 * @return The section previously stored at that height.
+	 * */
+	Section put(int sectionY, Section section) {
+		if (section == null && this.get(sectionY) == null) {
+			return null;
+		}
+		this.ensureContains(sectionY);
+		int i = sectionY - this.minY_;
+		Section old = this.sections_[i];
+		this.sections_[i] = section;
+		this.count_ += (old == null ? 0 : -1) + (section == null ? 0 : 1);
+		this.view_ = null;
+		return old;
+	}
+
+
+	//UTIL
+	/**
+	 * @return A copy of the existing sections keyed by their y-coordinate.
+	 * */
+	Map<Integer, Section> toMap() {
+		Map<Integer, Section> map = new HashMap<>();
+		for (int i = 0; i < this.sections_.length; i++) {
+			if (this.sections_[i] != null) {
+				map.put(i + this.minY_, this.sections_[i]);
+			}
+		}
+		return map;
+	}
+
+	Stream<Section> stream() {
+		return StreamSupport.stream(this.spliterator(), false);
+	}
+
+	@Override
+	public Iterator<Section> iterator() {
+		return new SectionIterator();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < this.sections_.length; i++) {
+			if (this.sections_[i] == null) {
+				continue;
+			}
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(i + this.minY_).append('=').append(this.sections_[i]);
+		}
+		return builder.append('}').toString();
+	}
+
+
+	//PRIVATE UTIL
+	private void ensureContains(int sectionY) {
+		int i = sectionY - this.minY_;
+		if (i >= 0 && i < this.sections_.length) {
+			return;
+		}
+		int newMin = Math.min(this.minY_, sectionY);
+		int newMax = Math.max(this.minY_ + this.sections_.length - 1, sectionY);
+		Section[] grown = new Section[newMax - newMin + 1];
+		System.arraycopy(this.sections_, 0, grown, this.minY_ - newMin, this.sections_.length);
+		this.sections_ = grown;
+		this.minY_ = newMin;
+	}
+
+
+	//CLASSES
+	private class SectionIterator implements Iterator<Section> {
+
+		private int next = this.advance(0);
+
+		@Override
+		public boolean hasNext() {
+			return this.next < SectionArray.this.sections_.length;
+		}
+
+		@Override
+		public Section next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Section section = SectionArray.this.sections_[this.next];
+			this.next = this.advance(this.next + 1);
+			return section;
+		}
+
+		private int advance(int from) {
+			Section[] sections = SectionArray.this.sections_;
+			while (from < sections.length && sections[from] == null) {
+				from++;
+			}
+			return from;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.io.NBTOutputStream;
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.ListTag;
+import com.jkantrell.nbt.tag.LongArrayTag;
+import com.jkantrell.nbt.tag.Tag;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes sections in the post-1.18 chunk layout straight from their {@link PaletteContainer}s.
+ * <p>The {@code block_states} and {@code biomes} compounds are emitted from the live palette and packed data
+ * while streaming, so no intermediate {@link CompoundTag} or {@link ListTag} is built for them. Every other entry
+ * of the section source, like the light arrays, is written as is.</p>
+ * <p>The packed data is always written with the bit width Minecraft derives from the palette size.
+ * Containers in direct mode are written with their local palette.</p>
+ * */
+public final class SectionEncoder {
+
+	//STATIC
+	private static final String BLOCK_STATES = "block_states", BIOMES = "biomes", SECTIONS = "sections";
+	private static final int SECTION_DEPTH = Tag.DEFAULT_MAX_DEPTH - 2;
+
+
+	//CONSTRUCTORS
+	private SectionEncoder() {}
+
+
+	//UTIL
+	/**
+	 * Writes a whole chunk as an unnamed root compound. Every entry of {@code handle} is written as is,
+	 * except {@code sections}, which is streamed from {@code sections}.
+	 * @param handle The chunk data, without up-to-date sections.
+	 * @param sections The sections of the chunk.
+	 * @param out The stream to write to.
+	 * @throws IOException If something goes wrong while writing.
+	 * */
+	public static void writeChunk(CompoundTag handle, Collection<Section> sections, NBTOutputStream out) throws IOException {
+		out.writeByte(CompoundTag.ID);
+		out.writeUTF("");
+		for (Map.Entry<String, Tag<?>> entry : handle) {
+			if (!entry.getKey().equals(SECTIONS)) {
+				SectionEncoder.writeEntry(entry.getKey(), entry.getValue(), Tag.DEFAULT_MAX_DEPTH - 1, out);
+			}
+		}
+		out.writeByte(ListTag.ID);
+		out.writeUTF(SECTIONS);
+		SectionEncoder.writeSections(sections, out);
+		out.writeByte(0);
+	}
+
+	/**
+	 * Writes the payload of a {@link ListTag} of sections.
+	 * @param sections The sections to write.
+	 * @param out The stream to write to.
+	 * @throws IOException If something goes wrong while writing.
+	 * */
+	public static void writeSections(Collection<Section> sections, NBTOutputStream out) throws IOException {
+		out.writeByte(CompoundTag.ID);
+		out.writeInt(sections.size());
+		for (Section section : sections) {
+			SectionEncoder.writeSection(section, out);
+		}
+	}
+
+	/**
+	 * Writes the payload of a section compound.
+	 * @param section The section to write.
+	 * @param out The stream to write to.
+	 * @throws IOException If something goes wrong while writing.
+	 * */
+	public static void writeSection(Section section, NBTOutputStream out) throws IOException {
+		for (Map.Entry<String, Tag<?>> entry : section.getSource()) {
+			String key = entry.getKey();
+			if (!key.equals(BLOCK_STATES) && !key.equals(BIOMES)) {
+				SectionEncoder.writeEntry(key, entry.getValue(), SECTION_DEPTH, out);
+			}
+		}
+		SectionEncoder.writeContainer(BLOCK_STATES, section.blockStates(), out);
+		if (section.biomes() != null) {
+			SectionEncoder.writeContainer(BIOMES, section.biomes(), out);
+		}
+		out.writeByte(0);
+	}
+
+	/**
+	 * Builds the tag Minecraft stores a palette container as. Palette entries are not copied.
+	 * @param container The container.
+	 * @return A compound holding the {@code palette} and, for more than one entry, the packed {@code data}.
+	 * */
+	public static <T extends Tag<?>> CompoundTag toTag(PaletteContainer<T> container) {
+		List<T> palette = container.getPalette();
+		BinaryMap map = SectionEncoder.packedData(container, palette.size());
+		CompoundTag tag = new CompoundTag(2);
+		@SuppressWarnings("unchecked")
+		ListTag<T> list = new ListTag<>((Class<T>) palette.get(0).getClass(), palette.size());
+		for (int i = 0; i < ((map == null) ? 1 : palette.size()); i++) {
+			list.add(palette.get(i));
+		}
+		tag.put("palette", list);
+		if (map != null) {
+			tag.put("data", new LongArrayTag(SectionEncoder.trimmedData(map)));
+		}
+		return tag;
+	}
+
+
+	//PRIVATE UTIL
+	private static <T extends Tag<?>> void writeContainer(String name, PaletteContainer<T> container, NBTOutputStream out) throws IOException {
+		List<T> palette = container.getPalette();
+		BinaryMap map = SectionEncoder.packedData(container, palette.size());
+		int paletteSize = (map == null) ? 1 : palette.size();
+
+		out.writeByte(CompoundTag.ID);
+		out.writeUTF(name);
+
+		out.writeByte(ListTag.ID);
+		out.writeUTF("palette");
+		out.writeByte(palette.get(0).getID());
+		out.writeInt(paletteSize);
+		for (int i = 0; i < paletteSize; i++) {
+			out.writeRawTag(palette.get(i), SECTION_DEPTH - 2);
+		}
+
+		if (map != null) {
+			long[] data = map.getData();
+			int length = SectionEncoder.dataLength(map);
+			out.writeByte(LongArrayTag.ID);
+			out.writeUTF("data");
+			out.writeInt(length);
+			for (int i = 0; i < length; i++) {
+				out.writeLong(data[i]);
+			}
+		}
+		out.writeByte(0);
+	}
+
+	private static BinaryMap packedData(PaletteContainer<?> container, int paletteSize) {
+		BinaryMap map = container.getLocalBinaryMap();
+		if (map == null || paletteSize < 2) {
+			return null;
+		}
+		int bits = Math.max(container.getMinimumBitSize(), 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+		if (map.getBitsPerEntry() != bits) {
+			map = new BinaryMap(bits, map.toArray());
+		}
+		return map;
+	}
+
+	private static long[] trimmedData(BinaryMap map) {
+		return Arrays.copyOf(map.getData(), SectionEncoder.dataLength(map));
+	}
+
+	private static int dataLength(BinaryMap map) {
+		int entriesPerLong = 64 / map.getBitsPerEntry();
+		return (map.getSize() + entriesPerLong - 1) / entriesPerLong;
+	}
+
+	private static void writeEntry(String key, Tag<?> value, int maxDepth, NBTOutputStream out) throws IOException {
+		if (value.getID() == 0) {
+			throw new IOException("end tag not allowed");
+		}
+		out.writeByte(value.getID());
+		out.writeUTF(key);
+		out.writeRawTag(value, maxDepth);
+	}
+}
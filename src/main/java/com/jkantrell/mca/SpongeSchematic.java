@@ -0,0 +1,220 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.io.NBTUtil;
+import com.jkantrell.nbt.io.NamedTag;
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.ListTag;
+import com.jkantrell.nbt.tag.StringTag;
+import com.jkantrell.nbt.tag.Tag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and writes {@link Clipboard}s in the Sponge schematic format ({@code .schem}).
+ * Version 2 is written, versions 2 and 3 are read.
+ * */
+public final class SpongeSchematic {
+
+	//STATIC
+	public static final int VERSION = 2;
+
+	private SpongeSchematic() {}
+
+	/**
+	 * Reads a schematic file, compressed or not.
+	 * @param file The file to read.
+	 * @return The clipboard stored in the file.
+	 * @throws IOException If the file cannot be read or is not a supported schematic.
+	 * */
+	public static Clipboard read(File file) throws IOException {
+		Tag<?> root = NBTUtil.read(file).getTag();
+		if (!(root instanceof CompoundTag compound)) {
+			throw new IOException("Schematic root is not a compound tag.");
+		}
+		try {
+			return SpongeSchematic.fromTag(compound);
+		} catch (IllegalArgumentException ex) {
+			throw new IOException(ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Writes a clipboard as a compressed version 2 schematic.
+	 * @param clipboard The clipboard to write.
+	 * @param file      The file to write to.
+	 * @throws IOException If the file cannot be written.
+	 * */
+	public static void write(Clipboard clipboard, File file) throws IOException {
+		NBTUtil.write(new NamedTag("Schematic", SpongeSchematic.toTag(clipboard)), file, true);
+	}
+
+	/**
+	 * @param clipboard The clipboard.
+	 * @return The {@code Schematic} tag of a version 2 schematic.
+	 * @throws IllegalArgumentException If the clipboard is too large for the format.
+	 * */
+	public static CompoundTag toTag(Clipboard clipboard) {
+		if (clipboard.getWidth() > 0xFFFF || clipboard.getHeight() > 0xFFFF || clipboard.getLength() > 0xFFFF) {
+			throw new IllegalArgumentException("Schematics cannot be larger than 65535 blocks along an axis.");
+		}
+		CompoundTag root = new CompoundTag();
+		root.putInt("Version", VERSION);
+		root.putInt("DataVersion", Chunk.DEFAULT_DATA_VERSION);
+		root.putShort("Width", (short) clipboard.getWidth());
+		root.putShort("Height", (short) clipboard.getHeight());
+		root.putShort("Length", (short) clipboard.getLength());
+		root.putIntArray("Offset", new int[3]);
+
+		List<CompoundTag> states = clipboard.getPalette();
+		CompoundTag palette = new CompoundTag();
+		for (int i = 0; i < states.size(); i++) {
+			palette.putInt(SpongeSchematic.toBlockString(states.get(i)), i);
+		}
+		root.putInt("PaletteMax", states.size());
+		root.put("Palette", palette);
+
+		ByteArrayOutputStream data = new ByteArrayOutputStream(clipboard.getWidth() * clipboard.getHeight() * clipboard.getLength());
+		for (int index : clipboard.getIndexes()) {
+			while ((index & ~0x7F) != 0) {
+				data.write((index & 0x7F) | 0x80);
+				index >>>= 7;
+			}
+			data.write(index);
+		}
+		root.putByteArray("BlockData", data.toByteArray());
+
+		ListTag<CompoundTag> blockEntities = new ListTag<>(CompoundTag.class);
+		for (CompoundTag blockEntity : clipboard.getBlockEntities()) {
+			CompoundTag entry = MCAUtil.mutableCopy(blockEntity);
+			entry.remove("x");
+			entry.remove("y");
+			entry.remove("z");
+			entry.remove("keepPacked");
+			entry.remove("id");
+			entry.putIntArray("Pos", new int[] {blockEntity.getInt("x"), blockEntity.getInt("y"), blockEntity.getInt("z")});
+			entry.putString("Id", blockEntity.getString("id"));
+			blockEntities.add(entry);
+		}
+		root.put("BlockEntities", blockEntities);
+		return root;
+	}
+
+	/**
+	 * @param root The root tag of a schematic file or its {@code Schematic} tag.
+	 * @return The clipboard stored in the schematic.
+	 * @throws IllegalArgumentException If the tag is not a supported schematic.
+	 * */
+	public static Clipboard fromTag(CompoundTag root) {
+		if (!root.containsKey("Version") && root.containsKey("Schematic")) {
+			root = root.getCompoundTag("Schematic");
+		}
+		int version = root.getInt("Version");
+		if (version != 2 && version != 3) {
+			throw new IllegalArgumentException("Unsupported schematic version " + version);
+		}
+		int width = root.getShort("Width") & 0xFFFF, height = root.getShort("Height") & 0xFFFF, length = root.getShort("Length") & 0xFFFF;
+		CompoundTag blocks = (version == 3) ? root.getCompoundTag("Blocks") : root;
+		if (blocks == null || !blocks.containsKey("Palette")) {
+			throw new IllegalArgumentException("Schematic has no block palette.");
+		}
+
+		CompoundTag paletteTag = blocks.getCompoundTag("Palette");
+		List<CompoundTag> palette = new ArrayList<>(paletteTag.size());
+		for (int i = 0; i < paletteTag.size(); i++) {
+			palette.add(null);
+		}
+		for (Map.Entry<String, Tag<?>> entry : paletteTag) {
+			int index = paletteTag.getInt(entry.getKey());
+			if (index < 0 || index >= palette.size()) {
+				throw new IllegalArgumentException("Palette index " + index + " of " + entry.getKey() + " is out of range.");
+			}
+			palette.set(index, SpongeSchematic.parseBlockString(entry.getKey()));
+		}
+
+		byte[] data = blocks.getByteArray((version == 3) ? "Data" : "BlockData");
+		int[] indexes = new int[width * height * length];
+		int position = 0;
+		for (int i = 0; i < indexes.length; i++) {
+			int value = 0, shift = 0;
+			byte b;
+			do {
+				if (position >= data.length) {
+					throw new IllegalArgumentException("Block data ends after " + i + " of " + indexes.length + " blocks.");
+				}
+				b = data[position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			indexes[i] = value;
+		}
+
+		List<CompoundTag> blockEntities = new ArrayList<>();
+		if (blocks.containsKey("BlockEntities")) {
+			for (CompoundTag entry : blocks.getListTag("BlockEntities").asCompoundTagList()) {
+				CompoundTag blockEntity = (version == 3 && entry.containsKey("Data")) ? MCAUtil.mutableCopy(entry.getCompoundTag("Data")) : MCAUtil.mutableCopy(entry);
+				blockEntity.remove("Pos");
+				blockEntity.remove("Id");
+				int[] pos = entry.getIntArray("Pos");
+				blockEntity.putString("id", entry.getString("Id"));
+				blockEntity.putInt("x", pos[0]);
+				blockEntity.putInt("y", pos[1]);
+				blockEntity.putInt("z", pos[2]);
+				blockEntities.add(blockEntity);
+			}
+		}
+		return new Clipboard(width, height, length, palette, indexes, blockEntities);
+	}
+
+	/**
+	 * @param state A block state.
+	 * @return The block state as {@code name[property=value,...]}, with properties in alphabetical order.
+	 * */
+	public static String toBlockString(CompoundTag state) {
+		StringBuilder builder = new StringBuilder(state.getString("Name"));
+		CompoundTag properties = state.getCompoundTag("Properties");
+		if (properties != null && properties.size() > 0) {
+			Map<String, String> sorted = new TreeMap<>();
+			properties.forEach((k, v) -> sorted.put(k, (v instanceof StringTag s) ? s.getValue() : v.valueToString()));
+			builder.append('[');
+			sorted.forEach((k, v) -> builder.append(k).append('=').append(v).append(','));
+			builder.setCharAt(builder.length() - 1, ']');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * @param block A block state as {@code name[property=value,...]}.
+	 * @return The block state tag.
+	 * @throws IllegalArgumentException If a property has no value.
+	 * */
+	public static CompoundTag parseBlockString(String block) {
+		CompoundTag state = new CompoundTag();
+		int open = block.indexOf('[');
+		if (open < 0) {
+			state.putString("Name", block);
+			return state;
+		}
+		state.putString("Name", block.substring(0, open));
+		int close = block.lastIndexOf(']');
+		String body = block.substring(open + 1, close < open ? block.length() : close);
+		if (body.isEmpty()) {
+			return state;
+		}
+		CompoundTag properties = new CompoundTag();
+		for (String property : body.split(",")) {
+			int equals = property.indexOf('=');
+			if (equals < 0) {
+				throw new IllegalArgumentException("Property '" + property + "' of " + block + " has no value.");
+			}
+			properties.putString(property.substring(0, equals), property.substring(equals + 1));
+		}
+		state.put("Properties", properties);
+		return state;
+	}
+}
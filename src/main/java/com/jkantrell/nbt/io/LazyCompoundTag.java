@@ -0,0 +1,431 @@
+package com.jkantrell.nbt.io;
+
+import com.jkantrell.io.MaxDepthIO;
+import com.jkantrell.nbt.tag.ArrayTag;
+import com.jkantrell.nbt.tag.ByteArrayTag;
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.HeapSize;
+import com.jkantrell.nbt.tag.IntArrayTag;
+import com.jkantrell.nbt.tag.ListTag;
+import com.jkantrell.nbt.tag.LongArrayTag;
+import com.jkantrell.nbt.tag.Tag;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link CompoundTag} backed by its encoded big-endian NBT bytes.
+ * <p>Only the keys and the offsets of the entries are read on creation. An entry is decoded the first time it is
+ * accessed, nested compounds being lazy themselves, so the decoding cost is proportional to what is read. Array
+ * entries are decoded as tags viewing the source bytes, so they are only copied once their array is requested,
+ * and count as untouched until then.</p>
+ * <p>Adding or removing entries decodes the remaining ones and detaches this compound from its bytes.
+ * Until then, {@link NBTOutputStream} copies every entry that was never decoded straight from the source bytes.</p>
+ * <p>The source array is shared and must not be modified while a lazy compound references it.
+ * {@link #estimateRetainedBytes()} counts it in the outermost lazy compound only, while a nested one estimated on
+ * its own counts the bytes of its payload. Entries are not decoded to be estimated.</p>
+ * */
+public class LazyCompoundTag extends CompoundTag {
+
+	private final Entries entries;
+
+	/**
+	 * @param data The encoded NBT data.
+	 * @param offset The position of the first entry of the compound payload.
+	 * @param maxDepth The maximum nesting depth of the compound.
+	 * @throws IOException If the data is not a valid compound payload.
+	 * */
+	public LazyCompoundTag(byte[] data, int offset, int maxDepth) throws IOException {
+		this(new Entries(data, offset, maxDepth));
+	}
+
+	private LazyCompoundTag(Entries entries) {
+		super(entries);
+		this.entries = entries;
+	}
+
+	/**
+	 * Reads a named tag from encoded big-endian NBT data. A compound root is returned as a {@link LazyCompoundTag}.
+	 * @param data The encoded NBT data.
+	 * @param maxDepth The maximum nesting depth.
+	 * @return The named root tag.
+	 * @throws IOException If the data is not valid NBT.
+	 * */
+	public static NamedTag read(byte[] data, int maxDepth) throws IOException {
+		if (data.length < 1) {
+			throw new IOException("unexpected end of NBT data");
+		}
+		byte id = data[0];
+		if (id != CompoundTag.ID) {
+			try (NBTInputStream in = new NBTInputStream(new ByteArrayInputStream(data))) {
+				return in.readTag(maxDepth);
+			}
+		}
+		int nameLength = Entries.unsignedShort(data, 1);
+		String name = Entries.readUTF(data, 3, nameLength);
+		return new NamedTag(name, new LazyCompoundTag(data, 3 + nameLength, maxDepth));
+	}
+
+	/**
+	 * @return Whether every entry of this compound is still read from the source bytes.
+	 * */
+	public boolean isUntouched() {
+		return this.entries.isUntouched();
+	}
+
+	@Override
+	public long estimateRetainedBytes() {
+		return this.estimateRetainedBytes(true);
+	}
+
+	/**
+	 * @param withData Whether to count the source bytes, which nested lazy compounds share with their parent.
+	 * */
+	private long estimateRetainedBytes(boolean withData) {
+		if (this.entries.detached != null) {
+			return super.estimateRetainedBytes();
+		}
+		// the fields of Tag, CompoundTag and this class
+		return HeapSize.object(2 * HeapSize.REFERENCE + 1 + Integer.BYTES + Long.BYTES) + this.entries.estimateRetainedBytes(withData);
+	}
+
+	/**
+	 * Writes the payload of this compound, copying entries that were never decoded from the source bytes.
+	 * @return {@code false} if this compound was detached from its bytes and must be written like any compound.
+	 * */
+	boolean writePayload(NBTOutputStream out, int maxDepth) throws IOException {
+		return this.entries.writePayload(out, maxDepth);
+	}
+
+	private static final class Entries extends AbstractMap<String, Tag<?>> implements MaxDepthIO {
+
+		private byte[] data;
+		private final int start, end, maxDepth;
+		private final String[] keys;
+		private final byte[] types;
+		private final int[] entryStarts, payloadStarts, entryEnds;
+		private final Tag<?>[] decoded;
+		private final Map<String, Integer> slots;
+		private Map<String, Tag<?>> detached;
+		private boolean nested;
+
+		private Entries(byte[] data, int offset, int maxDepth) throws IOException {
+			this.data = data;
+			this.start = offset;
+			this.maxDepth = maxDepth;
+
+			int count = 0, pos = offset;
+			String[] keys = new String[8];
+			byte[] types = new byte[8];
+			int[] entryStarts = new int[8], payloadStarts = new int[8], entryEnds = new int[8];
+			for (byte id = byteAt(data, pos); id != 0; id = byteAt(data, pos)) {
+				if (count == keys.length) {
+					int grown = count * 2;
+					keys = Arrays.copyOf(keys, grown);
+					types = Arrays.copyOf(types, grown);
+					entryStarts = Arrays.copyOf(entryStarts, grown);
+					payloadStarts = Arrays.copyOf(payloadStarts, grown);
+					entryEnds = Arrays.copyOf(entryEnds, grown);
+				}
+				int keyLength = unsignedShort(data, pos + 1);
+				entryStarts[count] = pos;
+				types[count] = id;
+				keys[count] = readUTF(data, pos + 3, keyLength);
+				payloadStarts[count] = pos + 3 + keyLength;
+				pos = skip(data, payloadStarts[count], id, decrementMaxDepth(maxDepth));
+				entryEnds[count] = pos;
+				count++;
+			}
+			this.end = pos + 1;
+
+			this.keys = Arrays.copyOf(keys, count);
+			this.types = Arrays.copyOf(types, count);
+			this.entryStarts = Arrays.copyOf(entryStarts, count);
+			this.payloadStarts = Arrays.copyOf(payloadStarts, count);
+			this.entryEnds = Arrays.copyOf(entryEnds, count);
+			this.decoded = new Tag<?>[count];
+			this.slots = new HashMap<>((int) Math.ceil(count / 0.75f));
+			for (int i = 0; i < count; i++) {
+				this.slots.put(this.keys[i], i);
+			}
+		}
+
+		@Override
+		public int size() {
+			return (this.detached == null) ? this.keys.length : this.detached.size();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return (this.detached == null) ? this.slots.containsKey(key) : this.detached.containsKey(key);
+		}
+
+		@Override
+		public Tag<?> get(Object key) {
+			if (this.detached != null) {
+				return this.detached.get(key);
+			}
+			Integer slot = this.slots.get(key);
+			return (slot == null) ? null : this.decode(slot);
+		}
+
+		@Override
+		public Tag<?> put(String key, Tag<?> value) {
+			return this.detach().put(key, value);
+		}
+
+		@Override
+		public Tag<?> remove(Object key) {
+			if (!this.containsKey(key)) {
+				return null;
+			}
+			return this.detach().remove(key);
+		}
+
+		@Override
+		public void clear() {
+			this.detach().clear();
+		}
+
+		@Override
+		public Set<Entry<String, Tag<?>>> entrySet() {
+			if (this.detached != null) {
+				return this.detached.entrySet();
+			}
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<Entry<String, Tag<?>>> iterator() {
+					return Entries.this.iterator();
+				}
+
+				@Override
+				public int size() {
+					return Entries.this.size();
+				}
+			};
+		}
+
+		private Iterator<Entry<String, Tag<?>>> iterator() {
+			if (this.detached != null) {
+				return this.detached.entrySet().iterator();
+			}
+			return new Iterator<>() {
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return this.next < Entries.this.keys.length;
+				}
+
+				@Override
+				public Entry<String, Tag<?>> next() {
+					if (!this.hasNext()) {
+						throw new NoSuchElementException();
+					}
+					String key = Entries.this.keys[this.next++];
+					return new Entry<>() {
+						@Override
+						public String getKey() {
+							return key;
+						}
+
+						@Override
+						public Tag<?> getValue() {
+							return Entries.this.get(key);
+						}
+
+						@Override
+						public Tag<?> setValue(Tag<?> value) {
+							return Entries.this.put(key, value);
+						}
+
+						@Override
+						public boolean equals(Object o) {
+							return o instanceof Entry<?, ?> e && key.equals(e.getKey()) && Objects.equals(this.getValue(), e.getValue());
+						}
+
+						@Override
+						public int hashCode() {
+							return key.hashCode() ^ Objects.hashCode(this.getValue());
+						}
+					};
+				}
+			};
+		}
+
+		private long estimateRetainedBytes(boolean withData) {
+			int count = this.keys.length;
+			// 3 ints, 10 references counting the cached views of AbstractMap, and the flag
+			long bytes = HeapSize.object(3 * Integer.BYTES + 10 * HeapSize.REFERENCE + 1);
+			bytes += 2 * HeapSize.array(count, HeapSize.REFERENCE) + HeapSize.array(count, 1) + 3 * HeapSize.array(count, Integer.BYTES);
+			bytes += HeapSize.hashMap(count);
+			for (int i = 0; i < count; i++) {
+				bytes += HeapSize.string(this.keys[i]);
+				Tag<?> tag = this.decoded[i];
+				if (tag instanceof LazyCompoundTag lazy) {
+					bytes += lazy.estimateRetainedBytes(false);
+				} else if (tag != null) {
+					bytes += tag.estimateRetainedBytes();
+				}
+			}
+			if (withData) {
+				bytes += this.nested ? this.end - this.start : HeapSize.array(this.data.length, 1);
+			}
+			return bytes;
+		}
+
+		private boolean isUntouched() {
+			if (this.detached != null) {
+				return false;
+			}
+			for (Tag<?> tag : this.decoded) {
+				if (tag != null && !isUntouched(tag)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean isUntouched(Tag<?> tag) {
+			return (tag instanceof LazyCompoundTag lazy && lazy.isUntouched()) || (tag instanceof ArrayTag<?> array && array.isView());
+		}
+
+		private Tag<?> decode(int slot) {
+			Tag<?> tag = this.decoded[slot];
+			if (tag != null) {
+				return tag;
+			}
+			try {
+				int from = this.payloadStarts[slot];
+				switch (this.types[slot]) {
+					case CompoundTag.ID -> {
+						LazyCompoundTag compound = new LazyCompoundTag(this.data, from, decrementMaxDepth(this.maxDepth));
+						compound.entries.nested = true;
+						tag = compound;
+					}
+					case ByteArrayTag.ID -> tag = ByteArrayTag.view(ByteBuffer.wrap(this.data, from + 4, this.entryEnds[slot] - from - 4), length(this.data, from));
+					case IntArrayTag.ID -> tag = IntArrayTag.view(ByteBuffer.wrap(this.data, from + 4, this.entryEnds[slot] - from - 4), length(this.data, from));
+					case LongArrayTag.ID -> tag = LongArrayTag.view(ByteBuffer.wrap(this.data, from + 4, this.entryEnds[slot] - from - 4), length(this.data, from));
+					default -> {
+						try (NBTInputStream in = new NBTInputStream(new ByteArrayInputStream(this.data, from, this.entryEnds[slot] - from))) {
+							tag = in.readTag(this.types[slot], decrementMaxDepth(this.maxDepth));
+						}
+					}
+				}
+			} catch (IOException ex) {
+				throw new IllegalStateException("NBT data was validated on creation", ex);
+			}
+			this.decoded[slot] = tag;
+			return tag;
+		}
+
+		private Map<String, Tag<?>> detach() {
+			if (this.detached == null) {
+				Map<String, Tag<?>> detached = new HashMap<>((int) Math.ceil(this.keys.length / 0.75f));
+				for (int i = 0; i < this.keys.length; i++) {
+					detached.put(this.keys[i], this.decode(i));
+				}
+				this.detached = detached;
+				this.data = null;
+			}
+			return this.detached;
+		}
+
+		private boolean writePayload(NBTOutputStream out, int maxDepth) throws IOException {
+			if (this.detached != null) {
+				return false;
+			}
+			if (this.isUntouched()) {
+				out.write(this.data, this.start, this.end - this.start);
+				return true;
+			}
+			for (int i = 0; i < this.keys.length; i++) {
+				Tag<?> tag = this.decoded[i];
+				if (tag == null || (!(tag instanceof LazyCompoundTag) && isUntouched(tag))) {
+					out.write(this.data, this.entryStarts[i], this.entryEnds[i] - this.entryStarts[i]);
+					continue;
+				}
+				out.writeByte(tag.getID());
+				out.writeUTF(this.keys[i]);
+				out.writeRawTag(tag, decrementMaxDepth(maxDepth));
+			}
+			out.writeByte(0);
+			return true;
+		}
+
+		private int skip(byte[] data, int pos, byte id, int maxDepth) throws IOException {
+			switch (id) {
+				case 1: return checked(data, pos + 1);
+				case 2: return checked(data, pos + 2);
+				case 3: case 5: return checked(data, pos + 4);
+				case 4: case 6: return checked(data, pos + 8);
+				case ByteArrayTag.ID: return checked(data, pos + 4 + (long) arrayLength(data, pos));
+				case 8: return checked(data, pos + 2 + unsignedShort(data, pos));
+				case IntArrayTag.ID: return checked(data, pos + 4 + 4L * arrayLength(data, pos));
+				case LongArrayTag.ID: return checked(data, pos + 4 + 8L * arrayLength(data, pos));
+				case ListTag.ID: {
+					byte type = byteAt(data, pos);
+					int length = Math.max(length(data, pos + 1), 0);
+					pos += 5;
+					for (int i = 0; i < length; i++) {
+						pos = skip(data, pos, type, decrementMaxDepth(maxDepth));
+					}
+					return checked(data, pos);
+				}
+				case CompoundTag.ID: {
+					for (byte type = byteAt(data, pos); type != 0; type = byteAt(data, pos)) {
+						pos = skip(data, pos + 3 + unsignedShort(data, pos + 1), type, decrementMaxDepth(maxDepth));
+					}
+					return pos + 1;
+				}
+				default: throw new IOException("invalid tag id \"" + id + "\"");
+			}
+		}
+
+		private static int checked(byte[] data, long pos) throws IOException {
+			if (pos > data.length) {
+				throw new IOException("unexpected end of NBT data");
+			}
+			return (int) pos;
+		}
+
+		private static byte byteAt(byte[] data, int pos) throws IOException {
+			if (pos >= data.length) {
+				throw new IOException("unexpected end of NBT data");
+			}
+			return data[pos];
+		}
+
+		private static int length(byte[] data, int pos) throws IOException {
+			checked(data, pos + 4L);
+			return (data[pos] & 0xFF) << 24 | (data[pos + 1] & 0xFF) << 16 | (data[pos + 2] & 0xFF) << 8 | (data[pos + 3] & 0xFF);
+		}
+
+		private static int arrayLength(byte[] data, int pos) throws IOException {
+			int length = length(data, pos);
+			if (length < 0) {
+				throw new IOException("negative array length " + length);
+			}
+			return length;
+		}
+
+		private static int unsignedShort(byte[] data, int pos) throws IOException {
+			checked(data, pos + 2L);
+			return (data[pos] & 0xFF) << 8 | (data[pos + 1] & 0xFF);
+		}
+
+		private static String readUTF(byte[] data, int pos, int length) throws IOException {
+			checked(data, (long) pos + length);
+			return ModifiedUTF8.decode(data, pos, length);
+		}
+	}
+}
@@ -28,6 +28,9 @@ import java.util.Map;
 public class LittleEndianNBTInputStream implements DataInput, NBTInput, MaxDepthIO, Closeable {
 
 	private final DataInputStream input;
+	private StringInterner interner;
+	private boolean readOnly;
+	private byte[] scratch;
 
 	private static Map<Byte, ExceptionBiFunction<LittleEndianNBTInputStream, Integer, ? extends Tag<?>, IOException>> readers = new HashMap<>();
 	private static Map<Byte, Class<?>> idClassMapping = new HashMap<>();
@@ -61,14 +64,37 @@ public class LittleEndianNBTInputStream implements DataInput, NBTInput, MaxDepth
 		input = in;
 	}
 
+	/**
+	 * @param in The stream to read from.
+	 * @param interner The interner to look up keys and string values in, or {@code null} to not intern them.
+	 * */
+	public LittleEndianNBTInputStream(InputStream in, StringInterner interner) {
+		this(in);
+		this.interner = interner;
+	}
+
+	/**
+	 * Makes this stream read frozen trees. Common bytes, shorts, ints and longs are then shared instead of being
+	 * read into a new tag each. See {@link Tag#freeze()}.
+	 * @param readOnly Whether to freeze the tags read from now on.
+	 * */
+	public void setReadOnly(boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+
 	public NamedTag readTag(int maxDepth) throws IOException {
 		byte id = readByte();
-		return new NamedTag(readUTF(), readTag(id, maxDepth));
+		String name = readInterned();
+		return new NamedTag(name, freezeIfReadOnly(readTag(id, maxDepth)));
 	}
 
 	public Tag<?> readRawTag(int maxDepth) throws IOException {
 		byte id = readByte();
-		return readTag(id, maxDepth);
+		return freezeIfReadOnly(readTag(id, maxDepth));
+	}
+
+	private Tag<?> freezeIfReadOnly(Tag<?> tag) {
+		return readOnly ? tag.freeze() : tag;
 	}
 
 	private Tag<?> readTag(byte type, int maxDepth) throws IOException {
@@ -79,20 +105,37 @@ public class LittleEndianNBTInputStream implements DataInput, NBTInput, MaxDepth
 		return f.accept(this, maxDepth);
 	}
 
+	private String readInterned() throws IOException {
+		if (interner == null) {
+			return readUTF();
+		}
+		int length = readUnsignedShort();
+		readFully(scratch(length), 0, length);
+		String s = interner.intern(scratch, 0, length);
+		return (s != null) ? s : new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private byte[] scratch(int length) {
+		if (scratch == null || scratch.length < length) {
+			scratch = new byte[Math.max(length, StringInterner.MAX_LENGTH)];
+		}
+		return scratch;
+	}
+
 	private static ByteTag readByte(LittleEndianNBTInputStream in) throws IOException {
-		return new ByteTag(in.readByte());
+		return in.readOnly ? ByteTag.valueOf(in.readByte()) : new ByteTag(in.readByte());
 	}
 
 	private static ShortTag readShort(LittleEndianNBTInputStream in) throws IOException {
-		return new ShortTag(in.readShort());
+		return in.readOnly ? ShortTag.valueOf(in.readShort()) : new ShortTag(in.readShort());
 	}
 
 	private static IntTag readInt(LittleEndianNBTInputStream in) throws IOException {
-		return new IntTag(in.readInt());
+		return in.readOnly ? IntTag.valueOf(in.readInt()) : new IntTag(in.readInt());
 	}
 
 	private static LongTag readLong(LittleEndianNBTInputStream in) throws IOException {
-		return new LongTag(in.readLong());
+		return in.readOnly ? LongTag.valueOf(in.readLong()) : new LongTag(in.readLong());
 	}
 
 	private static FloatTag readFloat(LittleEndianNBTInputStream in) throws IOException {
@@ -104,7 +147,7 @@ public class LittleEndianNBTInputStream implements DataInput, NBTInput, MaxDepth
 	}
 
 	private static StringTag readString(LittleEndianNBTInputStream in) throws IOException {
-		return new StringTag(in.readUTF());
+		return new StringTag(in.readInterned());
 	}
 
 	private static ByteArrayTag readByteArray(LittleEndianNBTInputStream in) throws IOException {
@@ -141,7 +184,16 @@ public class LittleEndianNBTInputStream implements DataInput, NBTInput, MaxDepth
 			length = 0;
 		}
 		for (int i = 0; i < length; i++) {
-			list.addUnchecked(in.readTag(listType, in.decrementMaxDepth(maxDepth)));
+			int depth = in.decrementMaxDepth(maxDepth);
+			switch (listType) {
+				case ByteTag.ID -> list.addByte(in.readByte());
+				case ShortTag.ID -> list.addShort(in.readShort());
+				case IntTag.ID -> list.addInt(in.readInt());
+				case LongTag.ID -> list.addLong(in.readLong());
+				case FloatTag.ID -> list.addFloat(in.readFloat());
+				case DoubleTag.ID -> list.addDouble(in.readDouble());
+				default -> list.addUnchecked(in.readTag(listType, depth));
+			}
 		}
 		return list;
 	}
@@ -149,7 +201,7 @@ public class LittleEndianNBTInputStream implements DataInput, NBTInput, MaxDepth
 	private static CompoundTag readCompound(LittleEndianNBTInputStream in, int maxDepth) throws IOException {
 		CompoundTag comp = new CompoundTag();
 		for (int id = in.readByte() & 0xFF; id != 0; id = in.readByte() & 0xFF) {
-			String key = in.readUTF();
+			String key = in.readInterned();
 			Tag<?> element = in.readTag((byte) id, in.decrementMaxDepth(maxDepth));
 			comp.put(key, element);
 		}
@@ -233,8 +285,8 @@ public class LittleEndianNBTInputStream implements DataInput, NBTInput, MaxDepth
 
 	@Override
 	public String readUTF() throws IOException {
-		byte[] bytes = new byte[readUnsignedShort()];
-		readFully(bytes);
-		return new String(bytes, StandardCharsets.UTF_8);
+		int length = readUnsignedShort();
+		readFully(scratch(length), 0, length);
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
 	}
 }
@@ -28,6 +28,7 @@ import java.util.Map;
 public class LittleEndianNBTOutputStream implements DataOutput, NBTOutput, MaxDepthIO, Closeable {
 
 	private final DataOutputStream output;
+	private byte[] scratch;
 
 	private static Map<Byte, ExceptionTriConsumer<LittleEndianNBTOutputStream, Tag<?>, Integer, IOException>> writers = new HashMap<>();
 	private static Map<Class<?>, Byte> classIdMapping = new HashMap<>();
@@ -122,29 +123,52 @@ public class LittleEndianNBTOutputStream implements DataOutput, NBTOutput, MaxDe
 	}
 
 	private static void writeByteArray(LittleEndianNBTOutputStream out, Tag<?> tag) throws IOException {
-		out.writeInt(((ByteArrayTag) tag).length());
-		out.write(((ByteArrayTag) tag).getValue());
+		ByteArrayTag bat = (ByteArrayTag) tag;
+		out.writeInt(bat.length());
+		if (!bat.isView()) {
+			out.write(bat.getValue());
+			return;
+		}
+		byte[] chunk = new byte[Math.min(bat.length(), 8192)];
+		for (int i = 0; i < bat.length(); i += chunk.length) {
+			int length = Math.min(chunk.length, bat.length() - i);
+			bat.get(i, chunk, 0, length);
+			out.write(chunk, 0, length);
+		}
 	}
 
 	private static void writeIntArray(LittleEndianNBTOutputStream out, Tag<?> tag) throws IOException {
-		out.writeInt(((IntArrayTag) tag).length());
-		for (int i : ((IntArrayTag) tag).getValue()) {
-			out.writeInt(i);
+		IntArrayTag array = (IntArrayTag) tag;
+		out.writeInt(array.length());
+		for (int i = 0; i < array.length(); i++) {
+			out.writeInt(array.get(i));
 		}
 	}
 
 	private static void writeLongArray(LittleEndianNBTOutputStream out, Tag<?> tag) throws IOException {
-		out.writeInt(((LongArrayTag) tag).length());
-		for (long l : ((LongArrayTag) tag).getValue()) {
-			out.writeLong(l);
+		LongArrayTag array = (LongArrayTag) tag;
+		out.writeInt(array.length());
+		for (int i = 0; i < array.length(); i++) {
+			out.writeLong(array.get(i));
 		}
 	}
 
 	private static void writeList(LittleEndianNBTOutputStream out, Tag<?> tag, int maxDepth) throws IOException {
-		out.writeByte(idFromClass(((ListTag<?>) tag).getTypeClass()));
-		out.writeInt(((ListTag<?>) tag).size());
-		for (Tag<?> t : ((ListTag<?>) tag)) {
-			out.writeRawTag(t, out.decrementMaxDepth(maxDepth));
+		ListTag<?> list = (ListTag<?>) tag;
+		byte type = idFromClass(list.getTypeClass());
+		out.writeByte(type);
+		out.writeInt(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			int depth = out.decrementMaxDepth(maxDepth);
+			switch (type) {
+				case ByteTag.ID -> out.writeByte(list.getByte(i));
+				case ShortTag.ID -> out.writeShort(list.getShort(i));
+				case IntTag.ID -> out.writeInt(list.getInt(i));
+				case LongTag.ID -> out.writeLong(list.getLong(i));
+				case FloatTag.ID -> out.writeFloat(list.getFloat(i));
+				case DoubleTag.ID -> out.writeDouble(list.getDouble(i));
+				default -> out.writeRawTag(list.get(i), depth);
+			}
 		}
 	}
 
@@ -237,8 +261,19 @@ public class LittleEndianNBTOutputStream implements DataOutput, NBTOutput, MaxDe
 
 	@Override
 	public void writeUTF(String s) throws IOException {
-		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
-		writeShort(bytes.length);
-		write(bytes);
+		int length = ModifiedUTF8.encodedLength(s);
+		if (length != s.length()) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeShort(bytes.length);
+			write(bytes);
+			return;
+		}
+		// ASCII is encoded the same in UTF-8 and modified UTF-8
+		if (scratch == null || scratch.length < length) {
+			scratch = new byte[Math.max(length, 64)];
+		}
+		ModifiedUTF8.encode(s, scratch, 0);
+		writeShort(length);
+		write(scratch, 0, length);
 	}
 }
@@ -0,0 +1,117 @@
+package com.jkantrell.nbt.io;
+
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes strings in the modified UTF-8 format of {@link java.io.DataInput#readUTF()}, which NBT
+ * uses for every key and string value.
+ * <p>Nearly all NBT strings are ASCII identifiers. Pure-ASCII input is decoded straight into a compact Latin-1
+ * {@link String} without the intermediate {@code char[]}, only other input goes through the full decoder.
+ * Both methods work on caller-provided arrays, so readers and writers can reuse a scratch buffer.</p>
+ * */
+public final class ModifiedUTF8 {
+
+	private ModifiedUTF8() {}
+
+	/**
+	 * Decodes a string without its length prefix.
+	 * @param bytes The encoded string.
+	 * @param offset The position of the first byte.
+	 * @param length The amount of bytes.
+	 * @return The decoded string.
+	 * @throws UTFDataFormatException If the bytes are not valid modified UTF-8.
+	 * */
+	public static String decode(byte[] bytes, int offset, int length) throws UTFDataFormatException {
+		int end = offset + length;
+		int i = offset;
+		while (i < end && bytes[i] >= 0) {
+			i++;
+		}
+		if (i == end) {
+			return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+		}
+
+		char[] chars = new char[length];
+		int count = 0;
+		for (int j = offset; j < i; j++) {
+			chars[count++] = (char) bytes[j];
+		}
+		while (i < end) {
+			int c = bytes[i] & 0xFF;
+			switch (c >> 4) {
+				case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7:
+					chars[count++] = (char) c;
+					i++;
+					break;
+				case 12: case 13: {
+					if (i + 2 > end) {
+						throw new UTFDataFormatException("malformed input: partial character at end");
+					}
+					int c2 = bytes[i + 1];
+					if ((c2 & 0xC0) != 0x80) {
+						throw new UTFDataFormatException("malformed input around byte " + (i + 1 - offset));
+					}
+					chars[count++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+					i += 2;
+					break;
+				}
+				case 14: {
+					if (i + 3 > end) {
+						throw new UTFDataFormatException("malformed input: partial character at end");
+					}
+					int c2 = bytes[i + 1], c3 = bytes[i + 2];
+					if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80) {
+						throw new UTFDataFormatException("malformed input around byte " + (i + 2 - offset));
+					}
+					chars[count++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+					i += 3;
+					break;
+				}
+				default:
+					throw new UTFDataFormatException("malformed input around byte " + (i - offset));
+			}
+		}
+		return new String(chars, 0, count);
+	}
+
+	/**
+	 * @param s The string.
+	 * @return The amount of bytes {@code s} is encoded with, without the length prefix.
+	 * */
+	public static int encodedLength(String s) {
+		int length = s.length();
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 0x80 || c == 0) {
+				length += (c >= 0x800) ? 2 : 1;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Encodes a string without its length prefix.
+	 * @param s The string.
+	 * @param dst The array to write to. It must hold at least {@link #encodedLength(String)} bytes from {@code offset}.
+	 * @param offset The position of the first byte to write.
+	 * @return The amount of bytes written.
+	 * */
+	public static int encode(String s, byte[] dst, int offset) {
+		int pos = offset;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c != 0 && c < 0x80) {
+				dst[pos++] = (byte) c;
+			} else if (c < 0x800) {
+				dst[pos++] = (byte) (0xC0 | (c >> 6));
+				dst[pos++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				dst[pos++] = (byte) (0xE0 | (c >> 12));
+				dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				dst[pos++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return pos - offset;
+	}
+}
@@ -8,7 +8,8 @@ import java.util.zip.GZIPInputStream;
 
 public class NBTDeserializer implements Deserializer<NamedTag> {
 
-	private boolean compressed, littleEndian;
+	private boolean compressed, littleEndian, lazy, readOnly;
+	private StringInterner interner;
 
 	public NBTDeserializer() {
 		this(true);
@@ -23,6 +24,36 @@ public class NBTDeserializer implements Deserializer<NamedTag> {
 		this.littleEndian = littleEndian;
 	}
 
+	/**
+	 * @param compressed Whether the data is gzip compressed.
+	 * @param littleEndian Whether the data is little-endian.
+	 * @param lazy Whether a compound root is read as a {@link LazyCompoundTag}. Only big-endian data can be read lazily.
+	 * */
+	public NBTDeserializer(boolean compressed, boolean littleEndian, boolean lazy) {
+		this(compressed, littleEndian);
+		if (lazy && littleEndian) {
+			throw new IllegalArgumentException("little-endian data cannot be read lazily");
+		}
+		this.lazy = lazy;
+	}
+
+	/**
+	 * Sets the interner keys and string values are looked up in. Lazily read compounds are not interned.
+	 * @param interner The interner, or {@code null} to not intern strings.
+	 * */
+	public void setStringInterner(StringInterner interner) {
+		this.interner = interner;
+	}
+
+	/**
+	 * Makes this deserializer read frozen trees sharing common numbers, see {@link NBTInputStream#setReadOnly(boolean)}.
+	 * Lazily read compounds are not frozen.
+	 * @param readOnly Whether to read frozen trees.
+	 * */
+	public void setReadOnly(boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+
 	@Override
 	public NamedTag fromStream(InputStream stream) throws IOException {
 		NBTInput nbtIn;
@@ -33,10 +64,17 @@ public class NBTDeserializer implements Deserializer<NamedTag> {
 			input = stream;
 		}
 
+		if (lazy) {
+			return LazyCompoundTag.read(input.readAllBytes(), Tag.DEFAULT_MAX_DEPTH);
+		}
 		if (littleEndian) {
-			nbtIn = new LittleEndianNBTInputStream(input);
+			LittleEndianNBTInputStream in = new LittleEndianNBTInputStream(input, interner);
+			in.setReadOnly(readOnly);
+			nbtIn = in;
 		} else {
-			nbtIn = new NBTInputStream(input);
+			NBTInputStream in = new NBTInputStream(input, interner);
+			in.setReadOnly(readOnly);
+			nbtIn = in;
 		}
 		return nbtIn.readTag(Tag.DEFAULT_MAX_DEPTH);
 	}
@@ -24,6 +24,10 @@ import java.util.Map;
 
 public class NBTInputStream extends DataInputStream implements NBTInput, MaxDepthIO {
 
+	private StringInterner interner;
+	private boolean readOnly;
+	private byte[] scratch;
+
 	private static Map<Byte, ExceptionBiFunction<NBTInputStream, Integer, ? extends Tag<?>, IOException>> readers = new HashMap<>();
 	private static Map<Byte, Class<?>> idClassMapping = new HashMap<>();
 
@@ -52,17 +56,40 @@ public class NBTInputStream extends DataInputStream implements NBTInput, MaxDept
 		super(in);
 	}
 
+	/**
+	 * @param in The stream to read from.
+	 * @param interner The interner to look up keys and string values in, or {@code null} to not intern them.
+	 * */
+	public NBTInputStream(InputStream in, StringInterner interner) {
+		super(in);
+		this.interner = interner;
+	}
+
+	/**
+	 * Makes this stream read frozen trees. Common bytes, shorts, ints and longs are then shared instead of being
+	 * read into a new tag each. See {@link Tag#freeze()}.
+	 * @param readOnly Whether to freeze the tags read from now on.
+	 * */
+	public void setReadOnly(boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+
 	public NamedTag readTag(int maxDepth) throws IOException {
 		byte id = readByte();
-		return new NamedTag(readUTF(), readTag(id, maxDepth));
+		String name = readInterned();
+		return new NamedTag(name, freezeIfReadOnly(readTag(id, maxDepth)));
 	}
 
 	public Tag<?> readRawTag(int maxDepth) throws IOException {
 		byte id = readByte();
-		return readTag(id, maxDepth);
+		return freezeIfReadOnly(readTag(id, maxDepth));
 	}
 
-	private Tag<?> readTag(byte type, int maxDepth) throws IOException {
+	private Tag<?> freezeIfReadOnly(Tag<?> tag) {
+		return readOnly ? tag.freeze() : tag;
+	}
+
+	Tag<?> readTag(byte type, int maxDepth) throws IOException {
 		ExceptionBiFunction<NBTInputStream, Integer, ? extends Tag<?>, IOException> f;
 		if ((f = readers.get(type)) == null) {
 			throw new IOException("invalid tag id \"" + type + "\"");
@@ -70,20 +97,30 @@ public class NBTInputStream extends DataInputStream implements NBTInput, MaxDept
 		return f.accept(this, maxDepth);
 	}
 
+	private String readInterned() throws IOException {
+		int length = readUnsignedShort();
+		if (scratch == null || scratch.length < length) {
+			scratch = new byte[Math.max(length, StringInterner.MAX_LENGTH)];
+		}
+		readFully(scratch, 0, length);
+		String s = (interner == null) ? null : interner.intern(scratch, 0, length);
+		return (s != null) ? s : ModifiedUTF8.decode(scratch, 0, length);
+	}
+
 	private static ByteTag readByte(NBTInputStream in) throws IOException {
-		return new ByteTag(in.readByte());
+		return in.readOnly ? ByteTag.valueOf(in.readByte()) : new ByteTag(in.readByte());
 	}
 
 	private static ShortTag readShort(NBTInputStream in) throws IOException {
-		return new ShortTag(in.readShort());
+		return in.readOnly ? ShortTag.valueOf(in.readShort()) : new ShortTag(in.readShort());
 	}
 
 	private static IntTag readInt(NBTInputStream in) throws IOException {
-		return new IntTag(in.readInt());
+		return in.readOnly ? IntTag.valueOf(in.readInt()) : new IntTag(in.readInt());
 	}
 
 	private static LongTag readLong(NBTInputStream in) throws IOException {
-		return new LongTag(in.readLong());
+		return in.readOnly ? LongTag.valueOf(in.readLong()) : new LongTag(in.readLong());
 	}
 
 	private static FloatTag readFloat(NBTInputStream in) throws IOException {
@@ -95,7 +132,7 @@ public class NBTInputStream extends DataInputStream implements NBTInput, MaxDept
 	}
 
 	private static StringTag readString(NBTInputStream in) throws IOException {
-		return new StringTag(in.readUTF());
+		return new StringTag(in.readInterned());
 	}
 
 	private static ByteArrayTag readByteArray(NBTInputStream in) throws IOException {
@@ -132,7 +169,16 @@ public class NBTInputStream extends DataInputStream implements NBTInput, MaxDept
 			length = 0;
 		}
 		for (int i = 0; i < length; i++) {
-			list.addUnchecked(in.readTag(listType, in.decrementMaxDepth(maxDepth)));
+			int depth = in.decrementMaxDepth(maxDepth);
+			switch (listType) {
+				case ByteTag.ID -> list.addByte(in.readByte());
+				case ShortTag.ID -> list.addShort(in.readShort());
+				case IntTag.ID -> list.addInt(in.readInt());
+				case LongTag.ID -> list.addLong(in.readLong());
+				case FloatTag.ID -> list.addFloat(in.readFloat());
+				case DoubleTag.ID -> list.addDouble(in.readDouble());
+				default -> list.addUnchecked(in.readTag(listType, depth));
+			}
 		}
 		return list;
 	}
@@ -140,7 +186,7 @@ public class NBTInputStream extends DataInputStream implements NBTInput, MaxDept
 	private static CompoundTag readCompound(NBTInputStream in, int maxDepth) throws IOException {
 		CompoundTag comp = new CompoundTag();
 		for (int id = in.readByte() & 0xFF; id != 0; id = in.readByte() & 0xFF) {
-			String key = in.readUTF();
+			String key = in.readInterned();
 			Tag<?> element = in.readTag((byte) id, in.decrementMaxDepth(maxDepth));
 			comp.put(key, element);
 		}
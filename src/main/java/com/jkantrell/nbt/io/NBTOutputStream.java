@@ -113,33 +113,59 @@ public class NBTOutputStream extends DataOutputStream implements NBTOutput, MaxD
 	}
 
 	private static void writeByteArray(NBTOutputStream out, Tag<?> tag) throws IOException {
-		out.writeInt(((ByteArrayTag) tag).length());
-		out.write(((ByteArrayTag) tag).getValue());
+		ByteArrayTag bat = (ByteArrayTag) tag;
+		out.writeInt(bat.length());
+		if (!bat.isView()) {
+			out.write(bat.getValue());
+			return;
+		}
+		byte[] chunk = new byte[Math.min(bat.length(), 8192)];
+		for (int i = 0; i < bat.length(); i += chunk.length) {
+			int length = Math.min(chunk.length, bat.length() - i);
+			bat.get(i, chunk, 0, length);
+			out.write(chunk, 0, length);
+		}
 	}
 
 	private static void writeIntArray(NBTOutputStream out, Tag<?> tag) throws IOException {
-		out.writeInt(((IntArrayTag) tag).length());
-		for (int i : ((IntArrayTag) tag).getValue()) {
-			out.writeInt(i);
+		IntArrayTag array = (IntArrayTag) tag;
+		out.writeInt(array.length());
+		for (int i = 0; i < array.length(); i++) {
+			out.writeInt(array.get(i));
 		}
 	}
 
 	private static void writeLongArray(NBTOutputStream out, Tag<?> tag) throws IOException {
-		out.writeInt(((LongArrayTag) tag).length());
-		for (long l : ((LongArrayTag) tag).getValue()) {
-			out.writeLong(l);
+		LongArrayTag array = (LongArrayTag) tag;
+		out.writeInt(array.length());
+		for (int i = 0; i < array.length(); i++) {
+			out.writeLong(array.get(i));
 		}
 	}
 
 	private static void writeList(NBTOutputStream out, Tag<?> tag, int maxDepth) throws IOException {
-		out.writeByte(idFromClass(((ListTag<?>) tag).getTypeClass()));
-		out.writeInt(((ListTag<?>) tag).size());
-		for (Tag<?> t : ((ListTag<?>) tag)) {
-			out.writeRawTag(t, out.decrementMaxDepth(maxDepth));
+		ListTag<?> list = (ListTag<?>) tag;
+		byte type = idFromClass(list.getTypeClass());
+		out.writeByte(type);
+		out.writeInt(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			int depth = out.decrementMaxDepth(maxDepth);
+			switch (type) {
+				case ByteTag.ID -> out.writeByte(list.getByte(i));
+				case ShortTag.ID -> out.writeShort(list.getShort(i));
+				case IntTag.ID -> out.writeInt(list.getInt(i));
+				case LongTag.ID -> out.writeLong(list.getLong(i));
+				case FloatTag.ID -> out.writeFloat(list.getFloat(i));
+				case DoubleTag.ID -> out.writeDouble(list.getDouble(i));
+				default -> out.writeRawTag(list.get(i), depth);
+			}
 		}
 	}
 
 	private static void writeCompound(NBTOutputStream out, Tag<?> tag, int maxDepth) throws IOException {
+		if (tag instanceof LazyCompoundTag lazy && lazy.writePayload(out, maxDepth)) {
+			return;
+		}
 		for (Map.Entry<String, Tag<?>> entry : (CompoundTag) tag) {
 			if (entry.getValue().getID() == 0) {
 				throw new IOException("end tag not allowed");
@@ -38,6 +38,14 @@ public final class SNBTParser implements MaxDepthIO {
 		this.ptr = new StringPointer(string);
 	}
 
+	/**
+	 * @param string The SNBT to parse.
+	 * @param interner The interner to look up keys and strings in, or {@code null} to not intern them.
+	 * */
+	public SNBTParser(String string, StringInterner interner) {
+		this.ptr = new StringPointer(string, interner);
+	}
+
 	public Tag<?> parse(int maxDepth, boolean lenient) throws ParseException {
 		Tag<?> tag = parseAnything(maxDepth);
 		if (!lenient) {
@@ -0,0 +1,128 @@
+package com.jkantrell.nbt.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, thread-safe cache of the short ASCII strings NBT data repeats over and over, like compound keys
+ * ({@code Name}, {@code Properties}, {@code palette}) and identifiers ({@code minecraft:air}).
+ * <p>Strings are looked up from their raw encoded bytes or from a range of characters, before any {@link String}
+ * is created, so a hit allocates nothing and every hit returns the same instance. The cache is a fixed-size table
+ * where each slot holds the last string hashed to it, so its size never grows and colliding strings simply
+ * replace each other.</p>
+ * <p>Only strings of at most {@link #MAX_LENGTH} characters in the range {@code 1..127} are cached. These are
+ * encoded the same in UTF-8 and modified UTF-8, so a single cache can serve every reader.</p>
+ * */
+public final class StringInterner {
+
+	/**
+	 * The maximum length of a cached string.
+	 * */
+	public static final int MAX_LENGTH = 64;
+
+	/**
+	 * An interner shared by the readers of this library when interning is enabled without a dedicated interner.
+	 * */
+	public static final StringInterner DEFAULT = new StringInterner(4096);
+
+	private final AtomicReferenceArray<String> slots;
+	private final int mask;
+
+	/**
+	 * @param capacity The amount of strings the cache can hold, rounded up to a power of two.
+	 * */
+	public StringInterner(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("invalid capacity " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Looks up the string encoded by a range of bytes.
+	 * @param bytes The encoded string, without its length prefix.
+	 * @param offset The position of the first byte.
+	 * @param length The amount of bytes.
+	 * @return The cached string, or {@code null} if the bytes are not a string this interner caches.
+	 * */
+	public String intern(byte[] bytes, int offset, int length) {
+		if (length > MAX_LENGTH) {
+			return null;
+		}
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			if (bytes[i] <= 0) {
+				return null;
+			}
+			hash = 31 * hash + bytes[i];
+		}
+		int slot = slot(hash);
+		String cached = slots.get(slot);
+		if (cached != null && matches(cached, bytes, offset, length)) {
+			return cached;
+		}
+		String s = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+		slots.set(slot, s);
+		return s;
+	}
+
+	/**
+	 * Looks up a range of characters.
+	 * @param source The string containing the characters.
+	 * @param start The index of the first character.
+	 * @param end The index after the last character.
+	 * @return The cached string, or the range of characters as a new string if this interner does not cache it.
+	 * */
+	public String intern(String source, int start, int end) {
+		int length = end - start;
+		if (length > MAX_LENGTH) {
+			return source.substring(start, end);
+		}
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			char c = source.charAt(i);
+			if (c == 0 || c > 127) {
+				return source.substring(start, end);
+			}
+			hash = 31 * hash + c;
+		}
+		int slot = slot(hash);
+		String cached = slots.get(slot);
+		if (cached != null && cached.length() == length && cached.regionMatches(0, source, start, length)) {
+			return cached;
+		}
+		String s = source.substring(start, end);
+		slots.set(slot, s);
+		return s;
+	}
+
+	/**
+	 * Forgets every cached string.
+	 * */
+	public void clear() {
+		for (int i = 0; i < slots.length(); i++) {
+			slots.set(i, null);
+		}
+	}
+
+	private int slot(int hash) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private static boolean matches(String cached, byte[] bytes, int offset, int length) {
+		if (cached.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (cached.charAt(i) != bytes[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -4,11 +4,21 @@ public class StringPointer {
 
 	private String value;
 	private int index;
+	private StringInterner interner;
 
 	public StringPointer(String value) {
 		this.value = value;
 	}
 
+	/**
+	 * @param value The string to parse.
+	 * @param interner The interner to look up parsed strings in, or {@code null} to not intern them.
+	 * */
+	public StringPointer(String value, StringInterner interner) {
+		this.value = value;
+		this.interner = interner;
+	}
+
 	public int getIndex() {
 		return index;
 	}
@@ -22,7 +32,7 @@ public class StringPointer {
 		while (hasNext() && isSimpleChar(currentChar())) {
 			index++;
 		}
-		return value.substring(oldIndex, index);
+		return substring(oldIndex, index);
 	}
 
 	public String parseQuotedString() throws ParseException {
@@ -46,7 +56,7 @@ public class StringPointer {
 					continue;
 				}
 				if (c == '"') {
-					return sb == null ? value.substring(oldIndex, index - 1) : sb.toString();
+					return sb == null ? substring(oldIndex, index - 1) : sb.toString();
 				}
 			}
 			if (sb != null) {
@@ -119,4 +129,8 @@ public class StringPointer {
 	public ParseException parseException(String msg) {
 		return new ParseException(msg, value, index);
 	}
+
+	private String substring(int start, int end) {
+		return interner == null ? value.substring(start, end) : interner.intern(value, start, end);
+	}
 }
@@ -1,14 +1,23 @@
 package com.jkantrell.nbt.tag;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 
 /**
  * ArrayTag is an abstract representation of any NBT array tag.
  * For implementations see {@link ByteArrayTag}, {@link IntArrayTag}, {@link LongArrayTag}.
+ * <p>An array tag can also view a region of a {@link ByteBuffer} instead of holding an array. The elements are then
+ * read from the buffer and only copied to a heap array once {@link #getValue()} or {@link #setValue(Object)} is
+ * called.</p>
+ * <p>Frozen array tags never hand out their array. {@link #getValue()} returns a copy instead, and the elements
+ * of a frozen view stay in the buffer.</p>
  * @param <T> The array type.
  * */
 public abstract class ArrayTag<T> extends Tag<T> {
 
+	private ByteBuffer view;
+	private int viewLength;
+
 	public ArrayTag(T value) {
 		super(value);
 		if (!value.getClass().isArray()) {
@@ -16,18 +25,108 @@ public abstract class ArrayTag<T> extends Tag<T> {
 		}
 	}
 
+	/**
+	 * Creates an array tag viewing a buffer.
+	 * @param empty An empty array of the array type.
+	 * @param view A read-only buffer holding exactly the elements, in the byte order to read them with.
+	 * @param length The amount of elements in {@code view}.
+	 * */
+	protected ArrayTag(T empty, ByteBuffer view, int length) {
+		this(empty);
+		this.view = view;
+		this.viewLength = length;
+	}
+
 	public int length() {
-		return Array.getLength(getValue());
+		return (view == null) ? Array.getLength(super.getValue()) : viewLength;
 	}
 
+	/**
+	 * Returns the array of this tag. If this tag views a buffer, its elements are copied to a new array first
+	 * and the buffer is released. If this tag is frozen, a copy of its elements is returned.
+	 * */
 	@Override
 	public T getValue() {
+		if (isFrozen()) {
+			return (view == null) ? copyArray(super.getValue()) : copyView(view, viewLength);
+		}
+		if (view != null) {
+			super.setValue(copyView(view, viewLength));
+			view = null;
+		}
 		return super.getValue();
 	}
 
 	@Override
 	public void setValue(T value) {
 		super.setValue(value);
+		view = null;
+	}
+
+	/**
+	 * @return The array of this tag without copying it, only valid if this tag does not view a buffer.
+	 * */
+	T array() {
+		return super.getValue();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T copyArray(T value) {
+		int length = Array.getLength(value);
+		T copy = (T) Array.newInstance(value.getClass().getComponentType(), length);
+		System.arraycopy(value, 0, copy, 0, length);
+		return copy;
+	}
+
+	/**
+	 * @return Whether the elements of this tag are still read from a buffer.
+	 * */
+	public boolean isView() {
+		return view != null;
+	}
+
+	/**
+	 * @return The buffer this tag views, or {@code null} if it holds an array.
+	 * */
+	protected ByteBuffer getView() {
+		return view;
+	}
+
+	/**
+	 * Copies the elements of a buffer viewed by this tag to a new array.
+	 * Implementations creating tags with {@link #ArrayTag(Object, ByteBuffer, int)} must override this.
+	 * @param view The viewed buffer.
+	 * @param length The amount of elements in {@code view}.
+	 * @return A new array holding the elements.
+	 * */
+	protected T copyView(ByteBuffer view, int length) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support buffer views");
+	}
+
+	/**
+	 * Creates a read-only view on {@code length * elementSize} bytes of {@code buffer} from its current position,
+	 * keeping the byte order of {@code buffer}. The position of {@code buffer} is not changed.
+	 * */
+	protected static ByteBuffer slice(ByteBuffer buffer, int length, int elementSize) {
+		if (length < 0) {
+			throw new IllegalArgumentException("negative array length " + length);
+		}
+		long size = (long) length * elementSize;
+		if (size > buffer.remaining()) {
+			throw new IndexOutOfBoundsException("array of " + size + " bytes exceeds the " + buffer.remaining() + " remaining bytes");
+		}
+		return buffer.slice(buffer.position(), (int) size).asReadOnlyBuffer().order(buffer.order());
+	}
+
+	/**
+	 * Counts the array of this tag. The bytes of a viewed buffer belong to whoever created the buffer, so only
+	 * the buffer object is counted for a view.
+	 * */
+	@Override
+	public long estimateRetainedBytes() {
+		long bytes = HeapSize.tag(HeapSize.REFERENCE + Integer.BYTES);
+		// the fields of a heap ByteBuffer
+		return bytes + ((view == null) ? HeapSize.array(array()) : HeapSize.object(40));
 	}
 
 	@Override
@@ -37,8 +136,9 @@ public abstract class ArrayTag<T> extends Tag<T> {
 
 	protected String arrayToString(String prefix, String suffix) {
 		StringBuilder sb = new StringBuilder("[").append(prefix).append("".equals(prefix) ? "" : ";");
+		T value = getValue();
 		for (int i = 0; i < length(); i++) {
-			sb.append(i == 0 ? "" : ",").append(Array.get(getValue(), i)).append(suffix);
+			sb.append(i == 0 ? "" : ",").append(Array.get(value, i)).append(suffix);
 		}
 		sb.append("]");
 		return sb.toString();
@@ -1,6 +1,8 @@
 package com.jkantrell.nbt.tag;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Objects;
 
 public class ByteArrayTag extends ArrayTag<byte[]> implements Comparable<ByteArrayTag> {
 
@@ -15,6 +17,56 @@ public class ByteArrayTag extends ArrayTag<byte[]> implements Comparable<ByteArr
 		super(value);
 	}
 
+	private ByteArrayTag(ByteBuffer view, int length) {
+		super(ZERO_VALUE, view, length);
+	}
+
+	/**
+	 * Creates a tag viewing {@code length} elements of {@code buffer} from its current position, without copying
+	 * them. The buffer can be memory-mapped or a decode buffer, and its content must not change while the tag views
+	 * it. The position of {@code buffer} is not changed.
+	 * @param buffer The buffer holding the elements.
+	 * @param length The amount of elements.
+	 * @return The new tag.
+	 * @throws IndexOutOfBoundsException If {@code buffer} has less than {@code length} elements remaining.
+	 * */
+	public static ByteArrayTag view(ByteBuffer buffer, int length) {
+		return new ByteArrayTag(slice(buffer, length, 1), length);
+	}
+
+	/**
+	 * Reads a single element without copying a viewed buffer.
+	 * @param index The index of the element.
+	 * @return The element.
+	 * */
+	public byte get(int index) {
+		Objects.checkIndex(index, length());
+		return isView() ? getView().get(index) : array()[index];
+	}
+
+	/**
+	 * Copies a range of elements without copying the rest of a viewed buffer.
+	 * @param index The index of the first element to copy.
+	 * @param dst The array to copy to.
+	 * @param offset The position in {@code dst} to copy to.
+	 * @param length The amount of elements to copy.
+	 * */
+	public void get(int index, byte[] dst, int offset, int length) {
+		Objects.checkFromIndexSize(index, length, length());
+		if (isView()) {
+			getView().get(index, dst, offset, length);
+		} else {
+			System.arraycopy(array(), index, dst, offset, length);
+		}
+	}
+
+	@Override
+	protected byte[] copyView(ByteBuffer view, int length) {
+		byte[] value = new byte[length];
+		view.get(0, value);
+		return value;
+	}
+
 	@Override
 	public byte getID() {
 		return ID;
@@ -22,12 +74,34 @@ public class ByteArrayTag extends ArrayTag<byte[]> implements Comparable<ByteArr
 
 	@Override
 	public boolean equals(Object other) {
-		return super.equals(other) && Arrays.equals(getValue(), ((ByteArrayTag) other).getValue());
+		if (!super.equals(other)) {
+			return false;
+		}
+		ByteArrayTag tag = (ByteArrayTag) other;
+		if (!isView() && !tag.isView()) {
+			return Arrays.equals(array(), tag.array());
+		}
+		if (length() != tag.length()) {
+			return false;
+		}
+		for (int i = 0; i < length(); i++) {
+			if (get(i) != tag.get(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(getValue());
+		if (!isView()) {
+			return Arrays.hashCode(array());
+		}
+		int hash = 1;
+		for (int i = 0; i < length(); i++) {
+			hash = 31 * hash + Byte.hashCode(get(i));
+		}
+		return hash;
 	}
 
 	@Override
@@ -37,6 +111,12 @@ public class ByteArrayTag extends ArrayTag<byte[]> implements Comparable<ByteArr
 
 	@Override
 	public ByteArrayTag clone() {
-		return new ByteArrayTag(Arrays.copyOf(getValue(), length()));
+		if (isFrozen()) {
+			return this;
+		}
+		if (isView()) {
+			return new ByteArrayTag(getView(), length());
+		}
+		return new ByteArrayTag(Arrays.copyOf(array(), length()));
 	}
 }
@@ -5,16 +5,36 @@ public class ByteTag extends NumberTag<Byte> implements Comparable<ByteTag> {
 	public static final byte ID = 1;
 	public static final byte ZERO_VALUE = 0;
 
+	private static final ByteTag[] CACHE = new ByteTag[256];
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new ByteTag((byte) i);
+			CACHE[i].freeze();
+		}
+	}
+
+	private byte value;
+
 	public ByteTag() {
-		super(ZERO_VALUE);
+		this(ZERO_VALUE);
 	}
 
 	public ByteTag(byte value) {
-		super(value);
+		this.value = value;
 	}
 
 	public ByteTag(boolean value) {
-		super((byte) (value ? 1 : 0));
+		this((byte) (value ? 1 : 0));
+	}
+
+	/**
+	 * Returns a frozen tag holding {@code value}. Every byte is cached, so the same instance is returned for equal
+	 * values, which lets read-only trees share their bytes and booleans.
+	 * @param value The value.
+	 * @return The shared frozen tag.
+	 * */
+	public static ByteTag valueOf(byte value) {
+		return CACHE[value & 0xFF];
 	}
 
 	@Override
@@ -22,26 +42,86 @@ public class ByteTag extends NumberTag<Byte> implements Comparable<ByteTag> {
 		return ID;
 	}
 
-	public boolean asBoolean() {
-		return getValue() > 0;
+	@Override
+	protected Byte getValue() {
+		return value;
+	}
+
+	@Override
+	protected void setValue(Byte value) {
+		setValue(value.byteValue());
 	}
 
 	public void setValue(byte value) {
-		super.setValue(value);
+		checkNotFrozen();
+		this.value = value;
+		changed();
+	}
+
+	public boolean asBoolean() {
+		return value > 0;
+	}
+
+	@Override
+	public byte asByte() {
+		return value;
+	}
+
+	@Override
+	public short asShort() {
+		return value;
+	}
+
+	@Override
+	public int asInt() {
+		return value;
+	}
+
+	@Override
+	public long asLong() {
+		return value;
+	}
+
+	@Override
+	public float asFloat() {
+		return value;
+	}
+
+	@Override
+	public double asDouble() {
+		return value;
+	}
+
+	@Override
+	public String valueToString(int maxDepth) {
+		return Byte.toString(value);
 	}
 
 	@Override
 	public boolean equals(Object other) {
-		return super.equals(other) && asByte() == ((ByteTag) other).asByte();
+		return super.equals(other) && value == ((ByteTag) other).value;
+	}
+
+	@Override
+	public int hashCode() {
+		return Byte.hashCode(value);
 	}
 
 	@Override
 	public int compareTo(ByteTag other) {
-		return getValue().compareTo(other.getValue());
+		return Byte.compare(value, other.value);
+	}
+
+	@Override
+	public long estimateRetainedBytes() {
+		return HeapSize.tag(Byte.BYTES);
 	}
 
 	@Override
 	public ByteTag clone() {
-		return new ByteTag(getValue());
+		if (isFrozen()) {
+			return this;
+		}
+		return new ByteTag(value);
 	}
 }
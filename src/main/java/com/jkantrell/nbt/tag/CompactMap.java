@@ -0,0 +1,353 @@
+package com.jkantrell.nbt.tag;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The map backing a {@link CompoundTag}.
+ * <p>Most compounds only hold a handful of entries, like block state properties or palette entries. Up to
+ * {@link #THRESHOLD} entries are stored in two parallel arrays and looked up by scanning the keys, which avoids
+ * the table and the node per entry of a {@link HashMap}. Small maps iterate in insertion order.
+ * Once the map grows past the threshold, its entries are moved to a {@link HashMap} for good.</p>
+ * <p>The map of a compound reports its changes to the compound and makes it the container of the tags put in it,
+ * so changing the entries or the tags in them invalidates the cached hash of the compound.</p>
+ * <p>A map can be frozen along with its compound, after which every change throws an
+ * {@link UnsupportedOperationException}.</p>
+ * <p>Null keys and values are not supported.</p>
+ * @param <V> The type of the values.
+ * */
+class CompactMap<V> extends AbstractMap<String, V> {
+
+	static final int THRESHOLD = 8;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private Object[] keys;
+	private Object[] values;
+	private int size;
+	private HashMap<String, V> table;
+	private int modCount;
+	private Tag<?> owner;
+	private boolean frozen;
+
+	CompactMap() {
+		this(0);
+	}
+
+	/**
+	 * @param expectedSize The amount of entries the map is expected to hold.
+	 * */
+	CompactMap(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("negative expected size " + expectedSize);
+		}
+		if (expectedSize > THRESHOLD) {
+			table = new HashMap<>((int) Math.ceil(expectedSize / 0.75f));
+		} else if (expectedSize == 0) {
+			keys = EMPTY;
+			values = EMPTY;
+		} else {
+			keys = new Object[expectedSize];
+			values = new Object[expectedSize];
+		}
+	}
+
+	@Override
+	public int size() {
+		return table == null ? size : table.size();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return table == null ? indexOf(key) >= 0 : table.containsKey(key);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		if (table != null) {
+			return table.get(key);
+		}
+		int i = indexOf(key);
+		return i < 0 ? null : (V) values[i];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(String key, V value) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+		checkNotFrozen();
+		changed();
+		adopt(value);
+		if (table != null) {
+			V old = table.put(key, value);
+			if (old != value) {
+				release(old);
+			}
+			return old;
+		}
+		int i = indexOf(key);
+		if (i >= 0) {
+			V old = (V) values[i];
+			values[i] = value;
+			if (old != value) {
+				release(old);
+			}
+			return old;
+		}
+		modCount++;
+		if (size == THRESHOLD) {
+			table = new HashMap<>((int) Math.ceil(THRESHOLD * 2 / 0.75f));
+			for (int j = 0; j < size; j++) {
+				table.put((String) keys[j], (V) values[j]);
+			}
+			keys = null;
+			values = null;
+			size = 0;
+			return table.put(key, value);
+		}
+		if (size == keys.length) {
+			int capacity = Math.min(Math.max(size * 2, 2), THRESHOLD);
+			keys = Arrays.copyOf(keys, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		keys[size] = key;
+		values[size++] = value;
+		return null;
+	}
+
+	@Override
+	public V remove(Object key) {
+		checkNotFrozen();
+		if (table != null) {
+			changed();
+			V old = table.remove(key);
+			release(old);
+			return old;
+		}
+		int i = indexOf(key);
+		return i < 0 ? null : removeAt(i);
+	}
+
+	@Override
+	public void clear() {
+		checkNotFrozen();
+		changed();
+		if (table != null) {
+			table.values().forEach(this::release);
+			table.clear();
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			release(values[i]);
+		}
+		modCount++;
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+	}
+
+	@Override
+	public Set<Map.Entry<String, V>> entrySet() {
+		if (table != null) {
+			return frozen ? Collections.unmodifiableMap(table).entrySet() : table.entrySet();
+		}
+		return new AbstractSet<>() {
+			@Override
+			public Iterator<Map.Entry<String, V>> iterator() {
+				return table == null ? new EntryIterator() : table.entrySet().iterator();
+			}
+
+			@Override
+			public int size() {
+				return CompactMap.this.size();
+			}
+		};
+	}
+
+	private int indexOf(Object key) {
+		if (key == null) {
+			return -1;
+		}
+		for (int i = 0; i < size; i++) {
+			if (key.equals(keys[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V removeAt(int i) {
+		checkNotFrozen();
+		V old = (V) values[i];
+		int moved = size - i - 1;
+		System.arraycopy(keys, i + 1, keys, i, moved);
+		System.arraycopy(values, i + 1, values, i, moved);
+		keys[--size] = null;
+		values[size] = null;
+		modCount++;
+		changed();
+		release(old);
+		return old;
+	}
+
+	/**
+	 * @return Whether the entries are stored in the arrays, where every change goes through this map.
+	 * */
+	boolean isCompact() {
+		return table == null;
+	}
+
+	/**
+	 * @return The estimated size of this map and its arrays or table, without the keys and values.
+	 * */
+	long estimateShallowBytes() {
+		// keys, values, table, owner and the cached views of AbstractMap, then size, modCount and the flag
+		long bytes = HeapSize.object(6 * HeapSize.REFERENCE + 2 * Integer.BYTES + 1);
+		if (table != null) {
+			return bytes + HeapSize.hashMap(table.size());
+		}
+		return bytes + 2 * HeapSize.array(keys.length, HeapSize.REFERENCE);
+	}
+
+	/**
+	 * Makes this map report its changes to {@code owner} and makes {@code owner} the container of its tags.
+	 * @param owner The compound backed by this map.
+	 * */
+	void setOwner(Tag<?> owner) {
+		this.owner = owner;
+		if (table != null) {
+			table.values().forEach(this::adopt);
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			adopt(values[i]);
+		}
+	}
+
+	/**
+	 * Rejects every further change of this map.
+	 * */
+	void freeze() {
+		frozen = true;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new UnsupportedOperationException("CompoundTag is frozen");
+		}
+	}
+
+	private void changed() {
+		if (owner != null) {
+			owner.changed();
+		}
+	}
+
+	private void adopt(Object value) {
+		if (owner != null) {
+			owner.adopt((Tag<?>) value);
+		}
+	}
+
+	private void release(Object value) {
+		if (owner != null && value != null) {
+			owner.release((Tag<?>) value);
+		}
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<String, V>> {
+
+		private int next;
+		private int last = -1;
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Map.Entry<String, V> next() {
+			checkModCount();
+			if (next >= size) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return new Entry(last);
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			checkModCount();
+			removeAt(last);
+			next = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
+
+		private void checkModCount() {
+			if (table != null || modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	private class Entry implements Map.Entry<String, V> {
+
+		private final String key;
+		private V value;
+
+		@SuppressWarnings("unchecked")
+		private Entry(int index) {
+			key = (String) keys[index];
+			value = (V) values[index];
+		}
+
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public V setValue(V value) {
+			V old = put(key, value);
+			this.value = value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Map.Entry<?, ?> e && key.equals(e.getKey()) && Objects.equals(value, e.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode() ^ Objects.hashCode(value);
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+}
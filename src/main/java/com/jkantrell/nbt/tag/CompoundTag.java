@@ -1,7 +1,6 @@
 package com.jkantrell.nbt.tag;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
@@ -15,12 +14,26 @@ public class CompoundTag extends Tag<Map<String, Tag<?>>>
 
 	public static final byte ID = 10;
 
+	private int hash;
+	private volatile boolean hashed;
+
 	public CompoundTag() {
 		super(createEmptyValue());
 	}
 
+	/**
+	 * @param initialCapacity The amount of entries this compound is expected to hold.
+	 * */
 	public CompoundTag(int initialCapacity) {
-		super(new HashMap<>(initialCapacity));
+		super(new CompactMap<>(initialCapacity));
+	}
+
+	/**
+	 * Creates a compound backed by a custom map, for subclasses storing their entries differently.
+	 * @param value The map holding the entries of this compound.
+	 * */
+	protected CompoundTag(Map<String, Tag<?>> value) {
+		super(value);
 	}
 
 	@Override
@@ -28,8 +41,19 @@ public class CompoundTag extends Tag<Map<String, Tag<?>>>
 		return ID;
 	}
 
+	/**
+	 * Makes a compact map report its changes to this compound.
+	 * */
+	@Override
+	protected void setValue(Map<String, Tag<?>> value) {
+		super.setValue(value);
+		if (value instanceof CompactMap<Tag<?>> map) {
+			map.setOwner(this);
+		}
+	}
+
 	private static Map<String, Tag<?>> createEmptyValue() {
-		return new HashMap<>(8);
+		return new CompactMap<>();
 	}
 
 	public int size() {
@@ -181,16 +205,25 @@ public class CompoundTag extends Tag<Map<String, Tag<?>>>
 		return t == null ? StringTag.ZERO_VALUE : t.getValue();
 	}
 
+	/**
+	 * @return The array of the tag, which is a copy if the tag is frozen, so writing to it does not change the tag.
+	 * */
 	public byte[] getByteArray(String key) {
 		ByteArrayTag t = getByteArrayTag(key);
 		return t == null ? ByteArrayTag.ZERO_VALUE : t.getValue();
 	}
 
+	/**
+	 * @return The array of the tag, which is a copy if the tag is frozen, so writing to it does not change the tag.
+	 * */
 	public int[] getIntArray(String key) {
 		IntArrayTag t = getIntArrayTag(key);
 		return t == null ? IntArrayTag.ZERO_VALUE : t.getValue();
 	}
 
+	/**
+	 * @return The array of the tag, which is a copy if the tag is frozen, so writing to it does not change the tag.
+	 * */
 	public long[] getLongArray(String key) {
 		LongArrayTag t = getLongArrayTag(key);
 		return t == null ? LongArrayTag.ZERO_VALUE : t.getValue();
@@ -270,7 +303,10 @@ public class CompoundTag extends Tag<Map<String, Tag<?>>>
 		if (this == other) {
 			return true;
 		}
-		if (!super.equals(other) || size() != ((CompoundTag) other).size()) {
+		if (!(other instanceof CompoundTag) || size() != ((CompoundTag) other).size()) {
+			return false;
+		}
+		if (hashed && ((CompoundTag) other).hashed && hash != ((CompoundTag) other).hash) {
 			return false;
 		}
 		for (Map.Entry<String, Tag<?>> e : getValue().entrySet()) {
@@ -282,6 +318,141 @@ public class CompoundTag extends Tag<Map<String, Tag<?>>>
 		return true;
 	}
 
+	/**
+	 * Returns the hash of the entries of this compound. The hash is cached until this compound or a tag nested in
+	 * it changes, as every change is reported up to the compounds and lists holding the changed tag.
+	 * Compounds holding array tags, which can be modified in place, or more than a few entries are hashed on
+	 * every call, unless the compound is frozen. Computing the hash only writes the cache of this compound,
+	 * never the tags in it.
+	 * */
+	@Override
+	public int hashCode() {
+		if (hashed) {
+			return hash;
+		}
+		Map<String, Tag<?>> map = getValue();
+		boolean cacheable = map instanceof CompactMap && ((CompactMap<?>) map).isCompact();
+		int h = 0;
+		for (Map.Entry<String, Tag<?>> e : map.entrySet()) {
+			Tag<?> tag = e.getValue();
+			h += e.getKey().hashCode() ^ tag.hashCode();
+			cacheable = cacheable && tag.isHashTracked() && tag.isHashedBy(this);
+		}
+		if (cacheable) {
+			// the flag is written last, so a thread reading it also sees the hash
+			hash = h;
+			hashed = true;
+		}
+		return h;
+	}
+
+	/**
+	 * Counts this compound, its map, every key and every tag in it.
+	 * */
+	@Override
+	public long estimateRetainedBytes() {
+		Map<String, Tag<?>> map = getValue();
+		long bytes = HeapSize.tag(Integer.BYTES + 1);
+		bytes += (map instanceof CompactMap<?> compact) ? compact.estimateShallowBytes() : HeapSize.hashMap(map.size());
+		for (Map.Entry<String, Tag<?>> e : map.entrySet()) {
+			bytes += HeapSize.string(e.getKey()) + e.getValue().estimateRetainedBytes();
+		}
+		return bytes;
+	}
+
+	@Override
+	void changed() {
+		if (hashed) {
+			hashed = false;
+			super.changed();
+		}
+	}
+
+	@Override
+	boolean isHashTracked() {
+		return hashed;
+	}
+
+	/**
+	 * Freezes every tag in this compound, then this compound, and computes its hash for good.
+	 * A compound backed by a custom map is switched to the default map, holding the same tags.
+	 * @return This compound.
+	 * */
+	@Override
+	@SuppressWarnings("unchecked")
+	public CompoundTag freeze() {
+		if (isFrozen()) {
+			return this;
+		}
+		Map<String, Tag<?>> map = getValue();
+		CompactMap<Tag<?>> frozen;
+		if (map instanceof CompactMap) {
+			frozen = (CompactMap<Tag<?>>) map;
+		} else {
+			frozen = new CompactMap<>(map.size());
+			frozen.putAll(map);
+			setValue(frozen);
+		}
+		for (Tag<?> tag : frozen.values()) {
+			tag.freeze();
+		}
+		frozen.freeze();
+		hash = hashCode();
+		hashed = true;
+		super.freeze();
+		return this;
+	}
+
+	/**
+	 * Creates a frozen copy of this compound with {@code key} mapped to {@code tag}. Frozen tags are shared with
+	 * the copy, so changing a frozen tree only copies the compounds on the path to the change.
+	 * Mutable tags are cloned before they are frozen.
+	 * @param key The key to map.
+	 * @param tag The tag to map {@code key} to. It is frozen.
+	 * @return The new compound.
+	 * */
+	public CompoundTag with(String key, Tag<?> tag) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(tag);
+		CompoundTag copy = new CompoundTag(containsKey(key) ? size() : size() + 1);
+		for (Map.Entry<String, Tag<?>> e : getValue().entrySet()) {
+			copy.put(e.getKey(), key.equals(e.getKey()) ? tag : e.getValue().clone());
+		}
+		copy.put(key, tag);
+		return copy.freeze();
+	}
+
+	/**
+	 * Creates a frozen copy of this compound without {@code key}, sharing frozen tags like {@link #with(String, Tag)}.
+	 * @param key The key to remove.
+	 * @return The new compound, or this compound if it is frozen and does not contain {@code key}.
+	 * */
+	public CompoundTag without(String key) {
+		if (isFrozen() && !containsKey(key)) {
+			return this;
+		}
+		CompoundTag copy = new CompoundTag(size());
+		for (Map.Entry<String, Tag<?>> e : getValue().entrySet()) {
+			if (!e.getKey().equals(key)) {
+				copy.put(e.getKey(), e.getValue().clone());
+			}
+		}
+		return copy.freeze();
+	}
+
+	/**
+	 * Creates a mutable compound holding the same tags as this compound. Frozen tags stay frozen and shared,
+	 * so nested tags have to be thawed or replaced to be changed.
+	 * @return The new compound.
+	 * */
+	public CompoundTag thaw() {
+		CompoundTag copy = new CompoundTag(size());
+		for (Map.Entry<String, Tag<?>> e : getValue().entrySet()) {
+			copy.put(e.getKey(), e.getValue());
+		}
+		return copy;
+	}
+
 	@Override
 	public int compareTo(CompoundTag o) {
 		return Integer.compare(size(), o.getValue().size());
@@ -289,8 +460,10 @@ public class CompoundTag extends Tag<Map<String, Tag<?>>>
 
 	@Override
 	public CompoundTag clone() {
-		// Choose initial capacity based on default load factor (0.75) so all entries fit in map without resizing
-		CompoundTag copy = new CompoundTag((int) Math.ceil(getValue().size() / 0.75f));
+		if (isFrozen()) {
+			return this;
+		}
+		CompoundTag copy = new CompoundTag(getValue().size());
 		for (Map.Entry<String, Tag<?>> e : getValue().entrySet()) {
 			copy.put(e.getKey(), e.getValue().clone());
 		}
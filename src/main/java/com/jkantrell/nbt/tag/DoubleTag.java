@@ -5,12 +5,14 @@ public class DoubleTag extends NumberTag<Double> implements Comparable<DoubleTag
 	public static final byte ID = 6;
 	public static final double ZERO_VALUE = 0.0D;
 
+	private double value;
+
 	public DoubleTag() {
-		super(ZERO_VALUE);
+		this(ZERO_VALUE);
 	}
 
 	public DoubleTag(double value) {
-		super(value);
+		this.value = value;
 	}
 
 	@Override
@@ -18,22 +20,82 @@ public class DoubleTag extends NumberTag<Double> implements Comparable<DoubleTag
 		return ID;
 	}
 
+	@Override
+	protected Double getValue() {
+		return value;
+	}
+
+	@Override
+	protected void setValue(Double value) {
+		setValue(value.doubleValue());
+	}
+
 	public void setValue(double value) {
-		super.setValue(value);
+		checkNotFrozen();
+		this.value = value;
+		changed();
+	}
+
+	@Override
+	public byte asByte() {
+		return (byte) (int) value;
+	}
+
+	@Override
+	public short asShort() {
+		return (short) (int) value;
+	}
+
+	@Override
+	public int asInt() {
+		return (int) value;
+	}
+
+	@Override
+	public long asLong() {
+		return (long) value;
+	}
+
+	@Override
+	public float asFloat() {
+		return (float) value;
+	}
+
+	@Override
+	public double asDouble() {
+		return value;
+	}
+
+	@Override
+	public String valueToString(int maxDepth) {
+		return Double.toString(value);
 	}
 
 	@Override
 	public boolean equals(Object other) {
-		return super.equals(other) && getValue().equals(((DoubleTag) other).getValue());
+		return super.equals(other) && Double.doubleToLongBits(value) == Double.doubleToLongBits(((DoubleTag) other).value);
+	}
+
+	@Override
+	public int hashCode() {
+		return Double.hashCode(value);
 	}
 
 	@Override
 	public int compareTo(DoubleTag other) {
-		return getValue().compareTo(other.getValue());
+		return Double.compare(value, other.value);
+	}
+
+	@Override
+	public long estimateRetainedBytes() {
+		return HeapSize.tag(Double.BYTES);
 	}
 
 	@Override
 	public DoubleTag clone() {
-		return new DoubleTag(getValue());
+		if (isFrozen()) {
+			return this;
+		}
+		return new DoubleTag(value);
 	}
 }
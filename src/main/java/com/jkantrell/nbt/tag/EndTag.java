@@ -24,8 +24,21 @@ public final class EndTag extends Tag<Void> {
 		return "\"end\"";
 	}
 
+	/**
+	 * @return {@code 0}, as the only instance is shared.
+	 * */
+	@Override
+	public long estimateRetainedBytes() {
+		return 0;
+	}
+
 	@Override
 	public EndTag clone() {
 		return INSTANCE;
 	}
+
+	@Override
+	boolean isHashTracked() {
+		return true;
+	}
 }
@@ -5,12 +5,14 @@ public class FloatTag extends NumberTag<Float> implements Comparable<FloatTag> {
 	public static final byte ID = 5;
 	public static final float ZERO_VALUE = 0.0F;
 
+	private float value;
+
 	public FloatTag() {
-		super(ZERO_VALUE);
+		this(ZERO_VALUE);
 	}
 
 	public FloatTag(float value) {
-		super(value);
+		this.value = value;
 	}
 
 	@Override
@@ -18,22 +20,82 @@ public class FloatTag extends NumberTag<Float> implements Comparable<FloatTag> {
 		return ID;
 	}
 
+	@Override
+	protected Float getValue() {
+		return value;
+	}
+
+	@Override
+	protected void setValue(Float value) {
+		setValue(value.floatValue());
+	}
+
 	public void setValue(float value) {
-		super.setValue(value);
+		checkNotFrozen();
+		this.value = value;
+		changed();
+	}
+
+	@Override
+	public byte asByte() {
+		return (byte) (int) value;
+	}
+
+	@Override
+	public short asShort() {
+		return (short) (int) value;
+	}
+
+	@Override
+	public int asInt() {
+		return (int) value;
+	}
+
+	@Override
+	public long asLong() {
+		return (long) value;
+	}
+
+	@Override
+	public float asFloat() {
+		return value;
+	}
+
+	@Override
+	public double asDouble() {
+		return value;
+	}
+
+	@Override
+	public String valueToString(int maxDepth) {
+		return Float.toString(value);
 	}
 
 	@Override
 	public boolean equals(Object other) {
-		return super.equals(other) && getValue().equals(((FloatTag) other).getValue());
+		return super.equals(other) && Float.floatToIntBits(value) == Float.floatToIntBits(((FloatTag) other).value);
+	}
+
+	@Override
+	public int hashCode() {
+		return Float.hashCode(value);
 	}
 
 	@Override
 	public int compareTo(FloatTag other) {
-		return getValue().compareTo(other.getValue());
+		return Float.compare(value, other.value);
+	}
+
+	@Override
+	public long estimateRetainedBytes() {
+		return HeapSize.tag(Float.BYTES);
 	}
 
 	@Override
 	public FloatTag clone() {
-		return new FloatTag(getValue());
+		if (isFrozen()) {
+			return this;
+		}
+		return new FloatTag(value);
 	}
 }
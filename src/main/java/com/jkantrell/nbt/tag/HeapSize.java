@@ -0,0 +1,121 @@
+package com.jkantrell.nbt.tag;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Estimates the heap size of objects, assuming a 64-bit JVM with compressed references and 8 byte alignment,
+ * the default layout for heaps below 32 GB.
+ * <p>The estimates are meant to compare structures and track memory over time, not to match a heap dump
+ * to the byte. They are used by {@link Tag#estimateRetainedBytes()} and the region classes.</p>
+ * */
+public final class HeapSize {
+
+	public static final int OBJECT_HEADER = 12;
+	public static final int ARRAY_HEADER = 16;
+	public static final int REFERENCE = 4;
+
+	private static final int ALIGNMENT = 8;
+	private static final int TAG_FIELDS = 2 * REFERENCE;
+	private static final int HASH_MAP_FIELDS = 6 * REFERENCE + 4 * Integer.BYTES;
+	private static final int HASH_MAP_NODE_FIELDS = Integer.BYTES + 3 * REFERENCE;
+	private static final int STRING_FIELDS = REFERENCE + Integer.BYTES + 2;
+
+	private HeapSize() {}
+
+	/**
+	 * @param fieldBytes The bytes taken by the fields of an object, including inherited ones.
+	 * @return The size of the object.
+	 * */
+	public static long object(long fieldBytes) {
+		return align(OBJECT_HEADER + fieldBytes);
+	}
+
+	/**
+	 * @param length The length of an array.
+	 * @param elementBytes The bytes taken by each element, {@link #REFERENCE} for object arrays.
+	 * @return The size of the array, without the objects it references.
+	 * */
+	public static long array(long length, int elementBytes) {
+		return align(ARRAY_HEADER + length * elementBytes);
+	}
+
+	/**
+	 * @param array A primitive array.
+	 * @return The size of the array.
+	 * */
+	public static long array(Object array) {
+		return array(Array.getLength(array), valueBytes(array.getClass().getComponentType()));
+	}
+
+	/**
+	 * @param type A class.
+	 * @return The bytes taken by the instance fields of the class, including inherited ones, to be passed to
+	 *         {@link #object(long)}.
+	 * */
+	public static long fields(Class<?> type) {
+		long bytes = 0;
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					bytes += valueBytes(field.getType());
+				}
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param s A string.
+	 * @return The size of the string and its bytes, which are one byte per character if every character is Latin-1.
+	 * */
+	public static long string(String s) {
+		int bytesPerChar = 1;
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) > 0xFF) {
+				bytesPerChar = 2;
+				break;
+			}
+		}
+		return object(STRING_FIELDS) + array(s.length(), bytesPerChar);
+	}
+
+	/**
+	 * @param size The amount of entries of a {@link java.util.HashMap} filled without removals.
+	 * @return The size of the map, its table and its nodes, without the keys and values.
+	 * */
+	public static long hashMap(int size) {
+		long bytes = object(HASH_MAP_FIELDS) + size * object(HASH_MAP_NODE_FIELDS);
+		if (size > 0) {
+			int table = Integer.highestOneBit(Math.max((int) Math.ceil(size / 0.75), 1) - 1) << 1;
+			bytes += array(Math.max(table, 16), REFERENCE);
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param fieldBytes The bytes taken by the fields a tag declares on top of those of {@link Tag}.
+	 * @return The size of the tag object.
+	 * */
+	static long tag(int fieldBytes) {
+		return object(TAG_FIELDS + fieldBytes);
+	}
+
+	private static int valueBytes(Class<?> type) {
+		if (type == byte.class || type == boolean.class) {
+			return 1;
+		} else if (type == short.class || type == char.class) {
+			return 2;
+		} else if (type == long.class || type == double.class) {
+			return 8;
+		} else if (type == int.class || type == float.class) {
+			return 4;
+		}
+		return REFERENCE;
+	}
+
+	private static long align(long bytes) {
+		return (bytes + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+}
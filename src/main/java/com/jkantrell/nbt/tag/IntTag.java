@@ -5,12 +5,40 @@ public class IntTag extends NumberTag<Integer> implements Comparable<IntTag> {
 	public static final byte ID = 3;
 	public static final int ZERO_VALUE = 0;
 
+	private static final int CACHE_LOW = -128;
+	private static final int CACHE_HIGH = 1024;
+
+	private static final IntTag[] CACHE = new IntTag[CACHE_HIGH - CACHE_LOW + 1];
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new IntTag(i + CACHE_LOW);
+			CACHE[i].freeze();
+		}
+	}
+
+	private int value;
+
 	public IntTag() {
-		super(ZERO_VALUE);
+		this(ZERO_VALUE);
 	}
 
 	public IntTag(int value) {
-		super(value);
+		this.value = value;
+	}
+
+	/**
+	 * Returns a frozen tag holding {@code value}. Values from {@value #CACHE_LOW} to {@value #CACHE_HIGH} are
+	 * cached, so read-only trees share one instance per common value.
+	 * @param value The value.
+	 * @return A frozen tag, shared if {@code value} is cached.
+	 * */
+	public static IntTag valueOf(int value) {
+		if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+			return CACHE[value - CACHE_LOW];
+		}
+		IntTag tag = new IntTag(value);
+		tag.freeze();
+		return tag;
 	}
 
 	@Override
@@ -18,22 +46,82 @@ public class IntTag extends NumberTag<Integer> implements Comparable<IntTag> {
 		return ID;
 	}
 
+	@Override
+	protected Integer getValue() {
+		return value;
+	}
+
+	@Override
+	protected void setValue(Integer value) {
+		setValue(value.intValue());
+	}
+
 	public void setValue(int value) {
-		super.setValue(value);
+		checkNotFrozen();
+		this.value = value;
+		changed();
+	}
+
+	@Override
+	public byte asByte() {
+		return (byte) value;
+	}
+
+	@Override
+	public short asShort() {
+		return (short) value;
+	}
+
+	@Override
+	public int asInt() {
+		return value;
+	}
+
+	@Override
+	public long asLong() {
+		return value;
+	}
+
+	@Override
+	public float asFloat() {
+		return (float) value;
+	}
+
+	@Override
+	public double asDouble() {
+		return value;
+	}
+
+	@Override
+	public String valueToString(int maxDepth) {
+		return Integer.toString(value);
 	}
 
 	@Override
 	public boolean equals(Object other) {
-		return super.equals(other) && asInt() == ((IntTag) other).asInt();
+		return super.equals(other) && value == ((IntTag) other).value;
+	}
+
+	@Override
+	public int hashCode() {
+		return Integer.hashCode(value);
 	}
 
 	@Override
 	public int compareTo(IntTag other) {
-		return getValue().compareTo(other.getValue());
+		return Integer.compare(value, other.value);
+	}
+
+	@Override
+	public long estimateRetainedBytes() {
+		return HeapSize.tag(Integer.BYTES);
 	}
 
 	@Override
 	public IntTag clone() {
-		return new IntTag(getValue());
+		if (isFrozen()) {
+			return this;
+		}
+		return new IntTag(value);
 	}
 }
@@ -15,15 +15,20 @@ import com.jkantrell.io.MaxDepthIO;
  * An empty {@link ListTag} will be of type {@link EndTag} (unknown type).
  * The type of an empty untyped {@link ListTag} can be set by using any of the {@code add()}
  * methods or any of the {@code as...List()} methods.
+ * <p>Lists of numbers store their elements as primitives and only create a tag for an element once it is accessed
+ * with {@link #get(int)}. The typed getters like {@link #getDouble(int)} and adders like {@link #addDouble(double)}
+ * never create tags.</p>
  */
 public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<T>, Comparable<ListTag<T>>, MaxDepthIO {
 
 	public static final byte ID = 9;
 
 	private Class<?> typeClass = null;
+	private int hash;
+	private volatile boolean hashed;
 
-	private ListTag(int initialCapacity) {
-		super(createEmptyValue(initialCapacity));
+	private ListTag(List<T> value) {
+		super(value);
 	}
 
 	@Override
@@ -31,6 +36,17 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 		return ID;
 	}
 
+	/**
+	 * Makes a list of numbers report the tags created for its elements to this list.
+	 * */
+	@Override
+	protected void setValue(List<T> value) {
+		super.setValue(value);
+		if (value instanceof NumberList<T> numbers) {
+			numbers.setOwner(this);
+		}
+	}
+
 	/**
 	 * <p>Creates a non-type-safe ListTag. Its element type will be set after the first
 	 * element was added.</p>
@@ -54,7 +70,7 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	 * @return A new non-type-safe ListTag
 	 */
 	public static ListTag<?> createUnchecked(Class<?> typeClass, int initialCapacity) {
-		ListTag<?> list = new ListTag<>(initialCapacity);
+		ListTag<?> list = new ListTag<>(createEmptyValue(typeClass, initialCapacity));
 		list.typeClass = typeClass;
 		return list;
 	}
@@ -63,10 +79,14 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	 * <p>Creates an empty mutable list to be used as empty value of ListTags.</p>
 	 *
 	 * @param <T>             Type of the list elements
+	 * @param typeClass       The class of the elements
 	 * @param initialCapacity The initial capacity of the returned List
-	 * @return An instance of {@link java.util.List} with an initial capacity of 3
+	 * @return A {@link NumberList} for numbers, an {@link ArrayList} otherwise
 	 */
-	private static <T> List<T> createEmptyValue(int initialCapacity) {
+	private static <T extends Tag<?>> List<T> createEmptyValue(Class<?> typeClass, int initialCapacity) {
+		if (NumberList.supports(typeClass)) {
+			return new NumberList<>(NumberList.idOf(typeClass), initialCapacity);
+		}
 		return new ArrayList<>(initialCapacity);
 	}
 
@@ -86,7 +106,7 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	 * @throws NullPointerException     When {@code typeClass} is {@code null}
 	 */
 	public ListTag(Class<? super T> typeClass, int initialCapacity) throws IllegalArgumentException, NullPointerException {
-		super(createEmptyValue(initialCapacity));
+		super(createEmptyValue(typeClass, initialCapacity));
 		if (typeClass == EndTag.class) {
 			throw new IllegalArgumentException("cannot create ListTag with EndTag elements");
 		}
@@ -102,10 +122,21 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	}
 
 	public T remove(int index) {
-		return getValue().remove(index);
+		checkNotFrozen();
+		T removed = getValue().remove(index);
+		changed();
+		release(removed);
+		return removed;
 	}
 
 	public void clear() {
+		checkNotFrozen();
+		changed();
+		if (getValue() instanceof NumberList<?> numbers) {
+			numbers.releaseTags();
+		} else {
+			getValue().forEach(this::release);
+		}
 		getValue().clear();
 	}
 
@@ -118,12 +149,35 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	}
 
 	public void sort(Comparator<T> comparator) {
+		checkNotFrozen();
+		changed();
 		getValue().sort(comparator);
 	}
 
 	@Override
 	public Iterator<T> iterator() {
-		return getValue().iterator();
+		Iterator<T> iterator = getValue().iterator();
+		return new Iterator<>() {
+			private T last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return last = iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				checkNotFrozen();
+				iterator.remove();
+				changed();
+				release(last);
+			}
+		};
 	}
 
 	@Override
@@ -132,7 +186,14 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	}
 
 	public T set(int index, T t) {
-		return getValue().set(index, Objects.requireNonNull(t));
+		checkNotFrozen();
+		T old = getValue().set(index, Objects.requireNonNull(t));
+		changed();
+		adopt(t);
+		if (old != t) {
+			release(old);
+		}
+		return old;
 	}
 
 	/**
@@ -145,16 +206,22 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	}
 
 	public void add(int index, T t) {
+		checkNotFrozen();
 		Objects.requireNonNull(t);
 		if (getTypeClass() == EndTag.class) {
-			typeClass = t.getClass();
-		} else if (typeClass != t.getClass()) {
+			typeClass = elementClass(t);
+			if (NumberList.supports(typeClass) && getValue().isEmpty()) {
+				setValue(createEmptyValue(typeClass, 3));
+			}
+		} else if (typeClass != elementClass(t)) {
 			throw new ClassCastException(
 					String.format("cannot add %s to ListTag<%s>",
 							t.getClass().getSimpleName(),
 							typeClass.getSimpleName()));
 		}
 		getValue().add(index, t);
+		changed();
+		adopt(t);
 	}
 
 	public void addAll(Collection<T> t) {
@@ -176,27 +243,39 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	}
 
 	public void addByte(byte value) {
-		addUnchecked(new ByteTag(value));
+		if (!addBits(ByteTag.class, value)) {
+			addUnchecked(new ByteTag(value));
+		}
 	}
 
 	public void addShort(short value) {
-		addUnchecked(new ShortTag(value));
+		if (!addBits(ShortTag.class, value)) {
+			addUnchecked(new ShortTag(value));
+		}
 	}
 
 	public void addInt(int value) {
-		addUnchecked(new IntTag(value));
+		if (!addBits(IntTag.class, value)) {
+			addUnchecked(new IntTag(value));
+		}
 	}
 
 	public void addLong(long value) {
-		addUnchecked(new LongTag(value));
+		if (!addBits(LongTag.class, value)) {
+			addUnchecked(new LongTag(value));
+		}
 	}
 
 	public void addFloat(float value) {
-		addUnchecked(new FloatTag(value));
+		if (!addBits(FloatTag.class, Float.floatToRawIntBits(value))) {
+			addUnchecked(new FloatTag(value));
+		}
 	}
 
 	public void addDouble(double value) {
-		addUnchecked(new DoubleTag(value));
+		if (!addBits(DoubleTag.class, Double.doubleToRawLongBits(value))) {
+			addUnchecked(new DoubleTag(value));
+		}
 	}
 
 	public void addString(String value) {
@@ -219,6 +298,48 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 		return getValue().get(index);
 	}
 
+	public byte getByte(int index) {
+		if (getValue() instanceof NumberList<?> numbers) {
+			return numbers.isFloatingPoint() ? (byte) (int) numbers.getDouble(index) : (byte) numbers.bits(index);
+		}
+		return ((NumberTag<?>) get(index)).asByte();
+	}
+
+	public short getShort(int index) {
+		if (getValue() instanceof NumberList<?> numbers) {
+			return numbers.isFloatingPoint() ? (short) (int) numbers.getDouble(index) : (short) numbers.bits(index);
+		}
+		return ((NumberTag<?>) get(index)).asShort();
+	}
+
+	public int getInt(int index) {
+		if (getValue() instanceof NumberList<?> numbers) {
+			return numbers.isFloatingPoint() ? (int) numbers.getDouble(index) : (int) numbers.bits(index);
+		}
+		return ((NumberTag<?>) get(index)).asInt();
+	}
+
+	public long getLong(int index) {
+		if (getValue() instanceof NumberList<?> numbers) {
+			return numbers.isFloatingPoint() ? (long) numbers.getDouble(index) : numbers.bits(index);
+		}
+		return ((NumberTag<?>) get(index)).asLong();
+	}
+
+	public float getFloat(int index) {
+		if (getValue() instanceof NumberList<?> numbers) {
+			return numbers.isFloatingPoint() ? (float) numbers.getDouble(index) : (float) numbers.bits(index);
+		}
+		return ((NumberTag<?>) get(index)).asFloat();
+	}
+
+	public double getDouble(int index) {
+		if (getValue() instanceof NumberList<?> numbers) {
+			return numbers.isFloatingPoint() ? numbers.getDouble(index) : (double) numbers.bits(index);
+		}
+		return ((NumberTag<?>) get(index)).asDouble();
+	}
+
 	public int indexOf(T t) {
 		return getValue().indexOf(t);
 	}
@@ -272,7 +393,9 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	@SuppressWarnings("unchecked")
 	public ListTag<ListTag<?>> asListTagList() {
 		checkTypeClass(ListTag.class);
-		typeClass = ListTag.class;
+		if (!isFrozen()) {
+			typeClass = ListTag.class;
+		}
 		return (ListTag<ListTag<?>>) this;
 	}
 
@@ -299,6 +422,12 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 				.getTypeClass()) {
 			return false;
 		}
+		if (hashed && ((ListTag<?>) other).hashed && hash != ((ListTag<?>) other).hash) {
+			return false;
+		}
+		if (getValue() instanceof NumberList<?> numbers && ((ListTag<?>) other).getValue() instanceof NumberList<?> others) {
+			return numbers.elementsEqual(others);
+		}
 		for (int i = 0; i < size(); i++) {
 			if (!get(i).equals(((ListTag<?>) other).get(i))) {
 				return false;
@@ -307,9 +436,102 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 		return true;
 	}
 
+	/**
+	 * Returns the hash of the elements of this list. Like {@link CompoundTag#hashCode()}, the hash is cached until
+	 * this list or a tag nested in it changes, if every element reports its changes.
+	 * */
 	@Override
 	public int hashCode() {
-		return Objects.hash(getTypeClass().hashCode(), getValue().hashCode());
+		if (hashed) {
+			return hash;
+		}
+		int h = 1;
+		boolean cacheable = true;
+		if (getValue() instanceof NumberList<?> numbers) {
+			h = numbers.hashElements();
+			cacheable = numbers.isHashedBy(this);
+		} else {
+			for (T t : getValue()) {
+				h = 31 * h + t.hashCode();
+				cacheable = cacheable && t.isHashTracked() && t.isHashedBy(this);
+			}
+		}
+		h = Objects.hash(getTypeClass().hashCode(), h);
+		if (cacheable) {
+			// the flag is written last, so a thread reading it also sees the hash
+			hash = h;
+			hashed = true;
+		}
+		return h;
+	}
+
+	/**
+	 * Counts this list and every element in it. Lists of numbers only count the tags created for their elements
+	 * so far, without creating the others.
+	 * */
+	@Override
+	public long estimateRetainedBytes() {
+		long bytes = HeapSize.tag(HeapSize.REFERENCE + Integer.BYTES + 1);
+		if (getValue() instanceof NumberList<?> numbers) {
+			return bytes + numbers.estimateRetainedBytes();
+		}
+		// an ArrayList holds its elements, its size and its modification count
+		bytes += HeapSize.object(HeapSize.REFERENCE + 2 * Integer.BYTES) + HeapSize.array(size(), HeapSize.REFERENCE);
+		for (T t : getValue()) {
+			bytes += t.estimateRetainedBytes();
+		}
+		return bytes;
+	}
+
+	@Override
+	void changed() {
+		if (hashed) {
+			hashed = false;
+			super.changed();
+		}
+	}
+
+	@Override
+	boolean isHashTracked() {
+		return hashed;
+	}
+
+	/**
+	 * Freezes every element of this list, then this list, and computes its hash for good.
+	 * @return This list.
+	 * */
+	@Override
+	public ListTag<T> freeze() {
+		if (isFrozen()) {
+			return this;
+		}
+		if (getValue() instanceof NumberList<?> numbers) {
+			numbers.freeze();
+		} else {
+			for (T t : getValue()) {
+				t.freeze();
+			}
+		}
+		hash = hashCode();
+		hashed = true;
+		super.freeze();
+		return this;
+	}
+
+	/**
+	 * Creates a mutable list holding the same elements as this list. Frozen elements stay frozen and shared,
+	 * like in {@link CompoundTag#thaw()}, except in lists of numbers, which copy their primitives.
+	 * @return The new list.
+	 * */
+	public ListTag<T> thaw() {
+		if (getValue() instanceof NumberList<T> numbers) {
+			ListTag<T> copy = new ListTag<>(numbers.copy());
+			copy.typeClass = typeClass;
+			return copy;
+		}
+		ListTag<T> copy = new ListTag<>(new ArrayList<>(getValue()));
+		copy.typeClass = typeClass;
+		return copy;
 	}
 
 	@Override
@@ -320,7 +542,15 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 	@SuppressWarnings("unchecked")
 	@Override
 	public ListTag<T> clone() {
-		ListTag<T> copy = new ListTag<>(this.size());
+		if (isFrozen()) {
+			return this;
+		}
+		if (getValue() instanceof NumberList<T> numbers) {
+			ListTag<T> copy = new ListTag<>(numbers.copy());
+			copy.typeClass = typeClass;
+			return copy;
+		}
+		ListTag<T> copy = new ListTag<>(new ArrayList<>(this.size()));
 		// assure type safety for clone
 		copy.typeClass = typeClass;
 		for (T t : getValue()) {
@@ -329,10 +559,21 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 		return copy;
 	}
 
+	// Adds a number without creating its tag, if this list stores numbers of that type
+	private boolean addBits(Class<?> type, long bits) {
+		if (typeClass != type || !(getValue() instanceof NumberList<?> numbers)) {
+			return false;
+		}
+		checkNotFrozen();
+		numbers.addBits(bits);
+		changed();
+		return true;
+	}
+
 	//TODO: make private
 	@SuppressWarnings("unchecked")
 	public void addUnchecked(Tag<?> tag) {
-		if (getTypeClass() != EndTag.class && typeClass != tag.getClass()) {
+		if (getTypeClass() != EndTag.class && typeClass != elementClass(tag)) {
 			throw new IllegalArgumentException(String.format(
 					"cannot add %s to ListTag<%s>",
 					tag.getClass().getSimpleName(), typeClass.getSimpleName()));
@@ -340,6 +581,11 @@ public class ListTag<T extends Tag<?>> extends Tag<List<T>> implements Iterable<
 		add(size(), (T) tag);
 	}
 
+	// Subclasses of a tag type, like lazily decoded compounds, are stored as that type
+	private static Class<?> elementClass(Tag<?> tag) {
+		return (tag instanceof CompoundTag) ? CompoundTag.class : tag.getClass();
+	}
+
 	private void checkTypeClass(Class<?> clazz) {
 		if (getTypeClass() != EndTag.class && typeClass != clazz) {
 			throw new ClassCastException(String.format(
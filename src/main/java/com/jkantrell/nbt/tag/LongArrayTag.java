@@ -1,6 +1,8 @@
 package com.jkantrell.nbt.tag;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Objects;
 
 public class LongArrayTag extends ArrayTag<long[]> implements Comparable<LongArrayTag> {
 
@@ -15,6 +17,40 @@ public class LongArrayTag extends ArrayTag<long[]> implements Comparable<LongArr
 		super(value);
 	}
 
+	private LongArrayTag(ByteBuffer view, int length) {
+		super(ZERO_VALUE, view, length);
+	}
+
+	/**
+	 * Creates a tag viewing {@code length} elements of {@code buffer} from its current position, without copying
+	 * them. The byte order of {@code buffer} decides how the elements are read.
+	 * The buffer can be memory-mapped or a decode buffer, and its content must not change while the tag views it. The position of {@code buffer} is not changed.
+	 * @param buffer The buffer holding the elements.
+	 * @param length The amount of elements.
+	 * @return The new tag.
+	 * @throws IndexOutOfBoundsException If {@code buffer} has less than {@code length} elements remaining.
+	 * */
+	public static LongArrayTag view(ByteBuffer buffer, int length) {
+		return new LongArrayTag(slice(buffer, length, 8), length);
+	}
+
+	/**
+	 * Reads a single element without copying a viewed buffer.
+	 * @param index The index of the element.
+	 * @return The element.
+	 * */
+	public long get(int index) {
+		Objects.checkIndex(index, length());
+		return isView() ? getView().getLong(index * 8) : array()[index];
+	}
+
+	@Override
+	protected long[] copyView(ByteBuffer view, int length) {
+		long[] value = new long[length];
+		view.asLongBuffer().get(value);
+		return value;
+	}
+
 	@Override
 	public byte getID() {
 		return ID;
@@ -22,12 +58,34 @@ public class LongArrayTag extends ArrayTag<long[]> implements Comparable<LongArr
 
 	@Override
 	public boolean equals(Object other) {
-		return super.equals(other) && Arrays.equals(getValue(), ((LongArrayTag) other).getValue());
+		if (!super.equals(other)) {
+			return false;
+		}
+		LongArrayTag tag = (LongArrayTag) other;
+		if (!isView() && !tag.isView()) {
+			return Arrays.equals(array(), tag.array());
+		}
+		if (length() != tag.length()) {
+			return false;
+		}
+		for (int i = 0; i < length(); i++) {
+			if (get(i) != tag.get(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(getValue());
+		if (!isView()) {
+			return Arrays.hashCode(array());
+		}
+		int hash = 1;
+		for (int i = 0; i < length(); i++) {
+			hash = 31 * hash + Long.hashCode(get(i));
+		}
+		return hash;
 	}
 
 	@Override
@@ -37,6 +95,12 @@ public class LongArrayTag extends ArrayTag<long[]> implements Comparable<LongArr
 
 	@Override
 	public LongArrayTag clone() {
-		return new LongArrayTag(Arrays.copyOf(getValue(), length()));
+		if (isFrozen()) {
+			return this;
+		}
+		if (isView()) {
+			return new LongArrayTag(getView(), length());
+		}
+		return new LongArrayTag(Arrays.copyOf(array(), length()));
 	}
 }
@@ -5,12 +5,40 @@ public class LongTag extends NumberTag<Long> implements Comparable<LongTag> {
 	public static final byte ID = 4;
 	public static final long ZERO_VALUE = 0L;
 
+	private static final int CACHE_LOW = -128;
+	private static final int CACHE_HIGH = 1024;
+
+	private static final LongTag[] CACHE = new LongTag[CACHE_HIGH - CACHE_LOW + 1];
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new LongTag((long) (i + CACHE_LOW));
+			CACHE[i].freeze();
+		}
+	}
+
+	private long value;
+
 	public LongTag() {
-		super(ZERO_VALUE);
+		this(ZERO_VALUE);
 	}
 
 	public LongTag(long value) {
-		super(value);
+		this.value = value;
+	}
+
+	/**
+	 * Returns a frozen tag holding {@code value}. Values from {@value #CACHE_LOW} to {@value #CACHE_HIGH} are
+	 * cached, so read-only trees share one instance per common value.
+	 * @param value The value.
+	 * @return A frozen tag, shared if {@code value} is cached.
+	 * */
+	public static LongTag valueOf(long value) {
+		if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+			return CACHE[(int) value - CACHE_LOW];
+		}
+		LongTag tag = new LongTag(value);
+		tag.freeze();
+		return tag;
 	}
 
 	@Override
@@ -18,22 +46,82 @@ public class LongTag extends NumberTag<Long> implements Comparable<LongTag> {
 		return ID;
 	}
 
+	@Override
+	protected Long getValue() {
+		return value;
+	}
+
+	@Override
+	protected void setValue(Long value) {
+		setValue(value.longValue());
+	}
+
 	public void setValue(long value) {
-		super.setValue(value);
+		checkNotFrozen();
+		this.value = value;
+		changed();
+	}
+
+	@Override
+	public byte asByte() {
+		return (byte) value;
+	}
+
+	@Override
+	public short asShort() {
+		return (short) value;
+	}
+
+	@Override
+	public int asInt() {
+		return (int) value;
+	}
+
+	@Override
+	public long asLong() {
+		return value;
+	}
+
+	@Override
+	public float asFloat() {
+		return (float) value;
+	}
+
+	@Override
+	public double asDouble() {
+		return value;
+	}
+
+	@Override
+	public String valueToString(int maxDepth) {
+		return Long.toString(value);
 	}
 
 	@Override
 	public boolean equals(Object other) {
-		return super.equals(other) && asLong() == ((LongTag) other).asLong();
+		return super.equals(other) && value == ((LongTag) other).value;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(value);
 	}
 
 	@Override
 	public int compareTo(LongTag other) {
-		return getValue().compareTo(other.getValue());
+		return Long.compare(value, other.value);
+	}
+
+	@Override
+	public long estimateRetainedBytes() {
+		return HeapSize.tag(Long.BYTES);
 	}
 
 	@Override
 	public LongTag clone() {
-		return new LongTag(getValue());
+		if (isFrozen()) {
+			return this;
+		}
+		return new LongTag(value);
 	}
 }
@@ -0,0 +1,329 @@
+package com.jkantrell.nbt.tag;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The list backing a {@link ListTag} of numbers.
+ * <p>Lists like entity positions, motions and rotations hold a few numbers each, which an {@link java.util.ArrayList}
+ * stores as one tag and one boxed value per element. This list stores the elements as primitives and only creates
+ * a tag for an element once it is accessed as a tag. That tag is kept, so changing it changes the list, and it
+ * reports its changes to the list tag owning this list.</p>
+ * <p>Every element is stored in a {@code long}: integers as their value, floats and doubles as their raw bits.
+ * This keeps one primitive array for all six number types.</p>
+ * @param <T> The type of the elements.
+ * */
+class NumberList<T extends Tag<?>> extends AbstractList<T> implements RandomAccess {
+
+	private static final long[] EMPTY = new long[0];
+
+	private final byte id;
+	private long[] bits;
+	private Tag<?>[] tags;
+	private int size;
+	private Tag<?> owner;
+	private boolean frozen;
+
+	/**
+	 * @param id The id of the element type.
+	 * @param initialCapacity The amount of elements the list is expected to hold.
+	 * */
+	NumberList(byte id, int initialCapacity) {
+		this.id = id;
+		this.bits = initialCapacity == 0 ? EMPTY : new long[initialCapacity];
+	}
+
+	/**
+	 * @param type The class of the elements.
+	 * @return Whether lists of {@code type} elements can be stored in a number list.
+	 * */
+	static boolean supports(Class<?> type) {
+		return type == ByteTag.class || type == ShortTag.class || type == IntTag.class
+				|| type == LongTag.class || type == FloatTag.class || type == DoubleTag.class;
+	}
+
+	static byte idOf(Class<?> type) {
+		if (type == ByteTag.class) {
+			return ByteTag.ID;
+		} else if (type == ShortTag.class) {
+			return ShortTag.ID;
+		} else if (type == IntTag.class) {
+			return IntTag.ID;
+		} else if (type == LongTag.class) {
+			return LongTag.ID;
+		} else if (type == FloatTag.class) {
+			return FloatTag.ID;
+		}
+		return DoubleTag.ID;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the tag of an element, creating it on first access. The tags of a frozen list are not kept, every
+	 * access creates a new frozen tag.
+	 * */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		Objects.checkIndex(index, size);
+		if (tags != null && tags[index] != null) {
+			return (T) tags[index];
+		}
+		Tag<?> tag = toTag(bits[index]);
+		if (frozen) {
+			return (T) tag.freeze();
+		}
+		if (tags == null) {
+			tags = new Tag<?>[bits.length];
+		}
+		tags[index] = tag;
+		if (owner != null) {
+			owner.adopt(tag);
+		}
+		return (T) tag;
+	}
+
+	@Override
+	public T set(int index, T element) {
+		checkNotFrozen();
+		T old = get(index);
+		bits[index] = toBits(element);
+		tags[index] = element;
+		return old;
+	}
+
+	/**
+	 * Adds an element, keeping {@code element} as its tag so changing it changes the list.
+	 * */
+	@Override
+	public void add(int index, T element) {
+		Objects.checkIndex(index, size + 1);
+		insert(index, toBits(element));
+		if (tags == null) {
+			tags = new Tag<?>[bits.length];
+		}
+		tags[index] = element;
+	}
+
+	@Override
+	public T remove(int index) {
+		checkNotFrozen();
+		T old = get(index);
+		int moved = size - index - 1;
+		System.arraycopy(bits, index + 1, bits, index, moved);
+		System.arraycopy(tags, index + 1, tags, index, moved);
+		tags[--size] = null;
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		checkNotFrozen();
+		if (tags != null) {
+			Arrays.fill(tags, 0, size, null);
+		}
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Adds an element without creating a tag for it.
+	 * @param value The element, encoded like {@link #bits(int)}.
+	 * */
+	void addBits(long value) {
+		insert(size, value);
+	}
+
+	/**
+	 * @param index The index of the element.
+	 * @return The element as {@code long}, or its raw bits for floats and doubles.
+	 * */
+	long bits(int index) {
+		Objects.checkIndex(index, size);
+		return (tags != null && tags[index] != null) ? toBits(tags[index]) : bits[index];
+	}
+
+	/**
+	 * @return Whether the elements are floats or doubles, which are stored as raw bits.
+	 * */
+	boolean isFloatingPoint() {
+		return id == FloatTag.ID || id == DoubleTag.ID;
+	}
+
+	/**
+	 * @param index The index of an element of a list of floats or doubles.
+	 * @return The element.
+	 * */
+	double getDouble(int index) {
+		long b = bits(index);
+		return (id == FloatTag.ID) ? Float.intBitsToFloat((int) b) : Double.longBitsToDouble(b);
+	}
+
+	/**
+	 * @return A mutable list holding the same elements, without any tags.
+	 * */
+	NumberList<T> copy() {
+		NumberList<T> copy = new NumberList<>(id, size);
+		for (int i = 0; i < size; i++) {
+			copy.bits[i] = bits(i);
+		}
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	 * Makes the tags created for the elements from now on report their changes to {@code owner}.
+	 * @param owner The list tag backed by this list.
+	 * */
+	void setOwner(Tag<?> owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * @param container The list tag backed by this list.
+	 * @return Whether the tags created for the elements so far all report their changes to {@code container},
+	 * so it can cache a hash of the elements.
+	 * */
+	boolean isHashedBy(Tag<?> container) {
+		if (tags != null) {
+			for (int i = 0; i < size; i++) {
+				if (tags[i] != null && !tags[i].isHashedBy(container)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the tags created for the elements so far from reporting their changes to the owner, before the list is
+	 * cleared.
+	 * */
+	void releaseTags() {
+		if (tags != null && owner != null) {
+			for (int i = 0; i < size; i++) {
+				if (tags[i] != null) {
+					owner.release(tags[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The hash of the elements, the same as hashing their tags in order.
+	 * */
+	int hashElements() {
+		int h = 1;
+		for (int i = 0; i < size; i++) {
+			long b = bits(i);
+			h = 31 * h + switch (id) {
+				case LongTag.ID -> Long.hashCode(b);
+				case FloatTag.ID -> Float.hashCode(Float.intBitsToFloat((int) b));
+				case DoubleTag.ID -> Double.hashCode(Double.longBitsToDouble(b));
+				default -> (int) b;
+			};
+		}
+		return h;
+	}
+
+	/**
+	 * @param other A number list of the same element type.
+	 * @return Whether both lists hold equal elements, like comparing their tags.
+	 * */
+	boolean elementsEqual(NumberList<?> other) {
+		for (int i = 0; i < size; i++) {
+			long a = bits(i), b = other.bits(i);
+			boolean equal = switch (id) {
+				case FloatTag.ID -> Float.compare(Float.intBitsToFloat((int) a), Float.intBitsToFloat((int) b)) == 0;
+				case DoubleTag.ID -> Double.compare(Double.longBitsToDouble(a), Double.longBitsToDouble(b)) == 0;
+				default -> a == b;
+			};
+			if (!equal) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The estimated size of this list, its arrays and the tags created for its elements so far.
+	 * */
+	long estimateRetainedBytes() {
+		// id, bits, tags, size, owner, frozen and the modification count of AbstractList
+		long bytes = HeapSize.object(2 + 3 * HeapSize.REFERENCE + 2 * Integer.BYTES) + HeapSize.array(bits);
+		if (tags != null) {
+			bytes += HeapSize.array(tags.length, HeapSize.REFERENCE);
+			for (int i = 0; i < size; i++) {
+				if (tags[i] != null) {
+					bytes += tags[i].estimateRetainedBytes();
+				}
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Freezes the tags created so far and rejects every further change.
+	 * */
+	void freeze() {
+		frozen = true;
+		if (tags != null) {
+			for (int i = 0; i < size; i++) {
+				if (tags[i] != null) {
+					tags[i].freeze();
+				}
+			}
+		}
+	}
+
+	private void insert(int index, long value) {
+		checkNotFrozen();
+		if (size == bits.length) {
+			int capacity = Math.max(size + (size >> 1), size + 2);
+			bits = Arrays.copyOf(bits, capacity);
+			if (tags != null) {
+				tags = Arrays.copyOf(tags, capacity);
+			}
+		}
+		System.arraycopy(bits, index, bits, index + 1, size - index);
+		if (tags != null) {
+			System.arraycopy(tags, index, tags, index + 1, size - index);
+			tags[index] = null;
+		}
+		bits[index] = value;
+		size++;
+		modCount++;
+	}
+
+	private Tag<?> toTag(long b) {
+		return switch (id) {
+			case ByteTag.ID -> new ByteTag((byte) b);
+			case ShortTag.ID -> new ShortTag((short) b);
+			case IntTag.ID -> new IntTag((int) b);
+			case LongTag.ID -> new LongTag(b);
+			case FloatTag.ID -> new FloatTag(Float.intBitsToFloat((int) b));
+			default -> new DoubleTag(Double.longBitsToDouble(b));
+		};
+	}
+
+	private long toBits(Tag<?> tag) {
+		return switch (id) {
+			case FloatTag.ID -> Float.floatToRawIntBits(((FloatTag) tag).asFloat());
+			case DoubleTag.ID -> Double.doubleToRawLongBits(((DoubleTag) tag).asDouble());
+			default -> ((NumberTag<?>) tag).asLong();
+		};
+	}
+
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new UnsupportedOperationException("ListTag is frozen");
+		}
+	}
+}
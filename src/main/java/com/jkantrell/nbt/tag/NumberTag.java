@@ -6,6 +6,11 @@ public abstract class NumberTag<T extends Number & Comparable<T>> extends Tag<T>
 		super(value);
 	}
 
+	/**
+	 * For the number tags of this library, which store their value as a primitive and override every getter.
+	 * */
+	protected NumberTag() {}
+
 	public byte asByte() {
 		return getValue().byteValue();
 	}
@@ -34,4 +39,9 @@ public abstract class NumberTag<T extends Number & Comparable<T>> extends Tag<T>
 	public String valueToString(int maxDepth) {
 		return getValue().toString();
 	}
+
+	@Override
+	boolean isHashTracked() {
+		return true;
+	}
 }
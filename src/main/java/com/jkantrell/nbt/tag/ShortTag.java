@@ -5,12 +5,40 @@ public class ShortTag extends NumberTag<Short> implements Comparable<ShortTag> {
 	public static final byte ID = 2;
 	public static final short ZERO_VALUE = 0;
 
+	private static final int CACHE_LOW = -128;
+	private static final int CACHE_HIGH = 1024;
+
+	private static final ShortTag[] CACHE = new ShortTag[CACHE_HIGH - CACHE_LOW + 1];
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new ShortTag((short) (i + CACHE_LOW));
+			CACHE[i].freeze();
+		}
+	}
+
+	private short value;
+
 	public ShortTag() {
-		super(ZERO_VALUE);
+		this(ZERO_VALUE);
 	}
 
 	public ShortTag(short value) {
-		super(value);
+		this.value = value;
+	}
+
+	/**
+	 * Returns a frozen tag holding {@code value}. Values from {@value #CACHE_LOW} to {@value #CACHE_HIGH} are
+	 * cached, so read-only trees share one instance per common value.
+	 * @param value The value.
+	 * @return A frozen tag, shared if {@code value} is cached.
+	 * */
+	public static ShortTag valueOf(short value) {
+		if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+			return CACHE[value - CACHE_LOW];
+		}
+		ShortTag tag = new ShortTag(value);
+		tag.freeze();
+		return tag;
 	}
 
 	@Override
@@ -18,22 +46,82 @@ public class ShortTag extends NumberTag<Short> implements Comparable<ShortTag> {
 		return ID;
 	}
 
+	@Override
+	protected Short getValue() {
+		return value;
+	}
+
+	@Override
+	protected void setValue(Short value) {
+		setValue(value.shortValue());
+	}
+
 	public void setValue(short value) {
-		super.setValue(value);
+		checkNotFrozen();
+		this.value = value;
+		changed();
+	}
+
+	@Override
+	public byte asByte() {
+		return (byte) value;
+	}
+
+	@Override
+	public short asShort() {
+		return value;
+	}
+
+	@Override
+	public int asInt() {
+		return value;
+	}
+
+	@Override
+	public long asLong() {
+		return value;
+	}
+
+	@Override
+	public float asFloat() {
+		return value;
+	}
+
+	@Override
+	public double asDouble() {
+		return value;
+	}
+
+	@Override
+	public String valueToString(int maxDepth) {
+		return Short.toString(value);
 	}
 
 	@Override
 	public boolean equals(Object other) {
-		return super.equals(other) && asShort() == ((ShortTag) other).asShort();
+		return super.equals(other) && value == ((ShortTag) other).value;
+	}
+
+	@Override
+	public int hashCode() {
+		return Short.hashCode(value);
 	}
 
 	@Override
 	public int compareTo(ShortTag other) {
-		return getValue().compareTo(other.getValue());
+		return Short.compare(value, other.value);
+	}
+
+	@Override
+	public long estimateRetainedBytes() {
+		return HeapSize.tag(Short.BYTES);
 	}
 
 	@Override
 	public ShortTag clone() {
-		return new ShortTag(getValue());
+		if (isFrozen()) {
+			return this;
+		}
+		return new ShortTag(value);
 	}
 }
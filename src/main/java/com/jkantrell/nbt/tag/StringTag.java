@@ -43,8 +43,21 @@ public class StringTag extends Tag<String> implements Comparable<StringTag> {
 		return getValue().compareTo(o.getValue());
 	}
 
+	@Override
+	public long estimateRetainedBytes() {
+		return HeapSize.tag(0) + HeapSize.string(getValue());
+	}
+
 	@Override
 	public StringTag clone() {
+		if (isFrozen()) {
+			return this;
+		}
 		return new StringTag(getValue());
 	}
+
+	@Override
+	boolean isHashTracked() {
+		return true;
+	}
 }
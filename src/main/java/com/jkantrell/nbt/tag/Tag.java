@@ -27,6 +27,16 @@ import java.util.regex.Pattern;
  * {@link #DEFAULT_MAX_DEPTH}, which is also the maximum used by Minecraft. This is documented for 
  * the respective methods.</p>
  * 
+ * <h1>Freezing</h1>
+ * <p>{@link #freeze()} makes a tag and every tag nested in it immutable. Methods changing a frozen tag throw an
+ * {@link UnsupportedOperationException}. A frozen tree is never written to again, not even by its hash cache, so
+ * it can be read by any number of threads once it was safely published. Cloning a frozen tag returns the tag
+ * itself, and cloning a mutable container shares its frozen children instead of copying them.</p>
+ * 
+ * <h1>Memory</h1>
+ * <p>{@link #estimateRetainedBytes()} estimates the heap taken by a tag and every tag nested in it, for example
+ * to find which part of a large structure takes the most memory. See {@link HeapSize} for the assumed layout.</p>
+ * 
  * <p>If custom NBT tags contain objects other than NBT tags, which can be nested as well, then there 
  * is no guarantee that {@code MaxDepthReachedException}s are thrown for them. The respective class 
  * will document this behavior accordingly.</p>
@@ -54,7 +64,14 @@ public abstract class Tag<T> implements Cloneable {
 	private static final Pattern ESCAPE_PATTERN = Pattern.compile("[\\\\\n\t\r\"]");
 	private static final Pattern NON_QUOTE_PATTERN = Pattern.compile("[a-zA-Z0-9_\\-+]+");
 
+	/**
+	 * Held by {@link #parent} once a tag is frozen, as a frozen tag reports no changes. Keeping both in one
+	 * field keeps the number tags at a reference, a value and their primitive.
+	 * */
+	private static final Object FROZEN = new Object();
+
 	private T value;
+	private Object parent;
 
 	/**
 	 * Initializes this Tag with some value. If the value is {@code null}, it will
@@ -65,6 +82,12 @@ public abstract class Tag<T> implements Cloneable {
 		setValue(value);
 	}
 
+	/**
+	 * Initializes a Tag storing its value itself, like the number tags storing a primitive.
+	 * Such a Tag overrides {@link #getValue()}, {@link #setValue(Object)} and {@link #hashCode()}.
+	 * */
+	protected Tag() {}
+
 	/**
 	 * @return This Tag's ID, usually used for serialization and deserialization.
 	 * */
@@ -81,9 +104,15 @@ public abstract class Tag<T> implements Cloneable {
 	 * Sets the value for this Tag directly.
 	 * @param value The value to be set.
 	 * @throws NullPointerException If the value is null
+	 * @throws UnsupportedOperationException If this Tag is frozen
 	 * */
 	protected void setValue(T value) {
+		checkNotFrozen();
+		boolean replaced = this.value != null;
 		this.value = checkValue(value);
+		if (replaced) {
+			changed();
+		}
 	}
 
 	/**
@@ -158,7 +187,100 @@ public abstract class Tag<T> implements Cloneable {
 	}
 
 	/**
-	 * Creates a clone of this Tag.
+	 * Reports a change of this tag to the container holding it, which drops its cached hash and reports the change
+	 * to its own container. To be called after every change.
+	 * */
+	void changed() {
+		if (parent instanceof Tag<?> p) {
+			p.changed();
+		}
+	}
+
+	/**
+	 * Makes this container the parent of a mutable {@code child}, so changes of the child invalidate the cached
+	 * hash of this container. A tag reports its changes to one container only: the container it was adopted by
+	 * before is invalidated and no longer caches a hash depending on it. Frozen tags never change and are left
+	 * untouched.
+	 * @param child A tag added to this container.
+	 * */
+	void adopt(Tag<?> child) {
+		if (child.parent == FROZEN || child.parent == this) {
+			return;
+		}
+		if (child.parent instanceof Tag<?> previous) {
+			previous.changed();
+		}
+		child.parent = this;
+	}
+
+	/**
+	 * Stops {@code child} from reporting its changes to this container, after it was removed from it.
+	 * @param child A tag removed from this container.
+	 * */
+	void release(Tag<?> child) {
+		if (child.parent == this) {
+			child.parent = null;
+		}
+	}
+
+	/**
+	 * @param container A container.
+	 * @return Whether a cached hash of {@code container} can depend on this tag, as it is frozen or reports its
+	 * changes to {@code container}.
+	 * */
+	boolean isHashedBy(Tag<?> container) {
+		return parent == FROZEN || parent == container;
+	}
+
+	/**
+	 * @return Whether every change of this tag is reported to its container, so the container can cache a hash
+	 * depending on it. Tags whose value can be modified in place, like arrays, are only tracked once frozen.
+	 * */
+	boolean isHashTracked() {
+		return parent == FROZEN;
+	}
+
+	/**
+	 * Makes this Tag and every Tag nested in it immutable. Containers override this to freeze their elements
+	 * before themselves. Freezing a frozen Tag does nothing.
+	 * @return This Tag.
+	 * */
+	public Tag<T> freeze() {
+		// shared frozen tags, like cached numbers, are frozen again by every tree holding them
+		if (parent != FROZEN) {
+			parent = FROZEN;
+		}
+		return this;
+	}
+
+	/**
+	 * @return Whether this Tag was frozen with {@link #freeze()}.
+	 * */
+	public boolean isFrozen() {
+		return parent == FROZEN;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException If this Tag is frozen.
+	 * */
+	protected void checkNotFrozen() {
+		if (parent == FROZEN) {
+			throw new UnsupportedOperationException(getClass().getSimpleName() + " is frozen");
+		}
+	}
+
+	/**
+	 * Estimates the heap taken by this Tag and every object it references, in bytes. Frozen tags and strings
+	 * shared between trees are counted in each of them, so the estimate is an upper bound of what would be
+	 * freed if this Tag became unreachable. Custom tags holding a value other than NBT tags should override this.
+	 * @return The estimated retained size of this Tag.
+	 * */
+	public long estimateRetainedBytes() {
+		return HeapSize.tag(0);
+	}
+
+	/**
+	 * Creates a clone of this Tag. A frozen Tag is returned as is, as it is indistinguishable from a copy.
 	 * @return A clone of this Tag.
 	 * */
 	@SuppressWarnings("CloneDoesntDeclareCloneNotSupportedException")
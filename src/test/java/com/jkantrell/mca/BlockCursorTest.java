@@ -0,0 +1,77 @@
+package com.jkantrell.mca;
+
+public class BlockCursorTest extends MCATestCase {
+
+	public void testSection() {
+		Section section = Section.newSection(0);
+		section.setBlockStateAt(3, 4, 5, block("minecraft:stone"));
+		int stone = BlockStateRegistry.INSTANCE.idOf(block("minecraft:stone"));
+		int[] found = new int[2];
+		section.forEachBlock((x, y, z, id) -> {
+			found[0]++;
+			if (id == stone) {
+				assertEquals(3, x);
+				assertEquals(4, y);
+				assertEquals(5, z);
+				found[1]++;
+			} else {
+				assertEquals(0, id);
+			}
+		});
+		assertEquals(4096, found[0]);
+		assertEquals(1, found[1]);
+	}
+
+	public void testChunkOrderAndCoordinates() {
+		Chunk chunk = Chunk.newChunk();
+		chunk.setBlockStateAt(1, -60, 2, block("minecraft:dirt"));
+		chunk.setBlockStateAt(15, 100, 15, block("minecraft:stone"));
+		BlockCursor cursor = BlockCursor.of(chunk);
+		int count = 0, lastY = Integer.MIN_VALUE;
+		while (cursor.next()) {
+			assertTrue(cursor.getY() >= lastY);
+			lastY = cursor.getY();
+			assertEquals(chunk.getBlockStateAt(cursor.getX(), cursor.getY(), cursor.getZ()).getString("Name"),
+					cursor.getBlockState().getString("Name"));
+			count++;
+		}
+		assertEquals(2 * 4096, count);
+		assertFalse(cursor.next());
+	}
+
+	public void testRegionSetBox() {
+		RegionSet regions = new RegionSet();
+		try (EditSession session = new EditSession(regions)) {
+			session.setBlockStateAt(-1, 64, 0, block("minecraft:stone"));
+			session.setBlockStateAt(0, 64, 0, block("minecraft:dirt"));
+			session.setBlockStateAt(2, 70, 1, block("minecraft:stone"));
+		}
+		int stone = BlockStateRegistry.INSTANCE.idOf(block("minecraft:stone"));
+		int[] counts = new int[2];
+		regions.forEachBlock(new BlockBox(-2, 64, 0, 2, 70, 1), (x, y, z, id) -> {
+			counts[0]++;
+			if (id == stone) {
+				counts[1]++;
+			}
+		});
+		assertEquals(5 * 7 * 2, counts[0]);
+		assertEquals(2, counts[1]);
+	}
+
+	public void testRegion() {
+		MCAFile region = new MCAFile(-1, 2);
+		region.setBlockStateAt(20, 5, 40, block("minecraft:stone"));
+		BlockCursor cursor = BlockCursor.of(region);
+		int stone = BlockStateRegistry.INSTANCE.idOf(block("minecraft:stone"));
+		boolean found = false;
+		while (cursor.next()) {
+			if (cursor.getStateId() == stone) {
+				assertEquals(-512 + 20, cursor.getX());
+				assertEquals(5, cursor.getY());
+				assertEquals(1024 + 40, cursor.getZ());
+				found = true;
+			}
+		}
+		assertTrue(found);
+	}
+}
@@ -0,0 +1,74 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class BlockStateRegistryTest extends MCATestCase {
+
+	public void testIdOf() {
+		BlockStateRegistry registry = BlockStateRegistry.INSTANCE;
+		assertEquals(0, registry.idOf(block("minecraft:air")));
+		int id = registry.idOf(block("minecraft:registry_test"));
+		assertEquals(id, registry.idOf(block("minecraft:registry_test")));
+		assertEquals("minecraft:registry_test", registry.get(id).getString("Name"));
+		assertSame(registry.get(id), registry.canonical(block("minecraft:registry_test")));
+		assertThrowsRuntimeException(() -> registry.get(registry.size()), IndexOutOfBoundsException.class);
+		assertTrue(registry.get(id).isFrozen());
+		assertSame(registry.get(id), registry.get(id).clone());
+	}
+
+	public void testConcurrentIdOf() {
+		int[] ids = IntStream.range(0, 2000).parallel()
+				.map(i -> BlockStateRegistry.INSTANCE.idOf(block("minecraft:concurrent_" + (i % 100))))
+				.toArray();
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(ids[i % 100], ids[i]);
+		}
+	}
+
+	public void testRegistryPaletteContainer() {
+		Section a = Section.newSection(0), b = Section.newSection(0);
+		a.internBlockStates();
+		b.internBlockStates();
+		a.setBlockStateAt(1, 2, 3, block("minecraft:stone"));
+		b.setBlockStateAt(4, 5, 6, block("minecraft:stone"));
+		CompoundTag stoneA = a.getBlockStateAt(1, 2, 3), stoneB = b.getBlockStateAt(4, 5, 6);
+		assertEquals("minecraft:stone", stoneA.getString("Name"));
+		assertSame(stoneA, stoneB);
+		assertEquals(BlockStateRegistry.INSTANCE.idOf(block("minecraft:stone")), a.getBlockStateIdAt(1, 2, 3));
+		assertEquals(0, a.getBlockStateIdAt(0, 0, 0));
+
+		a.replace(t -> t.getString("Name").equals("minecraft:stone"), block("minecraft:dirt"));
+		assertEquals(BlockStateRegistry.INSTANCE.idOf(block("minecraft:dirt")), a.getBlockStateIdAt(1, 2, 3));
+	}
+
+	public void testDirectMode() {
+		RegistryPaletteContainer palette = new RegistryPaletteContainer(block("minecraft:air"), 4096, 4);
+		for (int i = 0; i < 300; i++) {
+			palette.set(i, block("minecraft:direct_" + i));
+		}
+		assertTrue(palette.isDirect());
+		assertEquals("minecraft:direct_299", palette.get(299).getString("Name"));
+		assertEquals(BlockStateRegistry.INSTANCE.idOf(block("minecraft:direct_7")), palette.getId(7));
+		assertEquals("minecraft:air", palette.get(4095).getString("Name"));
+
+		List<CompoundTag> local = palette.getPalette();
+		assertEquals(301, local.size());
+		assertEquals(586, palette.getByteMap().length);
+		PaletteContainer<CompoundTag> copy = new PaletteContainer<>(local, 4096, 4, palette.getByteMap());
+		for (int i = 0; i < 4096; i++) {
+			assertEquals(palette.get(i), copy.get(i));
+		}
+
+		assertEquals(300, palette.replace(t -> t.getString("Name").startsWith("minecraft:direct_"), block("minecraft:stone")));
+		assertTrue(palette.isDirect());
+		assertEquals("minecraft:stone", palette.get(42).getString("Name"));
+		palette.compact();
+		assertFalse(palette.isDirect());
+		assertEquals(2, palette.getPalette().size());
+		assertEquals("minecraft:stone", palette.get(42).getString("Name"));
+		assertEquals("minecraft:air", palette.get(300).getString("Name"));
+	}
+}
@@ -0,0 +1,45 @@
+package com.jkantrell.mca;
+
+public class BlockVolumeTest extends MCATestCase {
+
+	public void testExtract() {
+		RegionSet regions = new RegionSet();
+		try (EditSession session = new EditSession(regions)) {
+			session.setBlockStateAt(-1, 10, 5, block("minecraft:stone"));
+			session.setBlockStateAt(0, 16, 5, block("minecraft:dirt"));
+		}
+		BlockBox box = new BlockBox(-20, 0, 0, 20, 31, 10);
+		BlockVolume serial = BlockVolume.extract(regions, box);
+		BlockVolume parallel = BlockVolume.extract(regions, box, true);
+		assertEquals(41 * 32 * 11, serial.getIds().length);
+		assertEquals("minecraft:stone", serial.getBlockStateAt(-1, 10, 5).getString("Name"));
+		assertEquals("minecraft:dirt", serial.getBlockStateAt(0, 16, 5).getString("Name"));
+		assertEquals("minecraft:air", serial.getBlockStateAt(-5, 0, 0).getString("Name"));
+		assertNull(serial.getBlockStateAt(0, 0, 0));
+		assertNull(serial.getBlockStateAt(-20, 0, 0));
+		assertEquals(BlockVolume.MISSING, serial.getId(20, 0, 17 - 7));
+		assertEquals(3, serial.getPalette().size());
+		for (int i = 0; i < serial.getIds().length; i++) {
+			int a = serial.getIds()[i], b = parallel.getIds()[i];
+			assertEquals(a == BlockVolume.MISSING ? null : serial.getPalette().get(a), b == BlockVolume.MISSING ? null : parallel.getPalette().get(b));
+		}
+		assertThrowsRuntimeException(() -> serial.getId(21, 0, 0), IndexOutOfBoundsException.class);
+	}
+
+	public void testWriteTo() {
+		RegionSet source = new RegionSet();
+		try (EditSession session = new EditSession(source)) {
+			for (int x = 0; x < 20; x++) {
+				session.setBlockStateAt(x, 64, x, block("minecraft:stone"));
+			}
+		}
+		BlockVolume volume = BlockVolume.extract(source, new BlockBox(0, 64, 0, 19, 64, 19));
+		RegionSet target = new RegionSet();
+		//Chunks (1, 0) and (0, 1) do not exist in the source
+		assertEquals(16 * 16 + 4 * 4, volume.writeTo(target, -10, 1, 0));
+		assertEquals("minecraft:stone", target.getBlockStateAt(-10, 65, 0).getString("Name"));
+		assertEquals("minecraft:stone", target.getBlockStateAt(9, 65, 19).getString("Name"));
+		assertEquals("minecraft:air", target.getBlockStateAt(9, 65, 18).getString("Name"));
+		assertEquals(2, target.size());
+	}
+}
@@ -0,0 +1,239 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.io.LazyCompoundTag;
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.DoubleTag;
+import com.jkantrell.nbt.tag.ListTag;
+
+import java.io.File;
+import java.util.Map;
+
+public class ChunkTest extends MCATestCase {
+
+	private CompoundTag blockEntity(int x, int y, int z) {
+		CompoundTag e = new CompoundTag();
+		e.putString("id", "minecraft:chest");
+		e.putInt("x", x);
+		e.putInt("y", y);
+		e.putInt("z", z);
+		return e;
+	}
+
+	private CompoundTag entity(double x, double y, double z) {
+		CompoundTag e = new CompoundTag();
+		ListTag<?> pos = ListTag.createUnchecked(null);
+		pos.addDouble(x);
+		pos.addDouble(y);
+		pos.addDouble(z);
+		e.put("Pos", pos);
+		return e;
+	}
+
+	public void testBlockEntities() {
+		Chunk chunk = Chunk.newChunk();
+		assertNull(chunk.getBlockEntity(1, 2, 3));
+		for (int y = -64; y < 64; y++) {
+			chunk.setBlockEntity(blockEntity(17, y, 18));
+		}
+		assertEquals(128, chunk.getBlockEntities().size());
+		assertEquals(-10, chunk.getBlockEntity(17, -10, 18).getInt("y"));
+		assertEquals(-10, chunk.getBlockEntity(1, -10, 2).getInt("y"));
+		assertNull(chunk.getBlockEntity(17, 100, 18));
+
+		CompoundTag replacement = blockEntity(17, 5, 18);
+		replacement.putString("CustomName", "replaced");
+		chunk.setBlockEntity(replacement);
+		assertEquals(128, chunk.getBlockEntities().size());
+		assertSame(replacement, chunk.getBlockEntity(17, 5, 18));
+
+		chunk.getBlockEntities().add(blockEntity(20, 200, 20));
+		assertNotNull(chunk.getBlockEntity(20, 200, 20));
+
+		assertEquals(11, chunk.getBlockEntities(new BlockBox(16, 0, 16, 20, 10, 20)).size());
+		assertEquals(129, chunk.getBlockEntities(new BlockBox(0, -100, 0, 500, 500, 500)).size());
+		assertEquals(0, chunk.getBlockEntities(new BlockBox(1, 0, 2, 1, 10, 2)).size());
+	}
+
+	public void testBlockEntitiesEditedInPlace() {
+		Chunk chunk = Chunk.newChunk();
+		chunk.setBlockEntity(blockEntity(1, 1, 1));
+		chunk.setBlockEntity(blockEntity(2, 2, 2));
+		assertNotNull(chunk.getBlockEntity(1, 1, 1));
+
+		chunk.getBlockEntities().set(0, blockEntity(3, 3, 3));
+		assertNull(chunk.getBlockEntity(1, 1, 1));
+		assertEquals(3, chunk.getBlockEntity(3, 3, 3).getInt("y"));
+
+		chunk.getBlockEntity(2, 2, 2).putInt("y", 4);
+		assertNull(chunk.getBlockEntity(2, 2, 2));
+		assertNotNull(chunk.getBlockEntity(2, 4, 2));
+		assertEquals(0, chunk.getBlockEntities(new BlockBox(2, 2, 2, 2, 2, 2)).size());
+
+		chunk.setBlockEntity(blockEntity(2, 2, 2));
+		assertEquals(3, chunk.getBlockEntities().size());
+	}
+
+	public void testEntities() {
+		Chunk chunk = Chunk.newChunk();
+		assertEquals(0, chunk.getEntitiesInSection(0).size());
+		chunk.addEntity(entity(1.5, -0.5, 1.5));
+		chunk.addEntity(entity(2.5, 15.9, 2.5));
+		chunk.addEntity(entity(3.5, 16, 3.5));
+		assertEquals(1, chunk.getEntitiesInSection(-1).size());
+		assertEquals(1, chunk.getEntitiesInSection(0).size());
+		assertEquals(1, chunk.getEntitiesInSection(1).size());
+		assertEquals(2, chunk.getEntities(new BlockBox(0, -1, 0, 2, 15, 15)).size());
+		assertEquals(3, chunk.getEntities().size());
+
+		//Indexing reads the positions without creating a tag per number
+		ListTag<DoubleTag> pos = new ListTag<>(DoubleTag.class);
+		pos.addDouble(4.5);
+		pos.addDouble(4.5);
+		pos.addDouble(4.5);
+		CompoundTag unboxed = new CompoundTag();
+		unboxed.put("Pos", pos);
+		long bytes = pos.estimateRetainedBytes();
+		chunk.addEntity(unboxed);
+		assertEquals(1, chunk.getEntities(new BlockBox(4, 4, 4, 4, 4, 4)).size());
+		assertEquals(bytes, pos.estimateRetainedBytes());
+
+		chunk.setEntities(new ListTag<>(CompoundTag.class));
+		assertEquals(0, chunk.getEntitiesInSection(0).size());
+	}
+
+	public void testEntitiesEditedInPlace() {
+		Chunk chunk = Chunk.newChunk();
+		CompoundTag moved = entity(1.5, 1.5, 1.5);
+		chunk.addEntity(moved);
+		assertEquals(1, chunk.getEntitiesInSection(0).size());
+
+		moved.getListTag("Pos").asDoubleTagList().get(1).setValue(40);
+		assertEquals(0, chunk.getEntitiesInSection(0).size());
+		assertEquals(1, chunk.getEntitiesInSection(2).size());
+		assertEquals(1, chunk.getEntities(new BlockBox(0, 32, 0, 15, 47, 15)).size());
+
+		chunk.getEntities().add(entity(2.5, 2.5, 2.5));
+		assertEquals(1, chunk.getEntitiesInSection(0).size());
+	}
+
+	public void testSerializeSections() {
+		MCAFile f = new MCAFile(0, 0);
+		f.setBlockStateAt(1, 2, 3, block("minecraft:stone"));
+		f.setBiomeAt(1, 2, 3, "minecraft:desert");
+		f.fill(new BlockBox(0, -64, 0, 15, -49, 15), block("minecraft:bedrock"));
+		Chunk chunk = f.getChunk(0, 0);
+		chunk.setBlockStateAt(0, 16, 0, block("minecraft:air"));
+		chunk.internBlockStates();
+		for (int i = 0; i < 300; i++) {
+			chunk.setBlockStateAt(i & 15, 16 + (i >> 8), (i >> 4) & 15, block("minecraft:encoded_" + i));
+		}
+		assertTrue(chunk.getSection(1).getBlockStatePalette().isDirect());
+
+		File file = getNewTmpFile("r.0.0.mca");
+		assertThrowsNoException(() -> MCAUtil.write(f, file));
+		MCAFile read = assertThrowsNoException(() -> MCAUtil.read(file));
+		assertEquals("minecraft:stone", read.getBlockStateAt(1, 2, 3).getString("Name"));
+		assertEquals("minecraft:air", read.getBlockStateAt(2, 2, 3).getString("Name"));
+		assertEquals("minecraft:desert", read.getBiomeAt(1, 2, 3).getValue());
+		assertEquals("minecraft:bedrock", read.getBlockStateAt(7, -50, 7).getString("Name"));
+		assertEquals(1, read.getChunk(0, 0).getSection(-4).getBlockStatePalette().getPalette().size());
+		for (int i = 0; i < 300; i++) {
+			assertEquals("minecraft:encoded_" + i, read.getBlockStateAt(i & 15, 16 + (i >> 8), (i >> 4) & 15).getString("Name"));
+		}
+	}
+
+	public void testPartialLoadIsDecoded() {
+		MCAFile f = new MCAFile(0, 0);
+		f.setBlockStateAt(1, 2, 3, block("minecraft:stone"));
+		CompoundTag written = new CompoundTag();
+		written.putLongArray("WORLD_SURFACE", new long[37]);
+		f.getChunk(0, 0).setHeightMaps(written);
+		File file = getNewTmpFile("r.0.0.mca");
+		assertThrowsNoException(() -> MCAUtil.write(f, file));
+
+		MCAFile partial = assertThrowsNoException(() -> MCAUtil.read(file, LoadFlags.HEIGHTMAPS));
+		CompoundTag heightMaps = partial.getChunk(0, 0).getHeightMaps();
+		assertFalse(heightMaps instanceof LazyCompoundTag);
+		assertFalse(heightMaps.getLongArrayTag("WORLD_SURFACE").isView());
+		assertNull(partial.getChunk(0, 0).getHandle());
+
+		MCAFile raw = assertThrowsNoException(() -> MCAUtil.read(file, LoadFlags.RAW));
+		assertTrue(raw.getChunk(0, 0).getHandle() instanceof LazyCompoundTag);
+	}
+
+	public void testUpdateHandle() {
+		Chunk chunk = Chunk.newChunk();
+		chunk.setBlockStateAt(4, 20, 4, block("minecraft:stone"));
+		CompoundTag handle = chunk.updateHandle(3, 5);
+		assertFalse(handle.containsKey("Level"));
+		assertEquals(3, handle.getInt("xPos"));
+		assertEquals("mobs_spawned", handle.getString("Status"));
+		CompoundTag section = getSection(handle, 1);
+		assertEquals(2, section.getCompoundTag("block_states").getListTag("palette").size());
+		assertEquals(256, section.getCompoundTag("block_states").getLongArray("data").length);
+		assertEquals("minecraft:stone", new Chunk(handle).getBlockStateAt(4, 20, 4).getString("Name"));
+	}
+
+	public void testUpdateHandleSkipsLegacyKeys() {
+		Chunk chunk = Chunk.newChunk();
+		chunk.setTileEntities(new ListTag<>(CompoundTag.class));
+		chunk.setLights(ListTag.createUnchecked(null).asListTagList());
+		chunk.setLiquidsToBeTicked(ListTag.createUnchecked(null).asListTagList());
+		chunk.setToBeTicked(ListTag.createUnchecked(null).asListTagList());
+		CompoundTag handle = chunk.updateHandle(0, 0);
+		for (String key : new String[] {"TileEntities", "Lights", "LiquidsToBeTicked", "ToBeTicked"}) {
+			assertFalse(key, handle.containsKey(key));
+		}
+	}
+
+	public void testMemoryReport() {
+		Chunk chunk = Chunk.newChunk();
+		chunk.setBlockStateAt(4, 20, 4, block("minecraft:stone"));
+		chunk.addEntity(entity(1.5, 20, 1.5));
+		Map<String, Long> report = chunk.getMemoryReport();
+		assertTrue(report.get("sections") > 4096 / 8);
+		assertTrue(report.get("Entities") > 0);
+		long total = chunk.estimateRetainedBytes();
+		assertTrue(total > report.values().stream().mapToLong(Long::longValue).sum());
+
+		for (int i = 0; i < 100; i++) {
+			chunk.addEntity(entity(i, 20, 1.5));
+		}
+		assertTrue(chunk.getMemoryReport().get("Entities") > report.get("Entities") + 100 * 100);
+		assertEquals(report.get("sections"), chunk.getMemoryReport().get("sections"));
+
+		MCAFile region = new MCAFile(0, 0);
+		region.setChunk(0, chunk);
+		assertTrue(region.estimateRetainedBytes() > total);
+		assertEquals(chunk.getMemoryReport(), region.getMemoryReport());
+	}
+
+	public void testMemoryReportCountsSharedContainersOnce() {
+		Chunk chunk = Chunk.newChunk();
+		Section a = chunk.getOrCreateSection(0), b = chunk.getOrCreateSection(1);
+		assertSame(a.blockStates(), b.blockStates());
+		long containers = a.blockStates().estimateRetainedBytes() + a.biomes().estimateRetainedBytes();
+		long sections = chunk.getMemoryReport().get("sections");
+		assertEquals(a.estimateRetainedBytes() + b.estimateRetainedBytes() - containers, sections);
+
+		Chunk other = Chunk.newChunk();
+		other.getOrCreateSection(0);
+		MCAFile region = new MCAFile(0, 0);
+		region.setChunk(0, chunk);
+		region.setChunk(1, other);
+		assertEquals(sections + other.getMemoryReport().get("sections") - containers, (long) region.getMemoryReport().get("sections"));
+		MCAFile single = new MCAFile(0, 0);
+		single.setChunk(0, chunk);
+		assertEquals(single.estimateRetainedBytes() + other.estimateRetainedBytes() - containers, region.estimateRetainedBytes());
+	}
+
+	public void testMemoryReportCountsHeightmaps() {
+		Chunk chunk = Chunk.newChunk();
+		chunk.recomputeHeightmaps(HeightmapType.WORLD_SURFACE);
+		long stored = chunk.getHeightMaps().estimateRetainedBytes();
+		chunk.getHeightmap(HeightmapType.WORLD_SURFACE);
+		long counted = chunk.getMemoryReport().get("Heightmaps");
+		assertTrue(counted > stored);
+		assertTrue(counted < 2 * stored);
+	}
+}
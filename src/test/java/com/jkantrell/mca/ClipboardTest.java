@@ -0,0 +1,164 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+import java.io.File;
+import java.util.List;
+
+public class ClipboardTest extends MCATestCase {
+
+	private CompoundTag facing(String name, String facing) {
+		CompoundTag state = block(name);
+		CompoundTag properties = new CompoundTag();
+		properties.putString("facing", facing);
+		state.put("Properties", properties);
+		return state;
+	}
+
+	private RegionSet sample() {
+		RegionSet regions = new RegionSet();
+		try (EditSession session = new EditSession(regions)) {
+			session.setBlockStateAt(0, 64, 0, block("minecraft:stone"));
+			session.setBlockStateAt(2, 64, 0, facing("minecraft:chest", "north"));
+			session.setBlockStateAt(0, 65, 1, block("minecraft:dirt"));
+		}
+		CompoundTag chest = new CompoundTag();
+		chest.putString("id", "minecraft:chest");
+		chest.putInt("x", 2);
+		chest.putInt("y", 64);
+		chest.putInt("z", 0);
+		chest.putString("CustomName", "loot");
+		regions.getChunkAt(2, 0).setBlockEntity(chest);
+		return regions;
+	}
+
+	public void testCopyPaste() {
+		Clipboard clipboard = Clipboard.copy(sample(), new BlockBox(0, 64, 0, 2, 65, 1));
+		assertEquals(3, clipboard.getWidth());
+		assertEquals(2, clipboard.getHeight());
+		assertEquals(2, clipboard.getLength());
+		assertEquals("minecraft:dirt", clipboard.getBlockStateAt(0, 1, 1).getString("Name"));
+		assertEquals(1, clipboard.getBlockEntities().size());
+		assertEquals(2, clipboard.getBlockEntities().get(0).getInt("x"));
+		assertEquals(0, clipboard.getBlockEntities().get(0).getInt("y"));
+
+		RegionSet target = new RegionSet();
+		assertEquals(12, clipboard.paste(target, 510, 10, 0));
+		assertEquals("minecraft:stone", target.getBlockStateAt(510, 10, 0).getString("Name"));
+		assertEquals("minecraft:chest", target.getBlockStateAt(512, 10, 0).getString("Name"));
+		assertEquals("minecraft:dirt", target.getBlockStateAt(510, 11, 1).getString("Name"));
+		assertEquals("loot", target.getChunkAt(512, 0).getBlockEntity(512, 10, 0).getString("CustomName"));
+		assertEquals(2, target.size());
+	}
+
+	public void testPasteReplacesBlockEntities() {
+		Clipboard clipboard = Clipboard.copy(sample(), new BlockBox(0, 64, 0, 2, 65, 1));
+		RegionSet target = sample();
+		Chunk chunk = target.getChunkAt(0, 0);
+		for (int x : new int[] {1, 5}) {
+			CompoundTag furnace = new CompoundTag();
+			furnace.putString("id", "minecraft:furnace");
+			furnace.putInt("x", x);
+			furnace.putInt("y", 65);
+			furnace.putInt("z", 1);
+			chunk.setBlockEntity(furnace);
+		}
+		assertEquals(3, chunk.getBlockEntities().size());
+
+		clipboard.paste(target, 0, 64, 0);
+		assertEquals(2, chunk.getBlockEntities().size());
+		assertNull(chunk.getBlockEntity(1, 65, 1));
+		assertEquals("minecraft:furnace", chunk.getBlockEntity(5, 65, 1).getString("id"));
+		assertEquals("loot", chunk.getBlockEntity(2, 64, 0).getString("CustomName"));
+	}
+
+	public void testCopyFrozenBlockEntity() {
+		RegionSet regions = sample();
+		Chunk chunk = regions.getChunkAt(2, 0);
+		CompoundTag chest = chunk.getBlockEntity(2, 64, 0);
+		chest.freeze();
+		Clipboard clipboard = assertThrowsNoException(() -> Clipboard.copy(regions, new BlockBox(0, 64, 0, 2, 65, 1)));
+		assertEquals(0, clipboard.getBlockEntities().get(0).getInt("y"));
+		assertEquals(64, chest.getInt("y"));
+
+		RegionSet target = new RegionSet();
+		assertThrowsNoException(() -> clipboard.paste(target, 0, 10, 0));
+		assertEquals("loot", target.getChunkAt(0, 0).getBlockEntity(2, 10, 0).getString("CustomName"));
+	}
+
+	public void testRotateAndMirror() {
+		Clipboard clipboard = Clipboard.copy(sample(), new BlockBox(0, 64, 0, 2, 65, 1));
+		Clipboard rotated = clipboard.transform(Clipboard.Rotation.CLOCKWISE_90, Clipboard.Mirror.NONE);
+		assertEquals(2, rotated.getWidth());
+		assertEquals(3, rotated.getLength());
+		//The chest at the north-east corner moves to the south-east corner and faces east
+		CompoundTag chest = rotated.getBlockStateAt(1, 0, 2);
+		assertEquals("minecraft:chest", chest.getString("Name"));
+		assertEquals("east", chest.getCompoundTag("Properties").getString("facing"));
+		assertEquals(1, rotated.getBlockEntities().get(0).getInt("x"));
+		assertEquals(2, rotated.getBlockEntities().get(0).getInt("z"));
+		assertEquals("minecraft:stone", rotated.getBlockStateAt(1, 0, 0).getString("Name"));
+
+		Clipboard mirrored = clipboard.transform(Clipboard.Rotation.NONE, Clipboard.Mirror.Z);
+		assertEquals("south", mirrored.getBlockStateAt(2, 0, 1).getCompoundTag("Properties").getString("facing"));
+		assertSame(clipboard, clipboard.transform(Clipboard.Rotation.NONE, Clipboard.Mirror.NONE));
+	}
+
+	public void testTransformShapeAndHinge() {
+		CompoundTag stairs = facing("minecraft:oak_stairs", "north");
+		stairs.getCompoundTag("Properties").putString("shape", "outer_left");
+		CompoundTag door = facing("minecraft:oak_door", "east");
+		door.getCompoundTag("Properties").putString("hinge", "left");
+		CompoundTag rail = block("minecraft:rail");
+		CompoundTag properties = new CompoundTag();
+		properties.putString("shape", "south_east");
+		rail.put("Properties", properties);
+		List<CompoundTag> palette = List.of(stairs, door, rail);
+		Clipboard clipboard = new Clipboard(3, 1, 1, palette, new int[] {0, 1, 2}, List.of());
+
+		Clipboard mirrored = clipboard.transform(Clipboard.Rotation.NONE, Clipboard.Mirror.X);
+		assertEquals("outer_right", mirrored.getBlockStateAt(2, 0, 0).getCompoundTag("Properties").getString("shape"));
+		assertEquals("north", mirrored.getBlockStateAt(2, 0, 0).getCompoundTag("Properties").getString("facing"));
+		assertEquals("right", mirrored.getBlockStateAt(1, 0, 0).getCompoundTag("Properties").getString("hinge"));
+		assertEquals("west", mirrored.getBlockStateAt(1, 0, 0).getCompoundTag("Properties").getString("facing"));
+		assertEquals("south_west", mirrored.getBlockStateAt(0, 0, 0).getCompoundTag("Properties").getString("shape"));
+
+		Clipboard rotated = clipboard.transform(Clipboard.Rotation.CLOCKWISE_90, Clipboard.Mirror.NONE);
+		assertEquals("outer_left", rotated.getBlockStateAt(0, 0, 0).getCompoundTag("Properties").getString("shape"));
+		assertEquals("left", rotated.getBlockStateAt(0, 0, 1).getCompoundTag("Properties").getString("hinge"));
+		assertEquals("south_west", rotated.getBlockStateAt(0, 0, 2).getCompoundTag("Properties").getString("shape"));
+	}
+
+	public void testPasteIntoRegionSkipsOutside() {
+		Clipboard clipboard = Clipboard.copy(sample(), new BlockBox(0, 64, 0, 2, 65, 1));
+		MCAFile region = new MCAFile(0, 0);
+		//Only the two columns at x 510 and 511 are inside the region, the chest at x 512 is not
+		assertEquals(8, clipboard.paste(region, 510, 10, 0, Clipboard.Rotation.NONE, Clipboard.Mirror.NONE));
+		assertEquals("minecraft:stone", region.getBlockStateAt(510, 10, 0).getString("Name"));
+		assertEquals("minecraft:dirt", region.getBlockStateAt(510, 11, 1).getString("Name"));
+
+		assertEquals(0, clipboard.paste(region, 512, 10, 0, Clipboard.Rotation.NONE, Clipboard.Mirror.NONE));
+	}
+
+	public void testSpongeSchematic() {
+		Clipboard clipboard = Clipboard.copy(sample(), new BlockBox(0, 64, 0, 2, 65, 1));
+		File file = getNewTmpFile("clipboard.schem");
+		assertThrowsNoException(() -> SpongeSchematic.write(clipboard, file));
+		Clipboard read = assertThrowsNoException(() -> SpongeSchematic.read(file));
+		assertEquals(clipboard.getWidth(), read.getWidth());
+		assertEquals(clipboard.getLength(), read.getLength());
+		for (int y = 0; y < 2; y++) {
+			for (int z = 0; z < 2; z++) {
+				for (int x = 0; x < 3; x++) {
+					assertEquals(clipboard.getBlockStateAt(x, y, z), read.getBlockStateAt(x, y, z));
+				}
+			}
+		}
+		assertEquals("loot", read.getBlockEntities().get(0).getString("CustomName"));
+		assertEquals("minecraft:chest", read.getBlockEntities().get(0).getString("id"));
+
+		CompoundTag parsed = SpongeSchematic.parseBlockString("minecraft:oak_stairs[half=top,facing=west]");
+		assertEquals("minecraft:oak_stairs[facing=west,half=top]", SpongeSchematic.toBlockString(parsed));
+		assertEquals("minecraft:stone", SpongeSchematic.toBlockString(SpongeSchematic.parseBlockString("minecraft:stone")));
+	}
+}
@@ -0,0 +1,56 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+public class EditSessionTest extends MCATestCase {
+
+	public void testFlushCreatesChunksAndSections() {
+		MCAFile f = new MCAFile(0, 0);
+		EditSession session = new EditSession(f);
+		CompoundTag stone = block("minecraft:stone");
+		for (int x = 0; x < 40; x++) {
+			for (int z = 0; z < 40; z++) {
+				for (int y = -64; y < -40; y++) {
+					session.setBlockStateAt(x, y, z, stone);
+				}
+			}
+		}
+		session.setBlockStateAt(3, -50, 7, block("minecraft:gold_block"));
+		assertNull(f.getChunk(0, 0));
+		assertEquals(40 * 40 * 24 + 1, session.getPendingCount());
+
+		assertEquals(40 * 40 * 24 + 1, session.flush());
+		assertEquals(0, session.getPendingCount());
+		assertNotNull(f.getChunk(2, 2));
+		assertEquals("minecraft:stone", f.getBlockStateAt(39, -64, 39).getString("Name"));
+		assertEquals("minecraft:gold_block", f.getBlockStateAt(3, -50, 7).getString("Name"));
+		assertEquals("minecraft:air", f.getBlockStateAt(40, -64, 0).getString("Name"));
+		assertEquals("minecraft:air", f.getBlockStateAt(0, -40, 0).getString("Name"));
+
+		Section full = f.getChunk(1, 1).getSection(-4);
+		assertEquals(1, full.getBlockStatePalette().getPalette().size());
+		assertNull(full.getBlockStatePalette().getByteMap());
+	}
+
+	public void testLastWriteWins() {
+		MCAFile f = new MCAFile(0, 0);
+		try (EditSession session = new EditSession(f)) {
+			session.setBlockStateAt(1, 1, 1, block("minecraft:dirt"));
+			session.setBlockStateAt(1, 1, 1, block("minecraft:grass_block"));
+		}
+		assertEquals("minecraft:grass_block", f.getBlockStateAt(1, 1, 1).getString("Name"));
+		assertEquals(2, f.getChunk(0, 0).getSection(0).getBlockStatePalette().getPalette().size());
+	}
+
+	public void testSpansRegions() {
+		RegionSet regions = new RegionSet();
+		try (EditSession session = new EditSession(regions)) {
+			session.setBlockStateAt(-1, 70, -1, block("minecraft:stone"));
+			session.setBlockStateAt(512, 70, 0, block("minecraft:dirt"));
+		}
+		assertEquals(2, regions.size());
+		assertEquals("minecraft:stone", regions.getBlockStateAt(-1, 70, -1).getString("Name"));
+		assertEquals("minecraft:dirt", regions.getBlockStateAt(512, 70, 0).getString("Name"));
+		assertNotNull(regions.get(-1, -1).getChunk(31, 31));
+	}
+}
@@ -0,0 +1,63 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+public class HeightmapTest extends MCATestCase {
+
+	public void testRecompute() {
+		Chunk chunk = Chunk.newChunk();
+		assertNull(chunk.getHeightmap(HeightmapType.WORLD_SURFACE));
+		chunk.fill(new BlockBox(0, -64, 0, 15, 10, 15), block("minecraft:stone"));
+		chunk.setBlockStateAt(3, 40, 4, block("minecraft:oak_leaves"));
+		chunk.setBlockStateAt(5, 20, 6, block("minecraft:poppy"));
+		chunk.recomputeHeightmaps();
+
+		Heightmap surface = chunk.getHeightmap(HeightmapType.WORLD_SURFACE);
+		Heightmap motion = chunk.getHeightmap(HeightmapType.MOTION_BLOCKING);
+		Heightmap noLeaves = chunk.getHeightmap(HeightmapType.MOTION_BLOCKING_NO_LEAVES);
+		Heightmap floor = chunk.getHeightmap(HeightmapType.OCEAN_FLOOR);
+		assertEquals(37, chunk.getHeightMaps().getLongArray("WORLD_SURFACE").length);
+		assertEquals(10, surface.getHighestBlockY(0, 0));
+		assertEquals(40, surface.getHighestBlockY(3, 4));
+		assertEquals(40, motion.getHighestBlockY(3, 4));
+		assertEquals(10, noLeaves.getHighestBlockY(3, 4));
+		assertEquals(20, surface.getHighestBlockY(5, 6));
+		assertEquals(10, floor.getHighestBlockY(5, 6));
+		assertNull(chunk.getHeightmap(HeightmapType.WORLD_SURFACE_WG));
+
+		int[] heights = surface.toHighestBlockArray();
+		assertEquals(256, heights.length);
+		assertEquals(40, heights[4 * 16 + 3]);
+		assertEquals(10, heights[0]);
+	}
+
+	public void testIncrementalUpdate() {
+		Chunk chunk = Chunk.newChunk();
+		chunk.setBlockStateAt(1, 5, 1, block("minecraft:stone"));
+		chunk.recomputeHeightmaps(HeightmapType.WORLD_SURFACE);
+		Heightmap surface = chunk.getHeightmap(HeightmapType.WORLD_SURFACE);
+		assertEquals(-65, surface.getHighestBlockY(0, 0));
+		assertEquals(5, surface.getHighestBlockY(1, 1));
+
+		chunk.setBlockStateAt(1, 100, 1, block("minecraft:dirt"));
+		assertEquals(100, surface.getHighestBlockY(1, 1));
+		chunk.setBlockStateAt(1, 100, 1, block("minecraft:air"));
+		assertEquals(5, surface.getHighestBlockY(1, 1));
+		chunk.setBlockStateAt(1, 5, 1, block("minecraft:air"));
+		assertEquals(-65, surface.getHighestBlockY(1, 1));
+		chunk.setBlockStateAt(17, -64, 17, block("minecraft:stone"));
+		assertEquals(-64, surface.getHighestBlockY(1, 1));
+	}
+
+	public void testRegionRecompute() {
+		MCAFile region = new MCAFile(0, 0);
+		region.fill(new BlockBox(0, 0, 0, 40, 3, 40), block("minecraft:stone"));
+		region.recomputeHeightmaps(HeightmapType.MOTION_BLOCKING);
+		assertEquals(3, region.getChunk(2, 2).getHeightmap(HeightmapType.MOTION_BLOCKING).getHighestBlockY(8, 8));
+		assertEquals(-65, region.getChunk(2, 2).getHeightmap(HeightmapType.MOTION_BLOCKING).getHighestBlockY(15, 15));
+
+		CompoundTag water = block("minecraft:water");
+		region.getChunk(0, 0).setBlockStateAt(0, 50, 0, water);
+		assertEquals(50, region.getChunk(0, 0).getHeightmap(HeightmapType.MOTION_BLOCKING).getHighestBlockY(0, 0));
+	}
+}
@@ -0,0 +1,88 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.ByteArrayTag;
+import com.jkantrell.nbt.tag.CompoundTag;
+
+public class LightEngineTest extends MCATestCase {
+
+	public void testNibbleArray() {
+		byte[] data = new byte[NibbleArray.BYTES];
+		NibbleArray light = new NibbleArray(data);
+		light.set(1, 2, 3, 15);
+		light.set(0, 2, 3, 7);
+		assertEquals(15, light.get(1, 2, 3));
+		assertEquals(7, light.get(0, 2, 3));
+		assertEquals((byte) 0xF7, data[(2 * 256 + 3 * 16) / 2]);
+		light.fill(9);
+		assertEquals(9, light.get(15, 15, 15));
+		assertThrowsRuntimeException(() -> new NibbleArray(new byte[10]), IllegalArgumentException.class);
+		ByteArrayTag frozen = new ByteArrayTag(new byte[NibbleArray.BYTES]);
+		frozen.freeze();
+		assertThrowsRuntimeException(() -> new NibbleArray(frozen), IllegalArgumentException.class);
+	}
+
+	public void testSectionLightIsBackedBySource() {
+		Section section = Section.newSection(0);
+		assertNull(section.getSkyLight());
+		assertEquals(0, section.getSkyLightAt(0, 0, 0));
+		section.getOrCreateSkyLight().set(4, 5, 6, 12);
+		assertEquals(12, section.getSkyLightAt(4, 5, 6));
+		assertEquals(NibbleArray.BYTES, section.getSource().getByteArray("SkyLight").length);
+	}
+
+	public void testSectionLightWithFrozenSource() {
+		ByteArrayTag frozen = new ByteArrayTag(new byte[NibbleArray.BYTES]);
+		frozen.freeze();
+		Section section = Section.newSection(0);
+		section.getSource().put("BlockLight", frozen);
+		section.getBlockLight().set(1, 1, 1, 5);
+		assertEquals(5, section.getBlockLightAt(1, 1, 1));
+		assertNotSame(frozen, section.getSource().getByteArrayTag("BlockLight"));
+		assertEquals(0, frozen.get(0));
+
+		CompoundTag root = new CompoundTag();
+		root.putByte("Y", (byte) 0);
+		root.put("SkyLight", frozen);
+		root.freeze();
+		Section read = new Section(root);
+		read.getSkyLight().set(2, 2, 2, 7);
+		assertEquals(7, read.getSkyLightAt(2, 2, 2));
+		assertSame(frozen, root.getByteArrayTag("SkyLight"));
+	}
+
+	public void testRelightChunk() {
+		Chunk chunk = Chunk.newChunk();
+		chunk.fill(new BlockBox(0, 0, 0, 15, 15, 15), block("minecraft:stone"));
+		chunk.fill(new BlockBox(1, 4, 1, 14, 10, 14), block("minecraft:air"));
+		chunk.setBlockStateAt(7, 5, 7, block("minecraft:glowstone"));
+		chunk.setBlockStateAt(3, 20, 3, block("minecraft:stone"));
+		assertFalse(chunk.isLightOn());
+		new LightEngine().relight(chunk);
+		assertTrue(chunk.isLightOn());
+		assertTrue(chunk.updateHandle(0, 0).getBoolean("isLightOn"));
+
+		Section cave = chunk.getSection(0), open = chunk.getSection(1);
+		assertEquals(15, open.getSkyLightAt(0, 0, 0));
+		assertEquals(0, cave.getSkyLightAt(7, 7, 7));
+		assertEquals(15, cave.getBlockLightAt(7, 5, 7));
+		assertEquals(14, cave.getBlockLightAt(8, 5, 7));
+		assertEquals(12, cave.getBlockLightAt(8, 6, 8));
+		assertEquals(0, cave.getBlockLightAt(0, 0, 0));
+		//Shade under the floating block is filled in from the sides
+		assertEquals(14, open.getSkyLightAt(3, 3, 3));
+	}
+
+	public void testLightCrossesChunkBorders() {
+		MCAFile region = new MCAFile(0, 0);
+		region.fill(new BlockBox(0, 0, 0, 31, 15, 15), block("minecraft:stone"));
+		region.fill(new BlockBox(1, 1, 1, 30, 1, 1), block("minecraft:air"));
+		region.setBlockStateAt(14, 1, 1, block("minecraft:torch"));
+		new LightEngine().relight(region);
+		assertTrue(region.getChunk(0, 0).isLightOn());
+		assertTrue(region.getChunk(1, 0).isLightOn());
+		assertEquals(14, region.getChunk(0, 0).getSection(0).getBlockLightAt(14, 1, 1));
+		assertEquals(12, region.getChunk(1, 0).getSection(0).getBlockLightAt(16, 1, 1));
+		assertEquals(1, region.getChunk(1, 0).getSection(0).getBlockLightAt(27, 1, 1));
+		assertEquals(0, region.getChunk(1, 0).getSection(0).getBlockLightAt(28, 1, 1));
+	}
+}
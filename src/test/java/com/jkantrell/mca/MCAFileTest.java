@@ -78,7 +78,47 @@ public class MCAFileTest extends MCATestCase {
 	}
 
 	public void testSetBiomeAt() {
-		//To be updated
+		MCAFile f = new MCAFile(0, 0);
+		f.setBiomeAt(20, 70, 20, "desert");
+		assertBiome("minecraft:desert", f.getBiomeAt(20, 70, 20));
+		assertBiome("minecraft:desert", f.getBiomeAt(23, 68, 22));
+		assertBiome(Section.DEFAULT_BIOME, f.getBiomeAt(24, 70, 20));
+		assertBiome(Section.DEFAULT_BIOME, f.getBiomeAt(20, 72, 20));
+
+		f.setBiomeAt(20, -60, 20, 5);
+		assertBiome("minecraft:taiga", f.getBiomeAt(20, -60, 20));
+		f.setBiomeAt(20, -60, 20, -1);
+		assertBiome(Section.DEFAULT_BIOME, f.getBiomeAt(20, -60, 20));
+		assertThrowsRuntimeException(() -> f.setBiomeAt(0, 0, 0, 1000), IllegalArgumentException.class);
+
+		f.setBiomeAt(20, 20, 2);
+		assertBiome("minecraft:desert", f.getBiomeAt(20, -60, 20));
+		assertBiome("minecraft:desert", f.getBiomeAt(20, 79, 20));
+	}
+
+	public void testFillBiome() {
+		MCAFile f = new MCAFile(0, 0);
+		f.fillBiome(new BlockBox(2, -64, 2, 40, 15, 40), "minecraft:jungle");
+		assertBiome("minecraft:jungle", f.getBiomeAt(0, -64, 0));
+		assertBiome("minecraft:jungle", f.getBiomeAt(43, 15, 43));
+		assertBiome("minecraft:jungle", f.getBiomeAt(16, 0, 16));
+		assertBiome(Section.DEFAULT_BIOME, f.getBiomeAt(44, 0, 20));
+		assertNull(f.getBiomeAt(20, 16, 20));
+		assertNull(f.getBiomeAt(60, 0, 60));
+		assertEquals(1, f.getChunk(1, 1).getSection(0).getBiomePalette().getPalette().size());
+	}
+
+	public void testReplaceBiome() {
+		MCAFile f = new MCAFile(0, 0);
+		f.fillBiome(new BlockBox(0, 0, 0, 31, 15, 15), "minecraft:forest");
+		f.setBiomeAt(0, 0, 0, "minecraft:river");
+		f.replaceBiome("forest", "minecraft:savanna");
+		assertBiome("minecraft:river", f.getBiomeAt(0, 0, 0));
+		assertBiome("minecraft:savanna", f.getBiomeAt(4, 0, 0));
+		assertBiome("minecraft:savanna", f.getBiomeAt(31, 15, 15));
+		f.replaceBiome(b -> !b.getValue().equals("minecraft:savanna"), "minecraft:desert");
+		assertBiome("minecraft:desert", f.getBiomeAt(0, 0, 0));
+		assertBiome("minecraft:savanna", f.getBiomeAt(20, 0, 0));
 	}
 
 	public void testSetBlockDataAt() {
@@ -88,6 +128,57 @@ public class MCAFileTest extends MCATestCase {
 		assertBlock("minecraft:custom", f.getBlockStateAt(0,0,0));
 	}
 
+	public void testFill() {
+		MCAFile f = new MCAFile(0, 0);
+		f.fill(new BlockBox(10, -64, 10, 40, -1, 40), block("minecraft:stone"));
+		assertBlock("minecraft:stone", f.getBlockStateAt(10, -64, 10));
+		assertBlock("minecraft:stone", f.getBlockStateAt(40, -1, 20));
+		assertBlock("minecraft:air", f.getBlockStateAt(41, -1, 20));
+		assertBlock("minecraft:air", f.getBlockStateAt(9, -64, 10));
+		assertNull(f.getBlockStateAt(10, 0, 10));
+
+		Section covered = f.getChunk(1, 1).getSection(-2);
+		assertEquals(1, covered.getBlockStatePalette().getPalette().size());
+		assertNull(covered.getBlockStatePalette().getByteMap());
+
+		f.fill(new BlockBox(-5, -64, -5, 511, -64, 511), block("minecraft:bedrock"));
+		assertBlock("minecraft:bedrock", f.getBlockStateAt(0, -64, 0));
+		assertBlock("minecraft:bedrock", f.getBlockStateAt(511, -64, 511));
+		assertBlock("minecraft:stone", f.getBlockStateAt(10, -63, 10));
+	}
+
+	public void testFillClampsHeight() {
+		MCAFile f = new MCAFile(0, 0);
+		f.fill(new BlockBox(0, Integer.MIN_VALUE, 0, 15, Integer.MAX_VALUE, 15), block("minecraft:stone"));
+		Chunk chunk = f.getChunk(0, 0);
+		assertEquals(Section.MAX_Y - Section.MIN_Y + 1, chunk.getSections().size());
+		assertBlock("minecraft:stone", f.getBlockStateAt(15, Section.MIN_BLOCK_Y, 15));
+		assertBlock("minecraft:stone", f.getBlockStateAt(0, Section.MAX_BLOCK_Y, 0));
+		assertEquals(Section.MIN_Y, chunk.getSection(Section.MIN_Y).getHeight());
+
+		MCAFile above = new MCAFile(0, 0);
+		above.fill(new BlockBox(0, Section.MAX_BLOCK_Y + 1, 0, 15, Integer.MAX_VALUE, 15), block("minecraft:dirt"));
+		assertNull(above.getChunk(0, 0));
+		assertThrowsRuntimeException(() -> chunk.getOrCreateSection(Section.MAX_Y + 1), IllegalArgumentException.class);
+		assertThrowsRuntimeException(() -> chunk.setBlockStateAt(0, Section.MIN_BLOCK_Y - 1, 0, block("minecraft:dirt")), IllegalArgumentException.class);
+	}
+
+	public void testReplace() {
+		MCAFile f = new MCAFile(0, 0);
+		f.fill(new BlockBox(0, 0, 0, 31, 15, 31), block("minecraft:stone"));
+		f.setBlockStateAt(5, 5, 5, block("minecraft:dirt"));
+		f.replace(t -> t.getString("Name").equals("minecraft:stone"), block("minecraft:granite"));
+		assertBlock("minecraft:granite", f.getBlockStateAt(0, 0, 0));
+		assertBlock("minecraft:granite", f.getBlockStateAt(31, 15, 31));
+		assertBlock("minecraft:dirt", f.getBlockStateAt(5, 5, 5));
+
+		Section uniform = f.getChunk(1, 1).getSection(0);
+		assertNull(uniform.getBlockStatePalette().getByteMap());
+		f.replace(t -> true, block("minecraft:air"));
+		assertBlock("minecraft:air", f.getBlockStateAt(5, 5, 5));
+		assertNull(f.getChunk(0, 0).getSection(0).getBlockStatePalette().getByteMap());
+	}
+
 	public void testGetBlockDataAt() {
 		MCAFile f = assertThrowsNoException(() -> MCAUtil.read(copyResourceToTmp("r.0.0.mca")));
 		assertBlock("minecraft:bedrock", f.getBlockStateAt(0, -64, 0));
@@ -106,7 +197,7 @@ public class MCAFileTest extends MCATestCase {
 	public void testSetChunkStatus() {
 		MCAFile f = assertThrowsNoException(() -> MCAUtil.read(copyResourceToTmp("r.2.2.mca")));
 		assertThrowsNoRuntimeException(() -> f.getChunk(0, 0).setStatus("base"));
-		assertEquals("base", f.getChunk(0, 0).updateHandle(64, 64).getCompoundTag("Level").getString("Status"));
+		assertEquals("base", f.getChunk(0, 0).updateHandle(64, 64).getString("Status"));
 		assertNull(f.getChunk(1, 0));
 	}
 
@@ -13,7 +13,7 @@ public abstract class MCATestCase extends NBTTestCase {
 	}
 
 	public CompoundTag getSection(CompoundTag chunk, int y) {
-		for (CompoundTag section : chunk.getCompoundTag("Level").getListTag("Sections").asCompoundTagList()) {
+		for (CompoundTag section : chunk.getListTag("sections").asCompoundTagList()) {
 			if (section.getByte("Y") == y) {
 				return section;
 			}
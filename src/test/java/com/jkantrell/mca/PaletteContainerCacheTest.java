@@ -0,0 +1,96 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.StringTag;
+
+public class PaletteContainerCacheTest extends MCATestCase {
+
+	public void testUniformSectionsShared() {
+		Section a = Section.newSection(0), b = Section.newSection(3);
+		assertSame(a.blockStates(), b.blockStates());
+		assertSame(a.biomes(), b.biomes());
+
+		a.setBlockStateAt(1, 1, 1, block("minecraft:stone"));
+		assertNotSame(a.blockStates(), b.blockStates());
+		assertEquals("minecraft:stone", a.getBlockStateAt(1, 1, 1).getString("Name"));
+		assertEquals("minecraft:air", b.getBlockStateAt(1, 1, 1).getString("Name"));
+		assertSame(a.biomes(), b.biomes());
+
+		a.fill(new BlockBox(0, 0, 0, 15, 15, 15), block("minecraft:deepslate"));
+		b.fill(new BlockBox(0, 0, 0, 15, 15, 15), block("minecraft:deepslate"));
+		assertSame(a.blockStates(), b.blockStates());
+
+		b.replace(t -> t.getString("Name").equals("minecraft:dirt"), block("minecraft:stone"));
+		assertSame(a.blockStates(), b.blockStates());
+		b.replace(t -> t.getString("Name").equals("minecraft:deepslate"), block("minecraft:stone"));
+		assertEquals("minecraft:deepslate", a.getBlockStateAt(0, 0, 0).getString("Name"));
+		assertEquals("minecraft:stone", b.getBlockStateAt(0, 0, 0).getString("Name"));
+	}
+
+	public void testLoadedSectionsShared() {
+		Section source = Section.newSection(0);
+		source.fill(new BlockBox(0, 0, 0, 15, 15, 15), block("minecraft:stone"));
+		source.setBiomeAt(1, 2, 3, new StringTag("minecraft:desert"));
+		CompoundTag tag = source.updateHandle().clone();
+
+		CompoundTag read = tag.clone();
+		CompoundTag states = read.getCompoundTag("block_states");
+		Section a = new Section(read), b = new Section(tag.clone());
+		assertSame(a.blockStates(), b.blockStates());
+		assertNotSame(a.biomes(), b.biomes());
+		assertSame(states, read.getCompoundTag("block_states"));
+		assertFalse(states.isFrozen());
+		assertFalse(a.getSource().containsKey("block_states"));
+
+		a.mutableBlockStates().set(0, block("minecraft:dirt"));
+		assertEquals("minecraft:dirt", a.getBlockStateAt(0, 0, 0).getString("Name"));
+		assertEquals("minecraft:stone", b.getBlockStateAt(0, 0, 0).getString("Name"));
+	}
+
+	public void testCopy() {
+		RegistryPaletteContainer palette = new RegistryPaletteContainer(block("minecraft:air"), 4096, 4);
+		palette.set(5, block("minecraft:stone"));
+		RegistryPaletteContainer copy = palette.copy();
+		copy.set(5, block("minecraft:dirt"));
+		assertEquals("minecraft:stone", palette.get(5).getString("Name"));
+		assertEquals("minecraft:dirt", copy.get(5).getString("Name"));
+		assertEquals(BlockStateRegistry.INSTANCE.idOf(block("minecraft:dirt")), copy.getId(5));
+	}
+
+	public void testSharedStatesFrozen() {
+		Section a = Section.newSection(0), b = Section.newSection(1);
+		a.fill(new BlockBox(0, 0, 0, 15, 15, 15), block("minecraft:stone"));
+		b.fill(new BlockBox(0, 0, 0, 15, 15, 15), block("minecraft:stone"));
+		assertSame(a.blockStates(), b.blockStates());
+
+		CompoundTag state = a.getBlockStateAt(1, 2, 3);
+		assertTrue(state.isFrozen());
+		assertThrowsRuntimeException(() -> state.putString("facing", "north"), UnsupportedOperationException.class);
+		a.setBlockStateAt(1, 2, 3, state.with("facing", new StringTag("north")));
+		assertEquals("north", a.getBlockStateAt(1, 2, 3).getString("facing"));
+		assertFalse(b.getBlockStateAt(1, 2, 3).containsKey("facing"));
+
+		CompoundTag mutable = block("minecraft:dirt");
+		a.fill(new BlockBox(0, 0, 0, 15, 15, 15), mutable);
+		mutable.putString("snowy", "true");
+		assertFalse(a.getBlockStateAt(0, 0, 0).containsKey("snowy"));
+	}
+
+	public void testPaletteGetterKeepsSharing() {
+		Section a = Section.newSection(0), b = Section.newSection(1);
+		PaletteContainer<CompoundTag> shared = a.getBlockStatePalette();
+		assertTrue(shared.isFrozen());
+		assertSame(shared, b.getBlockStatePalette());
+		assertSame(shared, a.getBlockStatePalette());
+		assertThrowsRuntimeException(() -> shared.set(0, block("minecraft:dirt")), UnsupportedOperationException.class);
+
+		PaletteContainer<CompoundTag> copy = a.mutableBlockStates();
+		assertNotSame(shared, copy);
+		assertFalse(copy.isFrozen());
+		copy.set(0, block("minecraft:dirt"));
+		assertEquals("minecraft:air", shared.get(0).getString("Name"));
+
+		a.setBlockStateAt(1, 1, 1, block("minecraft:stone"));
+		assertFalse(a.getBlockStatePalette().isFrozen());
+	}
+}
@@ -0,0 +1,62 @@
+package com.jkantrell.mca;
+
+import com.jkantrell.nbt.tag.CompoundTag;
+
+public class PaletteContainerTest extends MCATestCase {
+
+	public void testSetGrowsPalette() {
+		PaletteContainer<CompoundTag> c = new PaletteContainer<>(block("minecraft:air"), 4096, 4);
+		assertNull(c.getByteMap());
+		c.set(0, block("minecraft:stone"));
+		assertEquals(2, c.getPalette().size());
+		assertNotNull(c.getByteMap());
+		assertEquals("minecraft:stone", c.get(0).getString("Name"));
+		assertEquals("minecraft:air", c.get(1).getString("Name"));
+	}
+
+	public void testCompactDropsUnusedEntries() {
+		PaletteContainer<CompoundTag> c = new PaletteContainer<>(block("minecraft:air"), 4096, 4);
+		for (int i = 0; i < 20; i++) {
+			c.set(i, block("minecraft:block_" + i));
+		}
+		assertEquals(21, c.getPalette().size());
+		assertEquals(342, c.getByteMap().length);
+
+		for (int i = 1; i < 20; i++) {
+			c.set(i, block("minecraft:air"));
+		}
+		c.compact();
+		assertEquals(2, c.getPalette().size());
+		assertEquals(256, c.getByteMap().length);
+		assertEquals("minecraft:block_0", c.get(0).getString("Name"));
+		for (int i = 1; i < 4096; i++) {
+			assertEquals("minecraft:air", c.get(i).getString("Name"));
+		}
+	}
+
+	public void testCompactCollapsesSingleValue() {
+		PaletteContainer<CompoundTag> c = new PaletteContainer<>(block("minecraft:air"), 4096, 4);
+		c.set(10, block("minecraft:stone"));
+		c.set(10, block("minecraft:air"));
+		c.compact();
+		assertEquals(1, c.getPalette().size());
+		assertNull(c.getByteMap());
+		assertEquals("minecraft:air", c.get(10).getString("Name"));
+
+		c.set(5, block("minecraft:dirt"));
+		assertEquals("minecraft:dirt", c.get(5).getString("Name"));
+		assertEquals("minecraft:air", c.get(6).getString("Name"));
+	}
+
+	public void testBinaryMapBulkRoundTrip() {
+		int[] values = new int[4096];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (i * 7) % 31;
+		}
+		BinaryMap map = new BinaryMap(5, values);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], map.get(i));
+		}
+		assertTrue(java.util.Arrays.equals(values, map.toArray()));
+	}
+}
@@ -0,0 +1,52 @@
+package com.jkantrell.mca;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SectionArrayTest extends MCATestCase {
+
+	public void testGetAndPut() {
+		SectionArray sections = new SectionArray();
+		Section low = Section.newSection(-4), high = Section.newSection(19);
+		assertNull(sections.put(-4, low));
+		sections.put(19, high);
+		assertSame(low, sections.get(-4));
+		assertSame(high, sections.get(19));
+		assertNull(sections.get(0));
+		assertNull(sections.get(-100));
+		assertEquals(2, sections.size());
+		assertSame(low, sections.put(-4, null));
+		assertEquals(1, sections.size());
+		assertNull(sections.get(-4));
+	}
+
+	public void testGrowsOutsideDefaultRange() {
+		SectionArray sections = new SectionArray();
+		Section below = Section.newSection(-10), above = Section.newSection(40), middle = Section.newSection(0);
+		sections.put(0, middle);
+		sections.put(40, above);
+		sections.put(-10, below);
+		assertEquals(-10, sections.getMinSectionY());
+		assertSame(below, sections.get(-10));
+		assertSame(middle, sections.get(0));
+		assertSame(above, sections.get(40));
+		assertEquals(3, sections.toMap().size());
+	}
+
+	public void testIterationOrder() {
+		SectionArray sections = new SectionArray();
+		for (int y : new int[] {5, -4, 12, -1}) {
+			sections.put(y, Section.newSection(y));
+		}
+		List<Integer> heights = new ArrayList<>();
+		for (Section section : sections) {
+			heights.add(section.getHeight());
+		}
+		assertEquals(List.of(-4, -1, 5, 12), heights);
+		List<Section> view = sections.asList();
+		assertSame(view, sections.asList());
+		assertEquals(4, view.size());
+		sections.put(0, Section.newSection(0));
+		assertEquals(5, sections.asList().size());
+	}
+}
@@ -0,0 +1,129 @@
+package com.jkantrell.nbt.io;
+
+import com.jkantrell.NBTTestCase;
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.ListTag;
+import com.jkantrell.nbt.tag.StringTag;
+import com.jkantrell.nbt.tag.Tag;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class LazyCompoundTagTest extends NBTTestCase {
+
+	private CompoundTag createTree() {
+		CompoundTag root = new CompoundTag();
+		root.putInt("DataVersion", 3839);
+		root.putString("Status", "minecraft:full");
+		root.putString("unicode", "\u00e9t\u00e9 \u2603");
+		root.putLongArray("data", new long[] { 1, 2, Long.MAX_VALUE });
+		CompoundTag nested = new CompoundTag();
+		nested.putByte("b", (byte) 7);
+		nested.put("inner", new CompoundTag());
+		root.put("nested", nested);
+		ListTag<StringTag> list = new ListTag<>(StringTag.class);
+		list.addString("a");
+		list.addString("b");
+		root.put("list", list);
+		return root;
+	}
+
+	private LazyCompoundTag lazy(CompoundTag tag) {
+		return (LazyCompoundTag) assertThrowsNoException(() -> LazyCompoundTag.read(serialize(tag), Tag.DEFAULT_MAX_DEPTH)).getTag();
+	}
+
+	public void testGet() {
+		CompoundTag tree = createTree();
+		LazyCompoundTag lazy = lazy(tree);
+		assertEquals(6, lazy.size());
+		assertTrue(lazy.containsKey("nested"));
+		assertEquals(6, lazy.keySet().size());
+		assertTrue(lazy.isUntouched());
+		assertTrue(lazy.getLongArrayTag("data").isView());
+		assertEquals(Long.MAX_VALUE, lazy.getLongArrayTag("data").get(2));
+		assertTrue(lazy.isUntouched());
+
+		assertEquals(3839, lazy.getInt("DataVersion"));
+		assertEquals("\u00e9t\u00e9 \u2603", lazy.getString("unicode"));
+		assertTrue(Arrays.equals(new long[] { 1, 2, Long.MAX_VALUE }, lazy.getLongArray("data")));
+		assertTrue(lazy.getCompoundTag("nested") instanceof LazyCompoundTag);
+		assertEquals(7, lazy.getCompoundTag("nested").getByte("b"));
+		assertEquals(2, lazy.getListTag("list").size());
+		assertNull(lazy.get("missing"));
+
+		assertEquals(tree, lazy);
+		assertEquals(lazy, tree);
+		assertEquals(tree.hashCode(), lazy.hashCode());
+	}
+
+	public void testFreeze() {
+		CompoundTag tree = createTree();
+		byte[] data = serialize(tree);
+		LazyCompoundTag lazy = lazy(tree);
+		lazy.freeze();
+		assertTrue(lazy.getCompoundTag("nested").isFrozen());
+		assertTrue(lazy.getLongArrayTag("data").isView());
+		assertEquals(tree, lazy);
+		assertTrue(Arrays.equals(data, serialize(lazy)));
+		assertThrowsRuntimeException(() -> lazy.putInt("DataVersion", 1), UnsupportedOperationException.class);
+	}
+
+	public void testWriteUntouched() {
+		byte[] data = serialize(createTree());
+		LazyCompoundTag lazy = (LazyCompoundTag) assertThrowsNoException(() -> LazyCompoundTag.read(data, Tag.DEFAULT_MAX_DEPTH)).getTag();
+		assertTrue(Arrays.equals(data, serialize(lazy)));
+		lazy.getCompoundTag("nested").getCompoundTag("inner");
+		assertTrue(lazy.isUntouched());
+		assertTrue(Arrays.equals(data, serialize(lazy)));
+	}
+
+	public void testModify() {
+		LazyCompoundTag lazy = lazy(createTree());
+		lazy.getCompoundTag("nested").putString("added", "yes");
+		lazy.getListTag("list").asStringTagList().addString("c");
+		assertFalse(lazy.isUntouched());
+		CompoundTag read = (CompoundTag) deserialize(serialize(lazy));
+		assertEquals("yes", read.getCompoundTag("nested").getString("added"));
+		assertEquals(3, read.getListTag("list").size());
+		assertEquals("minecraft:full", read.getString("Status"));
+
+		lazy.remove("Status");
+		lazy.putInt("DataVersion", 1);
+		assertEquals(5, lazy.size());
+		read = (CompoundTag) deserialize(serialize(lazy));
+		assertEquals(1, read.getInt("DataVersion"));
+		assertFalse(read.containsKey("Status"));
+		assertEquals(read, lazy);
+	}
+
+	public void testUsableAsCompoundTag() {
+		ListTag<CompoundTag> list = new ListTag<>(CompoundTag.class);
+		list.add(new CompoundTag());
+		list.add(lazy(createTree()));
+		assertEquals(2, ((ListTag<?>) deserialize(serialize(list))).size());
+		assertEquals(createTree(), lazy(createTree()).clone());
+	}
+
+	public void testInvalidData() {
+		byte[] data = serialize(createTree());
+		assertThrowsException(() -> LazyCompoundTag.read(Arrays.copyOf(data, data.length - 4), Tag.DEFAULT_MAX_DEPTH), IOException.class);
+	}
+
+	public void testEstimateRetainedBytes() {
+		byte[] data = serialize(createTree());
+		LazyCompoundTag lazy = (LazyCompoundTag) assertThrowsNoException(() -> LazyCompoundTag.read(data, Tag.DEFAULT_MAX_DEPTH)).getTag();
+		long untouched = lazy.estimateRetainedBytes();
+		assertTrue(untouched > data.length);
+		assertTrue(lazy.isUntouched());
+		assertNull(lazy.get("missing"));
+
+		CompoundTag nested = lazy.getCompoundTag("nested");
+		assertTrue(nested.estimateRetainedBytes() < untouched);
+		long decoded = lazy.estimateRetainedBytes();
+		assertTrue(decoded > untouched);
+		assertTrue(decoded - untouched < nested.estimateRetainedBytes());
+
+		lazy.putInt("added", 1);
+		assertTrue(lazy.estimateRetainedBytes() > 0);
+	}
+}
@@ -0,0 +1,62 @@
+package com.jkantrell.nbt.io;
+
+import com.jkantrell.NBTTestCase;
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.Tag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+
+public class ModifiedUTF8Test extends NBTTestCase {
+
+	private static final String[] STRINGS = {
+			"", "minecraft:air", "with\u0000zero", "\u00e9t\u00e9", "snow \u2603 man", "\ud83d\ude00 emoji", "mixed ascii \u00ff\u0100\u07ff\u0800\uffff"
+	};
+
+	private byte[] javaEncoded(String s) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new DataOutputStream(baos).writeUTF(s);
+		byte[] bytes = baos.toByteArray();
+		return Arrays.copyOfRange(bytes, 2, bytes.length);
+	}
+
+	public void testEncode() throws IOException {
+		for (String s : STRINGS) {
+			byte[] expected = javaEncoded(s);
+			assertEquals(expected.length, ModifiedUTF8.encodedLength(s));
+			byte[] actual = new byte[expected.length + 3];
+			assertEquals(expected.length, ModifiedUTF8.encode(s, actual, 3));
+			assertTrue(s, Arrays.equals(expected, Arrays.copyOfRange(actual, 3, actual.length)));
+		}
+	}
+
+	public void testDecode() throws IOException {
+		for (String s : STRINGS) {
+			byte[] encoded = javaEncoded(s);
+			byte[] padded = new byte[encoded.length + 4];
+			System.arraycopy(encoded, 0, padded, 2, encoded.length);
+			assertEquals(s, ModifiedUTF8.decode(padded, 2, encoded.length));
+		}
+		assertThrowsException(() -> ModifiedUTF8.decode(new byte[] {(byte) 0xC3}, 0, 1), UTFDataFormatException.class);
+		assertThrowsException(() -> ModifiedUTF8.decode(new byte[] {'a', (byte) 0xE2, 0x41, 0x41}, 0, 4), UTFDataFormatException.class);
+		assertThrowsException(() -> ModifiedUTF8.decode(new byte[] {(byte) 0xF0, 0, 0, 0}, 0, 4), UTFDataFormatException.class);
+	}
+
+	public void testStreams() throws IOException {
+		CompoundTag tag = new CompoundTag();
+		for (String s : STRINGS) {
+			tag.putString(s, s);
+		}
+		NBTInputStream in = new NBTInputStream(new ByteArrayInputStream(serialize(tag)));
+		assertEquals(tag, in.readTag(Tag.DEFAULT_MAX_DEPTH).getTag());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new LittleEndianNBTOutputStream(out).writeTag(tag, Tag.DEFAULT_MAX_DEPTH);
+		LittleEndianNBTInputStream leIn = new LittleEndianNBTInputStream(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(tag, leIn.readTag(Tag.DEFAULT_MAX_DEPTH).getTag());
+	}
+}
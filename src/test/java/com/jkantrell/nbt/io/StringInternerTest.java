@@ -0,0 +1,84 @@
+package com.jkantrell.nbt.io;
+
+import com.jkantrell.NBTTestCase;
+import com.jkantrell.nbt.tag.CompoundTag;
+import com.jkantrell.nbt.tag.ListTag;
+import com.jkantrell.nbt.tag.StringTag;
+import com.jkantrell.nbt.tag.Tag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class StringInternerTest extends NBTTestCase {
+
+	public void testInternBytes() {
+		StringInterner interner = new StringInterner(16);
+		byte[] bytes = "xxminecraft:airxx".getBytes(StandardCharsets.UTF_8);
+		String a = interner.intern(bytes, 2, 13);
+		assertEquals("minecraft:air", a);
+		assertSame(a, interner.intern(bytes.clone(), 2, 13));
+		assertSame(a, interner.intern("{Name:minecraft:air}", 6, 19));
+		assertEquals("", interner.intern(bytes, 0, 0));
+
+		assertNull(interner.intern("\u00e9t\u00e9".getBytes(StandardCharsets.UTF_8), 0, 5));
+		assertNull(interner.intern(new byte[StringInterner.MAX_LENGTH + 1], 0, StringInterner.MAX_LENGTH + 1));
+		assertEquals("\u00e9t\u00e9", interner.intern("\u00e9t\u00e9", 0, 3));
+
+		interner.clear();
+		assertNotSame(a, interner.intern(bytes, 2, 13));
+	}
+
+	public void testCollisions() {
+		StringInterner interner = new StringInterner(1);
+		String a = interner.intern("Aa", 0, 2);
+		assertEquals("BB", interner.intern("BB", 0, 2));
+		assertEquals("Aa", interner.intern("Aa", 0, 2));
+		assertNotSame(a, interner.intern("BB".getBytes(StandardCharsets.US_ASCII), 0, 2));
+		assertThrowsRuntimeException(() -> new StringInterner(0), IllegalArgumentException.class);
+	}
+
+	private CompoundTag createTree() {
+		CompoundTag root = new CompoundTag();
+		ListTag<CompoundTag> palette = new ListTag<>(CompoundTag.class);
+		for (int i = 0; i < 3; i++) {
+			CompoundTag entry = new CompoundTag();
+			entry.putString("Name", "minecraft:air");
+			entry.putString("Unicode", "\u2603 \u00e9");
+			palette.add(entry);
+		}
+		root.put("palette", palette);
+		return root;
+	}
+
+	public void testReaders() throws Exception {
+		StringInterner interner = new StringInterner(64);
+		CompoundTag tree = createTree();
+
+		NBTInputStream in = new NBTInputStream(new ByteArrayInputStream(serialize(tree)), interner);
+		CompoundTag read = (CompoundTag) in.readTag(Tag.DEFAULT_MAX_DEPTH).getTag();
+		assertEquals(tree, read);
+		assertInterned(read);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new LittleEndianNBTOutputStream(out).writeTag(new NamedTag("root", tree), Tag.DEFAULT_MAX_DEPTH);
+		LittleEndianNBTInputStream leIn = new LittleEndianNBTInputStream(new ByteArrayInputStream(out.toByteArray()), interner);
+		NamedTag le = leIn.readTag(Tag.DEFAULT_MAX_DEPTH);
+		assertEquals("root", le.getName());
+		assertEquals(tree, le.getTag());
+		assertInterned((CompoundTag) le.getTag());
+
+		CompoundTag parsed = (CompoundTag) new SNBTParser(SNBTUtil.toSNBT(read), interner).parse();
+		assertEquals(tree, parsed);
+		assertInterned(parsed);
+		assertSame(read.getListTag("palette").asCompoundTagList().get(0).getString("Name"),
+				parsed.getListTag("palette").asCompoundTagList().get(2).getString("Name"));
+	}
+
+	private void assertInterned(CompoundTag tag) {
+		ListTag<CompoundTag> palette = tag.getListTag("palette").asCompoundTagList();
+		assertSame(palette.get(0).getString("Name"), palette.get(1).getString("Name"));
+		assertSame(palette.get(0).keySet().iterator().next(), palette.get(2).keySet().iterator().next());
+		assertEquals("\u2603 \u00e9", palette.get(1).getString("Unicode"));
+	}
+}
@@ -2,6 +2,7 @@ package com.jkantrell.nbt.tag;
 
 import com.jkantrell.NBTTestCase;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 public class ByteArrayTagTest extends NBTTestCase {
@@ -50,6 +51,24 @@ public class ByteArrayTagTest extends NBTTestCase {
 		assertTrue(t.equals(tt));
 	}
 
+	public void testView() {
+		ByteBuffer buffer = ByteBuffer.wrap(new byte[]{9, Byte.MIN_VALUE, 0, Byte.MAX_VALUE}).position(1);
+		ByteArrayTag t = ByteArrayTag.view(buffer, 3);
+		assertTrue(t.isView());
+		assertEquals(Byte.MAX_VALUE, t.get(2));
+		byte[] range = new byte[2];
+		t.get(1, range, 0, 2);
+		assertTrue(Arrays.equals(new byte[]{0, Byte.MAX_VALUE}, range));
+		ByteArrayTag array = new ByteArrayTag(new byte[]{Byte.MIN_VALUE, 0, Byte.MAX_VALUE});
+		assertEquals(array, t);
+		assertEquals(array.hashCode(), t.hashCode());
+		assertTrue(Arrays.equals(serialize(array), serialize(t)));
+		assertTrue(t.isView());
+		t.setValue(new byte[]{1});
+		assertFalse(t.isView());
+		assertEquals(1, t.length());
+	}
+
 	public void testCompareTo() {
 		ByteArrayTag t = new ByteArrayTag(new byte[]{Byte.MIN_VALUE, 0, Byte.MAX_VALUE});
 		ByteArrayTag t2 = new ByteArrayTag(new byte[]{Byte.MIN_VALUE, 0, Byte.MAX_VALUE});
@@ -6,6 +6,15 @@ import java.util.Arrays;
 
 public class ByteTagTest extends NBTTestCase {
 	
+	public void testValueOf() {
+		for (int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; i++) {
+			assertSame(ByteTag.valueOf((byte) i), ByteTag.valueOf((byte) i));
+			assertEquals(i, ByteTag.valueOf((byte) i).asByte());
+		}
+		assertTrue(ByteTag.valueOf((byte) 1).asBoolean());
+		assertThrowsRuntimeException(() -> ByteTag.valueOf((byte) 0).setValue((byte) 1), UnsupportedOperationException.class);
+	}
+
 	public void testCreate() {
 		ByteTag t = new ByteTag(Byte.MAX_VALUE);
 		assertEquals(Byte.MAX_VALUE, t.asByte());
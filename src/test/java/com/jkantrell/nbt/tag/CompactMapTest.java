@@ -0,0 +1,94 @@
+package com.jkantrell.nbt.tag;
+
+import com.jkantrell.NBTTestCase;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class CompactMapTest extends NBTTestCase {
+
+	public void testSmall() {
+		CompactMap<Integer> map = new CompactMap<>();
+		assertEquals(0, map.size());
+		assertNull(map.get("a"));
+		assertNull(map.put("c", 1));
+		assertNull(map.put("a", 2));
+		assertNull(map.put("b", 3));
+		assertEquals(Integer.valueOf(2), map.put("a", 4));
+		assertEquals(3, map.size());
+		assertEquals(Integer.valueOf(4), map.get("a"));
+		assertTrue(map.containsKey("b"));
+		assertFalse(map.containsKey(null));
+		assertEquals(List.of("c", "a", "b"), new ArrayList<>(map.keySet()));
+
+		assertEquals(Integer.valueOf(1), map.remove("c"));
+		assertNull(map.remove("c"));
+		assertEquals(List.of("a", "b"), new ArrayList<>(map.keySet()));
+		assertEquals(Map.of("a", 4, "b", 3), map);
+		assertEquals(Map.of("a", 4, "b", 3).hashCode(), map.hashCode());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertThrowsRuntimeException(() -> map.put(null, 1), NullPointerException.class);
+		assertThrowsRuntimeException(() -> map.put("a", null), NullPointerException.class);
+	}
+
+	public void testUpgrade() {
+		CompactMap<Integer> map = new CompactMap<>(1);
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 40; i++) {
+			map.put("k" + i, i);
+			expected.put("k" + i, i);
+			assertEquals(expected, map);
+		}
+		for (int i = 0; i < 40; i += 2) {
+			assertEquals(Integer.valueOf(i), map.remove("k" + i));
+			expected.remove("k" + i);
+		}
+		assertEquals(expected, map);
+		CompactMap<Integer> large = new CompactMap<>(CompactMap.THRESHOLD + 1);
+		large.putAll(expected);
+		assertEquals(expected, large);
+	}
+
+	public void testIterator() {
+		CompactMap<Integer> map = new CompactMap<>();
+		for (int i = 0; i < 5; i++) {
+			map.put("k" + i, i);
+		}
+		Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Integer> e = it.next();
+			if (e.getValue() % 2 == 0) {
+				it.remove();
+			} else {
+				e.setValue(e.getValue() * 10);
+			}
+		}
+		assertEquals(Map.of("k1", 10, "k3", 30), map);
+
+		Iterator<String> keys = map.keySet().iterator();
+		keys.next();
+		map.put("new", 1);
+		assertThrowsRuntimeException(keys::next, ConcurrentModificationException.class);
+	}
+
+	public void testCompoundTag() {
+		CompoundTag tag = new CompoundTag();
+		tag.putString("Name", "minecraft:stone");
+		tag.putInt("a", 1);
+		assertTrue(tag.getValue() instanceof CompactMap);
+		for (int i = 0; i < 20; i++) {
+			tag.putInt("i" + i, i);
+		}
+		assertEquals(22, tag.size());
+		assertEquals(19, tag.getInt("i19"));
+		CompoundTag clone = tag.clone();
+		assertEquals(tag, clone);
+		assertEquals(tag, deserialize(serialize(tag)));
+	}
+}
@@ -3,6 +3,7 @@ package com.jkantrell.nbt.tag;
 import com.jkantrell.NBTTestCase;
 import com.jkantrell.io.MaxDepthReachedException;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -135,6 +136,82 @@ public class CompoundTagTest extends NBTTestCase {
 		assertNotEquals(t.hashCode(), t2.hashCode());
 	}
 
+	public void testChangesOnlyInvalidateTheirContainers() {
+		CompoundTag a = new CompoundTag();
+		a.putInt("count", 1);
+		CompoundTag b = new CompoundTag();
+		b.putInt("count", 1);
+		int hash = a.hashCode();
+		b.hashCode();
+		b.getIntTag("count").setValue(2);
+		assertTrue(a.isHashTracked());
+		assertFalse(b.isHashTracked());
+		assertEquals(hash, a.hashCode());
+		assertFalse(hash == b.hashCode());
+
+		CompoundTag nested = new CompoundTag();
+		nested.putInt("x", 1);
+		CompoundTag root = new CompoundTag();
+		root.put("nested", nested);
+		hash = root.hashCode();
+		assertTrue(root.isHashTracked());
+		nested.getIntTag("x").setValue(2);
+		assertFalse(root.isHashTracked());
+		assertFalse(hash == root.hashCode());
+
+		IntTag moved = new IntTag(1);
+		a.put("moved", moved);
+		hash = a.hashCode();
+		b.put("moved", moved);
+		assertFalse(a.isHashTracked());
+		moved.setValue(3);
+		assertFalse(hash == a.hashCode());
+
+		ListTag<DoubleTag> motion = new ListTag<>(DoubleTag.class);
+		motion.addDouble(1);
+		DoubleTag x = motion.get(0);
+		hash = motion.hashCode();
+		x.setValue(2);
+		assertFalse(hash == motion.hashCode());
+	}
+
+	public void testCachedHashCode() {
+		CompoundTag properties = new CompoundTag();
+		properties.putString("facing", "north");
+		CompoundTag state = new CompoundTag();
+		state.putString("Name", "minecraft:furnace");
+		state.put("Properties", properties);
+		CompoundTag other = state.clone();
+		int hash = state.hashCode();
+		assertEquals(hash, state.hashCode());
+		assertEquals(state, other);
+
+		properties.putString("facing", "south");
+		assertFalse(hash == state.hashCode());
+		assertFalse(state.equals(other));
+		other.getCompoundTag("Properties").getStringTag("facing").setValue("south");
+		assertEquals(state, other);
+		assertEquals(state.hashCode(), other.hashCode());
+
+		hash = state.hashCode();
+		properties.keySet().remove("facing");
+		assertFalse(hash == state.hashCode());
+		assertFalse(state.equals(other));
+		properties.putString("facing", "south");
+		assertEquals(hash, state.hashCode());
+
+		Iterator<Map.Entry<String, Tag<?>>> it = properties.iterator();
+		it.next().setValue(new StringTag("east"));
+		assertFalse(hash == state.hashCode());
+		assertEquals("east", state.getCompoundTag("Properties").getString("facing"));
+
+		CompoundTag withArray = new CompoundTag();
+		withArray.putIntArray("data", new int[] {1, 2});
+		hash = withArray.hashCode();
+		withArray.getIntArray("data")[0] = 3;
+		assertFalse(hash == withArray.hashCode());
+	}
+
 	public void testClone() {
 		CompoundTag ct = createCompoundTag();
 		CompoundTag cl = ct.clone();
@@ -144,6 +221,67 @@ public class CompoundTagTest extends NBTTestCase {
 		assertNotSame(invokeGetValue(ct), invokeGetValue(cl));
 	}
 
+	public void testFreeze() {
+		CompoundTag ct = createCompoundTag();
+		ct.putIntArray("array", new int[] {1, 2});
+		CompoundTag copy = ct.clone();
+		assertSame(ct, ct.freeze());
+		assertTrue(ct.isFrozen());
+		assertTrue(ct.getListTag("list").isFrozen());
+		assertSame(ct, ct.clone());
+		assertEquals(copy, ct);
+		assertEquals(copy.hashCode(), ct.hashCode());
+
+		assertThrowsRuntimeException(() -> ct.putInt("int", 1), UnsupportedOperationException.class);
+		assertThrowsRuntimeException(() -> ct.remove("str"), UnsupportedOperationException.class);
+		assertThrowsRuntimeException(ct::clear, UnsupportedOperationException.class);
+		assertThrowsRuntimeException(() -> ct.keySet().remove("str"), UnsupportedOperationException.class);
+		assertThrowsRuntimeException(() -> ct.iterator().next().setValue(new IntTag(1)), UnsupportedOperationException.class);
+		assertThrowsRuntimeException(() -> ct.getStringTag("str").setValue("x"), UnsupportedOperationException.class);
+		ct.getIntArray("array")[0] = 5;
+		assertEquals(1, ct.getIntArrayTag("array").get(0));
+
+		CompoundTag big = new CompoundTag();
+		for (int i = 0; i <= CompactMap.THRESHOLD; i++) {
+			big.putInt("key" + i, i);
+		}
+		big.freeze();
+		assertThrowsRuntimeException(() -> big.iterator().next().setValue(new IntTag(1)), UnsupportedOperationException.class);
+		assertThrowsRuntimeException(() -> big.values().clear(), UnsupportedOperationException.class);
+
+		CompoundTag mutable = new CompoundTag();
+		mutable.put("frozen", ct);
+		mutable.putString("str", "foo");
+		CompoundTag clone = mutable.clone();
+		assertSame(ct, clone.get("frozen"));
+		assertNotSame(mutable.get("str"), clone.get("str"));
+	}
+
+	public void testWith() {
+		CompoundTag ct = createCompoundTag().freeze();
+		CompoundTag with = ct.with("str", new StringTag("bar"));
+		assertTrue(with.isFrozen());
+		assertEquals("bar", with.getString("str"));
+		assertEquals("foo", ct.getString("str"));
+		assertSame(ct.get("list"), with.get("list"));
+		assertEquals(ct.size(), with.size());
+		assertEquals(ct.keySet().iterator().next(), with.keySet().iterator().next());
+
+		CompoundTag added = with.with("new", new IntTag(3));
+		assertEquals(ct.size() + 1, added.size());
+		assertEquals(3, added.getInt("new"));
+
+		CompoundTag without = added.without("new");
+		assertEquals(with, without);
+		assertSame(without, without.without("new"));
+
+		CompoundTag thawed = without.thaw();
+		assertFalse(thawed.isFrozen());
+		thawed.putString("str", "baz");
+		assertEquals("bar", without.getString("str"));
+		assertSame(without.get("list"), thawed.get("list"));
+	}
+
 	public void testClear() {
 		CompoundTag cclear = new CompoundTag();
 		cclear.putString("test", "blah");
@@ -372,4 +510,25 @@ public class CompoundTagTest extends NBTTestCase {
 		assertEquals(1, ct.size());
 		assertEquals("bar", ct.getString("foo"));
 	}
+
+	public void testEstimateRetainedBytes() {
+		assertEquals(24, new IntTag(1).estimateRetainedBytes());
+		assertEquals(32, new LongTag(1).estimateRetainedBytes());
+		assertEquals(0, EndTag.INSTANCE.estimateRetainedBytes());
+		assertEquals(32 + 4016, new IntArrayTag(new int[1000]).estimateRetainedBytes());
+		assertEquals(HeapSize.string("minecraft:stone") + 24, new StringTag("minecraft:stone").estimateRetainedBytes());
+
+		CompoundTag ct = new CompoundTag();
+		long empty = ct.estimateRetainedBytes();
+		assertEquals(112, empty);
+		ct.putInt("a", 1);
+		ct.putIntArray("array", new int[1000]);
+		long filled = ct.estimateRetainedBytes();
+		assertTrue(filled > empty + HeapSize.string("a") + HeapSize.string("array") + 24 + 4048);
+		for (int i = 0; i < 20; i++) {
+			ct.putInt("key" + i, i);
+		}
+		assertTrue(ct.estimateRetainedBytes() > filled + 20 * (HeapSize.string("key0") + 24));
+		assertEquals(ct.estimateRetainedBytes(), ct.freeze().estimateRetainedBytes());
+	}
 }
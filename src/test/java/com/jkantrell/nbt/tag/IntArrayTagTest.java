@@ -2,6 +2,7 @@ package com.jkantrell.nbt.tag;
 
 import com.jkantrell.NBTTestCase;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 public class IntArrayTagTest extends NBTTestCase {
@@ -50,6 +51,38 @@ public class IntArrayTagTest extends NBTTestCase {
 		assertTrue(t.equals(tt));
 	}
 
+	public void testView() {
+		ByteBuffer buffer = ByteBuffer.allocate(12);
+		buffer.putInt(Integer.MIN_VALUE).putInt(0).putInt(Integer.MAX_VALUE).flip();
+		IntArrayTag t = IntArrayTag.view(buffer, 3);
+		assertTrue(t.isView());
+		assertEquals(Integer.MAX_VALUE, t.get(2));
+		IntArrayTag array = new IntArrayTag(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE});
+		assertEquals(array, t);
+		assertEquals(array.hashCode(), t.hashCode());
+		assertTrue(Arrays.equals(serialize(array), serialize(t)));
+		t.getValue()[1] = 5;
+		assertFalse(t.isView());
+		assertEquals(0, buffer.getInt(4));
+		assertEquals(5, t.get(1));
+	}
+
+	public void testFreeze() {
+		IntArrayTag t = new IntArrayTag(new int[]{1, 2, 3});
+		t.freeze();
+		assertSame(t, t.clone());
+		t.getValue()[0] = 5;
+		assertEquals(1, t.get(0));
+		assertThrowsRuntimeException(() -> t.setValue(new int[0]), UnsupportedOperationException.class);
+
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		buffer.putInt(4).putInt(5).flip();
+		IntArrayTag view = IntArrayTag.view(buffer, 2);
+		view.freeze();
+		assertTrue(Arrays.equals(new int[]{4, 5}, view.getValue()));
+		assertTrue(view.isView());
+	}
+
 	public void testCompareTo() {
 		IntArrayTag t = new IntArrayTag(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE});
 		IntArrayTag t2 = new IntArrayTag(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE});
@@ -1,7 +1,10 @@
 package com.jkantrell.nbt.tag;
 
 import com.jkantrell.NBTTestCase;
+import com.jkantrell.nbt.io.NBTInputStream;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Arrays;
 
 public class IntTagTest extends NBTTestCase {
@@ -35,6 +38,31 @@ public class IntTagTest extends NBTTestCase {
 		assertFalse(t.equals(t3));
 	}
 
+	public void testValueOf() {
+		IntTag t = IntTag.valueOf(1);
+		assertTrue(t.isFrozen());
+		assertSame(t, IntTag.valueOf(1));
+		assertEquals(new IntTag(1), t);
+		assertEquals(new IntTag(1).hashCode(), t.hashCode());
+		assertEquals(Integer.MAX_VALUE, IntTag.valueOf(Integer.MAX_VALUE).asInt());
+		assertThrowsRuntimeException(() -> t.setValue(2), UnsupportedOperationException.class);
+		assertEquals(1, t.asInt());
+	}
+
+	public void testReadOnly() throws IOException {
+		CompoundTag tag = new CompoundTag();
+		tag.putInt("a", 0);
+		tag.putInt("b", 0);
+		tag.putInt("big", Integer.MIN_VALUE);
+		NBTInputStream in = new NBTInputStream(new ByteArrayInputStream(serialize(tag)));
+		in.setReadOnly(true);
+		CompoundTag read = (CompoundTag) in.readTag(Tag.DEFAULT_MAX_DEPTH).getTag();
+		assertTrue(read.isFrozen());
+		assertEquals(tag, read);
+		assertSame(read.getIntTag("a"), read.getIntTag("b"));
+		assertTrue(read.getIntTag("big").isFrozen());
+	}
+
 	public void testClone() {
 		IntTag t = new IntTag(Integer.MAX_VALUE);
 		IntTag tc = t.clone();
@@ -6,6 +6,9 @@ import com.jkantrell.io.MaxDepthReachedException;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 import static org.junit.Assert.assertNotEquals;
 
 public class ListTagTest extends NBTTestCase {
@@ -87,6 +90,32 @@ public class ListTagTest extends NBTTestCase {
 		assertEquals(ls.hashCode(), ls2.hashCode());
 	}
 
+	public void testCachedHashCode() {
+		CompoundTag entry = new CompoundTag();
+		entry.putString("Name", "minecraft:stone");
+		ListTag<CompoundTag> palette = new ListTag<>(CompoundTag.class);
+		palette.add(entry);
+		ListTag<CompoundTag> other = palette.clone();
+		int hash = palette.hashCode();
+		assertEquals(palette, other);
+
+		entry.putString("Name", "minecraft:dirt");
+		assertFalse(hash == palette.hashCode());
+		assertFalse(palette.equals(other));
+
+		hash = palette.hashCode();
+		Iterator<CompoundTag> it = palette.iterator();
+		it.next();
+		it.remove();
+		assertFalse(hash == palette.hashCode());
+		assertEquals(new ListTag<>(CompoundTag.class), palette);
+
+		palette.addAll(List.of(entry, entry.clone()));
+		hash = palette.hashCode();
+		palette.get(1).putString("Name", "minecraft:air");
+		assertFalse(hash == palette.hashCode());
+	}
+
 	public void testClone() {
 		ListTag<IntTag> i = new ListTag<>(IntTag.class);
 		ListTag<IntTag> c = i.clone();
@@ -104,6 +133,90 @@ public class ListTagTest extends NBTTestCase {
 		assertFalse(invokeGetValue(i) == invokeGetValue(c2));
 	}
 
+	public void testFreeze() {
+		ListTag<CompoundTag> list = new ListTag<>(CompoundTag.class);
+		CompoundTag entry = new CompoundTag();
+		entry.putString("Name", "minecraft:air");
+		list.add(entry);
+		ListTag<CompoundTag> copy = list.clone();
+		list.freeze();
+		assertTrue(entry.isFrozen());
+		assertSame(list, list.clone());
+		assertEquals(copy, list);
+		assertEquals(copy.hashCode(), list.hashCode());
+		assertThrowsRuntimeException(() -> list.add(new CompoundTag()), UnsupportedOperationException.class);
+		assertThrowsRuntimeException(() -> list.remove(0), UnsupportedOperationException.class);
+		assertThrowsRuntimeException(() -> list.set(0, new CompoundTag()), UnsupportedOperationException.class);
+		assertThrowsRuntimeException(list::clear, UnsupportedOperationException.class);
+		assertThrowsRuntimeException(() -> {
+			Iterator<CompoundTag> it = list.iterator();
+			it.next();
+			it.remove();
+		}, UnsupportedOperationException.class);
+
+		ListTag<CompoundTag> thawed = list.thaw();
+		thawed.add(new CompoundTag());
+		assertEquals(1, list.size());
+		assertSame(entry, thawed.get(0));
+		assertThrowsRuntimeException(() -> thawed.get(0).putInt("x", 1), UnsupportedOperationException.class);
+	}
+
+	public void testNumberList() {
+		ListTag<DoubleTag> pos = new ListTag<>(DoubleTag.class);
+		pos.addDouble(1.5);
+		pos.addDouble(-64);
+		pos.add(new DoubleTag(Double.NaN));
+		assertEquals(1.5, pos.getDouble(0));
+		assertEquals(-64, pos.getInt(1));
+		assertEquals(-64L, pos.getLong(1));
+		assertEquals(1.5f, pos.getFloat(0));
+		assertTrue(Double.isNaN(pos.get(2).asDouble()));
+		assertEquals(Objects.hash(DoubleTag.class.hashCode(),
+				Arrays.asList(new DoubleTag(1.5), new DoubleTag(-64), new DoubleTag(Double.NaN)).hashCode()), pos.hashCode());
+
+		DoubleTag y = pos.get(1);
+		assertSame(y, pos.get(1));
+		y.setValue(70);
+		assertEquals(70.0, pos.getDouble(1));
+		pos.add(0, new DoubleTag(3));
+		assertSame(y, pos.get(2));
+		assertEquals(70.0, pos.remove(2).asDouble());
+		pos.set(0, new DoubleTag(4));
+		assertEquals(4.0, pos.getDouble(0));
+		pos.sort(Comparator.comparingDouble(DoubleTag::asDouble));
+		assertEquals(1.5, pos.getDouble(0));
+
+		ListTag<DoubleTag> copy = pos.clone();
+		assertEquals(pos, copy);
+		copy.set(0, new DoubleTag(0));
+		assertFalse(pos.equals(copy));
+		assertEquals(pos, deserialize(serialize(pos)));
+		assertEquals(pos, deserialize(serialize(pos.clone().freeze())));
+
+		ListTag<DoubleTag> motion = new ListTag<>(DoubleTag.class);
+		DoubleTag x = new DoubleTag(1);
+		motion.add(x);
+		x.setValue(2);
+		assertEquals(2.0, motion.getDouble(0));
+		assertSame(x, motion.get(0));
+
+		ListTag<?> untyped = ListTag.createUnchecked(EndTag.class);
+		untyped.addInt(5);
+		untyped.addUnchecked(new IntTag(-1));
+		assertEquals(IntTag.class, untyped.getTypeClass());
+		assertEquals(-1, untyped.getInt(1));
+		assertEquals((byte) 5, untyped.getByte(0));
+		assertThrowsRuntimeException(() -> untyped.addLong(1), IllegalArgumentException.class);
+
+		ListTag<FloatTag> rotation = new ListTag<>(FloatTag.class);
+		rotation.addFloat(90.5f);
+		rotation.freeze();
+		assertNotSame(rotation.get(0), rotation.get(0));
+		assertTrue(rotation.get(0).isFrozen());
+		assertThrowsRuntimeException(() -> rotation.addFloat(1), UnsupportedOperationException.class);
+		assertEquals(90.5f, rotation.thaw().getFloat(0));
+	}
+
 	public void testSerializeDeserialize() {
 		ListTag<ByteTag> bl = createListTag();
 		byte[] data = serialize(bl);
@@ -349,4 +462,18 @@ public class ListTagTest extends NBTTestCase {
 		assertEquals(1, la.size());
 		assertTrue(Arrays.equals(new long[] {Long.MIN_VALUE, 0, Long.MAX_VALUE}, la.get(0).getValue()));
 	}
+
+	public void testEstimateRetainedBytes() {
+		ListTag<DoubleTag> numbers = new ListTag<>(DoubleTag.class);
+		ListTag<StringTag> strings = new ListTag<>(StringTag.class);
+		for (int i = 0; i < 100; i++) {
+			numbers.addDouble(i);
+			strings.addString("");
+		}
+		long estimate = numbers.estimateRetainedBytes();
+		assertTrue(estimate < strings.estimateRetainedBytes());
+		assertEquals(estimate, numbers.estimateRetainedBytes());
+		numbers.get(0);
+		assertTrue(numbers.estimateRetainedBytes() >= estimate + 32);
+	}
 }
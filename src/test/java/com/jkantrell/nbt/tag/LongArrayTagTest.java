@@ -2,6 +2,8 @@ package com.jkantrell.nbt.tag;
 
 import com.jkantrell.NBTTestCase;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 public class LongArrayTagTest extends NBTTestCase {
@@ -50,6 +52,28 @@ public class LongArrayTagTest extends NBTTestCase {
 		assertTrue(t.equals(tt));
 	}
 
+	public void testView() {
+		ByteBuffer buffer = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putLong(99).putLong(Long.MIN_VALUE).putLong(0).putLong(Long.MAX_VALUE).position(8);
+		LongArrayTag t = LongArrayTag.view(buffer, 3);
+		assertEquals(8, buffer.position());
+		assertTrue(t.isView());
+		assertEquals(3, t.length());
+		assertEquals(Long.MIN_VALUE, t.get(0));
+		assertEquals(Long.MAX_VALUE, t.get(2));
+		assertThrowsRuntimeException(() -> t.get(3), IndexOutOfBoundsException.class);
+		LongArrayTag array = new LongArrayTag(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE});
+		assertEquals(array, t);
+		assertEquals(array.hashCode(), t.hashCode());
+		assertTrue(Arrays.equals(serialize(array), serialize(t)));
+		assertTrue(t.clone().isView());
+		assertTrue(t.isView());
+
+		assertTrue(Arrays.equals(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE}, t.getValue()));
+		assertFalse(t.isView());
+		assertThrowsRuntimeException(() -> LongArrayTag.view(buffer, 4), IndexOutOfBoundsException.class);
+	}
+
 	public void testCompareTo() {
 		LongArrayTag t = new LongArrayTag(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE});
 		LongArrayTag t2 = new LongArrayTag(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE});